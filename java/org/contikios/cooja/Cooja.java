@@ -46,6 +46,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Random;
@@ -62,6 +63,7 @@ import org.contikios.cooja.VisPlugin.PluginRequiresVisualizationException;
 import org.contikios.cooja.contikimote.ContikiMoteType;
 import org.contikios.cooja.dialogs.MessageListUI;
 import org.contikios.cooja.motes.DisturberMoteType;
+import org.contikios.cooja.motes.FlyweightMoteType;
 import org.contikios.cooja.motes.ImportAppMoteType;
 import org.contikios.cooja.mspmote.SkyMoteType;
 import org.contikios.cooja.mspmote.Z1MoteType;
@@ -413,6 +415,7 @@ public class Cooja {
     moteTypeClasses = new ArrayList<>();
     registerMoteType(ImportAppMoteType.class);
     registerMoteType(DisturberMoteType.class);
+    registerMoteType(FlyweightMoteType.class);
     registerMoteType(ContikiMoteType.class);
     registerMoteType(SkyMoteType.class);
     registerMoteType(Z1MoteType.class);
@@ -960,6 +963,8 @@ public class Cooja {
     settings.put("PATH_C_COMPILER", "gcc");
     settings.put("DEFAULT_PROJECTDIRS", "");
 
+    settings.put("CONTIKI_LIBRARY_COPIES", "1");
+
     settings.put("PARSE_WITH_COMMAND", "false");
     settings.put("READELF_COMMAND", "readelf -W --symbols $(LIBFILE)");
 
@@ -1142,12 +1147,30 @@ public class Cooja {
     boolean autoQuit = !simConfigs.isEmpty() && !config.vis;
     var failedTests = new ArrayList<Simulation.SimConfig>();
     for (var simConfig : simConfigs) {
+      if (!config.vis && simConfig.autoStart() && !simConfig.updateSim() && simConfig.opts().containsKey("seeds")) {
+        autoQuit = true;
+        int ret;
+        try {
+          ret = new SimulationEnsemble(gui, simConfig).run();
+        } catch (IllegalArgumentException | IOException | SimulationCreationException e) {
+          logger.error("Failed to run ensemble: {}", e.getMessage());
+          ret = 1;
+        }
+        if (ret == 0) {
+          logger.info("ENSEMBLE OK\n");
+        } else {
+          logger.error("ENSEMBLE {} FAILED\n", simConfig.file());
+          failedTests.add(simConfig);
+          rv = Math.max(rv, ret);
+        }
+        continue;
+      }
       logger.info("Loading " + simConfig.file() + " random seed: " + simConfig.randomSeed());
       Simulation sim = null;
       try {
         sim = config.vis
                 ? Cooja.gui.doLoadConfig(simConfig)
-                : gui.createSimulation(simConfig, gui.readSimulationConfig(simConfig), true, simConfig.randomSeed());
+                : gui.createSimulation(simConfig, gui.openSimulationConfig(simConfig), true, simConfig.randomSeed());
       } catch (MoteTypeCreationException | SimulationCreationException e) {
         logger.error("Failed to load simulation: {}", e.getMessage());
       } catch (Exception e) {
@@ -1160,7 +1183,8 @@ public class Cooja {
         rv = Math.max(rv, 1);
       } else if (simConfig.updateSim()) {
         autoQuit = true;
-        gui.saveSimulationConfig(new File(simConfig.file()));
+        gui.saveSimulationConfig(new File(simConfig.file()),
+                Boolean.parseBoolean(simConfig.opts().getOrDefault("sidecar", "false")));
       } else if (simConfig.autoStart()) {
         autoQuit = true;
         if (!config.vis) {
@@ -1185,6 +1209,23 @@ public class Cooja {
     }
   }
 
+  /**
+   * Opens a simulation config for streaming, the motes are created while the
+   * config is read. Used when loading without visualization, where the config
+   * is not edited before the simulation is created.
+   */
+  SimulationConfigReader openSimulationConfig(Simulation.SimConfig cfg) throws SimulationCreationException {
+    var file = new File(cfg.file());
+    try {
+      currentConfigFile = file.getCanonicalFile(); // Used to generate config relative paths.
+    } catch (IOException e) {
+      currentConfigFile = file;
+    }
+    var reader = SimulationConfigReader.open(file);
+    verifyProjects(reader.getRoot());
+    return reader;
+  }
+
   Element readSimulationConfig(Simulation.SimConfig cfg) throws SimulationCreationException {
     var file = new File(cfg.file());
     try {
@@ -1226,7 +1267,39 @@ public class Cooja {
    */
   Simulation createSimulation(Simulation.SimConfig cfg, Element root, boolean quick, Long manualRandomSeed)
           throws MoteTypeCreationException, SimulationCreationException {
-    var simCfg = root.getChild("simulation");
+    return createSimulation(cfg, SimulationConfigReader.of(root), quick, manualRandomSeed);
+  }
+
+  /**
+   * Create a new simulation object.
+   *
+   * @param cfg Configuration to use
+   * @param config The config reader.
+   * @param quick Do a quickstart.
+   * @param manualRandomSeed The random seed.
+   * @throws SimulationCreationException If creation fails.
+   * @return Simulation object.
+   */
+  Simulation createSimulation(Simulation.SimConfig cfg, SimulationConfigReader config, boolean quick,
+                              Long manualRandomSeed) throws MoteTypeCreationException, SimulationCreationException {
+    return createSimulation(cfg, config, quick, manualRandomSeed, null);
+  }
+
+  /**
+   * Create a new simulation object that reuses already loaded mote types.
+   *
+   * @param cfg Configuration to use
+   * @param config The config reader.
+   * @param quick Do a quickstart.
+   * @param manualRandomSeed The random seed.
+   * @param loadedMoteTypes Loaded mote types by identifier, or null
+   * @throws SimulationCreationException If creation fails.
+   * @return Simulation object.
+   */
+  Simulation createSimulation(Simulation.SimConfig cfg, SimulationConfigReader config, boolean quick,
+                              Long manualRandomSeed, Map<String, MoteType> loadedMoteTypes)
+          throws MoteTypeCreationException, SimulationCreationException {
+    var simCfg = config.getRoot().getChild("simulation");
     var title = simCfg.getChild("title").getText();
     var cfgSeed = simCfg.getChild("randomseed").getText();
     boolean generatedSeed = "generated".equals(cfgSeed);
@@ -1238,7 +1311,7 @@ public class Cooja {
             ? Integer.parseInt(simCfg.getChild("motedelay_us").getText())
             : Integer.parseInt(cfgDelay.getText()) * Simulation.MILLISECOND;
     doRemoveSimulation();
-    var sim = new Simulation(cfg, this, title, generatedSeed, seed, medium, delay, quick, root);
+    var sim = new Simulation(cfg, this, title, generatedSeed, seed, medium, delay, quick, config, loadedMoteTypes);
     setSimulation(sim);
     return sim;
   }
@@ -1249,20 +1322,43 @@ public class Cooja {
    * @param file File to write
    */
    void saveSimulationConfig(File file) {
+    saveSimulationConfig(file, false);
+  }
+
+  /**
+   * Saves current simulation configuration to given file and notifies observers.
+   * An existing mote sidecar of the file is kept in sync.
+   *
+   * @param file File to write
+   * @param sidecar Also create a mote sidecar
+   * @see SimulationSidecar
+   */
+  void saveSimulationConfig(File file, boolean sidecar) {
     try {
       currentConfigFile = file.getCanonicalFile();  // Used to generate config relative paths.
     } catch (IOException e) {
       currentConfigFile = file;
     }
 
+    Element root;
     try (var out = file.getName().endsWith(".gz")
             ? new GZIPOutputStream(new FileOutputStream(file)) : new FileOutputStream(file)) {
       var xmlOutput = new XMLOutputter(Format.getPrettyFormat());
       xmlOutput.getFormat().setLineSeparator("\n");
-      xmlOutput.output(new Document(extractSimulationConfig()), out);
+      root = extractSimulationConfig();
+      xmlOutput.output(new Document(root), out);
       logger.info("Saved to file: " + file.getAbsolutePath());
     } catch (Exception e) {
       logger.error("Exception while saving simulation config: " + e);
+      return;
+    }
+    if (sidecar || SimulationSidecar.getFile(file).exists()) {
+      try {
+        SimulationSidecar.write(file, root);
+        logger.info("Saved mote sidecar: " + SimulationSidecar.getFile(file).getAbsolutePath());
+      } catch (IOException e) {
+        logger.error("Failed to save mote sidecar: " + e.getMessage());
+      }
     }
   }
 
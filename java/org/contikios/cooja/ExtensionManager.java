@@ -34,12 +34,14 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.LinkedHashMap;
 import org.contikios.cooja.contikimote.ContikiMoteType;
 import org.contikios.cooja.motes.DisturberMoteType;
+import org.contikios.cooja.motes.FlyweightMoteType;
 import org.contikios.cooja.motes.ImportAppMoteType;
 import org.contikios.cooja.mspmote.SkyMoteType;
 import org.contikios.cooja.mspmote.Z1MoteType;
 import org.contikios.cooja.mspmote.plugins.MspCLI;
 import org.contikios.cooja.mspmote.plugins.MspCodeWatcher;
 import org.contikios.cooja.mspmote.plugins.MspCycleWatcher;
+import org.contikios.cooja.mspmote.plugins.MspGDBServer;
 import org.contikios.cooja.mspmote.plugins.MspStackWatcher;
 import org.contikios.cooja.plugins.BaseRSSIconf;
 import org.contikios.cooja.plugins.BufferListener;
@@ -91,6 +93,7 @@ public class ExtensionManager {
     registerBuiltinPlugin(MspCodeWatcher.class);
     registerBuiltinPlugin(MspStackWatcher.class);
     registerBuiltinPlugin(MspCycleWatcher.class);
+    registerBuiltinPlugin(MspGDBServer.class);
 
     registerBuiltinRadioMedium(UDGM.class);
     registerBuiltinRadioMedium(UDGMConstantLoss.class);
@@ -173,6 +176,7 @@ public class ExtensionManager {
     return switch (name) {
       case "org.contikios.cooja.motes.ImportAppMoteType" -> new ImportAppMoteType();
       case "org.contikios.cooja.motes.DisturberMoteType" -> new DisturberMoteType();
+      case "org.contikios.cooja.motes.FlyweightMoteType" -> new FlyweightMoteType();
       case "org.contikios.cooja.contikimote.ContikiMoteType" -> new ContikiMoteType(cooja);
       case "org.contikios.cooja.mspmote.SkyMoteType" -> new SkyMoteType();
       case "org.contikios.cooja.mspmote.Z1MoteType" -> new Z1MoteType();
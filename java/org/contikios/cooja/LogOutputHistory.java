@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import org.contikios.cooja.SimEventCentral.LogOutputEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Columnar store for the log output history of a simulation.
+ * <p>
+ * Every log message gets a row with an absolute index that never changes.
+ * Time, mote and message location are kept in chunked primitive arrays,
+ * the message bytes (UTF-8) in chunks of off-heap memory. Appending is O(1),
+ * and rows are accessed by index without creating LogOutputEvent objects.
+ * <p>
+ * The history either keeps the latest rows up to a capacity, or spills the
+ * message bytes to a memory-mapped temporary file and keeps all rows of the
+ * simulation run.
+ * <p>
+ * All methods are synchronized, rows are appended by the simulation thread
+ * and read by plugins and scripts.
+ */
+public class LogOutputHistory {
+  private static final Logger logger = LoggerFactory.getLogger(LogOutputHistory.class);
+
+  private static final int ROW_CHUNK_BITS = 14;
+  private static final int ROW_CHUNK_SIZE = 1 << ROW_CHUNK_BITS;
+  private static final int ROW_CHUNK_MASK = ROW_CHUNK_SIZE - 1;
+  private static final int ARENA_CHUNK_BITS = 20;
+  private static final int ARENA_CHUNK_SIZE = 1 << ARENA_CHUNK_BITS;
+  private static final int ARENA_CHUNK_MASK = ARENA_CHUNK_SIZE - 1;
+
+  private final ArrayList<long[]> times = new ArrayList<>();
+  private final ArrayList<int[]> moteRefs = new ArrayList<>();
+  private final ArrayList<long[]> offsets = new ArrayList<>();
+  private final ArrayList<int[]> lengths = new ArrayList<>();
+  private final ArrayList<ByteBuffer> arena = new ArrayList<>();
+
+  /** Motes that have logged, referenced by index from the rows. */
+  private final ArrayList<Mote> motes = new ArrayList<>();
+  private final IdentityHashMap<Mote, Integer> moteIndex = new IdentityHashMap<>();
+
+  /** Absolute index of the first row in the first row chunk. */
+  private long rowBase;
+  /** Absolute number of the first arena chunk. */
+  private long arenaBase;
+  /** Absolute index of the oldest row. */
+  private long first;
+  /** Absolute index of the next row. */
+  private long end;
+  /** Absolute arena position of the next message. */
+  private long arenaEnd;
+
+  private int capacity;
+  private File spillFile;
+  private FileChannel spillChannel;
+
+  private byte[] scratch = new byte[256];
+  private ByteBuffer spareArenaChunk;
+
+  /**
+   * Creates a log history that keeps the latest rows.
+   *
+   * @param capacity Maximum number of rows
+   */
+  public LogOutputHistory(int capacity) {
+    this.capacity = Math.max(1, capacity);
+  }
+
+  /**
+   * Appends a log message.
+   *
+   * @param mote Mote
+   * @param time Simulation time
+   * @param msg Message
+   * @return Absolute index of the new row
+   */
+  public synchronized long append(Mote mote, long time, String msg) {
+    var ref = moteIndex.get(mote);
+    if (ref == null) {
+      ref = motes.size();
+      motes.add(mote);
+      moteIndex.put(mote, ref);
+    }
+
+    // Encode ASCII messages without an intermediate byte array.
+    byte[] bytes = null;
+    int len = msg.length();
+    for (int i = 0; i < len; i++) {
+      if (msg.charAt(i) >= 0x80) {
+        bytes = msg.getBytes(UTF_8);
+        len = bytes.length;
+        break;
+      }
+    }
+    if (len > ARENA_CHUNK_SIZE) {
+      len = ARENA_CHUNK_SIZE;
+      // Do not cut a multi-byte character in half.
+      while (bytes != null && len > 0 && (bytes[len] & 0xc0) == 0x80) {
+        len--;
+      }
+    }
+    if (ARENA_CHUNK_SIZE - (int) (arenaEnd & ARENA_CHUNK_MASK) < len) {
+      // Messages do not span arena chunks, continue in the next one.
+      arenaEnd = (arenaEnd | ARENA_CHUNK_MASK) + 1;
+    }
+    var buf = arenaChunk(arenaEnd);
+    int pos = (int) (arenaEnd & ARENA_CHUNK_MASK);
+    if (bytes == null) {
+      for (int i = 0; i < len; i++) {
+        buf.put(pos + i, (byte) msg.charAt(i));
+      }
+    } else {
+      buf.put(pos, bytes, 0, len);
+    }
+
+    int chunk = (int) ((end - rowBase) >>> ROW_CHUNK_BITS);
+    if (chunk == times.size()) {
+      times.add(new long[ROW_CHUNK_SIZE]);
+      moteRefs.add(new int[ROW_CHUNK_SIZE]);
+      offsets.add(new long[ROW_CHUNK_SIZE]);
+      lengths.add(new int[ROW_CHUNK_SIZE]);
+    }
+    int row = (int) (end & ROW_CHUNK_MASK);
+    times.get(chunk)[row] = time;
+    moteRefs.get(chunk)[row] = ref;
+    offsets.get(chunk)[row] = arenaEnd;
+    lengths.get(chunk)[row] = len;
+    arenaEnd += len;
+    long index = end++;
+    if (spillChannel == null) {
+      evict(capacity);
+    }
+    return index;
+  }
+
+  /** Returns the arena chunk for an absolute arena position, allocating it if needed. */
+  private ByteBuffer arenaChunk(long position) {
+    int chunk = (int) ((position >>> ARENA_CHUNK_BITS) - arenaBase);
+    while (chunk >= arena.size()) {
+      arena.add(allocateArenaChunk(arenaBase + arena.size()));
+    }
+    return arena.get(chunk);
+  }
+
+  private ByteBuffer allocateArenaChunk(long chunk) {
+    if (spillChannel != null) {
+      try {
+        return spillChannel.map(FileChannel.MapMode.READ_WRITE, chunk << ARENA_CHUNK_BITS, ARENA_CHUNK_SIZE);
+      } catch (IOException e) {
+        logger.error("Failed to map log history file, keeping log messages in memory: " + e.getMessage());
+        closeSpill();
+      }
+    }
+    if (spareArenaChunk != null) {
+      var buf = spareArenaChunk;
+      spareArenaChunk = null;
+      return buf;
+    }
+    return ByteBuffer.allocateDirect(ARENA_CHUNK_SIZE);
+  }
+
+  /** Drops the oldest rows until at most maxRows remain. */
+  private void evict(int maxRows) {
+    if (end - first <= maxRows) {
+      return;
+    }
+    first = end - maxRows;
+    while (first - rowBase >= ROW_CHUNK_SIZE) {
+      times.remove(0);
+      moteRefs.remove(0);
+      offsets.remove(0);
+      lengths.remove(0);
+      rowBase += ROW_CHUNK_SIZE;
+    }
+    long oldest = first < end ? offset(first) : arenaEnd;
+    while ((oldest >>> ARENA_CHUNK_BITS) > arenaBase && !arena.isEmpty()) {
+      var buf = arena.remove(0);
+      if (!(buf instanceof MappedByteBuffer)) {
+        spareArenaChunk = buf;
+      }
+      arenaBase++;
+    }
+  }
+
+  private long offset(long index) {
+    return offsets.get((int) ((index - rowBase) >>> ROW_CHUNK_BITS))[(int) (index & ROW_CHUNK_MASK)];
+  }
+
+  private void checkIndex(long index) {
+    if (index < first || index >= end) {
+      throw new IndexOutOfBoundsException("Log history index " + index + " not in [" + first + ", " + end + ")");
+    }
+  }
+
+  /** Returns the absolute index of the oldest row. */
+  public synchronized long getFirstIndex() {
+    return first;
+  }
+
+  /** Returns the absolute index after the newest row. */
+  public synchronized long getEndIndex() {
+    return end;
+  }
+
+  /** Returns the number of rows. */
+  public synchronized int size() {
+    return (int) (end - first);
+  }
+
+  /** Returns the simulation time of a row. */
+  public synchronized long getTime(long index) {
+    checkIndex(index);
+    return times.get((int) ((index - rowBase) >>> ROW_CHUNK_BITS))[(int) (index & ROW_CHUNK_MASK)];
+  }
+
+  /** Returns the mote of a row. */
+  public synchronized Mote getMote(long index) {
+    checkIndex(index);
+    return motes.get(moteRefs.get((int) ((index - rowBase) >>> ROW_CHUNK_BITS))[(int) (index & ROW_CHUNK_MASK)]);
+  }
+
+  /** Returns the message of a row. */
+  public synchronized String getMessage(long index) {
+    checkIndex(index);
+    int len = lengths.get((int) ((index - rowBase) >>> ROW_CHUNK_BITS))[(int) (index & ROW_CHUNK_MASK)];
+    long pos = offset(index);
+    if (scratch.length < len) {
+      scratch = new byte[Integer.highestOneBit(len) << 1];
+    }
+    arena.get((int) ((pos >>> ARENA_CHUNK_BITS) - arenaBase)).get((int) (pos & ARENA_CHUNK_MASK), scratch, 0, len);
+    return new String(scratch, 0, len, UTF_8);
+  }
+
+  /** Returns a row as a log output event. */
+  public synchronized LogOutputEvent getEvent(long index) {
+    return new LogOutputEvent(getMote(index), getTime(index), getMessage(index));
+  }
+
+  /**
+   * Returns the absolute index of the first row logged at or after the given time,
+   * or the end index if there is no such row.
+   */
+  public synchronized long findFirstIndex(long time) {
+    long lo = first;
+    long hi = end;
+    while (lo < hi) {
+      long mid = (lo + hi) >>> 1;
+      if (getTime(mid) < time) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /** Returns all rows as log output events. */
+  public synchronized LogOutputEvent[] toArray() {
+    var events = new LogOutputEvent[size()];
+    for (int i = 0; i < events.length; i++) {
+      events[i] = getEvent(first + i);
+    }
+    return events;
+  }
+
+  /** Returns the maximum number of rows kept when not spilling to file. */
+  public synchronized int getCapacity() {
+    return capacity;
+  }
+
+  /** Sets the maximum number of rows kept when not spilling to file. */
+  public synchronized void setCapacity(int capacity) {
+    this.capacity = Math.max(1, capacity);
+    if (spillChannel == null) {
+      evict(this.capacity);
+    }
+  }
+
+  /** Returns true if the history spills to a memory-mapped file. */
+  public synchronized boolean isSpilling() {
+    return spillChannel != null;
+  }
+
+  /**
+   * Enables or disables spilling to a memory-mapped temporary file. The spill
+   * file applies to messages logged after the call; when disabled, the history
+   * is trimmed to its capacity.
+   *
+   * @param spill True to keep the full history in a memory-mapped file
+   */
+  public synchronized void setSpilling(boolean spill) {
+    if (spill == isSpilling()) {
+      return;
+    }
+    if (!spill) {
+      // The mapped chunks stay valid after the channel is closed.
+      closeSpill();
+      evict(capacity);
+      return;
+    }
+    try {
+      spillFile = File.createTempFile("cooja-log", ".bin");
+      spillFile.deleteOnExit();
+      spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      logger.error("Failed to create log history file: " + e.getMessage());
+      closeSpill();
+      return;
+    }
+    // Start a fresh arena chunk so the file only holds messages logged from now on.
+    if (arenaEnd > 0) {
+      arenaEnd = (arenaEnd | ARENA_CHUNK_MASK) + 1;
+    }
+  }
+
+  private void closeSpill() {
+    if (spillChannel != null) {
+      try {
+        spillChannel.close();
+      } catch (IOException e) {
+        logger.warn("Failed to close log history file: " + e.getMessage());
+      }
+      spillChannel = null;
+    }
+    if (spillFile != null) {
+      if (!spillFile.delete()) {
+        logger.debug("Could not delete log history file {}", spillFile);
+      }
+      spillFile = null;
+    }
+  }
+
+  /** Removes all rows. Absolute indices keep increasing. */
+  public synchronized void clear() {
+    times.clear();
+    moteRefs.clear();
+    offsets.clear();
+    lengths.clear();
+    arena.clear();
+    motes.clear();
+    moteIndex.clear();
+    first = end;
+    rowBase = end & ~(long) ROW_CHUNK_MASK;
+    arenaEnd = (arenaEnd | ARENA_CHUNK_MASK) + 1;
+    arenaBase = arenaEnd >>> ARENA_CHUNK_BITS;
+  }
+
+  /** Releases the spill file. */
+  public synchronized void close() {
+    clear();
+    closeSpill();
+  }
+}
@@ -48,6 +48,8 @@ import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
+import se.sics.mspsim.BatchRunner;
+import se.sics.mspsim.core.EmulationException;
 import se.sics.mspsim.platform.GenericNode;
 import se.sics.mspsim.util.ArgumentManager;
 
@@ -114,6 +116,20 @@ class Main {
   @Option(names = "--random-seed", paramLabel = "SEED", description = "the random seed")
   Long randomSeed;
 
+  /**
+   * Option for running every simulation once per seed in a range.
+   */
+  @Option(names = "--seeds", paramLabel = "RANGE",
+          description = "run each simulation once per seed, e.g. 1..200, and write an aggregated report")
+  String seeds;
+
+  /**
+   * Option for stopping a seed range early when the pass rate is known well enough.
+   */
+  @Option(names = "--confidence", paramLabel = "WIDTH",
+          description = "with --seeds, stop when the 95% confidence interval of the pass rate is at most WIDTH")
+  Double confidence;
+
   /**
    * Automatically start simulations.
    */
@@ -132,6 +148,12 @@ class Main {
   @Option(names = "--update-simulation", description = "write an updated simulation file (.csc) and exit")
   boolean updateSimulation;
 
+  /**
+   * Option for instructing Cooja to also write a binary mote sidecar when updating the simulation file.
+   */
+  @Option(names = "--sidecar", description = "with --update-simulation, also write a binary mote sidecar (.csc.motes)")
+  boolean sidecar;
+
   /**
    * Option for instructing Cooja to print the expected Contiki-NG build version.
    */
@@ -150,6 +172,27 @@ class Main {
   @Option(names = "--platform", paramLabel = "ARCH", description = "MSPSim platform")
   String mspSimPlatform;
 
+  /**
+   * Option for running MSPSim headless at full speed for a number of cycles.
+   */
+  @Option(names = "--batch-cycles", paramLabel = "CYCLES",
+          description = "with --platform, run without GUI at full speed for CYCLES cycles and print statistics")
+  Long batchCycles;
+
+  /**
+   * Option for running MSPSim headless at full speed for a simulated time.
+   */
+  @Option(names = "--batch-seconds", paramLabel = "SECONDS",
+          description = "with --platform, run without GUI at full speed for SECONDS simulated seconds and print statistics")
+  Double batchSeconds;
+
+  /**
+   * Option for running several MSPSim nodes per firmware in batch mode.
+   */
+  @Option(names = "--batch-nodes", paramLabel = "N",
+          description = "with --batch-cycles or --batch-seconds, the number of nodes to run for each firmware")
+  int batchNodes = 1;
+
   @Option(names = "--version", versionHelp = true,
           description = "print version information and exit")
   boolean versionRequested;
@@ -188,7 +231,20 @@ class Main {
     if (quitEarly) {
       return;
     }
-    options.gui = options.gui == null || options.gui;
+    var batch = options.batchCycles != null || options.batchSeconds != null;
+    if (batch && options.mspSimPlatform == null) {
+      System.err.println("Batch mode requires --platform");
+      System.exit(1);
+    }
+    if (batch && options.batchNodes < 1) {
+      System.err.println("The number of batch nodes must be at least 1");
+      System.exit(1);
+    }
+    options.gui = options.gui == null ? !batch : options.gui;
+    if (batch && options.gui) {
+      System.err.println("Batch mode can not be used with --gui");
+      System.exit(1);
+    }
 
     if (options.gui && GraphicsEnvironment.isHeadless()) {
       System.err.println("Trying to start GUI in headless environment, aborting");
@@ -200,6 +256,11 @@ class Main {
       System.exit(1);
     }
 
+    if ((options.seeds != null || options.confidence != null) && options.gui) {
+      System.err.println("Can only run seed ranges with --no-gui");
+      System.exit(1);
+    }
+
     if (!options.logColor) {
       if (System.getProperty("logback.layoutPattern") != null
               || !"logback.xml".equals(System.getProperty("logback.configurationFile", "logback.xml"))) {
@@ -265,6 +326,27 @@ class Main {
       var autoStart = map.getOrDefault("autostart", Boolean.toString(options.autoStart || !options.gui));
       var updateSim = map.getOrDefault("update-simulation", Boolean.toString(options.updateSimulation));
       var logDir = map.getOrDefault("logdir", options.logDir);
+      if (options.sidecar) {
+        map.putIfAbsent("sidecar", "true");
+      }
+      if (options.seeds != null) {
+        map.putIfAbsent("seeds", options.seeds);
+      }
+      if (options.confidence != null) {
+        map.putIfAbsent("confidence", options.confidence.toString());
+      }
+      if (map.containsKey("seeds")) {
+        if (!Boolean.parseBoolean(autoStart) || Boolean.parseBoolean(updateSim)) {
+          System.err.println("Seed ranges require autostart and can not be used with update-simulation: " + file);
+          System.exit(1);
+        }
+        try {
+          SimulationEnsemble.parseSeeds(map.get("seeds"));
+        } catch (IllegalArgumentException e) {
+          System.err.println("Invalid seed range '" + map.get("seeds") + "': " + e.getMessage());
+          System.exit(1);
+        }
+      }
       simConfigs.add(new Simulation.SimConfig(file, randomSeed == null ? options.randomSeed : Long.decode(randomSeed),
               Boolean.parseBoolean(autoStart), Boolean.parseBoolean(updateSim), logDir, map));
     }
@@ -310,6 +392,29 @@ class Main {
                 options.nashornArgs,
                 options.logDir, options.contikiPath, options.coojaPath);
       Cooja.go(cfg, simConfigs);
+    } else if (batch) { // Run MSPSim headless at full speed.
+      var nodeType = getNodeTypeByPlatform(options.mspSimPlatform);
+      BatchRunner runner = null;
+      try {
+        runner = BatchRunner.create(nodeType, options.simulationFiles, options.batchNodes);
+      } catch (IOException e) {
+        System.err.println("IOException from createNode: " + e.getMessage());
+        System.exit(1);
+      }
+      if (runner == null) {
+        System.err.println("MSPSim does not currently support the platform '" + options.mspSimPlatform + "'.");
+        System.exit(1);
+      }
+      try {
+        runner.run(Objects.requireNonNullElse(options.batchCycles, 0L),
+                Objects.requireNonNullElse(options.batchSeconds, 0.0));
+      } catch (EmulationException e) {
+        System.err.println("Emulation failed: " + e.getMessage());
+        runner.printReport(System.out);
+        System.exit(1);
+      }
+      runner.printReport(System.out);
+      System.exit(0);
     } else { // Start MSPSim.
       var config = new ArgumentManager(options.simulationFiles.toArray(new String[0]));
       GenericNode node = null;
@@ -72,6 +72,18 @@ public class MoteInterfaceHandler {
   private Radio myRadio;
   private SerialPort mySerialPort;
 
+  public MoteInterfaceHandler() {
+  }
+
+  /**
+   * Creates a mote interface handler holding the given interfaces.
+   *
+   * @param interfaces Mote interfaces
+   */
+  public MoteInterfaceHandler(Collection<? extends MoteInterface> interfaces) {
+    moteInterfaces.addAll(interfaces);
+  }
+
   /**
    * Initializes mote interface handler. All given interfaces are created.
    *
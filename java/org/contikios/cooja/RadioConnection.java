@@ -31,6 +31,8 @@
 package org.contikios.cooja;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.function.ToIntFunction;
 import org.contikios.cooja.interfaces.Radio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +61,7 @@ public class RadioConnection {
   private final int id;
 
   private final Radio source;
+  private final int channel;
   
   private final ArrayList<Radio> allDestinations = new ArrayList<>();
   private final ArrayList<Long> allDestinationDelays = new ArrayList<>();
@@ -66,6 +69,11 @@ public class RadioConnection {
   private final ArrayList<Radio> allInterfered = new ArrayList<>();
   private final ArrayList<Radio> onlyInterfered = new ArrayList<>();
   private final ArrayList<Radio> destinationsNonInterfered = new ArrayList<>();
+
+  /* Non-interfered destinations and interfered radios by radio index */
+  private ToIntFunction<Radio> radioIndex;
+  private final BitSet destinationBits = new BitSet();
+  private final BitSet interferedBits = new BitSet();
   
   private final long startTime;
 
@@ -76,6 +84,7 @@ public class RadioConnection {
    */
   public RadioConnection(Radio sourceRadio) {
     this.source = sourceRadio;
+    channel = sourceRadio.getChannel();
     startTime = sourceRadio.getMote().getSimulation().getSimulationTime();
 
     this.id = ID++;
@@ -88,6 +97,59 @@ public class RadioConnection {
     return startTime;
   }
 
+  /**
+   * @return Channel of the source radio when the connection started, or -1
+   */
+  public int getChannel() {
+    return channel;
+  }
+
+  /**
+   * Tracks the destinations and interfered radios as bit sets over radio
+   * indices, for example the radio indices of the radio medium, which makes
+   * {@link #isDestination(Radio)} and {@link #isInterfered(Radio)} constant time.
+   * Radios without an index (negative) are looked up in the lists.
+   *
+   * @param radioIndex Radio index function
+   * @see #clearRadioIndex(Radio)
+   */
+  public void setRadioIndex(ToIntFunction<Radio> radioIndex) {
+    this.radioIndex = radioIndex;
+    destinationBits.clear();
+    interferedBits.clear();
+    for (var radio : destinationsNonInterfered) {
+      setBit(destinationBits, radio, true);
+    }
+    for (var radio : allInterfered) {
+      setBit(interferedBits, radio, true);
+    }
+  }
+
+  /**
+   * Forgets the index of a radio, which must be done before the index is
+   * given to another radio.
+   *
+   * @param radio Radio
+   */
+  public void clearRadioIndex(Radio radio) {
+    int index = indexOf(radio);
+    if (index >= 0) {
+      destinationBits.clear(index);
+      interferedBits.clear(index);
+    }
+  }
+
+  private int indexOf(Radio radio) {
+    return radioIndex == null ? -1 : radioIndex.applyAsInt(radio);
+  }
+
+  private void setBit(BitSet bits, Radio radio, boolean value) {
+    int index = indexOf(radio);
+    if (index >= 0) {
+      bits.set(index, value);
+    }
+  }
+
   /**
    * @return Start time of ongoing reception
    */
@@ -122,6 +184,7 @@ public class RadioConnection {
     allDestinationDelays.remove(idx);
     destinationsNonInterfered.remove(radio);
     onlyInterfered.remove(radio);
+    setBit(destinationBits, radio, false);
   }
 
   /**
@@ -139,6 +202,7 @@ public class RadioConnection {
     allDestinationDelays.add(delay);
     destinationsNonInterfered.add(radio);
     onlyInterfered.remove(radio);
+    setBit(destinationBits, radio, true);
   }
 
   /**
@@ -170,7 +234,9 @@ public class RadioConnection {
     }
 
     allInterfered.add(radio);
+    setBit(interferedBits, radio, true);
     destinationsNonInterfered.remove(radio);
+    setBit(destinationBits, radio, false);
     if (!isDestination(radio)) {
       onlyInterfered.add(radio);
     }
@@ -181,7 +247,8 @@ public class RadioConnection {
    * @return True if radio is a non-interfered destination in this connection
    */
   public boolean isDestination(Radio radio) {
-    return destinationsNonInterfered.contains(radio);
+    int index = indexOf(radio);
+    return index >= 0 ? destinationBits.get(index) : destinationsNonInterfered.contains(radio);
   }
 
   /**
@@ -189,7 +256,8 @@ public class RadioConnection {
    * @return True if radio is interfered in this connection
    */
   public boolean isInterfered(Radio radio) {
-    return allInterfered.contains(radio);
+    int index = indexOf(radio);
+    return index >= 0 ? interferedBits.get(index) : allInterfered.contains(radio);
   }
 
   /**
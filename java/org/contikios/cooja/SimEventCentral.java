@@ -28,7 +28,6 @@
 
 package org.contikios.cooja;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Optional;
@@ -55,6 +54,7 @@ public class SimEventCentral {
 
   public SimEventCentral(Simulation simulation) {
     this.simulation = simulation;
+    logOutputHistory.setSpilling(Boolean.parseBoolean(Cooja.getExternalToolsSetting("BUFFERSPILL_LOGOUTPUT", "false")));
     positionTriggers = new AnyMoteEventTriggers<>(simulation, mote ->
             Optional.of(mote.getInterfaces().getPosition().getPositionTriggers()));
     logOutputTrigger = (event, data) -> {
@@ -66,19 +66,13 @@ public class SimEventCentral {
         msg = msg.substring(0, msg.length() - 1);
       }
 
-      // Evict the oldest event if the buffer will get full by the current message.
-      if (logOutputEvents.size() > logOutputBufferSize - 1) {
-        synchronized (logOutputEvents) {
-          // Use pollFirst since it does not throw exceptions like removeFirst when the queue is empty.
-          logOutputEvents.pollFirst();
-        }
-      }
-
-      // Store log output, and notify listeners.
-      var ev = new LogOutputEvent(data.mote(), simulation.getSimulationTime(), msg);
-      synchronized (logOutputEvents) {
-        logOutputEvents.add(ev);
-      }
+      // Store log output, and notify listeners. Messages with an earlier timestamp
+      // are clamped to the previous event so the history stays ordered by time.
+      var now = simulation.getSimulationTime();
+      var time = data.time() < 0 ? now : Math.max(lastLogOutputTime, Math.min(data.time(), now));
+      lastLogOutputTime = time;
+      var ev = new LogOutputEvent(data.mote(), time, msg);
+      logOutputHistory.append(ev.getMote(), time, msg);
       for (var l : logOutputListeners) {
         l.newLogOutput(ev);
       }
@@ -162,7 +156,8 @@ public class SimEventCentral {
   }
   /** Default buffer sizes. */
   private int logOutputBufferSize = Integer.parseInt(Cooja.getExternalToolsSetting("BUFFERSIZE_LOGOUTPUT", "" + 40000));
-  private final ArrayDeque<LogOutputEvent> logOutputEvents = new ArrayDeque<>();
+  private final LogOutputHistory logOutputHistory = new LogOutputHistory(logOutputBufferSize);
+  private long lastLogOutputTime;
   public interface LogOutputListener {
     void newLogOutput(LogOutputEvent ev);
   }
@@ -197,28 +192,30 @@ public class SimEventCentral {
       }
 
       /* Clear logs (TODO config) */
-      logOutputEvents.clear();
+      logOutputHistory.clear();
     }
   }
 
   public LogOutputEvent[] getLogOutputHistory() {
-    synchronized (logOutputEvents) {
-      return logOutputEvents.toArray(new LogOutputEvent[0]);
-    }
+    return logOutputHistory.toArray();
+  }
+  /** Returns the log output history, for access by index without copying. */
+  public LogOutputHistory getLogOutputHistoryStore() {
+    return logOutputHistory;
   }
   public int getLogOutputBufferSize() {
     return logOutputBufferSize;
   }
   public void setLogOutputBufferSize(int size) {
     logOutputBufferSize = size;
-    
-    /* We may have to remove some events now */
-    while (logOutputEvents.size() > logOutputBufferSize) {
-      LogOutputEvent removed = logOutputEvents.pollFirst();
-      if (removed == null) {
-        break;
-      }
-    }
+    logOutputHistory.setCapacity(size);
+  }
+  /** Returns true if the full log output history is kept in a memory-mapped file. */
+  public boolean isLogOutputSpilling() {
+    return logOutputHistory.isSpilling();
+  }
+  public void setLogOutputSpilling(boolean spill) {
+    logOutputHistory.setSpilling(spill);
   }
   public int getLogOutputObservationsCount() {
     int count=0;
@@ -237,9 +234,14 @@ public class SimEventCentral {
     "\nActive mote observations: " + moteObservations.size() +
     "\n" +
     "\nLog output listeners: " + logOutputListeners.length +
-    "\nLog output history: " + logOutputEvents.size()
+    "\nLog output history: " + logOutputHistory.size()
     ;
   }
+
+  /** Called when the simulation is removed. */
+  void removed() {
+    logOutputHistory.close();
+  }
   
 
   public Collection<Element> getConfigXML() {
@@ -248,6 +250,9 @@ public class SimEventCentral {
     /* Log output buffer size */
     var element = new Element("logoutput");
     element.setText(String.valueOf(logOutputBufferSize));
+    if (isLogOutputSpilling()) {
+      element.setAttribute("spill", "true");
+    }
     config.add(element);
 
     return config;
@@ -257,7 +262,11 @@ public class SimEventCentral {
     for (Element element : configXML) {
       String name = element.getName();
       if (name.equals("logoutput")) {
-        logOutputBufferSize = Integer.parseInt(element.getText());
+        setLogOutputBufferSize(Integer.parseInt(element.getText()));
+        var spill = element.getAttributeValue("spill");
+        if (spill != null) {
+          setLogOutputSpilling(Boolean.parseBoolean(spill));
+        }
       }
     }
   }
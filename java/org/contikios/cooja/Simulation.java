@@ -42,6 +42,8 @@ import org.contikios.cooja.Cooja.PluginConstructionException;
 import org.contikios.cooja.Cooja.SimulationCreationException;
 import org.contikios.cooja.util.EventTriggers;
 import org.contikios.cooja.util.EventTriggers.AddRemove;
+import org.contikios.cooja.util.RandomStreams;
+import org.contikios.cooja.util.Registry;
 import org.jdom2.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,8 +79,12 @@ public final class Simulation {
   /** Started simulation plugins. */
   final ArrayList<Plugin> startedPlugins = new ArrayList<>();
 
-  private final ArrayList<Mote> motes = new ArrayList<>();
+  private final Registry<Mote> motes = new Registry<>(Mote[]::new);
+  /** Motes by ID, rebuilt after motes are added or removed. Checked on lookup since IDs may change. */
+  private volatile HashMap<Integer, Mote> motesByID;
   private final ArrayList<MoteType> moteTypes = new ArrayList<>();
+  /** Mote types kept loaded between simulations of the same config, or null. */
+  private final Map<String, MoteType> loadedMoteTypes;
 
   private final LinkedBlockingDeque<Object> commandQueue = new LinkedBlockingDeque<>();
 
@@ -114,6 +120,7 @@ public final class Simulation {
   private final long maxMoteStartupDelay;
 
   private final SafeRandom randomGenerator;
+  private final RandomStreams randomStreams;
 
   /* Event queue */
   private final EventQueue eventQueue = new EventQueue();
@@ -186,15 +193,33 @@ public final class Simulation {
    * Creates a new simulation
    */
   public Simulation(SimConfig cfg, Cooja cooja, String title, boolean generateSeed, long seed,
-                    String radioMediumClass, long moteStartDelay, boolean quick, Element root)
+                    String radioMediumClass, long moteStartDelay, boolean quick, SimulationConfigReader config)
+          throws MoteType.MoteTypeCreationException, SimulationCreationException {
+    this(cfg, cooja, title, generateSeed, seed, radioMediumClass, moteStartDelay, quick, config, null);
+  }
+
+  /**
+   * Creates a new simulation that reuses mote types loaded by an earlier
+   * simulation of the same config. Mote types are looked up by identifier,
+   * types that are not found are loaded and added to the map. The mote types
+   * in the map are not removed with the simulation, the owner of the map
+   * removes them when done.
+   *
+   * @param loadedMoteTypes Loaded mote types by identifier, or null
+   */
+  Simulation(SimConfig cfg, Cooja cooja, String title, boolean generateSeed, long seed,
+             String radioMediumClass, long moteStartDelay, boolean quick, SimulationConfigReader config,
+             Map<String, MoteType> loadedMoteTypes)
           throws MoteType.MoteTypeCreationException, SimulationCreationException {
     this.cfg = cfg;
+    this.loadedMoteTypes = loadedMoteTypes;
     this.cooja = cooja;
     this.title = title;
     this.quick = quick;
     randomSeed = seed;
     randomSeedGenerated = generateSeed;
     randomGenerator = new SafeRandom(seed, this);
+    randomStreams = new RandomStreams(seed);
     currentRadioMedium = ExtensionManager.createRadioMedium(cooja, this, radioMediumClass);
     maxMoteStartupDelay = Math.max(0, moteStartDelay);
     simulationThread = new Thread(() -> {
@@ -266,7 +291,7 @@ public final class Simulation {
       }
 
       // Remove all motes and mote types.
-      for (var m : motes.toArray(new Mote[0])) {
+      for (var m : motes.snapshot()) {
         doRemoveMote(m);
       }
       for (var m : moteTypes.toArray(new MoteType[0])) {
@@ -275,30 +300,40 @@ public final class Simulation {
 
       // Remove the radio medium
       currentRadioMedium.removed();
+      eventCentral.removed();
 
       simulationStateTriggers.trigger(EventTriggers.Operation.REMOVE, this);
     }, "sim");
     simulationThread.start();
-    if (root != null) {
+    Element root = config == null ? null : config.getRoot();
+    if (config != null) {
       // Track identifier of mote types to deal with the legacy-XML format that used <motetype_identifier>.
       var moteTypesMap = new HashMap<String, MoteType>();
-      // Parse elements
-      for (var element : root.getChild("simulation").getChildren()) {
+      // Parse elements, motes are created as they are read.
+      Element element;
+      while ((element = config.nextSimulationElement()) != null) {
         switch (element.getName()) {
           case "speedlimit" -> setSpeedLimit(element.getText().equals("null") ? null : Double.parseDouble(element.getText()));
           case "events" -> eventCentral.setConfigXML(element.getChildren());
           case "motetype" -> {
-            String moteTypeClassName = element.getText().trim();
-            var moteType = ExtensionManager.createMoteType(cooja, moteTypeClassName);
-            if (!moteType.setConfigXML(this, element.getChildren(), Cooja.isVisualized())) {
-              logger.error("Mote type could not be configured: " + element.getText().trim());
-              throw new MoteType.MoteTypeCreationException("Mote type could not be configured: " + element.getText().trim());
+            var id = element.getChild("identifier");
+            MoteType moteType = loadedMoteTypes == null || id == null ? null : loadedMoteTypes.get(id.getText());
+            if (moteType == null) {
+              String moteTypeClassName = element.getText().trim();
+              moteType = ExtensionManager.createMoteType(cooja, moteTypeClassName);
+              if (!moteType.setConfigXML(this, element.getChildren(), Cooja.isVisualized())) {
+                logger.error("Mote type could not be configured: " + element.getText().trim());
+                throw new MoteType.MoteTypeCreationException("Mote type could not be configured: " + element.getText().trim());
+              }
+              if (loadedMoteTypes != null && id != null) {
+                loadedMoteTypes.put(id.getText(), moteType);
+              }
             }
             addMoteType(moteType);
-            for (var mote : element.getChildren("mote")) {
+            Element mote;
+            while ((mote = config.nextMote()) != null) {
               createMote(moteType, mote);
             }
-            var id = element.getChild("identifier");
             if (id != null) {
               moteTypesMap.put(id.getText(), moteType);
             }
@@ -316,6 +351,7 @@ public final class Simulation {
           }
         }
       }
+      config.finish();
       var mediumCfg = root.getChild("simulation").getChild("radiomedium");
       currentRadioMedium.setConfigXML(mediumCfg.getChildren(), Cooja.isVisualized());
 
@@ -474,6 +510,14 @@ public final class Simulation {
     }
   }
 
+  /**
+   * @return True if the simulation thread has quit and no longer runs
+   * actions from {@link #invokeSimulationThread(Runnable)}
+   */
+  public boolean isShutdown() {
+    return isShutdown;
+  }
+
   /**
    * @return True iff current thread is the simulation thread
    */
@@ -618,10 +662,24 @@ public final class Simulation {
     return randomSeed;
   }
 
+  /**
+   * Returns the random generator shared by all users of the simulation.
+   * Draws made by any component affect the numbers seen by all others,
+   * components should use their own stream from {@link #getRandomStreams()}.
+   *
+   * @return Shared random generator
+   */
   public Random getRandomGenerator() {
     return randomGenerator;
   }
 
+  /**
+   * @return Per-component random streams derived from the random seed
+   */
+  public RandomStreams getRandomStreams() {
+    return randomStreams;
+  }
+
   public SimEventCentral getEventCentral() {
     return eventCentral;
   }
@@ -684,7 +742,7 @@ public final class Simulation {
       // Motes
       var moteTypeId = moteType.getIdentifier();
       var moteConfigs = new ArrayList<Element>();
-      for (var mote : motes) {
+      for (var mote : motes.snapshot()) {
         if (!moteTypeId.equals(mote.getType().getIdentifier())) {
           continue;
         }
@@ -771,6 +829,7 @@ public final class Simulation {
 
   private void doRemoveMote(Mote mote) {
     boolean removed = motes.remove(mote);
+    motesByID = null;
     mote.removed();
     if (removed) {
       moteTriggers.trigger(AddRemove.REMOVE, mote);
@@ -810,6 +869,7 @@ public final class Simulation {
   public void addMote(final Mote mote) {
     invokeSimulationThread(() -> {
       motes.add(mote);
+      motesByID = null;
       mote.added();
       moteTriggers.trigger(AddRemove.ADD, mote);
       eventCentral.addMote(mote);
@@ -837,12 +897,31 @@ public final class Simulation {
    * @see Mote#getID()
    */
   public Mote getMoteWithID(int id) {
-    for (Mote m: motes) {
-      if (m.getID() == id) {
-        return m;
-      }
+    var index = motesByID;
+    if (index == null) {
+      index = indexMotesByID();
     }
-    return null;
+    return index.get(id);
+  }
+
+  /**
+   * Called when the ID of a mote has changed, the index used by
+   * getMoteWithID() is rebuilt on the next lookup.
+   *
+   * @see org.contikios.cooja.interfaces.MoteID#setMoteID(int)
+   */
+  public void moteIDChanged() {
+    motesByID = null;
+  }
+
+  private HashMap<Integer, Mote> indexMotesByID() {
+    var allMotes = motes.snapshot();
+    var index = HashMap.<Integer, Mote>newHashMap(allMotes.length);
+    for (var m : allMotes) {
+      index.putIfAbsent(m.getID(), m);
+    }
+    motesByID = index;
+    return index;
   }
 
   /**
@@ -855,14 +934,13 @@ public final class Simulation {
   }
 
   /**
-   * Returns all motes in this simulation.
+   * Returns all motes in this simulation. The array is shared
+   * and must not be modified.
    *
    * @return Motes
    */
   public Mote[] getMotes() {
-    Mote[] arr = new Mote[motes.size()];
-    motes.toArray(arr);
-    return arr;
+    return motes.snapshot();
   }
 
   /**
@@ -902,7 +980,9 @@ public final class Simulation {
     if (moteTypes.remove(type)) {
       moteTypeTriggers.trigger(AddRemove.REMOVE, type);
     }
-    type.removed();
+    if (loadedMoteTypes == null || !loadedMoteTypes.containsValue(type)) {
+      type.removed();
+    }
   }
 
   /**
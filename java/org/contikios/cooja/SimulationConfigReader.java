@@ -0,0 +1,487 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.contikios.cooja.Cooja.SimulationCreationException;
+import org.jdom2.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Source of the elements of a simulation config, read in document order.
+ * <p>
+ * The simulation takes the children of the &lt;simulation&gt; element one by
+ * one, and the &lt;mote&gt; elements of every mote type one by one after
+ * configuring the mote type. A config read from a file is streamed, so a
+ * mote element only exists while its mote is created, and the motes of large
+ * simulations are created as the file is read instead of after building a
+ * tree of the whole file.
+ * <p>
+ * The root element always holds the elements before the first mote type,
+ * which is enough to create the simulation. The plugins are added to the
+ * root by {@link #finish()}.
+ */
+public abstract class SimulationConfigReader {
+  /** Returns the root element. */
+  public abstract Element getRoot();
+
+  /**
+   * Returns the next child element of &lt;simulation&gt;, or null after the
+   * last one. The motes of a mote type are not children of the returned
+   * element, they are read by {@link #nextMote()}.
+   */
+  public abstract Element nextSimulationElement() throws SimulationCreationException;
+
+  /** Returns the next mote of the last mote type returned, or null after the last one. */
+  public abstract Element nextMote() throws SimulationCreationException;
+
+  /** Reads the rest of the config and adds the plugin elements to the root. */
+  public abstract void finish() throws SimulationCreationException;
+
+  /** Creates a reader for a config in memory. */
+  public static SimulationConfigReader of(Element root) {
+    return new TreeReader(root);
+  }
+
+  /**
+   * Opens a config file (.csc or .csc.gz) for streaming. If the file has an
+   * up-to-date mote sidecar, the motes are read from the sidecar instead, and
+   * the motes in the config are skipped without parsing them.
+   *
+   * @param file Simulation config file
+   * @return Reader, positioned after the elements needed to create the simulation
+   * @see SimulationSidecar
+   */
+  public static SimulationConfigReader open(File file) throws SimulationCreationException {
+    try {
+      return new StreamReader(file);
+    } catch (XMLStreamException e) {
+      throw new SimulationCreationException("Config not well-formed", e);
+    } catch (IOException e) {
+      throw new SimulationCreationException("Load simulation error", e);
+    }
+  }
+
+  private static final class TreeReader extends SimulationConfigReader {
+    private final Element root;
+    private final Iterator<Element> simulationElements;
+    private Iterator<Element> motes;
+
+    TreeReader(Element root) {
+      this.root = root;
+      simulationElements = List.copyOf(root.getChild("simulation").getChildren()).iterator();
+    }
+
+    @Override
+    public Element getRoot() {
+      return root;
+    }
+
+    @Override
+    public Element nextSimulationElement() {
+      motes = null;
+      if (!simulationElements.hasNext()) {
+        return null;
+      }
+      var element = simulationElements.next();
+      if ("motetype".equals(element.getName())) {
+        motes = element.getChildren("mote").iterator();
+      }
+      return element;
+    }
+
+    @Override
+    public Element nextMote() {
+      return motes != null && motes.hasNext() ? motes.next() : null;
+    }
+
+    @Override
+    public void finish() {
+    }
+  }
+
+  private static final class StreamReader extends SimulationConfigReader {
+    private static final Logger logger = LoggerFactory.getLogger(StreamReader.class);
+
+    private final InputStream in;
+    private final XMLStreamReader xml;
+    private final Element root;
+    private final Element simulation = new Element("simulation");
+    /* Elements read to create the simulation, not yet returned */
+    private final ArrayDeque<Element> pending = new ArrayDeque<>();
+    private boolean simulationDone;
+    /* Mote type whose motes are being read, the reader is at one of its children or its end */
+    private Element moteType;
+    private int moteTypeIndex = -1;
+    private final File sidecarFile;
+    private SimulationSidecar sidecar;
+    /* The motes of the mote type are read from the sidecar */
+    private boolean sidecarMotes;
+    /* Motes of some mote type are skipped in the config, the config motes cannot be used instead */
+    private final boolean skipsMotes;
+
+    StreamReader(File file) throws IOException, XMLStreamException, SimulationCreationException {
+      InputStream config = file.getName().endsWith(".gz")
+              ? new GZIPInputStream(new FileInputStream(file), 1 << 16) : new FileInputStream(file);
+      sidecarFile = SimulationSidecar.getFile(file);
+      sidecar = SimulationSidecar.open(file);
+      skipsMotes = sidecar != null && hasMoteRanges(sidecar);
+      in = skipsMotes ? new SkippingInputStream(config, sidecar) : config;
+      var factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      xml = factory.createXMLStreamReader(in);
+      if (xml.nextTag() != XMLStreamConstants.START_ELEMENT || !"simconf".equals(xml.getLocalName())) {
+        throw new SimulationCreationException("Not a valid simulation configuration file", null);
+      }
+      root = new Element("simconf");
+      for (int i = 0; i < xml.getAttributeCount(); i++) {
+        root.setAttribute(xml.getAttributeLocalName(i), xml.getAttributeValue(i));
+      }
+
+      /* Read up to the first mote type */
+      while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+        if (!"simulation".equals(xml.getLocalName())) {
+          root.addContent(readElement());
+          continue;
+        }
+        root.addContent(simulation);
+        while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+          var name = xml.getLocalName();
+          if ("motetype".equals(name) || "mote".equals(name)) {
+            return;
+          }
+          var element = readElement();
+          simulation.addContent(element);
+          pending.add(element);
+        }
+        simulationDone = true;
+        return;
+      }
+      throw new SimulationCreationException("No simulation in config", null);
+    }
+
+    @Override
+    public Element getRoot() {
+      return root;
+    }
+
+    @Override
+    public Element nextSimulationElement() throws SimulationCreationException {
+      if (!pending.isEmpty()) {
+        return pending.poll();
+      }
+      try {
+        if (moteType != null) {
+          /* Skip motes not read by the caller */
+          while (nextMote() != null) {
+          }
+        }
+        sidecarMotes = false;
+        if (simulationDone || xml.getEventType() != XMLStreamConstants.START_ELEMENT) {
+          simulationDone = true;
+          return null;
+        }
+        if (!"motetype".equals(xml.getLocalName())) {
+          var element = readElement();
+          simulation.addContent(element);
+          nextTag();
+          return element;
+        }
+
+        /* Mote type config, up to the first mote */
+        moteType = new Element("motetype");
+        moteTypeIndex++;
+        simulation.addContent(moteType);
+        int event;
+        while ((event = xml.next()) != XMLStreamConstants.END_ELEMENT) {
+          if (event == XMLStreamConstants.START_ELEMENT) {
+            if ("mote".equals(xml.getLocalName())) {
+              break;
+            }
+            moteType.addContent(readElement());
+          } else if (isText(event)) {
+            moteType.addContent(xml.getText());
+          }
+        }
+        useSidecar();
+        return moteType;
+      } catch (XMLStreamException e) {
+        throw new SimulationCreationException("Config not well-formed", e);
+      }
+    }
+
+    private void useSidecar() throws SimulationCreationException {
+      if (sidecar == null) {
+        return;
+      }
+      var id = moteType.getChildText("identifier");
+      if (moteTypeIndex < sidecar.getMoteTypeCount()
+              && id != null && id.equals(sidecar.getMoteTypeIdentifier(moteTypeIndex))) {
+        try {
+          sidecar.startMoteType(moteTypeIndex);
+          sidecarMotes = true;
+          return;
+        } catch (IOException e) {
+          sidecarFailed(e.getMessage());
+        }
+      } else {
+        sidecarFailed("mote type " + id + " does not match");
+      }
+    }
+
+    /** Falls back to the motes in the config, if they were not skipped. */
+    private void sidecarFailed(String reason) throws SimulationCreationException {
+      closeSidecar();
+      if (skipsMotes) {
+        throw new SimulationCreationException("Mote sidecar " + sidecarFile + " does not match the config ("
+                + reason + "), remove it and load again", null);
+      }
+      logger.warn("Ignoring mote sidecar " + sidecarFile + ", " + reason + ", reading motes from the config");
+    }
+
+    private void closeSidecar() {
+      sidecarMotes = false;
+      if (sidecar != null) {
+        try {
+          sidecar.close();
+        } catch (IOException e) {
+          logger.warn("Failed to close mote sidecar: " + e.getMessage());
+        }
+        sidecar = null;
+      }
+    }
+
+    private static boolean hasMoteRanges(SimulationSidecar sidecar) {
+      for (int t = 0; t < sidecar.getMoteTypeCount(); t++) {
+        if (sidecar.getMotesStart(t) >= 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Element nextMote() throws SimulationCreationException {
+      if (moteType == null) {
+        return null;
+      }
+      try {
+        if (sidecarMotes) {
+          Element mote;
+          try {
+            mote = sidecar.nextMote();
+          } catch (IOException e) {
+            throw new SimulationCreationException("Unreadable mote sidecar " + sidecarFile
+                    + ", remove it and load again", e);
+          }
+          if (mote != null) {
+            return mote;
+          }
+          sidecarMotes = false;
+        }
+        while (xml.getEventType() == XMLStreamConstants.START_ELEMENT) {
+          if (!"mote".equals(xml.getLocalName())) {
+            moteType.addContent(readElement());
+            nextMoteTypeChild();
+            continue;
+          }
+          if (sidecar != null) {
+            /* Motes of a mote type the sidecar could not skip */
+            skipElement();
+            nextMoteTypeChild();
+            continue;
+          }
+          var mote = readElement();
+          nextMoteTypeChild();
+          return mote;
+        }
+        /* End of mote type */
+        moteType = null;
+        nextTag();
+        return null;
+      } catch (XMLStreamException e) {
+        throw new SimulationCreationException("Config not well-formed", e);
+      }
+    }
+
+    /** Advances to the next child of the mote type, or its end. */
+    private void nextMoteTypeChild() throws XMLStreamException {
+      int event;
+      while ((event = xml.next()) != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+        if (isText(event)) {
+          moteType.addContent(xml.getText());
+        }
+      }
+    }
+
+    @Override
+    public void finish() throws SimulationCreationException {
+      try {
+        while (nextSimulationElement() != null) {
+        }
+        while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+          root.addContent(readElement());
+        }
+      } catch (XMLStreamException e) {
+        throw new SimulationCreationException("Config not well-formed", e);
+      } finally {
+        closeSidecar();
+        try {
+          xml.close();
+          in.close();
+        } catch (XMLStreamException | IOException e) {
+          logger.warn("Failed to close config: " + e.getMessage());
+        }
+      }
+    }
+
+    /** Advances to the next start or end tag, skipping text and comments. */
+    private int nextTag() throws XMLStreamException {
+      int event;
+      do {
+        event = xml.next();
+      } while (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT
+              && event != XMLStreamConstants.END_DOCUMENT);
+      return event;
+    }
+
+    private static boolean isText(int event) {
+      return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+              || event == XMLStreamConstants.SPACE;
+    }
+
+    /** Reads the element at the current start tag, the reader is left at its end tag. */
+    private Element readElement() throws XMLStreamException {
+      var element = new Element(xml.getLocalName());
+      for (int i = 0; i < xml.getAttributeCount(); i++) {
+        element.setAttribute(xml.getAttributeLocalName(i), xml.getAttributeValue(i));
+      }
+      int event;
+      while ((event = xml.next()) != XMLStreamConstants.END_ELEMENT) {
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          element.addContent(readElement());
+        } else if (isText(event)) {
+          element.addContent(xml.getText());
+        }
+      }
+      return element;
+    }
+
+    /** Skips the element at the current start tag, the reader is left at its end tag. */
+    private void skipElement() throws XMLStreamException {
+      int depth = 1;
+      while (depth > 0) {
+        int event = xml.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        }
+      }
+    }
+  }
+
+  /** Input stream of a config that leaves out the motes recorded in its sidecar. */
+  private static final class SkippingInputStream extends FilterInputStream {
+    private final long[] starts;
+    private final long[] ends;
+    private int range;
+    private long position;
+
+    SkippingInputStream(InputStream in, SimulationSidecar sidecar) {
+      super(in);
+      int count = 0;
+      starts = new long[sidecar.getMoteTypeCount()];
+      ends = new long[starts.length];
+      for (int t = 0; t < starts.length; t++) {
+        if (sidecar.getMotesStart(t) >= 0) {
+          starts[count] = sidecar.getMotesStart(t);
+          ends[count++] = sidecar.getMotesEnd(t);
+        }
+      }
+      range = starts.length - count;
+      /* Ranges are kept at the end of the arrays, in file order */
+      System.arraycopy(starts, 0, starts, range, count);
+      System.arraycopy(ends, 0, ends, range, count);
+    }
+
+    /** Skips the range starting at the position, returns the bytes that can be read before the next one. */
+    private long available(long max) throws IOException {
+      if (range < starts.length && position == starts[range]) {
+        in.skipNBytes(ends[range] - starts[range]);
+        position = ends[range++];
+      }
+      return range < starts.length ? Math.min(max, starts[range] - position) : max;
+    }
+
+    @Override
+    public int read() throws IOException {
+      available(1);
+      int c = in.read();
+      if (c >= 0) {
+        position++;
+      }
+      return c;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = in.read(b, off, (int) available(len));
+      if (n > 0) {
+        position += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(available(n));
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+}
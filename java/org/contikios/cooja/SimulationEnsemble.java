@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import org.contikios.cooja.Cooja.SimulationCreationException;
+import org.contikios.cooja.MoteType.MoteTypeCreationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a simulation config once for every seed in a range, e.g. "seeds=1..200".
+ * <p>
+ * The config is parsed and the mote types are loaded once, every seed then runs
+ * a new simulation that reuses the loaded mote types. Contiki motes start from
+ * the initial memory of their library copy and MSPSim motes from the firmware
+ * image cached by their mote type, so nothing is recompiled, reloaded or
+ * re-resolved between seeds. Every seed logs to its own "seed-N" subdirectory
+ * of the log directory, and the results of all seeds are collected in
+ * ensemble.csv.
+ * <p>
+ * With "confidence=W" the ensemble stops early once the 95% Wilson score
+ * interval of the pass rate is at most W wide.
+ */
+final class SimulationEnsemble {
+  private static final Logger logger = LoggerFactory.getLogger(SimulationEnsemble.class);
+
+  /** Standard normal quantile for a two-sided 95% interval. */
+  private static final double Z95 = 1.959964;
+
+  /** Confidence interval of a pass rate. */
+  record Interval(double low, double high) {
+    double width() {
+      return high - low;
+    }
+  }
+
+  /** Inclusive range of seeds. */
+  record SeedRange(long first, long last) {}
+
+  /** Seeds of an ensemble, ranges are iterated without being expanded. */
+  record Seeds(List<SeedRange> ranges) {
+    /** Returns the number of seeds, saturated at Long.MAX_VALUE. */
+    long count() {
+      long count = 0;
+      for (var range : ranges) {
+        long size = range.last() - range.first() + 1;
+        // Sizes above Long.MAX_VALUE wrap around to zero or below.
+        if (size <= 0 || count + size < count) {
+          return Long.MAX_VALUE;
+        }
+        count += size;
+      }
+      return count;
+    }
+
+    PrimitiveIterator.OfLong iterator() {
+      return new PrimitiveIterator.OfLong() {
+        private int range;
+        private long next = ranges.get(0).first();
+
+        @Override
+        public boolean hasNext() {
+          return range < ranges.size();
+        }
+
+        @Override
+        public long nextLong() {
+          if (range >= ranges.size()) {
+            throw new NoSuchElementException();
+          }
+          long seed = next;
+          if (seed == ranges.get(range).last()) {
+            if (++range < ranges.size()) {
+              next = ranges.get(range).first();
+            }
+          } else {
+            next++;
+          }
+          return seed;
+        }
+      };
+    }
+  }
+
+  private final Cooja cooja;
+  private final Simulation.SimConfig cfg;
+  private final Seeds seeds;
+  private final double confidenceWidth;
+
+  /**
+   * Creates an ensemble from the "seeds" and optional "confidence" options of
+   * a simulation config.
+   *
+   * @throws IllegalArgumentException If the options are invalid
+   */
+  SimulationEnsemble(Cooja cooja, Simulation.SimConfig cfg) {
+    this.cooja = cooja;
+    this.cfg = cfg;
+    seeds = parseSeeds(cfg.opts().get("seeds"));
+    var confidence = cfg.opts().get("confidence");
+    confidenceWidth = confidence == null ? 0 : Double.parseDouble(confidence);
+    if (confidenceWidth < 0 || confidenceWidth >= 1) {
+      throw new IllegalArgumentException("Confidence interval width must be between 0 and 1: " + confidence);
+    }
+  }
+
+  /**
+   * Parses a seed specification: a comma separated list of seeds and
+   * inclusive ranges, e.g. "1..200" or "3,7,10..20".
+   *
+   * @throws IllegalArgumentException If the specification is invalid
+   */
+  static Seeds parseSeeds(String spec) {
+    if (spec == null || spec.isBlank()) {
+      throw new IllegalArgumentException("No seeds specified");
+    }
+    var ranges = new ArrayList<SeedRange>();
+    for (var item : spec.split(",")) {
+      item = item.trim();
+      int range = item.indexOf("..");
+      long first = Long.decode(range < 0 ? item : item.substring(0, range).trim());
+      long last = range < 0 ? first : Long.decode(item.substring(range + 2).trim());
+      if (last < first) {
+        throw new IllegalArgumentException("Empty seed range: " + item);
+      }
+      ranges.add(new SeedRange(first, last));
+    }
+    return new Seeds(List.copyOf(ranges));
+  }
+
+  /** Returns the 95% Wilson score interval of the pass rate. */
+  static Interval passRateInterval(int passed, int runs) {
+    double p = (double) passed / runs;
+    double z2 = Z95 * Z95;
+    double denominator = 1 + z2 / runs;
+    double center = (p + z2 / (2.0 * runs)) / denominator;
+    double half = Z95 * Math.sqrt(p * (1 - p) / runs + z2 / (4.0 * runs * runs)) / denominator;
+    return new Interval(Math.max(0, center - half), Math.min(1, center + half));
+  }
+
+  /**
+   * Runs the simulation for every seed, or until the confidence target is met.
+   *
+   * @return 0 if all seeds passed, otherwise the largest return value of a seed
+   * @throws IOException If the report could not be written
+   * @throws SimulationCreationException If the config or mote types could not be loaded
+   */
+  int run() throws IOException, SimulationCreationException {
+    var root = cooja.readSimulationConfig(cfg);
+    var moteTypes = new LinkedHashMap<String, MoteType>();
+    var report = Path.of(cfg.logDir(), "ensemble.csv");
+    int runs = 0;
+    int passed = 0;
+    int rv = 0;
+    long totalWallTime = 0;
+    try (var out = Files.newBufferedWriter(report, UTF_8)) {
+      out.write("seed,result,simulated_us,wall_ms\n");
+      for (var it = seeds.iterator(); it.hasNext(); ) {
+        long seed = it.nextLong();
+        var logDir = Path.of(cfg.logDir(), "seed-" + seed);
+        Files.createDirectories(logDir);
+        var seedCfg = new Simulation.SimConfig(cfg.file(), seed, true, false, logDir.toString(), cfg.opts());
+        long startTime = System.nanoTime();
+        long simulated = 0;
+        Integer ret;
+        try {
+          var sim = cooja.createSimulation(seedCfg, SimulationConfigReader.of(root), true, seed, moteTypes);
+          sim.setSpeedLimit(null);
+          ret = sim.startSimulation(true);
+          simulated = sim.getSimulationTime();
+        } catch (MoteTypeCreationException e) {
+          // The mote types are shared by all seeds, give up.
+          throw new SimulationCreationException("Failed to load mote types: " + e.getMessage(), e);
+        } catch (SimulationCreationException e) {
+          logger.error("Seed {}: failed to create simulation: {}", seed, e.getMessage());
+          ret = 1;
+        }
+        long wallTime = (System.nanoTime() - startTime) / 1_000_000;
+        totalWallTime += wallTime;
+        runs++;
+        if (ret == null) {
+          passed++;
+        } else {
+          rv = Math.max(rv, ret);
+        }
+        out.write(seed + "," + (ret == null ? "OK" : "FAILED") + "," + simulated + "," + wallTime + "\n");
+        out.flush();
+        var interval = passRateInterval(passed, runs);
+        logger.info("Seed {}: {}, {}/{} passed (95% CI {})", seed, ret == null ? "OK" : "FAILED",
+                passed, runs, format(interval));
+        if (confidenceWidth > 0 && it.hasNext() && interval.width() <= confidenceWidth) {
+          logger.info("Confidence target {} reached after {} of {} seeds", confidenceWidth, runs, seeds.count());
+          break;
+        }
+      }
+      var interval = passRateInterval(passed, runs);
+      var summary = String.format(Locale.ROOT, "%d/%d seeds passed, pass rate %.4f (95%% CI %s), %d ms",
+              passed, runs, (double) passed / runs, format(interval), totalWallTime);
+      out.write("# " + summary + "\n");
+      logger.info("Ensemble {}: {}", cfg.file(), summary);
+    } finally {
+      cooja.doRemoveSimulation();
+      for (var moteType : moteTypes.values()) {
+        moteType.removed();
+      }
+    }
+    return rv;
+  }
+
+  private static String format(Interval interval) {
+    return String.format(Locale.ROOT, "%.4f..%.4f", interval.low(), interval.high());
+  }
+}
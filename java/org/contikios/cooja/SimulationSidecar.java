@@ -0,0 +1,624 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.jdom2.Attribute;
+import org.jdom2.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact binary copy of the motes of a simulation config.
+ * <p>
+ * The sidecar file (the config file name with ".motes" appended) holds the
+ * motes of every mote type. Mote IDs and positions are stored as numbers,
+ * other interface configs as elements with their names in a string table.
+ * Strings are stored as a length and UTF-8 bytes, so values of any size fit.
+ * <p>
+ * The sidecar also records where the motes of each mote type are in the
+ * config, so the config reader can skip them without parsing. Motes are
+ * read one at a time while they are created.
+ * <p>
+ * A sidecar is only used if the config file has the size and modification
+ * time recorded in the sidecar, so a config edited by hand falls back to the
+ * motes in the config. The sidecar ends with its own length, a sidecar that
+ * was cut short is not used either. Saving a config refreshes an existing
+ * sidecar.
+ *
+ * @see SimulationConfigReader#open(File)
+ */
+final class SimulationSidecar implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(SimulationSidecar.class);
+
+  private static final int MAGIC = 0x4353434d; /* "CSCM" */
+  private static final int VERSION = 3;
+
+  /* Kinds of mote config */
+  private static final int CONFIG_ELEMENT = 0;
+  private static final int CONFIG_ID = 1;
+  private static final int CONFIG_POSITION = 2;
+
+  private final DataInputStream in;
+  private final String[] names;
+  private final String[] moteTypeIdentifiers;
+  private final int[] moteCounts;
+  /** Byte range of the motes of every mote type in the uncompressed config, or -1 if not known. */
+  private final long[] motesStart;
+  private final long[] motesEnd;
+  /** Mote type whose motes are read next, and the number of its motes not yet read. */
+  private int moteType = -1;
+  private int motesLeft;
+
+  private SimulationSidecar(DataInputStream in, String[] names, String[] moteTypeIdentifiers, int[] moteCounts,
+                            long[] motesStart, long[] motesEnd) {
+    this.in = in;
+    this.names = names;
+    this.moteTypeIdentifiers = moteTypeIdentifiers;
+    this.moteCounts = moteCounts;
+    this.motesStart = motesStart;
+    this.motesEnd = motesEnd;
+  }
+
+  int getMoteTypeCount() {
+    return moteTypeIdentifiers.length;
+  }
+
+  String getMoteTypeIdentifier(int moteType) {
+    return moteTypeIdentifiers[moteType];
+  }
+
+  /** Returns the offset of the first mote of a mote type in the uncompressed config, or -1. */
+  long getMotesStart(int moteType) {
+    return motesStart[moteType];
+  }
+
+  /** Returns the offset after the last mote of a mote type in the uncompressed config, or -1. */
+  long getMotesEnd(int moteType) {
+    return motesEnd[moteType];
+  }
+
+  /** Returns the sidecar file of a config file. */
+  static File getFile(File config) {
+    return new File(config.getPath() + ".motes");
+  }
+
+  /**
+   * Opens the sidecar of a config file. Only the header is read, the motes
+   * are read by {@link #nextMote()}.
+   *
+   * @param config Config file
+   * @return Sidecar, or null if there is none or it does not match the config file
+   */
+  static SimulationSidecar open(File config) {
+    var file = getFile(config);
+    if (!file.exists()) {
+      return null;
+    }
+    try (var raf = new RandomAccessFile(file, "r")) {
+      if (raf.length() < Long.BYTES) {
+        logger.warn("Ignoring truncated mote sidecar " + file);
+        return null;
+      }
+      raf.seek(raf.length() - Long.BYTES);
+      if (raf.readLong() != raf.length()) {
+        logger.warn("Ignoring truncated mote sidecar " + file);
+        return null;
+      }
+    } catch (IOException e) {
+      logger.warn("Ignoring unreadable mote sidecar " + file + ": " + e.getMessage());
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        logger.warn("Ignoring mote sidecar of unknown format: " + file);
+        in.close();
+        return null;
+      }
+      if (in.readLong() != config.length() || in.readLong() != config.lastModified()) {
+        logger.info("Ignoring mote sidecar, config has changed: " + file);
+        in.close();
+        return null;
+      }
+      var names = new String[in.readInt()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = readString(in);
+      }
+      int moteTypes = in.readInt();
+      var identifiers = new String[moteTypes];
+      var counts = new int[moteTypes];
+      var starts = new long[moteTypes];
+      var ends = new long[moteTypes];
+      for (int t = 0; t < moteTypes; t++) {
+        identifiers[t] = readString(in);
+        counts[t] = in.readInt();
+        starts[t] = in.readLong();
+        ends[t] = in.readLong();
+      }
+      return new SimulationSidecar(in, names, identifiers, counts, starts, ends);
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Ignoring unreadable mote sidecar " + file + ": " + e.getMessage());
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e1) {
+          logger.debug("Failed to close mote sidecar: " + e1.getMessage());
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Starts reading the motes of a mote type. Mote types are read in order,
+   * the motes of the previous mote types that were not read are skipped.
+   */
+  void startMoteType(int moteType) throws IOException {
+    if (moteType <= this.moteType) {
+      throw new IllegalArgumentException("Mote types are read in order");
+    }
+    while (this.moteType < moteType) {
+      while (nextMote() != null) {
+      }
+      this.moteType++;
+      motesLeft = moteCounts[this.moteType];
+    }
+  }
+
+  /** Returns the next mote of the current mote type, or null after the last one. */
+  Element nextMote() throws IOException {
+    if (motesLeft == 0) {
+      return null;
+    }
+    motesLeft--;
+    var mote = new Element("mote");
+    for (int i = in.readInt(); i > 0; i--) {
+      switch (in.readByte()) {
+        case CONFIG_ELEMENT -> mote.addContent(readElement(in, names));
+        case CONFIG_ID -> {
+          var id = new Element("id").setText(Integer.toString(in.readInt()));
+          mote.addContent(new Element("interface_config").setText(names[in.readInt()]).addContent(id));
+        }
+        case CONFIG_POSITION -> {
+          var name = names[in.readInt()];
+          boolean hasZ = in.readBoolean();
+          var pos = new Element("pos");
+          pos.setAttribute("x", String.valueOf(in.readDouble()));
+          pos.setAttribute("y", String.valueOf(in.readDouble()));
+          if (hasZ) {
+            pos.setAttribute("z", String.valueOf(in.readDouble()));
+          }
+          mote.addContent(new Element("interface_config").setText(name).addContent(pos));
+        }
+        default -> throw new IOException("Bad mote config kind");
+      }
+    }
+    return mote;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private static Element readElement(DataInputStream in, String[] names) throws IOException {
+    var element = new Element(names[in.readInt()]);
+    for (int i = in.readInt(); i > 0; i--) {
+      element.setAttribute(names[in.readInt()], readString(in));
+    }
+    var text = readString(in);
+    if (!text.isEmpty()) {
+      element.addContent(text);
+    }
+    for (int i = in.readInt(); i > 0; i--) {
+      element.addContent(readElement(in, names));
+    }
+    return element;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Bad string length " + length);
+    }
+    /* Reads incrementally, a corrupt length fails at the end of the file */
+    var bytes = in.readNBytes(length);
+    if (bytes.length != length) {
+      throw new EOFException();
+    }
+    return new String(bytes, UTF_8);
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    var bytes = s.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Writes the sidecar of a config file that was just saved.
+   * The sidecar is written to a temporary file that replaces the old
+   * sidecar when complete, so a failed write leaves no partial sidecar.
+   *
+   * @param config Config file
+   * @param root Root element of the saved config
+   */
+  static void write(File config, Element root) throws IOException {
+    var moteTypes = root.getChild("simulation").getChildren("motetype");
+    var names = new HashMap<String, Integer>();
+    for (var moteType : moteTypes) {
+      for (var mote : moteType.getChildren("mote")) {
+        for (var element : mote.getChildren()) {
+          if (getConfigKind(element) == CONFIG_ELEMENT) {
+            collectNames(element, names);
+          } else {
+            names.putIfAbsent(element.getTextTrim(), names.size());
+          }
+        }
+      }
+    }
+    var table = new String[names.size()];
+    names.forEach((name, index) -> table[index] = name);
+    long[][] ranges;
+    try (InputStream in = config.getName().endsWith(".gz")
+            ? new GZIPInputStream(new FileInputStream(config), 1 << 16) : new FileInputStream(config)) {
+      ranges = findMotes(new BufferedInputStream(in, 1 << 16), moteTypes.size());
+    }
+
+    var file = getFile(config);
+    var tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+    try {
+      writeSidecar(tmp, config, moteTypes, table, names, ranges);
+      try {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp.toPath());
+    }
+  }
+
+  private static void writeSidecar(File file, File config, List<Element> moteTypes, String[] table,
+                                   HashMap<String, Integer> names, long[][] ranges) throws IOException {
+    try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(config.length());
+      out.writeLong(config.lastModified());
+      out.writeInt(table.length);
+      for (var name : table) {
+        writeString(out, name);
+      }
+      out.writeInt(moteTypes.size());
+      for (int t = 0; t < moteTypes.size(); t++) {
+        var id = moteTypes.get(t).getChildText("identifier");
+        writeString(out, id == null ? "" : id);
+        out.writeInt(moteTypes.get(t).getChildren("mote").size());
+        out.writeLong(ranges[t][0]);
+        out.writeLong(ranges[t][1]);
+      }
+      for (var moteType : moteTypes) {
+        for (var mote : moteType.getChildren("mote")) {
+          writeMote(out, mote, names);
+        }
+      }
+      out.writeLong(out.size() + Long.BYTES);
+    }
+  }
+
+  private static void writeMote(DataOutputStream out, Element mote, HashMap<String, Integer> names)
+          throws IOException {
+    var configs = mote.getChildren();
+    out.writeInt(configs.size());
+    for (var element : configs) {
+      int kind = getConfigKind(element);
+      out.writeByte(kind);
+      switch (kind) {
+        case CONFIG_ID -> {
+          out.writeInt(Integer.parseInt(element.getChild("id").getText()));
+          out.writeInt(names.get(element.getTextTrim()));
+        }
+        case CONFIG_POSITION -> {
+          var pos = element.getChild("pos");
+          out.writeInt(names.get(element.getTextTrim()));
+          out.writeBoolean(pos.getAttribute("z") != null);
+          out.writeDouble(Double.parseDouble(pos.getAttributeValue("x")));
+          out.writeDouble(Double.parseDouble(pos.getAttributeValue("y")));
+          if (pos.getAttribute("z") != null) {
+            out.writeDouble(Double.parseDouble(pos.getAttributeValue("z")));
+          }
+        }
+        default -> writeElement(out, element, names);
+      }
+    }
+  }
+
+  /**
+   * Returns how a mote config element is stored. Interface configs with only
+   * a mote ID or a position are stored as numbers if the numbers read back
+   * to the same text.
+   */
+  private static int getConfigKind(Element element) {
+    if (!"interface_config".equals(element.getName()) || !element.getAttributes().isEmpty()) {
+      return CONFIG_ELEMENT;
+    }
+    var children = element.getChildren();
+    if (children.size() != 1) {
+      return CONFIG_ELEMENT;
+    }
+    var child = children.get(0);
+    if (!child.getChildren().isEmpty()) {
+      return CONFIG_ELEMENT;
+    }
+    if ("id".equals(child.getName()) && child.getAttributes().isEmpty()) {
+      var text = child.getText();
+      try {
+        return Integer.toString(Integer.parseInt(text)).equals(text) ? CONFIG_ID : CONFIG_ELEMENT;
+      } catch (NumberFormatException e) {
+        return CONFIG_ELEMENT;
+      }
+    }
+    if ("pos".equals(child.getName()) && child.getTextTrim().isEmpty()) {
+      var attributes = child.getAttributes();
+      boolean hasZ = child.getAttribute("z") != null;
+      if (attributes.size() != (hasZ ? 3 : 2) || !isDouble(child.getAttributeValue("x"))
+              || !isDouble(child.getAttributeValue("y")) || hasZ && !isDouble(child.getAttributeValue("z"))) {
+        return CONFIG_ELEMENT;
+      }
+      return CONFIG_POSITION;
+    }
+    return CONFIG_ELEMENT;
+  }
+
+  private static boolean isDouble(String s) {
+    try {
+      return s != null && String.valueOf(Double.parseDouble(s)).equals(s);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static void collectNames(Element element, HashMap<String, Integer> names) {
+    names.putIfAbsent(element.getName(), names.size());
+    for (Attribute attribute : element.getAttributes()) {
+      names.putIfAbsent(attribute.getName(), names.size());
+    }
+    for (var child : element.getChildren()) {
+      collectNames(child, names);
+    }
+  }
+
+  private static void writeElement(DataOutputStream out, Element element, HashMap<String, Integer> names)
+          throws IOException {
+    out.writeInt(names.get(element.getName()));
+    var attributes = element.getAttributes();
+    out.writeInt(attributes.size());
+    for (Attribute attribute : attributes) {
+      out.writeInt(names.get(attribute.getName()));
+      writeString(out, attribute.getValue());
+    }
+    var children = element.getChildren();
+    writeString(out, children.isEmpty() ? element.getText() : element.getTextTrim());
+    out.writeInt(children.size());
+    for (var child : children) {
+      writeElement(out, child, names);
+    }
+  }
+
+  /**
+   * Finds the byte range of the motes of every mote type in a config.
+   * A range is only recorded if the motes follow each other with nothing but
+   * white space and comments in between, so skipping the range skips exactly
+   * the motes.
+   *
+   * @param in Uncompressed config
+   * @param moteTypes Number of mote types in the config
+   * @return Start and end offset per mote type, -1 if not known
+   */
+  static long[][] findMotes(InputStream in, int moteTypes) throws IOException {
+    var ranges = new long[moteTypes][];
+    for (int t = 0; t < moteTypes; t++) {
+      ranges[t] = new long[] { -1, -1 };
+    }
+    var scanner = new TagScanner(in);
+    int moteType = -1;
+    int depth = 0;
+    /* Depth of the mote type being scanned, or -1 outside mote types */
+    int moteTypeDepth = -1;
+    /* Something other than a mote follows a mote, and whether the motes so far follow each other */
+    boolean interrupted = false;
+    boolean contiguous = true;
+    int c;
+    while ((c = scanner.read()) >= 0) {
+      boolean moteTypeChild = moteTypeDepth >= 0 && depth == moteTypeDepth + 1;
+      if (c != '<') {
+        if (moteTypeChild && !Character.isWhitespace(c)) {
+          interrupted = true;
+        }
+        continue;
+      }
+      long start = scanner.position - 1;
+      var tag = scanner.readTag();
+      if (tag == null) {
+        continue; /* Comment, processing instruction or declaration */
+      }
+      if (tag.end()) {
+        depth--;
+        if (moteTypeDepth >= 0 && depth == moteTypeDepth + 1 && "mote".equals(tag.name())) {
+          ranges[moteType][1] = scanner.position;
+          interrupted = false;
+        } else if (depth == moteTypeDepth) {
+          if (!contiguous) {
+            ranges[moteType][0] = ranges[moteType][1] = -1;
+          }
+          moteTypeDepth = -1;
+        }
+        continue;
+      }
+      if (moteTypeChild) {
+        if (!"mote".equals(tag.name())) {
+          interrupted = true;
+        } else {
+          if (ranges[moteType][0] < 0) {
+            ranges[moteType][0] = start;
+          } else if (interrupted) {
+            contiguous = false;
+          }
+          interrupted = false;
+          if (tag.empty()) {
+            ranges[moteType][1] = scanner.position;
+          }
+        }
+      } else if (moteTypeDepth < 0 && "motetype".equals(tag.name()) && !tag.empty()) {
+        if (++moteType == moteTypes) {
+          /* Mote types the saved config does not have */
+          return failed(ranges);
+        }
+        moteTypeDepth = depth;
+        contiguous = true;
+        interrupted = false;
+      }
+      if (!tag.empty()) {
+        depth++;
+      }
+    }
+    return moteType == moteTypes - 1 ? ranges : failed(ranges);
+  }
+
+  private static long[][] failed(long[][] ranges) {
+    for (var range : ranges) {
+      Arrays.fill(range, -1);
+    }
+    return ranges;
+  }
+
+  /** Reads the tags of an XML document byte by byte, counting the position. */
+  private static final class TagScanner {
+    private final InputStream in;
+    long position;
+
+    TagScanner(InputStream in) {
+      this.in = in;
+    }
+
+    int read() throws IOException {
+      int c = in.read();
+      if (c >= 0) {
+        position++;
+      }
+      return c;
+    }
+
+    private record Tag(String name, boolean end, boolean empty) {}
+
+    /** Reads a tag after its '<', returns null for anything but an element tag. */
+    Tag readTag() throws IOException {
+      int c = read();
+      if (c == '!' || c == '?') {
+        skipMarkup(c);
+        return null;
+      }
+      boolean end = c == '/';
+      if (end) {
+        c = read();
+      }
+      var name = new StringBuilder();
+      while (c >= 0 && c != '>' && c != '/' && !Character.isWhitespace(c)) {
+        name.append((char) c);
+        c = read();
+      }
+      /* Attributes, '>' and '/' may be in quoted values */
+      int quote = 0;
+      int last = 0;
+      while (c >= 0 && (quote != 0 || c != '>')) {
+        if (quote == 0 && (c == '"' || c == '\'')) {
+          quote = c;
+        } else if (c == quote) {
+          quote = 0;
+        }
+        last = c;
+        c = read();
+      }
+      return new Tag(name.toString(), end, last == '/');
+    }
+
+    /** Skips a comment, CDATA section, declaration or processing instruction. */
+    private void skipMarkup(int type) throws IOException {
+      if (type == '?') {
+        skipTo("?>");
+        return;
+      }
+      int c = read();
+      if (c == '-') {
+        read();
+        skipTo("-->");
+      } else if (c == '[') {
+        skipTo("]]>");
+      } else if (c != '>') {
+        skipTo(">");
+      }
+    }
+
+    private void skipTo(String end) throws IOException {
+      var window = new StringBuilder();
+      int c;
+      while ((c = read()) >= 0) {
+        window.append((char) c);
+        if (window.length() > end.length()) {
+          window.deleteCharAt(0);
+        }
+        if (window.length() == end.length() && window.toString().equals(end)) {
+          return;
+        }
+      }
+    }
+  }
+}
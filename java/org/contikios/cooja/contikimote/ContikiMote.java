@@ -50,8 +50,9 @@ import org.contikios.cooja.motes.AbstractWakeupMote;
  * Contiki system.
  * <p>
  * When ticked a Contiki mote polls all interfaces, copies the mote
- * memory to the core, lets the Contiki system handle one event,
- * fetches the updated memory and finally polls all interfaces again.
+ * memory to the core, lets the Contiki system handle one event (or up to
+ * the tick event budget of the mote type), fetches the updated memory
+ * and finally polls all interfaces again.
  *
  * @author      Fredrik Osterlind
  */
@@ -60,6 +61,7 @@ public class ContikiMote extends AbstractWakeupMote<ContikiMoteType, SectionMote
   private final ArrayList<PolledAfterActiveTicks> polledAfterActive = new ArrayList<>();
   private final ArrayList<PolledBeforeAllTicks> polledBeforePassive = new ArrayList<>();
   private final ArrayList<PolledAfterAllTicks> polledAfterPassive = new ArrayList<>();
+  private final ContikiMoteType.LibraryCopy libraryCopy;
 
   /**
    * Creates a new mote of given type.
@@ -67,10 +69,13 @@ public class ContikiMote extends AbstractWakeupMote<ContikiMoteType, SectionMote
    * are supplied from the mote type.
    *
    * @param moteType Mote type
+   * @param libraryCopy Library copy the mote is ticked in
    * @param sim Mote's simulation
    */
-  ContikiMote(ContikiMoteType moteType, Simulation sim) throws MoteType.MoteTypeCreationException {
-    super(moteType, moteType.createInitialMemory(), sim);
+  ContikiMote(ContikiMoteType moteType, ContikiMoteType.LibraryCopy libraryCopy, Simulation sim)
+          throws MoteType.MoteTypeCreationException {
+    super(moteType, libraryCopy.createInitialMemory(), sim);
+    this.libraryCopy = libraryCopy;
     moteInterfaces.init(this);
     for (var intf : moteInterfaces.getInterfaces()) {
       if (intf instanceof PolledBeforeActiveTicks intf2) {
@@ -89,6 +94,11 @@ public class ContikiMote extends AbstractWakeupMote<ContikiMoteType, SectionMote
     requestImmediateWakeup();
   }
 
+  /** Returns the library copy the mote is ticked in. */
+  ContikiMoteType.LibraryCopy getLibraryCopy() {
+    return libraryCopy;
+  }
+
   /**
    * Ticks mote once. This is done by first polling all interfaces
    * and letting them act on the stored memory before the memory is set. Then
@@ -117,14 +127,8 @@ public class ContikiMote extends AbstractWakeupMote<ContikiMoteType, SectionMote
       return;
     }
 
-    /* Copy mote memory to Contiki */
-    ContikiMoteType.setCoreMemory(moteMemory);
-
-    /* Handle a single Contiki events */
-    moteType.tick();
-
-    /* Copy mote memory from Contiki */
-    ContikiMoteType.getCoreMemory(moteMemory);
+    /* Copy mote memory to Contiki, handle the Contiki events and copy mote memory from Contiki */
+    libraryCopy.tick(moteMemory, moteType.getTickEvents());
 
     moteMemory.pollForMemoryChanges();
     for (var moteInterface : polledAfterActive) {
@@ -35,6 +35,9 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -93,10 +96,17 @@ import org.slf4j.LoggerFactory;
  * mote type is created it allocates a CoreComm to be used with this type, and
  * loads the variable and segments addresses.
  * <p>
+ * Every loaded library has a single data and bss area that the motes of the
+ * type take turns to use, so they are ticked one at a time. The external tools
+ * setting CONTIKI_LIBRARY_COPIES loads more private copies of the library,
+ * each with its own arena, symbol lookup and memory layout. Motes are pinned
+ * to a copy when created, and motes pinned to different copies can be ticked
+ * concurrently.
+ * <p>
  * When a new mote type is created an initialization function is run on the
  * Contiki system in order to create the initial memory. When a new mote is
- * created the createInitialMemory() method should be called to get this initial
- * memory for the mote.
+ * created the createInitialMemory() method of its library copy should be
+ * called to get this initial memory for the mote.
  *
  * @author Fredrik Osterlind
  */
@@ -118,8 +128,6 @@ public class ContikiMoteType extends BaseContikiMoteType {
                  ContikiVib.class, "COOJA_VIB_SENSOR=0",
                  IPAddress.class, "COOJA_IP=0");
 
-  // Shared Arena since MoteTypes are allocated/removed in different threads.
-  private final Arena arena = Arena.ofShared();
   /**
    * Communication stacks in Contiki.
    */
@@ -166,12 +174,13 @@ public class ContikiMoteType extends BaseContikiMoteType {
 
   private NetworkStack netStack = NetworkStack.DEFAULT;
 
-  // Type specific class configuration
+  /** Maximum number of Contiki events handled per mote tick. */
+  private int tickEvents = 1;
 
-  private CoreComm myCoreComm;
+  // Type specific class configuration
 
-  // Initial memory for all motes of this type
-  private SectionMoteMemory initialMemory;
+  private final ArrayList<LibraryCopy> libraryCopies = new ArrayList<>();
+  private int nextLibraryCopy;
 
   /**
    * Creates a new uninitialized Cooja mote type. This mote type needs to load
@@ -204,7 +213,8 @@ public class ContikiMoteType extends BaseContikiMoteType {
 
   @Override
   public Mote generateMote(Simulation simulation) throws MoteTypeCreationException {
-    return new ContikiMote(this, simulation);
+    var copy = libraryCopies.get(nextLibraryCopy++ % libraryCopies.size());
+    return new ContikiMote(this, copy, simulation);
   }
 
   @Override
@@ -256,8 +266,14 @@ public class ContikiMoteType extends BaseContikiMoteType {
   /** Load LibN.java and the corresponding .cooja file into memory. */
   @Override
   public boolean loadMoteFirmware(boolean vis) throws MoteTypeCreationException {
-    if (myCoreComm != null) {
-      throw new MoteTypeCreationException("Core communicator already used: " + myCoreComm.getClass().getName());
+    if (!libraryCopies.isEmpty()) {
+      throw new MoteTypeCreationException("Core communicator already used: " + CoreComm.class.getName());
+    }
+    int nrCopies;
+    try {
+      nrCopies = Math.max(1, Integer.parseInt(Cooja.getExternalToolsSetting("CONTIKI_LIBRARY_COPIES", "1").trim()));
+    } catch (NumberFormatException e) {
+      throw new MoteTypeCreationException("Invalid CONTIKI_LIBRARY_COPIES: " + e.getMessage(), e);
     }
     /* Parse addresses using map file
      * or output of command specified in external tools settings (e.g. nm -a )
@@ -265,7 +281,7 @@ public class ContikiMoteType extends BaseContikiMoteType {
     boolean useCommand = Boolean.parseBoolean(Cooja.getExternalToolsSetting("PARSE_WITH_COMMAND", "false"));
     // Allocate core communicator class
     final var firmwareFile = getContikiFirmwareFile();
-    myCoreComm = new CoreComm(arena, firmwareFile, useCommand);
+    libraryCopies.add(new LibraryCopy(firmwareFile, useCommand));
 
     var command = Cooja.getExternalToolsSetting(useCommand ? "PARSE_COMMAND" : "READELF_COMMAND");
     if (command != null) {
@@ -290,6 +306,43 @@ public class ContikiMoteType extends BaseContikiMoteType {
       variables = MapSectionParser.parseSymbols(sb.toString());
     }
 
+    /* Private copies are loaded from copies of the library file, so the
+     * dynamic linker does not return the already loaded library */
+    try {
+      for (int i = 1; i < nrCopies; i++) {
+        File copyFile;
+        try {
+          copyFile = File.createTempFile(firmwareFile.getName() + "-", ".cooja");
+          Files.copy(firmwareFile.toPath(), copyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+          throw new MoteTypeCreationException("Could not copy library " + firmwareFile + ": " + e.getMessage(), e);
+        }
+        try {
+          libraryCopies.add(new LibraryCopy(copyFile, useCommand));
+        } finally {
+          // The loaded library stays mapped.
+          if (!copyFile.delete()) {
+            copyFile.deleteOnExit();
+          }
+        }
+      }
+    } catch (MoteTypeCreationException | RuntimeException e) {
+      // Unload the copies that did load, the mote type is unusable.
+      for (var copy : libraryCopies) {
+        copy.arena.close();
+      }
+      libraryCopies.clear();
+      throw e;
+    }
+    for (var copy : libraryCopies) {
+      copy.initialMemory = createInitialMemory(copy.coreComm, variables, useCommand);
+    }
+    logger.debug(firmwareFile.getName() + ": loaded " + libraryCopies.size() + " library copies");
+    return true;
+  }
+
+  private static SectionMoteMemory createInitialMemory(CoreComm coreComm, Map<String, Symbol> variables,
+                                                       boolean useCommand) throws MoteTypeCreationException {
     /* We first need the value of Contiki's referenceVar, which tells us the
      * memory offset between Contiki's variable and the relative addresses that
      * were calculated directly from the library file.
@@ -298,11 +351,11 @@ public class ContikiMoteType extends BaseContikiMoteType {
      * Contiki's and Cooja's address spaces */
     long offset;
     try {
-      offset = myCoreComm.getReferenceAddress() - variables.get("referenceVar").addr;
+      offset = coreComm.getReferenceAddress() - variables.get("referenceVar").addr;
     } catch (Exception e) {
       throw new MoteTypeCreationException("Error setting reference variable: " + e.getMessage(), e);
     }
-    logger.debug(firmwareFile.getName() + ": offsetting Cooja mote address space: 0x" + Long.toHexString(offset));
+    logger.debug("Offsetting Cooja mote address space: 0x" + Long.toHexString(offset));
 
     // Create initial memory: data+bss+optional common.
     var offsetVariables = new HashMap<String, Symbol>();
@@ -310,17 +363,17 @@ public class ContikiMoteType extends BaseContikiMoteType {
       var old = entry.getValue();
       offsetVariables.put(entry.getKey(), new Symbol(old.type, old.name, old.addr + offset, old.size));
     }
-    initialMemory = new SectionMoteMemory(offsetVariables);
+    var initialMemory = new SectionMoteMemory(offsetVariables);
     initialMemory.addMemorySection("data",
-            getMemory(myCoreComm.getDataStartAddress(), myCoreComm.getDataSize(), offsetVariables));
+            getMemory(coreComm.getDataStartAddress(), coreComm.getDataSize(), offsetVariables));
     initialMemory.addMemorySection("bss",
-            getMemory(myCoreComm.getBssStartAddress(), myCoreComm.getBssSize(), offsetVariables));
+            getMemory(coreComm.getBssStartAddress(), coreComm.getBssSize(), offsetVariables));
     if (useCommand) {
       initialMemory.addMemorySection("common",
-              getMemory(myCoreComm.getCommonStartAddress(), myCoreComm.getCommonSize(), offsetVariables));
+              getMemory(coreComm.getCommonStartAddress(), coreComm.getCommonSize(), offsetVariables));
     }
     getCoreMemory(initialMemory);
-    return true;
+    return initialMemory;
   }
 
   @Override
@@ -414,22 +467,119 @@ public class ContikiMoteType extends BaseContikiMoteType {
   }
 
   /**
-   * Ticks the currently loaded mote. This should not be used directly, but
-   * rather via {@link ContikiMote#execute(long)}.
+   * A loaded copy of the Contiki library with its own data and bss areas.
+   * Motes pinned to the copy take turns to use it, motes pinned to different
+   * copies can be ticked concurrently.
    */
-  void tick() {
-    myCoreComm.tick();
-  }
+  static final class LibraryCopy {
+    /** Name and size of the variables the mote interfaces act on after a tick. */
+    private static final Object[][] OUTPUT_VARIABLES = {
+            {"simOutSize", 4}, {"simRadioHWOn", 1}, {"simPower", 1}, {"simRadioChannel", 4},
+            {"simLedsValue", 1}, {"simBeeped", 1}, {"simLoggedFlag", 1}, {"simCFSChanged", 1},
+            {"simEEPROMChanged", 1},
+    };
+
+    // Shared Arena since MoteTypes are allocated/removed in different threads.
+    private final Arena arena = Arena.ofShared();
+    private final CoreComm coreComm;
+    private SectionMoteMemory initialMemory;
+
+    /* Contiki scheduler state, null if not exported by the library. */
+    private final MemorySegment processRunValue;
+    private final MemorySegment etimerPending;
+    private final MemorySegment etimerNextExpirationTime;
+    private final MemorySegment currentTime;
+    /* Variables the mote interfaces act on after a tick, null entries are not exported. */
+    private final MemorySegment[] outputs = new MemorySegment[OUTPUT_VARIABLES.length];
+    private final byte[][] outputsBefore = new byte[OUTPUT_VARIABLES.length][];
+
+    LibraryCopy(File libFile, boolean useCommand) {
+      try {
+        coreComm = new CoreComm(arena, libFile, useCommand);
+      } catch (RuntimeException e) {
+        arena.close();
+        throw e;
+      }
+      processRunValue = coreComm.getVariable("simProcessRunValue", 4);
+      etimerPending = coreComm.getVariable("simEtimerPending", 4);
+      etimerNextExpirationTime = coreComm.getVariable("simEtimerNextExpirationTime", 8);
+      currentTime = coreComm.getVariable("simCurrentTime", 8);
+      for (int i = 0; i < outputs.length; i++) {
+        var name = (String) OUTPUT_VARIABLES[i][0];
+        int size = (Integer) OUTPUT_VARIABLES[i][1];
+        outputs[i] = coreComm.getVariable(name, size);
+        outputsBefore[i] = new byte[size];
+      }
+    }
 
-  /**
-   * Creates and returns a copy of this mote type's initial memory (just after
-   * the init function has been run). When a new mote is created it should get
-   * its memory from here.
-   *
-   * @return Initial memory of a mote type
-   */
-  SectionMoteMemory createInitialMemory() {
-    return initialMemory.clone();
+    /**
+     * Creates and returns a copy of the initial memory (just after the init
+     * function has been run) of this library copy. When a new mote is created
+     * it should get its memory from here.
+     *
+     * @return Initial memory of a mote pinned to this copy
+     */
+    SectionMoteMemory createInitialMemory() {
+      return initialMemory.clone();
+    }
+
+    /**
+     * Ticks a mote pinned to this copy and handles up to maxEvents Contiki
+     * events at the current simulation time, with a single memory copy in
+     * each direction. This should not be used directly, but rather via
+     * {@link ContikiMote#execute(long)}.
+     *
+     * @param mem Mote memory
+     * @param maxEvents Maximum number of Contiki events to handle
+     * @return Number of Contiki events handled
+     */
+    synchronized int tick(SectionMoteMemory mem, int maxEvents) {
+      setCoreMemory(mem);
+      int events = 0;
+      do {
+        if (maxEvents > 1) {
+          saveOutputs();
+        }
+        coreComm.tick();
+        events++;
+      } while (events < maxEvents && isRunnable() && !outputsChanged());
+      getCoreMemory(mem);
+      return events;
+    }
+
+    /** Returns true if Contiki has processes to run or expired timers at the current time. */
+    private boolean isRunnable() {
+      if (processRunValue == null) {
+        return false;
+      }
+      if (processRunValue.get(ValueLayout.JAVA_INT, 0) != 0) {
+        return true;
+      }
+      return etimerPending != null && etimerNextExpirationTime != null && currentTime != null
+              && etimerPending.get(ValueLayout.JAVA_INT, 0) != 0
+              && etimerNextExpirationTime.get(ValueLayout.JAVA_LONG, 0) <= currentTime.get(ValueLayout.JAVA_LONG, 0);
+    }
+
+    private void saveOutputs() {
+      for (int i = 0; i < outputs.length; i++) {
+        if (outputs[i] != null) {
+          MemorySegment.ofArray(outputsBefore[i]).copyFrom(outputs[i]);
+        }
+      }
+    }
+
+    /**
+     * Returns true if the last event changed a variable that a mote interface
+     * acts on, the interfaces must see the change before the next event.
+     */
+    private boolean outputsChanged() {
+      for (int i = 0; i < outputs.length; i++) {
+        if (outputs[i] != null && MemorySegment.ofArray(outputsBefore[i]).mismatch(outputs[i]) != -1) {
+          return true;
+        }
+      }
+      return false;
+    }
   }
 
   /**
@@ -466,6 +616,25 @@ public class ContikiMoteType extends BaseContikiMoteType {
     this.netStack = netStack;
   }
 
+  /**
+   * Returns the maximum number of Contiki events a mote handles per tick.
+   * With 1, every tick handles a single event and motes with queued events
+   * are ticked again one millisecond later. With more, a tick keeps handling
+   * runnable processes and expired event timers at the current simulation
+   * time until Contiki is idle, the budget is spent, or a mote interface has
+   * output to act on.
+   */
+  public int getTickEvents() {
+    return tickEvents;
+  }
+
+  public void setTickEvents(int tickEvents) {
+    if (tickEvents < 1) {
+      throw new IllegalArgumentException("Tick events must be positive: " + tickEvents);
+    }
+    this.tickEvents = tickEvents;
+  }
+
   /**
    * @return Contiki network stack
    */
@@ -553,6 +722,11 @@ public class ContikiMoteType extends BaseContikiMoteType {
       element.setText(getNetworkStack().getConfig());
       config.add(element);
     }
+    if (tickEvents != 1) {
+      var element = new Element("tickevents");
+      element.setText(String.valueOf(tickEvents));
+      config.add(element);
+    }
     return config;
   }
 
@@ -570,6 +744,7 @@ public class ContikiMoteType extends BaseContikiMoteType {
           logger.warn("Instead assuming default network stack.");
         }
         case "netstack" -> netStack = NetworkStack.parseConfig(element.getText());
+        case "tickevents" -> setTickEvents(Integer.parseInt(element.getText()));
       }
     }
     final var sourceFile = getContikiSourceFile();
@@ -586,6 +761,8 @@ public class ContikiMoteType extends BaseContikiMoteType {
 
   @Override
   public void removed() {
-    arena.close();
+    for (var copy : libraryCopies) {
+      copy.arena.close();
+    }
   }
 }
@@ -32,6 +32,7 @@ import java.io.File;
 import java.lang.foreign.Arena;
 import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
 import java.lang.foreign.SymbolLookup;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
@@ -135,6 +136,17 @@ class CoreComm {
     }
   }
 
+  /**
+   * Returns the native memory of a global variable in the library.
+   *
+   * @param name Variable name
+   * @param size Variable size
+   * @return Variable memory, or null if the library does not export the variable
+   */
+  MemorySegment getVariable(String name, long size) {
+    return symbols.find(name).map(s -> s.reinterpret(size)).orElse(null);
+  }
+
   /**
    * Returns the absolute memory address of the reference variable.
    */
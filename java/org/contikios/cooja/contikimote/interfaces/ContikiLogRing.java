@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.contikimote.interfaces;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import org.contikios.cooja.mote.memory.MemoryInterface;
+import org.contikios.cooja.mote.memory.SectionMoteMemory;
+import org.contikios.cooja.mote.memory.VarMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log ring buffer shared between the Contiki-NG Cooja platform and Cooja.
+ * <p>
+ * Contiki variables:
+ * <ul>
+ * <li>uint8_t simLogRingBuf[] (size is a power of two)
+ * <li>uint32_t simLogRingHead (bytes written, advanced by Contiki)
+ * <li>uint32_t simLogRingTail (bytes consumed, advanced by Cooja)
+ * </ul>
+ * <p>
+ * Head and tail are free-running counters, Contiki may write as long as
+ * head - tail is less than the buffer size. Every record is a 64-bit
+ * timestamp (simRtimerCurrentTicks when the line was logged), a 16-bit
+ * length and the log line without the terminating newline. Records wrap
+ * around the end of the buffer.
+ * <p>
+ * The ring is read directly from the mote memory sections, so draining
+ * does not allocate except for the log messages themselves.
+ */
+final class ContikiLogRing {
+  private static final Logger logger = LoggerFactory.getLogger(ContikiLogRing.class);
+
+  static final String RING_BUF = "simLogRingBuf";
+  static final String RING_HEAD = "simLogRingHead";
+  static final String RING_TAIL = "simLogRingTail";
+
+  private static final int HEADER_SIZE = 10;
+
+  /** Receiver of log records. The data array is only valid during the call. */
+  interface RecordConsumer {
+    void accept(byte[] data, int offset, int length, long time);
+  }
+
+  private final VarHandle intHandle;
+  private final VarHandle shortHandle;
+  private final VarHandle longHandle;
+
+  private final byte[] buf;
+  private final int bufOffset;
+  private final int mask;
+  private final byte[] head;
+  private final int headOffset;
+  private final byte[] tail;
+  private final int tailOffset;
+
+  private final byte[] header = new byte[HEADER_SIZE];
+  private byte[] scratch = new byte[128];
+
+  private ContikiLogRing(ByteOrder order, MemoryInterface bufSection, long bufAddr, int size,
+                         MemoryInterface headSection, long headAddr,
+                         MemoryInterface tailSection, long tailAddr) {
+    intHandle = MethodHandles.byteArrayViewVarHandle(int[].class, order);
+    shortHandle = MethodHandles.byteArrayViewVarHandle(short[].class, order);
+    longHandle = MethodHandles.byteArrayViewVarHandle(long[].class, order);
+    buf = bufSection.getMemory();
+    bufOffset = (int) (bufAddr - bufSection.getStartAddr());
+    mask = size - 1;
+    head = headSection.getMemory();
+    headOffset = (int) (headAddr - headSection.getStartAddr());
+    tail = tailSection.getMemory();
+    tailOffset = (int) (tailAddr - tailSection.getStartAddr());
+  }
+
+  /**
+   * Creates a log ring for the memory of a mote.
+   *
+   * @param mem Mote memory
+   * @return Log ring, or null if the firmware does not provide one
+   */
+  static ContikiLogRing create(SectionMoteMemory mem) {
+    var varMem = new VarMemory(mem);
+    if (!varMem.variableExists(RING_BUF) || !varMem.variableExists(RING_HEAD)
+        || !varMem.variableExists(RING_TAIL)) {
+      return null;
+    }
+    var bufSym = varMem.getVariable(RING_BUF);
+    if (bufSym.size <= HEADER_SIZE || Integer.bitCount(bufSym.size) != 1) {
+      logger.warn("Ignoring " + RING_BUF + ", size is not a power of two: " + bufSym.size);
+      return null;
+    }
+    var headAddr = varMem.getVariableAddress(RING_HEAD);
+    var tailAddr = varMem.getVariableAddress(RING_TAIL);
+    var bufSection = mem.getSection(bufSym.addr, bufSym.size);
+    var headSection = mem.getSection(headAddr, 4);
+    var tailSection = mem.getSection(tailAddr, 4);
+    if (bufSection == null || headSection == null || tailSection == null) {
+      logger.warn("Ignoring " + RING_BUF + ", not located in a memory section");
+      return null;
+    }
+    return new ContikiLogRing(mem.getLayout().order, bufSection, bufSym.addr, bufSym.size,
+            headSection, headAddr, tailSection, tailAddr);
+  }
+
+  /**
+   * Delivers all records written since the last drain, in order, and
+   * releases their space to Contiki.
+   *
+   * @param consumer Record consumer
+   * @return Number of records delivered
+   */
+  int drain(RecordConsumer consumer) {
+    int h = (int) intHandle.get(head, headOffset);
+    int t = (int) intHandle.get(tail, tailOffset);
+    int available = h - t;
+    if (available == 0) {
+      return 0;
+    }
+    if (available < 0 || available > mask + 1) {
+      logger.error("Corrupt log ring: head " + Integer.toUnsignedString(h) +
+              ", tail " + Integer.toUnsignedString(t) + ", dropping contents");
+      intHandle.set(tail, tailOffset, h);
+      return 0;
+    }
+    int records = 0;
+    while (available >= HEADER_SIZE) {
+      copyOut(t, header, HEADER_SIZE);
+      long time = (long) longHandle.get(header, 0);
+      int length = Short.toUnsignedInt((short) shortHandle.get(header, 8));
+      if (HEADER_SIZE + length > available) {
+        logger.error("Truncated log ring record: " + length + " bytes, " + (available - HEADER_SIZE) + " available");
+        t = h;
+        break;
+      }
+      int start = (t + HEADER_SIZE) & mask;
+      if (start + length <= mask + 1) {
+        consumer.accept(buf, bufOffset + start, length, time);
+      } else {
+        // Record wraps around the end of the buffer.
+        if (scratch.length < length) {
+          scratch = new byte[Integer.highestOneBit(length) << 1];
+        }
+        copyOut(t + HEADER_SIZE, scratch, length);
+        consumer.accept(scratch, 0, length, time);
+      }
+      t += HEADER_SIZE + length;
+      available -= HEADER_SIZE + length;
+      records++;
+    }
+    intHandle.set(tail, tailOffset, t);
+    return records;
+  }
+
+  /** Copies length bytes starting at the free-running ring position pos. */
+  private void copyOut(int pos, byte[] dst, int length) {
+    int start = pos & mask;
+    int first = Math.min(length, mask + 1 - start);
+    System.arraycopy(buf, bufOffset + start, dst, 0, first);
+    if (first < length) {
+      System.arraycopy(buf, bufOffset, dst, first, length - first);
+    }
+  }
+}
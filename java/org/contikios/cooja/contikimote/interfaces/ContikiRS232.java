@@ -40,6 +40,7 @@ import org.contikios.cooja.TimeEvent;
 import org.contikios.cooja.contikimote.ContikiMote;
 import org.contikios.cooja.dialogs.SerialUI;
 import org.contikios.cooja.interfaces.PolledAfterActiveTicks;
+import org.contikios.cooja.mote.memory.SectionMoteMemory;
 import org.contikios.cooja.mote.memory.VarMemory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,8 +53,14 @@ import org.slf4j.LoggerFactory;
  * <li>char simSerialReceivingFlag (1=mote has incoming serial data)
  * <li>int simSerialReceivingLength
  * <li>byte[] simSerialReceivingData
+ * <li>char simLoggedFlag (1=mote has outgoing serial data)
+ * <li>int simLoggedLength
+ * <li>byte[] simLoggedData
  * </ul>
  * <p>
+ * If the firmware provides a log ring buffer (see {@link ContikiLogRing}), the
+ * log lines in it are drained in bulk once per tick.
+ * <p>
  *
  * This observable notifies observers when a serial message is sent from the mote.
  *
@@ -67,6 +74,9 @@ public class ContikiRS232 extends SerialUI implements PolledAfterActiveTicks {
 
   private final ContikiMote mote;
   private final VarMemory moteMem;
+  private final ContikiLogRing logRing;
+  private final ContikiLogRing.RecordConsumer logRingConsumer = this::lineReceived;
+  private final boolean hasLoggedData;
 
   static final int SERIAL_BUF_SIZE = 16 * 1024; /* rs232.c:40 */
 
@@ -81,11 +91,16 @@ public class ContikiRS232 extends SerialUI implements PolledAfterActiveTicks {
   public ContikiRS232(Mote mote) {
     this.mote = (ContikiMote) mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.logRing = ContikiLogRing.create((SectionMoteMemory) mote.getMemory());
+    this.hasLoggedData = logRing == null || moteMem.variableExists("simLoggedFlag");
   }
 
   @Override
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simLoggedFlag") == 1) {
+    if (logRing != null) {
+      logRing.drain(logRingConsumer);
+    }
+    if (hasLoggedData && moteMem.getByteValueOf("simLoggedFlag") == 1) {
       int len = moteMem.getIntValueOf("simLoggedLength");
       byte[] bytes = moteMem.getByteArray("simLoggedData", len);
 
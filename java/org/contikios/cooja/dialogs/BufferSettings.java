@@ -40,6 +40,7 @@ import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.InputMap;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JFormattedTextField;
@@ -102,6 +103,14 @@ public class BufferSettings extends JDialog {
       central.setLogOutputBufferSize(newVal);
     });
 
+    box = Box.createHorizontalBox();
+    var spill = new JCheckBox("Keep full log history in file", central.isLogOutputSpilling());
+    spill.setToolTipText("Store all log output messages in a memory-mapped temporary file instead of the buffer");
+    spill.addActionListener(e -> central.setLogOutputSpilling(spill.isSelected()));
+    box.add(spill);
+    box.add(Box.createHorizontalGlue());
+    main.add(box);
+
     main.add(Box.createVerticalStrut(10));
 
     Box line = Box.createHorizontalBox();
@@ -122,6 +131,7 @@ public class BufferSettings extends JDialog {
         }
 
         Cooja.setExternalToolsSetting("BUFFERSIZE_LOGOUTPUT", String.valueOf(central.getLogOutputBufferSize()));
+        Cooja.setExternalToolsSetting("BUFFERSPILL_LOGOUTPUT", String.valueOf(central.isLogOutputSpilling()));
       }
     };
     line.add(new JButton(setDefaultAction));
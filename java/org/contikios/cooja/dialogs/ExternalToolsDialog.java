@@ -67,6 +67,8 @@ public class ExternalToolsDialog extends JDialog {
 
     "DEFAULT_PROJECTDIRS",
 
+    "CONTIKI_LIBRARY_COPIES",
+
     "PARSE_WITH_COMMAND",
 
     "READELF_COMMAND",
@@ -63,6 +63,7 @@ public abstract class SerialUI extends Log implements SerialPort {
   private String lastLogMessage = ""; /* Log */
   private int charactersReceived;
   private final StringBuilder newMessage = new StringBuilder(); /* Log */
+  private char[] lineChars = new char[128]; /* Log */
 
   /* Command history */
   private final static int HISTORY_SIZE = 15;
@@ -113,6 +114,43 @@ public abstract class SerialUI extends Log implements SerialPort {
     serialDataTriggers.trigger(EventTriggers.Update.UPDATE, (byte) data);
   }
 
+  /**
+   * Receives a complete log line without the terminating newline. Observers are
+   * notified as if the line and a newline had been passed to {@link #dataReceived(int)},
+   * but the message is built directly from the data array.
+   *
+   * @param data Data array
+   * @param offset Offset of line in data array
+   * @param length Length of line
+   * @param time Simulation time the line was logged at, or -1 for the current time
+   */
+  protected void lineReceived(byte[] data, int offset, int length, long time) {
+    if (!newMessage.isEmpty() || charactersReceived + length >= MAX_LENGTH) {
+      // Preceded by a partial line or too long, use the byte path to get identical output.
+      for (int i = offset; i < offset + length; i++) {
+        dataReceived(data[i]);
+      }
+      dataReceived('\n');
+      return;
+    }
+    if (lineChars.length < length) {
+      lineChars = new char[Integer.highestOneBit(length) << 1];
+    }
+    int chars = 0;
+    for (int i = offset; i < offset + length; i++) {
+      serialDataTriggers.trigger(EventTriggers.Update.UPDATE, data[i]);
+      char ch = (char) data[i];
+      if (Character.isLetterOrDigit(ch) || Character.isWhitespace(ch) || isPunctuation(ch)) {
+        lineChars[chars++] = ch;
+      }
+    }
+    lastLogMessage = new String(lineChars, 0, chars);
+    charactersReceived = 0;
+    logDataTriggers.trigger(EventTriggers.Update.UPDATE, new LogDataInfo(getMote(), lastLogMessage, time));
+    lastSerialData = '\n';
+    serialDataTriggers.trigger(EventTriggers.Update.UPDATE, (byte) '\n');
+  }
+
 
   /* Mote interface visualizer */
   @Override
@@ -60,6 +60,7 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
   private boolean isColumnDataIncluded;
   private boolean isOnlyAdjustLarger;
   private boolean isDynamicAdjustment;
+  private int maxRowsChecked = Integer.MAX_VALUE;
 
   /*
    *  Specify the table and use default spacing
@@ -113,6 +114,14 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
   public void setAdjustColumn(int i, boolean adjust) {
     adjustColumns[i] = adjust;
   }
+
+  /*
+   *  Limit the number of rows checked per width calculation to the last
+   *  rows of the table or of the changed rows.
+   */
+  public void setMaxRowsChecked(int rows) {
+    maxRowsChecked = Math.max(1, rows);
+  }
   
   private void adjustColumn(int column, boolean onlyAdjustLarger) {
     if (!adjustColumns[column]) {
@@ -160,7 +169,8 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
     int preferredWidth = 0;
     int maxWidth = tableColumn.getMaxWidth();
 
-    for (int row = 0, n = table.getRowCount(); row < n; row++) {
+    int n = table.getRowCount();
+    for (int row = Math.max(0, n - maxRowsChecked); row < n; row++) {
       preferredWidth = Math.max(preferredWidth, getCellDataWidth(row, column));
 
       //  We've exceeded the maximum width, no need to check other rows
@@ -215,7 +225,7 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
       }
       // Find max width for the new rows (only adjust if wider)
       int width = 0;
-      for (int row = firstRow; row <= lastRow; row++) {
+      for (int row = Math.max(firstRow, lastRow - maxRowsChecked + 1); row <= lastRow; row++) {
         int w = getCellDataWidth(row, column);
         if (w > width) {
           width = w;
@@ -328,7 +338,7 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
               // Header changed
               width = getColumnHeaderWidth(tableColumn, column);
             } else {
-              for (int row = e.getFirstRow(); row <= lastRow; row++) {
+              for (int row = Math.max(firstRow, lastRow - maxRowsChecked + 1); row <= lastRow; row++) {
                 int w = getCellDataWidth(row, column);
                 if (w > width) {
                   width = w;
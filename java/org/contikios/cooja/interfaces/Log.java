@@ -55,5 +55,13 @@ public abstract class Log implements MoteInterface {
     return logDataTriggers;
   }
 
-  public record LogDataInfo(Mote mote, String msg) {}
+  /**
+   * Log message of a mote. The time is the simulation time the message was logged at,
+   * or -1 if it was logged at the current simulation time.
+   */
+  public record LogDataInfo(Mote mote, String msg, long time) {
+    public LogDataInfo(Mote mote, String msg) {
+      this(mote, msg, -1);
+    }
+  }
 }
@@ -71,6 +71,10 @@ public abstract class MoteID<M extends Mote> implements MoteInterface {
    */
   public void setMoteID(int id) {
     moteID = id;
+    var simulation = mote.getSimulation();
+    if (simulation != null) {
+      simulation.moteIDChanged();
+    }
     if (Cooja.isVisualized()) {
       EventQueue.invokeLater(() -> {
         for (var label : labels.values()) {
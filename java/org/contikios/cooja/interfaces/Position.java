@@ -125,9 +125,9 @@ public class Position implements MoteInterface {
    * @return Distance
    */
   public double getDistanceTo(Position pos) {
-    var xDiff = Math.abs(x - pos.getXCoordinate());
-    var yDiff = Math.abs(y - pos.getYCoordinate());
-    var zDiff = Math.abs(z - pos.getZCoordinate());
+    var xDiff = Math.abs(getXCoordinate() - pos.getXCoordinate());
+    var yDiff = Math.abs(getYCoordinate() - pos.getYCoordinate());
+    var zDiff = Math.abs(getZCoordinate() - pos.getZCoordinate());
     return Math.sqrt(xDiff * xDiff + yDiff * yDiff + zDiff * zDiff);
   }
 
@@ -127,6 +127,22 @@ public class SectionMoteMemory implements MemoryInterface {
     return sections.getOrDefault(name, null);
   }
 
+  /**
+   * Returns the memory section that contains the given address range.
+   * @param address start address of range
+   * @param size size of range
+   * @return memory section, or null if no single section contains the range
+   */
+  public MemoryInterface getSection(long address, int size) {
+    for (MemoryInterface section : sections.values()) {
+      final var secStart = section.getStartAddr();
+      if (address >= secStart && address + size <= secStart + section.getTotalSize()) {
+        return section;
+      }
+    }
+    return null;
+  }
+
   /**
    * Return all sections of this memory.
    * @return All memory sections
@@ -164,12 +180,9 @@ public class SectionMoteMemory implements MemoryInterface {
    */
   @Override
   public byte[] getMemorySegment(long address, int size) throws MoteMemoryException {
-
-    for (MemoryInterface section : sections.values()) {
-      final var secStart = section.getStartAddr();
-      if (address >= secStart && address + size <= secStart + section.getTotalSize()) {
-        return section.getMemorySegment(address, size);
-      }
+    var section = getSection(address, size);
+    if (section != null) {
+      return section.getMemorySegment(address, size);
     }
 
     throw new MoteMemoryException(
@@ -34,12 +34,21 @@ import org.contikios.cooja.Simulation;
 import org.contikios.cooja.mote.memory.MemoryInterface;
 import org.contikios.cooja.plugins.BufferListener;
 import org.contikios.cooja.plugins.TimeLine;
+import org.contikios.cooja.util.EventTriggers;
 import se.sics.mspsim.core.Chip;
 
 public abstract class AbstractEmulatedMote<T extends MoteType, C extends Chip, M extends MemoryInterface> extends AbstractWakeupMote<T, M> {
   protected final C myCpu;
   protected long lastBreakpointCycles = -1;
 
+  /** CPU operating mode changes, the CPU is listened to once the first trigger is added. */
+  private final EventTriggers<EventTriggers.Update, Integer> cpuModeTriggers = new EventTriggers<>() {
+    @Override
+    protected void activate() {
+      myCpu.addOperatingModeListener((source, mode) -> trigger(EventTriggers.Update.UPDATE, mode));
+    }
+  };
+
   protected AbstractEmulatedMote(T moteType, C cpu, M moteMemory, Simulation sim) throws MoteType.MoteTypeCreationException {
     super(moteType, moteMemory, sim);
     myCpu = cpu;
@@ -55,6 +64,16 @@ public abstract class AbstractEmulatedMote<T extends MoteType, C extends Chip, M
     return myCpu;
   }
 
+  /**
+   * Returns event triggers for CPU operating mode changes. The value is the
+   * new mode, see {@link Chip#getModeName(int)}.
+   *
+   * @return CPU mode triggers
+   */
+  public EventTriggers<EventTriggers.Update, Integer> getCPUModeTriggers() {
+    return cpuModeTriggers;
+  }
+
   /**
    * @return CPU frequency (Hz)
    */
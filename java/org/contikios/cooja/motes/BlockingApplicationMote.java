@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.motes;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.LockSupport;
+import org.contikios.cooja.MoteType;
+import org.contikios.cooja.RadioPacket;
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.interfaces.ApplicationRadio;
+
+/**
+ * Application mote whose logic is written as plain blocking Java.
+ * <p>
+ * The logic in {@link #run()} runs on a virtual thread, and calls such as
+ * {@link #sleep(long)}, {@link #send(RadioPacket)} and
+ * {@link #awaitPacket(long)} block it until the simulation reaches the
+ * simulated time they wait for. Only one of the simulation thread and the
+ * mote threads runs at a time: the simulation thread hands control to the
+ * mote when the mote executes, and waits until the mote blocks again. The
+ * simulation is therefore as deterministic as with callback based motes,
+ * and parked virtual threads do not hold platform threads.
+ * <p>
+ * Simulation state must only be changed from {@link #run()} through the
+ * methods of this class or {@link #runOnSimulationThread(Runnable)}.
+ */
+public abstract class BlockingApplicationMote extends AbstractApplicationMote {
+  /** Transmission time per byte at 250 kbit/s. */
+  private static final long BYTE_DURATION = 32;
+  /** Number of spins before the simulation thread parks while the mote runs. */
+  private static final int SPIN_LIMIT = 1000;
+
+  /** Thrown in the mote thread to unwind it when the mote is removed. */
+  private static final class MoteRemoved extends Error {
+    MoteRemoved() {
+      super(null, null, false, false);
+    }
+  }
+
+  private Thread appThread;
+  private Thread simThread;
+  /** True while the mote thread runs, handed back and forth between the threads. */
+  private volatile boolean appTurn;
+
+  /* Written by the mote thread before handing back control. */
+  private Runnable request;
+  private boolean resumeNow;
+  private boolean finished;
+  private Throwable failure;
+
+  /* Accessed on the simulation thread, or the mote thread while it runs. */
+  private boolean removed;
+  private long wakeupTime;
+  private boolean awaitingPacket;
+  private boolean awaitingSent;
+  private final ArrayDeque<RadioPacket> packets = new ArrayDeque<>();
+
+  public BlockingApplicationMote(MoteType moteType, Simulation sim) throws MoteType.MoteTypeCreationException {
+    super(moteType, sim);
+  }
+
+  /**
+   * Mote logic, started when the mote first executes. The mote does
+   * nothing more when this method returns.
+   */
+  protected abstract void run();
+
+  /** Returns the current simulation time. */
+  protected long now() {
+    return simulation.getSimulationTime();
+  }
+
+  /**
+   * Blocks for the given simulation time.
+   *
+   * @param time Time in microseconds
+   */
+  protected void sleep(long time) {
+    long until = now() + Math.max(0, time);
+    block(until, () -> scheduleNextWakeup(until));
+  }
+
+  /**
+   * Transmits a packet at 250 kbit/s and blocks until the transmission has finished.
+   *
+   * @param packet Packet
+   */
+  protected void send(RadioPacket packet) {
+    send(packet, packet.getPacketData().length * BYTE_DURATION);
+  }
+
+  /**
+   * Transmits a packet and blocks until the transmission has finished.
+   *
+   * @param packet Packet
+   * @param duration Transmission duration in microseconds
+   */
+  protected void send(RadioPacket packet, long duration) {
+    awaitingSent = true;
+    block(Long.MAX_VALUE, () -> ((ApplicationRadio) moteInterfaces.getRadio()).startTransmittingPacket(packet, duration));
+    awaitingSent = false;
+  }
+
+  /**
+   * Returns the next received packet, blocking until one is received.
+   *
+   * @param timeout Maximum time to wait in microseconds, or -1 to wait forever
+   * @return Packet, or null if no packet was received before the timeout
+   */
+  protected RadioPacket awaitPacket(long timeout) {
+    if (packets.isEmpty() && timeout != 0) {
+      long until = timeout < 0 ? Long.MAX_VALUE : now() + timeout;
+      awaitingPacket = true;
+      block(until, until == Long.MAX_VALUE ? null : () -> scheduleNextWakeup(until));
+      awaitingPacket = false;
+    }
+    return packets.poll();
+  }
+
+  /**
+   * Runs a task on the simulation thread and waits for it. Mote logic uses
+   * this to access simulation state that is not wrapped by this class.
+   *
+   * @param task Task
+   */
+  protected void runOnSimulationThread(Runnable task) {
+    if (Thread.currentThread() != appThread) {
+      task.run();
+      return;
+    }
+    request = task;
+    resumeNow = true;
+    handOver();
+  }
+
+  @Override
+  public void log(String msg) {
+    runOnSimulationThread(() -> super.log(msg));
+  }
+
+  @Override
+  public void receivedPacket(RadioPacket p) {
+    packets.add(p);
+    if (awaitingPacket) {
+      wakeup();
+    }
+  }
+
+  @Override
+  public void sentPacket(RadioPacket p) {
+    if (awaitingSent) {
+      wakeup();
+    }
+  }
+
+  @Override
+  public void writeArray(byte[] s) {}
+
+  @Override
+  public void writeByte(byte b) {}
+
+  @Override
+  public void writeString(String s) {}
+
+  @Override
+  protected void execute(long time) {
+    if (finished) {
+      return;
+    }
+    if (appThread != null && time < wakeupTime) {
+      // Woken up for something else, keep waiting.
+      if (wakeupTime != Long.MAX_VALUE) {
+        scheduleNextWakeup(wakeupTime);
+      }
+      return;
+    }
+    switchToApp();
+  }
+
+  @Override
+  public void removed() {
+    getInterfaces().removed();
+    if (appThread != null && !finished) {
+      removed = true;
+      switchToApp();
+    }
+  }
+
+  /** Wakes up the blocked mote thread at the current time. */
+  private void wakeup() {
+    wakeupTime = now();
+    scheduleNextWakeup(wakeupTime);
+  }
+
+  /**
+   * Blocks the mote thread until the mote executes at or after the given
+   * time, or is woken up earlier.
+   *
+   * @param until Wakeup time
+   * @param task Task to run on the simulation thread before blocking, or null
+   */
+  private void block(long until, Runnable task) {
+    wakeupTime = until;
+    request = task;
+    resumeNow = false;
+    handOver();
+  }
+
+  /** Runs the mote thread until it blocks or finishes. Called on the simulation thread. */
+  private void switchToApp() {
+    simThread = Thread.currentThread();
+    do {
+      appTurn = true;
+      if (appThread == null) {
+        appThread = Thread.ofVirtual().name(toString()).start(this::body);
+      } else {
+        LockSupport.unpark(appThread);
+      }
+      for (int i = 0; appTurn; i++) {
+        if (i < SPIN_LIMIT) {
+          Thread.onSpinWait();
+        } else {
+          LockSupport.park(this);
+        }
+      }
+      if (failure != null) {
+        var e = failure;
+        failure = null;
+        if (e instanceof RuntimeException re) {
+          throw re;
+        }
+        if (e instanceof Error err) {
+          throw err;
+        }
+        throw new RuntimeException(e);
+      }
+      var task = request;
+      request = null;
+      if (task != null) {
+        task.run();
+      }
+    } while (resumeNow && !finished);
+  }
+
+  /** Hands control back to the simulation thread and waits for it. Called on the mote thread. */
+  private void handOver() {
+    appTurn = false;
+    LockSupport.unpark(simThread);
+    while (!appTurn) {
+      LockSupport.park(this);
+    }
+    if (removed) {
+      throw new MoteRemoved();
+    }
+  }
+
+  private void body() {
+    try {
+      if (!removed) {
+        run();
+      }
+    } catch (MoteRemoved e) {
+      // Unwound.
+    } catch (Throwable e) {
+      failure = e;
+    } finally {
+      finished = true;
+      resumeNow = false;
+      request = null;
+      appTurn = false;
+      LockSupport.unpark(simThread);
+    }
+  }
+}
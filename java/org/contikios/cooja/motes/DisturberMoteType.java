@@ -32,7 +32,7 @@
 package org.contikios.cooja.motes;
 
 import java.awt.Container;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 import org.contikios.cooja.AbstractionLevelDescription;
 import org.contikios.cooja.COOJARadioPacket;
 import org.contikios.cooja.ClassDescription;
@@ -89,6 +89,7 @@ public class DisturberMoteType extends AbstractApplicationMoteType {
     private long avgDelay = 16 * Simulation.MILLISECOND;
     private long duration = 4 * Simulation.MILLISECOND;
     private boolean txOn = false;
+    private RandomGenerator random;
 
     DisturberMote(MoteType moteType, Simulation simulation) throws MoteTypeCreationException {
       super(moteType, simulation);
@@ -96,8 +97,10 @@ public class DisturberMoteType extends AbstractApplicationMoteType {
 
     /* Schedule next (potential) transmission of dummy packet */
     private void scheduleNext(RadioPacket p) {
-      Random rd = getSimulation().getRandomGenerator();
-      long delay = avgDelay / 2 + (long)(rd.nextDouble() * avgDelay);
+      if (random == null) {
+        random = getSimulation().getRandomStreams().create(DisturberMote.class.getName(), getID());
+      }
+      long delay = avgDelay / 2 + (long)(random.nextDouble() * avgDelay);
       getSimulation().scheduleEvent(new MoteTimeEvent(this) {
           @Override
           public void execute(long t) {
@@ -0,0 +1,708 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.motes;
+
+import java.awt.Container;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.random.RandomGenerator;
+import org.contikios.cooja.AbstractionLevelDescription;
+import org.contikios.cooja.COOJARadioPacket;
+import org.contikios.cooja.ClassDescription;
+import org.contikios.cooja.Mote;
+import org.contikios.cooja.MoteInterface;
+import org.contikios.cooja.MoteInterfaceHandler;
+import org.contikios.cooja.RadioPacket;
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.TimeEvent;
+import org.contikios.cooja.interfaces.MoteID;
+import org.contikios.cooja.interfaces.Position;
+import org.contikios.cooja.interfaces.Radio;
+import org.contikios.cooja.mote.memory.MemoryInterface;
+import org.contikios.cooja.mote.memory.SectionMoteMemory;
+import org.jdom2.Element;
+
+/**
+ * Application-level mote type for synthetic load with very many motes.
+ * <p>
+ * The motes transmit a dummy packet at random intervals, like the disturber
+ * mote. The state of all motes of the type (ID, position, radio state and
+ * timers) is kept in arrays in the mote type, and the motes are small
+ * handles into these arrays. All motes share one timer event, one packet
+ * and one (empty) memory.
+ * <p>
+ * The mote interfaces are views of the arrays. A mote with a radio creates
+ * its radio and position views when it is added, and registers the radio
+ * with the radio medium directly. The mote interface handler holding all
+ * views is only created the first time getInterfaces() is called, e.g. by a
+ * plugin. Mote configs are read and written without creating the views.
+ */
+@ClassDescription("Flyweight mote")
+@AbstractionLevelDescription("Application level")
+public class FlyweightMoteType extends AbstractApplicationMoteType {
+  /** Transmission time per byte at 250 kbit/s. */
+  private static final long BYTE_DURATION = 32;
+  private static final int INITIAL_CAPACITY = 64;
+
+  /* Mote flags. */
+  private static final byte TRANSMITTING = 1;
+  private static final byte RECEIVING = 2;
+  private static final byte INTERFERED = 4;
+  private static final byte FREE = 8;
+
+  /** Average time between transmissions, 0 to not transmit. */
+  private long txInterval = Simulation.MILLISECOND * 1000;
+  private int packetSize = 20;
+  private boolean radioEnabled = true;
+
+  private Simulation simulation;
+  private RandomGenerator random;
+  private RadioPacket packet;
+  private final MemoryInterface memory = new SectionMoteMemory(new HashMap<>());
+
+  /* Mote state, indexed by slot. */
+  private int slots;
+  private FlyweightMote[] motes = new FlyweightMote[INITIAL_CAPACITY];
+  private int[] ids = new int[INITIAL_CAPACITY];
+  private double[] xs = new double[INITIAL_CAPACITY];
+  private double[] ys = new double[INITIAL_CAPACITY];
+  private double[] zs = new double[INITIAL_CAPACITY];
+  private byte[] flags = new byte[INITIAL_CAPACITY];
+  private short[] interference = new short[INITIAL_CAPACITY];
+  private int[] channels = new int[INITIAL_CAPACITY];
+  private double[] signalStrengths = new double[INITIAL_CAPACITY];
+  private Radio.RadioEvent[] lastEvents = new Radio.RadioEvent[INITIAL_CAPACITY];
+  private RadioPacket[] receivedPackets = new RadioPacket[INITIAL_CAPACITY];
+  private long[] timers = new long[INITIAL_CAPACITY];
+  private int[] freeSlots = new int[INITIAL_CAPACITY];
+  private int freeCount;
+
+  /* Binary min-heap of the slots with a pending timer, ordered by timers[]. */
+  private int[] heap = new int[INITIAL_CAPACITY];
+  private int[] heapPos = new int[INITIAL_CAPACITY];
+  private int heapSize;
+  private long nextTimerTime;
+
+  private final TimeEvent timerEvent = new TimeEvent() {
+    @Override
+    public void execute(long t) {
+      runTimers(t);
+    }
+
+    @Override
+    public String toString() {
+      return "TIMERS " + getIdentifier();
+    }
+  };
+
+  public FlyweightMoteType() {
+    super(false);
+    moteInterfaceClasses.addAll(List.of(FlyweightMoteID.class, FlyweightPosition.class, FlyweightRadio.class));
+  }
+
+  @Override
+  public String getMoteTypeIdentifierPrefix() {
+    return "flyweight";
+  }
+
+  @Override
+  public boolean configureAndInit(Container parentContainer, Simulation simulation, boolean visAvailable)
+          throws MoteTypeCreationException {
+    if (description == null) {
+      description = "Flyweight Mote Type #" + identifier;
+    }
+    packet = new COOJARadioPacket(new byte[packetSize]);
+    return super.configureAndInit(parentContainer, simulation, visAvailable);
+  }
+
+  @Override
+  public Mote generateMote(Simulation simulation) {
+    if (this.simulation == null) {
+      this.simulation = simulation;
+      random = simulation.getRandomStreams().create(FlyweightMoteType.class.getName());
+    }
+    int slot;
+    if (freeCount > 0) {
+      slot = freeSlots[--freeCount];
+    } else {
+      slot = slots++;
+      if (slot == motes.length) {
+        grow(motes.length * 2);
+      }
+    }
+    ids[slot] = -1;
+    xs[slot] = ys[slot] = zs[slot] = 0;
+    flags[slot] = 0;
+    interference[slot] = 0;
+    channels[slot] = -1;
+    signalStrengths[slot] = -100;
+    lastEvents[slot] = Radio.RadioEvent.UNKNOWN;
+    receivedPackets[slot] = null;
+    heapPos[slot] = -1;
+    var mote = new FlyweightMote(slot);
+    motes[slot] = mote;
+    return mote;
+  }
+
+  /** Returns the number of motes of this type. */
+  public int getMoteCount() {
+    return slots - freeCount;
+  }
+
+  /** Returns the average time between transmissions, or 0 if the motes do not transmit. */
+  public long getTxInterval() {
+    return txInterval;
+  }
+
+  public int getPacketSize() {
+    return packetSize;
+  }
+
+  public boolean isRadioEnabled() {
+    return radioEnabled;
+  }
+
+  private void grow(int capacity) {
+    motes = Arrays.copyOf(motes, capacity);
+    ids = Arrays.copyOf(ids, capacity);
+    xs = Arrays.copyOf(xs, capacity);
+    ys = Arrays.copyOf(ys, capacity);
+    zs = Arrays.copyOf(zs, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+    interference = Arrays.copyOf(interference, capacity);
+    channels = Arrays.copyOf(channels, capacity);
+    signalStrengths = Arrays.copyOf(signalStrengths, capacity);
+    lastEvents = Arrays.copyOf(lastEvents, capacity);
+    receivedPackets = Arrays.copyOf(receivedPackets, capacity);
+    timers = Arrays.copyOf(timers, capacity);
+    freeSlots = Arrays.copyOf(freeSlots, capacity);
+    heap = Arrays.copyOf(heap, capacity);
+    heapPos = Arrays.copyOf(heapPos, capacity);
+  }
+
+  /* Timers. */
+
+  private void setTimer(int slot, long time) {
+    timers[slot] = time;
+    int pos = heapPos[slot];
+    if (pos < 0) {
+      pos = heapSize++;
+      heap[pos] = slot;
+      heapPos[slot] = pos;
+    }
+    siftDown(siftUp(pos));
+    scheduleTimerEvent();
+  }
+
+  private void cancelTimer(int slot) {
+    int pos = heapPos[slot];
+    if (pos < 0) {
+      return;
+    }
+    heapPos[slot] = -1;
+    int last = heap[--heapSize];
+    if (pos < heapSize) {
+      heap[pos] = last;
+      heapPos[last] = pos;
+      siftDown(siftUp(pos));
+    }
+  }
+
+  private int siftUp(int pos) {
+    int slot = heap[pos];
+    while (pos > 0) {
+      int parent = (pos - 1) >>> 1;
+      if (timers[heap[parent]] <= timers[slot]) {
+        break;
+      }
+      heap[pos] = heap[parent];
+      heapPos[heap[pos]] = pos;
+      pos = parent;
+    }
+    heap[pos] = slot;
+    heapPos[slot] = pos;
+    return pos;
+  }
+
+  private void siftDown(int pos) {
+    int slot = heap[pos];
+    while (true) {
+      int child = 2 * pos + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && timers[heap[child + 1]] < timers[heap[child]]) {
+        child++;
+      }
+      if (timers[slot] <= timers[heap[child]]) {
+        break;
+      }
+      heap[pos] = heap[child];
+      heapPos[heap[pos]] = pos;
+      pos = child;
+    }
+    heap[pos] = slot;
+    heapPos[slot] = pos;
+  }
+
+  private void scheduleTimerEvent() {
+    if (heapSize == 0) {
+      return;
+    }
+    long time = timers[heap[0]];
+    if (timerEvent.isScheduled()) {
+      if (nextTimerTime <= time) {
+        return;
+      }
+      timerEvent.remove();
+    }
+    simulation.scheduleEvent(timerEvent, time);
+    nextTimerTime = time;
+  }
+
+  private long nextTxDelay() {
+    return txInterval / 2 + (long) (random.nextDouble() * txInterval);
+  }
+
+  private void runTimers(long t) {
+    while (heapSize > 0 && timers[heap[0]] <= t) {
+      int slot = heap[0];
+      cancelTimer(slot);
+      var radio = motes[slot].getRadio();
+      if ((flags[slot] & TRANSMITTING) != 0) {
+        flags[slot] &= ~TRANSMITTING;
+        radio.event(Radio.RadioEvent.TRANSMISSION_FINISHED);
+        setTimer(slot, t + nextTxDelay());
+      } else {
+        flags[slot] |= TRANSMITTING;
+        radio.event(Radio.RadioEvent.TRANSMISSION_STARTED);
+        radio.event(Radio.RadioEvent.PACKET_TRANSMITTED);
+        setTimer(slot, t + packetSize * BYTE_DURATION);
+      }
+    }
+    scheduleTimerEvent();
+  }
+
+  /* Config. */
+
+  @Override
+  public Collection<Element> getConfigXML(Simulation simulation) {
+    var config = new ArrayList<>(super.getConfigXML(simulation));
+    var element = new Element("txinterval");
+    element.setText(String.valueOf(txInterval));
+    config.add(element);
+    element = new Element("packetsize");
+    element.setText(String.valueOf(packetSize));
+    config.add(element);
+    element = new Element("radio");
+    element.setText(String.valueOf(radioEnabled));
+    config.add(element);
+    return config;
+  }
+
+  @Override
+  public boolean setConfigXML(Simulation simulation, Collection<Element> configXML, boolean visAvailable)
+          throws MoteTypeCreationException {
+    for (var element : configXML) {
+      switch (element.getName()) {
+        case "txinterval" -> txInterval = Long.parseLong(element.getText());
+        case "packetsize" -> packetSize = Integer.parseInt(element.getText());
+        case "radio" -> radioEnabled = Boolean.parseBoolean(element.getText());
+      }
+    }
+    return super.setConfigXML(simulation, configXML, visAvailable);
+  }
+
+  /** Handle of a mote in the arrays of the mote type. */
+  public final class FlyweightMote implements Mote {
+    private final int slot;
+    private FlyweightPosition position;
+    private FlyweightRadio radio;
+    private MoteInterfaceHandler interfaces;
+    private HashMap<String, Object> properties;
+
+    private FlyweightMote(int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public int getID() {
+      return ids[slot];
+    }
+
+    @Override
+    public MoteInterfaceHandler getInterfaces() {
+      if (interfaces == null) {
+        var views = new ArrayList<MoteInterface>(3);
+        views.add(new FlyweightMoteID(this));
+        views.add(getPosition());
+        if (radioEnabled) {
+          views.add(getRadio());
+        }
+        interfaces = new MoteInterfaceHandler(views);
+      }
+      return interfaces;
+    }
+
+    /** Returns the position view without creating the mote interface handler. */
+    private FlyweightPosition getPosition() {
+      if (position == null) {
+        position = new FlyweightPosition(this);
+      }
+      return position;
+    }
+
+    /** Returns the radio view without creating the mote interface handler. */
+    private FlyweightRadio getRadio() {
+      if (radio == null) {
+        radio = new FlyweightRadio(this);
+      }
+      return radio;
+    }
+
+    @Override
+    public MemoryInterface getMemory() {
+      return memory;
+    }
+
+    @Override
+    public FlyweightMoteType getType() {
+      return FlyweightMoteType.this;
+    }
+
+    @Override
+    public Simulation getSimulation() {
+      return simulation;
+    }
+
+    @Override
+    public Collection<Element> getConfigXML() {
+      var config = new ArrayList<Element>();
+      var element = new Element("interface_config");
+      element.setText(FlyweightMoteID.class.getName());
+      var id = new Element("id");
+      id.setText(String.valueOf(ids[slot]));
+      element.addContent(id);
+      config.add(element);
+
+      element = new Element("interface_config");
+      element.setText(FlyweightPosition.class.getName());
+      var pos = new Element("pos");
+      pos.setAttribute("x", String.valueOf(xs[slot]));
+      pos.setAttribute("y", String.valueOf(ys[slot]));
+      if (zs[slot] != 0) {
+        pos.setAttribute("z", String.valueOf(zs[slot]));
+      }
+      element.addContent(pos);
+      config.add(element);
+      return config;
+    }
+
+    @Override
+    public boolean setConfigXML(Simulation simulation, Collection<Element> configXML, boolean visAvailable) {
+      for (var element : configXML) {
+        if (!element.getName().equals("interface_config")) {
+          continue;
+        }
+        var name = element.getText().trim();
+        if (name.endsWith("MoteID")) {
+          var id = element.getChildText("id");
+          if (id != null) {
+            setID(Integer.parseInt(id.trim()));
+          }
+        } else if (name.endsWith("Position")) {
+          for (var child : element.getChildren()) {
+            switch (child.getName()) {
+              case "x" -> xs[slot] = Double.parseDouble(child.getText());
+              case "y" -> ys[slot] = Double.parseDouble(child.getText());
+              case "z" -> zs[slot] = Double.parseDouble(child.getText());
+              case "pos" -> {
+                xs[slot] = parseAttribute(child, "x", xs[slot]);
+                ys[slot] = parseAttribute(child, "y", ys[slot]);
+                zs[slot] = parseAttribute(child, "z", zs[slot]);
+              }
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    private static double parseAttribute(Element element, String name, double defaultValue) {
+      var value = element.getAttributeValue(name);
+      return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private void setID(int id) {
+      if (interfaces != null) {
+        interfaces.getMoteID().setMoteID(id);
+      } else {
+        ids[slot] = id;
+      }
+    }
+
+    @Override
+    public void added() {
+      if (!radioEnabled) {
+        return;
+      }
+      // The ID and position views have nothing to do when added.
+      getRadio().added();
+      if (txInterval > 0) {
+        setTimer(slot, simulation.getSimulationTime() + (long) (random.nextDouble() * txInterval));
+      }
+    }
+
+    @Override
+    public void removed() {
+      if (interfaces != null) {
+        interfaces.removed();
+      } else if (radio != null) {
+        radio.removed();
+      }
+      cancelTimer(slot);
+      scheduleTimerEvent();
+      flags[slot] = FREE;
+      motes[slot] = null;
+      receivedPackets[slot] = null;
+      freeSlots[freeCount++] = slot;
+    }
+
+    @Override
+    public void setProperty(String key, Object obj) {
+      if (properties == null) {
+        properties = new HashMap<>();
+      }
+      properties.put(key, obj);
+    }
+
+    @Override
+    public Object getProperty(String key) {
+      return properties == null ? null : properties.get(key);
+    }
+
+    @Override
+    public String toString() {
+      return "Flyweight " + getID();
+    }
+  }
+
+  /** Mote ID view. */
+  public static class FlyweightMoteID extends MoteID<FlyweightMote> {
+    public FlyweightMoteID(Mote mote) {
+      super((FlyweightMote) mote);
+    }
+
+    @Override
+    public int getMoteID() {
+      return mote.getType().ids[mote.slot];
+    }
+
+    @Override
+    public void setMoteID(int id) {
+      mote.getType().ids[mote.slot] = id;
+      super.setMoteID(id);
+    }
+  }
+
+  /** Position view. */
+  public static class FlyweightPosition extends Position {
+    private final FlyweightMote mote;
+
+    public FlyweightPosition(Mote mote) {
+      super(mote);
+      this.mote = (FlyweightMote) mote;
+    }
+
+    @Override
+    public void setCoordinates(double x, double y, double z) {
+      var type = mote.getType();
+      type.xs[mote.slot] = x;
+      type.ys[mote.slot] = y;
+      type.zs[mote.slot] = z;
+      super.setCoordinates(x, y, z);
+    }
+
+    @Override
+    public double getXCoordinate() {
+      return mote.getType().xs[mote.slot];
+    }
+
+    @Override
+    public double getYCoordinate() {
+      return mote.getType().ys[mote.slot];
+    }
+
+    @Override
+    public double getZCoordinate() {
+      return mote.getType().zs[mote.slot];
+    }
+  }
+
+  /** Radio view, receives on all channels and transmits the shared packet of the mote type. */
+  public static class FlyweightRadio extends Radio {
+    private final FlyweightMote mote;
+    private final FlyweightMoteType type;
+
+    public FlyweightRadio(Mote mote) {
+      this.mote = (FlyweightMote) mote;
+      this.type = this.mote.getType();
+    }
+
+    private void event(RadioEvent event) {
+      type.lastEvents[mote.slot] = event;
+      radioEventTriggers.trigger(event, this);
+    }
+
+    private boolean isSet(byte flag) {
+      return (type.flags[mote.slot] & flag) != 0;
+    }
+
+    @Override
+    public void setReceivedPacket(RadioPacket packet) {
+      type.receivedPackets[mote.slot] = packet;
+    }
+
+    @Override
+    public RadioPacket getLastPacketTransmitted() {
+      return type.packet;
+    }
+
+    @Override
+    public RadioPacket getLastPacketReceived() {
+      return type.receivedPackets[mote.slot];
+    }
+
+    @Override
+    public void signalReceptionStart() {
+      int slot = mote.slot;
+      type.receivedPackets[slot] = null;
+      if ((type.flags[slot] & (TRANSMITTING | RECEIVING | INTERFERED)) != 0) {
+        interfereAnyReception();
+        return;
+      }
+      type.flags[slot] |= RECEIVING;
+      event(RadioEvent.RECEPTION_STARTED);
+    }
+
+    @Override
+    public void signalReceptionEnd() {
+      int slot = mote.slot;
+      if (isSet(INTERFERED) || type.receivedPackets[slot] == null) {
+        if (--type.interference[slot] <= 0) {
+          type.interference[slot] = 0;
+          type.flags[slot] &= ~INTERFERED;
+        }
+        type.receivedPackets[slot] = null;
+        if (type.interference[slot] > 0) {
+          return;
+        }
+      }
+      type.flags[slot] &= ~RECEIVING;
+      event(RadioEvent.RECEPTION_FINISHED);
+    }
+
+    @Override
+    public RadioEvent getLastEvent() {
+      return type.lastEvents[mote.slot];
+    }
+
+    @Override
+    public boolean isTransmitting() {
+      return isSet(TRANSMITTING);
+    }
+
+    @Override
+    public boolean isReceiving() {
+      return isSet(RECEIVING);
+    }
+
+    @Override
+    public boolean isInterfered() {
+      return isSet(INTERFERED);
+    }
+
+    @Override
+    public boolean isRadioOn() {
+      return true;
+    }
+
+    @Override
+    public void interfereAnyReception() {
+      int slot = mote.slot;
+      type.interference[slot]++;
+      if (!isSet(INTERFERED)) {
+        type.flags[slot] |= INTERFERED;
+        event(RadioEvent.RECEPTION_INTERFERED);
+      }
+    }
+
+    @Override
+    public double getCurrentOutputPower() {
+      return 0;
+    }
+
+    @Override
+    public int getCurrentOutputPowerIndicator() {
+      return 100;
+    }
+
+    @Override
+    public int getOutputPowerIndicatorMax() {
+      return 100;
+    }
+
+    @Override
+    public double getCurrentSignalStrength() {
+      return type.signalStrengths[mote.slot];
+    }
+
+    @Override
+    public void setCurrentSignalStrength(double signalStrength) {
+      type.signalStrengths[mote.slot] = signalStrength;
+    }
+
+    @Override
+    public int getChannel() {
+      return type.channels[mote.slot];
+    }
+
+    @Override
+    public Position getPosition() {
+      return mote.getPosition();
+    }
+
+    @Override
+    public Mote getMote() {
+      return mote;
+    }
+  }
+}
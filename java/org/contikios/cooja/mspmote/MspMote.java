@@ -188,7 +188,7 @@ public abstract class MspMote extends AbstractEmulatedMote<MspMoteType, MSP430,
 
   private long lastExecute = -1; /* Last time mote executed */
 
-  private double jumpError;
+  private final DriftClock driftClock = new DriftClock();
 
   @Override
   protected void execute(long time) {
@@ -230,17 +230,8 @@ public abstract class MspMote extends AbstractEmulatedMote<MspMoteType, MSP430,
   }
 
   private long driftExecute(double deviation, long t, int duration) {
-    long jump = Math.max(0, t - lastExecute);
-    if (deviation != 1.0) {
-      double exactJump = jump * deviation;
-      jump = (int) Math.floor(exactJump);
-      jumpError += exactJump - jump;
-
-      if (jumpError > 1.0) {
-        jump++;
-        jumpError -= 1.0;
-      }
-    }
+    long jump = driftClock.jump(deviation, lastExecute, t);
+    duration = driftClock.duration(t, jump, duration);
     /* Execute MSPSim-based mote */
     /* TODO Try-catch overhead */
     long executeDelta;
@@ -249,13 +240,67 @@ public abstract class MspMote extends AbstractEmulatedMote<MspMoteType, MSP430,
     } catch (EmulationException e) {
       throw new ContikiError(e.getMessage(), getStackTrace(), e);
     }
+    return driftClock.wakeup(deviation, t, executeDelta);
+  }
 
-    if (deviation != 1.0) {
-      double invDeviation = 1.0 / deviation;
-      double exactExecuteDelta = executeDelta * invDeviation;
-      executeDelta = (int) Math.floor(exactExecuteDelta);
+  /**
+   * Converts simulation time to the time of a mote clock with a deviation
+   * and back. Both directions round down, the rounding error of the mote
+   * time is carried to the next conversion.
+   */
+  static final class DriftClock {
+    private double jumpError;
+
+    /* Requested wakeup time and the mote microseconds to it */
+    private long wakeupTime = -1;
+    private long wakeupJump;
+
+    /**
+     * @return Mote microseconds from the last execution to simulation time t
+     */
+    long jump(double deviation, long lastExecute, long t) {
+      long jump = Math.max(0, t - lastExecute);
+      if (deviation != 1.0) {
+        double exactJump = jump * deviation;
+        jump = (int) Math.floor(exactJump);
+        jumpError += exactJump - jump;
+
+        if (jumpError > 1.0) {
+          jump++;
+          jumpError -= 1.0;
+        }
+      }
+      return jump;
+    }
+
+    /**
+     * @return Mote microseconds to execute after the jump to simulation time t
+     */
+    int duration(long t, long jump, int duration) {
+      if (t == wakeupTime && jump < wakeupJump) {
+        /* Rounding left the requested wakeup short of the MSPSim event it was
+         * requested for, execute up to it now instead of waking up again.
+         * This includes wakeups requested less than a microsecond ahead,
+         * which round to the current simulation time. */
+        duration += (int) (wakeupJump - jump);
+      }
+      return duration;
+    }
+
+    /**
+     * @param executeDelta Mote microseconds from simulation time t to the next event
+     * @return Simulation time of the next wakeup
+     */
+    long wakeup(double deviation, long t, long executeDelta) {
+      wakeupJump = executeDelta;
+      if (deviation != 1.0) {
+        double invDeviation = 1.0 / deviation;
+        double exactExecuteDelta = executeDelta * invDeviation;
+        executeDelta = (int) Math.floor(exactExecuteDelta);
+      }
+      wakeupTime = executeDelta + t;
+      return wakeupTime;
     }
-    return executeDelta + t;
   }
 
   @Override
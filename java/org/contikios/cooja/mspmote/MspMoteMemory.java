@@ -39,6 +39,7 @@ import org.contikios.cooja.mote.memory.MemoryLayout;
 import se.sics.mspsim.core.MSP430;
 import se.sics.mspsim.core.Memory.AccessMode;
 import se.sics.mspsim.core.Memory.AccessType;
+import se.sics.mspsim.core.MemoryMonitor;
 
 public class MspMoteMemory implements MemoryInterface {
   private final Map<String, Symbol> symbols;
@@ -58,38 +59,24 @@ public class MspMoteMemory implements MemoryInterface {
 
   @Override
   public byte[] getMemory() throws MoteMemoryException {
-    throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    return cpu.memory;
   }
 
   @Override
   public byte[] getMemorySegment(long address, int size) {
-    int[] memInts = new int[size];
-
-    System.arraycopy(cpu.memory, (int) address, memInts, 0, size);
-
-    /* Convert to byte array */
     byte[] memBytes = new byte[size];
-    for (int i = 0; i < size; i++) {
-      memBytes[i] = (byte) memInts[i];
-    }
-
+    System.arraycopy(cpu.memory, (int) address, memBytes, 0, size);
     return memBytes;
   }
 
   @Override
   public void setMemorySegment(long address, byte[] data) {
-    /* Convert to int array */
-    int[] memInts = new int[data.length];
-    for (int i = 0; i < data.length; i++) {
-      memInts[i] = data[i];
-    }
-
-    System.arraycopy(memInts, 0, cpu.memory, (int) address, data.length);
+    System.arraycopy(data, 0, cpu.memory, (int) address, data.length);
   }
 
   @Override
   public void clearMemory() {
-    Arrays.fill(cpu.memory, 0);
+    Arrays.fill(cpu.memory, (byte) 0);
   }
 
   @Override
@@ -109,7 +96,7 @@ public class MspMoteMemory implements MemoryInterface {
 
   private final ArrayList<MemoryCPUMonitor> cpuMonitorArray = new ArrayList<>();
 
-  class MemoryCPUMonitor extends se.sics.mspsim.core.MemoryMonitor.Adapter {
+  class MemoryCPUMonitor extends MemoryMonitor.Adapter {
 
     final SegmentMonitor mm;
     final int address;
@@ -137,8 +124,13 @@ public class MspMoteMemory implements MemoryInterface {
     MemoryCPUMonitor t = new MemoryCPUMonitor(mm, (int) address, size);
     cpuMonitorArray.add(t);
 
+    int kinds = switch (type) {
+      case READ -> MemoryMonitor.WATCH_READ;
+      case WRITE -> MemoryMonitor.WATCH_WRITE;
+      case READWRITE -> MemoryMonitor.WATCH_READ | MemoryMonitor.WATCH_WRITE;
+    };
     for (int a = (int) address; a < address + size; a++) {
-      cpu.addWatchPoint(a, t);
+      cpu.addWatchPoint(a, t, kinds);
     }
 
     return true;
@@ -32,6 +32,7 @@ package org.contikios.cooja.mspmote;
 import java.awt.EventQueue;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -44,10 +45,13 @@ import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
 import org.jdom2.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import se.sics.mspsim.core.MSP430;
+import se.sics.mspsim.core.MSP430Config;
 import se.sics.mspsim.platform.GenericNode;
 import se.sics.mspsim.util.DebugInfo;
 import se.sics.mspsim.util.ELF;
 import se.sics.mspsim.util.MapEntry;
+import se.sics.mspsim.util.MapTable;
 
 /**
  * MSP430-based mote types emulated in MSPSim.
@@ -63,6 +67,10 @@ public abstract class MspMoteType extends BaseContikiMoteType {
   private boolean loadedDebugInfo;
   private HashMap<File, HashMap<Integer, Integer>> debuggingInfo; /* cached */
   private ELF elf; /* cached */
+  private MapTable map; /* cached */
+  private byte[] firmwareData; /* cached */
+  private byte[] firmwareImage; /* cached */
+  private Map<String, Symbol> variables; /* cached */
 
   @Override
   protected AbstractCompileDialog createCompilationDialog(Cooja gui, MoteTypeConfig cfg) {
@@ -143,27 +151,65 @@ public abstract class MspMoteType extends BaseContikiMoteType {
   }
 
   Map<String, Symbol> getEntries(GenericNode node) {
+    if (variables != null) {
+      return variables;
+    }
     if (Cooja.isVisualized()) {
       EventQueue.invokeLater(() -> Cooja.setProgressMessage("Loading " + getContikiFirmwareFile().getName()));
     }
-    var elf = (ELF) node.getRegistry().getComponent("elf");
+    var mapTable = (MapTable) node.getRegistry().getComponent("mapTable");
     var vars = new HashMap<String, Symbol>();
-    for (var entry : elf.getMap().getAllEntries()) {
+    for (var entry : mapTable.getAllEntries()) {
       if (entry.getType() != MapEntry.TYPE.variable) {
         continue;
       }
       vars.put(entry.getName(),new Symbol(Symbol.Type.VARIABLE, entry.getName(), entry.getAddress(), entry.getSize()));
     }
-    return vars;
+    variables = Map.copyOf(vars);
+    return variables;
   }
 
   public ELF getELF() throws IOException {
     if (elf == null) {
-      elf = ELF.readELF(getContikiFirmwareFile().getPath());
+      elf = new ELF(getFirmwareData());
     }
     return elf;
   }
 
+  private MapTable getMap() throws IOException {
+    if (map == null) {
+      map = getELF().getMap();
+    }
+    return map;
+  }
+
+  private byte[] getFirmwareData() throws IOException {
+    if (firmwareData == null) {
+      firmwareData = Files.readAllBytes(getContikiFirmwareFile().toPath());
+    }
+    return firmwareData;
+  }
+
+  /**
+   * Creates a CPU with the firmware loaded. The firmware file is parsed and
+   * loaded into a memory image once, every CPU gets a copy of the image and
+   * shares the ELF and its map with the other motes of this type.
+   *
+   * @param config Chip configuration
+   * @return CPU
+   */
+  protected MSP430 makeCPU(MSP430Config config) throws IOException {
+    var file = getContikiFirmwareFile().getAbsolutePath();
+    if (file.endsWith("ihex")) {
+      return GenericNode.makeCPU(config, file);
+    }
+    var cpuElf = getELF();
+    if (firmwareImage == null || firmwareImage.length != config.maxMem) {
+      firmwareImage = cpuElf.loadPrograms(config.maxMem);
+    }
+    return new MSP430(config, firmwareImage.clone(), cpuElf, getMap());
+  }
+
   private HashMap<File, HashMap<Integer, Integer>> getFirmwareDebugInfo()
   throws IOException {
     if (debuggingInfo == null) {
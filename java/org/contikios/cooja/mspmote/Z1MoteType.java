@@ -74,7 +74,7 @@ public class Z1MoteType extends MspMoteType {
     public MspMote generateMote(Simulation simulation) throws MoteTypeCreationException {
         MSP430 cpu;
         try {
-            cpu = Z1Node.makeCPU(Z1Node.makeChipConfig(), fileFirmware.getAbsolutePath());
+            cpu = makeCPU(Z1Node.makeChipConfig());
         } catch (IOException e) {
             throw new MoteTypeCreationException("Failed to create CPU", e);
         }
@@ -30,7 +30,7 @@
 
 package org.contikios.cooja.mspmote.interfaces;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 import org.contikios.cooja.ClassDescription;
 import org.contikios.cooja.Mote;
 import org.contikios.cooja.mspmote.MspMoteTimeEvent;
@@ -55,12 +55,10 @@ public class Msp802154BitErrorRadio extends Msp802154Radio {
   private static final double NOISE_FLOOR = AbstractRadioMedium.SS_WEAK;
   private static final double GOOD_SIGNAL = NOISE_FLOOR + 15.0;
 
-  private final Random random;
+  private RandomGenerator random;
 
   public Msp802154BitErrorRadio(Mote m) {
     super(m);
-
-    random = getMote().getSimulation().getRandomGenerator();
   }
 
   /* The MSK-transformed symbol-to-codeword table.
@@ -94,6 +92,9 @@ public class Msp802154BitErrorRadio extends Msp802154Radio {
   private int transceiveSymbolWithErrors(int txSymbol, double bitErrorRate) {
     /* First, transmit (encode and randomly corrupt) it */
     int chipSequence = mskEncodeTable[txSymbol];
+    if (random == null) {
+      random = getMote().getSimulation().getRandomStreams().create(Msp802154BitErrorRadio.class.getName(), getMote().getID());
+    }
     /* Note: loop until 31, not until 32 here, as the highest bit in the codeword
      * is irrelevant for MSK encoded data, and therefore should not come into
      * the Hamming distance calculations. */
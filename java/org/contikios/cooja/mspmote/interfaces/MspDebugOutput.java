@@ -81,7 +81,7 @@ public class MspDebugOutput extends Log {
             getLogDataTriggers().trigger(EventTriggers.Update.UPDATE, new LogDataInfo(mote, lastLog));
           }
       }
-    });
+    }, MemoryMonitor.WATCH_WRITE);
   }
 
   private static String extractString(MemoryInterface mem, int address) {
@@ -156,8 +156,8 @@ public class MspMoteID extends MoteID<MspMote> {
 	        int address = (int) moteMem.getVariableAddress(variable);
           // Variable must be aligned as a word.
           if ((address & 1) == 0) {
-	            mote.getCPU().addWatchPoint(address, monitor);
-	            mote.getCPU().addWatchPoint(address + 1, monitor);
+	            mote.getCPU().addWatchPoint(address, monitor, MemoryMonitor.WATCH_WRITE);
+	            mote.getCPU().addWatchPoint(address + 1, monitor, MemoryMonitor.WATCH_WRITE);
 	        }
 	    }
 	}
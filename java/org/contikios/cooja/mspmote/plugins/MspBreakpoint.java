@@ -69,7 +69,7 @@ public class MspBreakpoint extends Breakpoint {
         mspMote.signalBreakpointTrigger(MspBreakpoint.this);
       }
     };
-    mspMote.getCPU().addWatchPoint((int) address, memoryMonitor);
+    mspMote.getCPU().addWatchPoint((int) address, memoryMonitor, MemoryMonitor.WATCH_EXECUTE);
 
 
     // Remember code, to verify it when reloaded.
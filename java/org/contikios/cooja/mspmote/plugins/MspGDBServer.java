@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mspmote.plugins;
+
+import java.awt.FlowLayout;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JInternalFrame;
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import org.contikios.cooja.ClassDescription;
+import org.contikios.cooja.Cooja;
+import org.contikios.cooja.Mote;
+import org.contikios.cooja.Plugin;
+import org.contikios.cooja.PluginType;
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.VisPlugin;
+import org.contikios.cooja.mspmote.MspMote;
+import org.contikios.cooja.util.EventTriggers;
+import org.jdom2.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.mspsim.core.MSP430Core;
+import se.sics.mspsim.util.GDBServer;
+
+/**
+ * GDB server for all MSPSim motes in the simulation. Every mote is a
+ * separate GDB process with the mote ID as process id, so one debugger can
+ * attach to several motes through one port.
+ */
+@ClassDescription("GDB Server")
+@PluginType(PluginType.PType.SIM_PLUGIN)
+public class MspGDBServer implements Plugin, GDBServer.Host {
+  private static final Logger logger = LoggerFactory.getLogger(MspGDBServer.class);
+
+  private static final int DEFAULT_PORT = 3333;
+
+  private final Simulation simulation;
+  private final VisPlugin frame;
+  private JTextField portField;
+  private JButton startButton;
+  private JLabel statusLabel;
+
+  private int port = DEFAULT_PORT;
+  private GDBServer server;
+
+  public MspGDBServer(Simulation simulation, Cooja gui) {
+    this.simulation = simulation;
+    if (!Cooja.isVisualized()) {
+      frame = null;
+      return;
+    }
+    frame = new VisPlugin("GDB Server", gui, this);
+    frame.setLayout(new FlowLayout(FlowLayout.LEFT));
+    frame.add(new JLabel("Listen port:"));
+    portField = new JTextField(String.valueOf(DEFAULT_PORT), 6);
+    frame.add(portField);
+    startButton = new JButton("Start");
+    startButton.addActionListener(e -> {
+      if (server != null) {
+        stopServer();
+        return;
+      }
+      try {
+        port = Integer.parseInt(portField.getText().trim());
+      } catch (NumberFormatException ex) {
+        statusLabel.setText("Bad port: " + portField.getText());
+        return;
+      }
+      startServer();
+    });
+    frame.add(startButton);
+    statusLabel = new JLabel("Stopped");
+    frame.add(statusLabel);
+    frame.pack();
+  }
+
+  private boolean startServer() {
+    try {
+      server = new GDBServer(port, this);
+    } catch (IOException e) {
+      logger.error("Failed to start GDB server on port {}: {}", port, e.getMessage());
+      updateStatus("Failed: " + e.getMessage());
+      return false;
+    }
+    var gdb = server;
+    simulation.invokeSimulationThread(() -> {
+      for (var mote : simulation.getMotes()) {
+        addMote(gdb, mote);
+      }
+    });
+    simulation.getMoteTriggers().addTrigger(this, (event, mote) -> {
+      if (event == EventTriggers.AddRemove.ADD) {
+        addMote(gdb, mote);
+      } else {
+        gdb.removeTarget(mote.getID());
+      }
+    });
+    simulation.getSimulationStateTriggers().addTrigger(this, (state, sim) -> {
+      if (state == EventTriggers.Operation.STOP) {
+        gdb.stopped();
+      }
+    });
+    logger.info("GDB server listening on port {}", server.getPort());
+    updateStatus("Listening on port " + server.getPort());
+    return true;
+  }
+
+  private void stopServer() {
+    simulation.getMoteTriggers().deleteTriggers(this);
+    simulation.getSimulationStateTriggers().deleteTriggers(this);
+    if (server != null) {
+      server.close();
+      server = null;
+    }
+    updateStatus("Stopped");
+  }
+
+  private void updateStatus(String status) {
+    if (frame == null) {
+      return;
+    }
+    SwingUtilities.invokeLater(() -> {
+      statusLabel.setText(status);
+      startButton.setText(server == null ? "Start" : "Stop");
+      portField.setEditable(server == null);
+      frame.pack();
+    });
+  }
+
+  private static void addMote(GDBServer gdb, Mote mote) {
+    if (mote instanceof MspMote mspMote && mote.getID() > 0) {
+      gdb.addTarget(mote.getID(), new GDBServer.Target() {
+        @Override
+        public MSP430Core getCPU() {
+          return mspMote.getCPU();
+        }
+
+        @Override
+        public String getName() {
+          return mspMote.toString();
+        }
+
+        @Override
+        public void stopNextInstruction() {
+          mspMote.stopNextInstruction();
+        }
+      });
+    }
+  }
+
+  @Override
+  public void invoke(Runnable task) {
+    simulation.invokeSimulationThread(task);
+  }
+
+  @Override
+  public void resume() {
+    simulation.startSimulation();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return simulation.isRunning();
+  }
+
+  @Override
+  public Collection<Element> getConfigXML() {
+    List<Element> config = new ArrayList<>();
+    var element = new Element("port");
+    element.setText(String.valueOf(server == null ? port : server.getPort()));
+    config.add(element);
+    element = new Element("bound");
+    element.setText(String.valueOf(server != null));
+    config.add(element);
+    return config;
+  }
+
+  @Override
+  public boolean setConfigXML(Collection<Element> configXML, boolean visAvailable) {
+    boolean bound = false;
+    for (Element element : configXML) {
+      switch (element.getName()) {
+        case "port" -> port = Integer.parseInt(element.getText());
+        case "bound" -> bound = Boolean.parseBoolean(element.getText());
+        default -> logger.warn("Unknown config element: " + element.getName());
+      }
+    }
+    if (frame != null) {
+      portField.setText(String.valueOf(port));
+    }
+    // Always serve in headless mode, there is no other way to start the server.
+    if (bound || frame == null) {
+      return startServer();
+    }
+    return true;
+  }
+
+  @Override
+  public JInternalFrame getCooja() {
+    return frame;
+  }
+
+  @Override
+  public void startPlugin() {
+  }
+
+  @Override
+  public void closePlugin() {
+    stopServer();
+  }
+}
@@ -33,6 +33,7 @@ package org.contikios.cooja.plugins;
 import java.awt.BorderLayout;
 import java.awt.GridLayout;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -59,6 +60,7 @@ import org.contikios.cooja.VisPlugin;
 import org.contikios.cooja.interfaces.Radio;
 import org.contikios.cooja.radiomediums.AbstractRadioMedium;
 import org.contikios.cooja.radiomediums.DGRMDestinationRadio;
+import org.contikios.cooja.radiomediums.DGRMEdgeFile;
 import org.contikios.cooja.radiomediums.DirectedGraphMedium;
 import org.contikios.cooja.util.StringUtils;
 import org.slf4j.Logger;
@@ -178,7 +180,7 @@ public class DGRMConfigurator extends VisPlugin {
     graphTable.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
     graphTable.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
-    JPanel southPanel = new JPanel(new GridLayout(1, 3));
+    JPanel southPanel = new JPanel(new GridLayout(1, 4));
     JButton button = new JButton("Add");
     button.addActionListener(e -> doAddLink());
     southPanel.add(button);
@@ -190,6 +192,9 @@ public class DGRMConfigurator extends VisPlugin {
     button = new JButton("Import");
     button.addActionListener(e -> doImportFromFile());
     southPanel.add(button);
+    button = new JButton("Export");
+    button.addActionListener(e -> doExportToFile());
+    southPanel.add(button);
 
     getContentPane().setLayout(new BorderLayout());
     add(BorderLayout.CENTER, new JScrollPane(graphTable));
@@ -270,9 +275,7 @@ public class DGRMConfigurator extends VisPlugin {
       if (n != JOptionPane.YES_OPTION) {
         return;
       }
-      for (DirectedGraphMedium.Edge e: radioMedium.getEdges()) {
-      	radioMedium.removeEdge(e);
-      }
+      radioMedium.clearEdges();
     }
 
 		/* Select file to import edges from */
@@ -292,17 +295,47 @@ public class DGRMConfigurator extends VisPlugin {
 
     /* Parse and import edges */
     try {
-      var edges = parseDGRMLinksFile(file, gui.getSimulation());
-      Arrays.sort(edges, Comparator.comparingInt(o -> o.source.getMote().getID()));
-      for (var e : edges) {
-        radioMedium.addEdge(e);
+      String name = file.getName();
+      if (name.endsWith(".csv") || name.endsWith(".dgrm")) {
+        /* Edge list file, referred to by the simulation config */
+        radioMedium.importEdges(file);
+      } else {
+        var edges = parseDGRMLinksFile(file, gui.getSimulation());
+        Arrays.sort(edges, Comparator.comparingInt(o -> o.source.getMote().getID()));
+        radioMedium.addEdges(Arrays.asList(edges));
+        logger.info("Imported " + edges.length + " DGRM edges");
       }
-      logger.info("Imported " + edges.length + " DGRM edges");
+      model.fireTableDataChanged();
     } catch (Exception e) {
       Cooja.showErrorDialog("Error when importing DGRM links from " + file.getName(), e, false);
     }
 	}
 
+  private void doExportToFile() {
+    /* Select file to export edges to */
+    JFileChooser fc = new JFileChooser();
+    File suggest = new File(Cooja.getExternalToolsSetting("DGRM_EXPORT_EDGES_FILE", "cooja_dgrm_edges.dgrm"));
+    fc.setSelectedFile(suggest);
+    int returnVal = fc.showSaveDialog(Cooja.getTopParentContainer());
+    if (returnVal != JFileChooser.APPROVE_OPTION) {
+      return;
+    }
+    File file = fc.getSelectedFile();
+    if (file == null) {
+      return;
+    }
+    Cooja.setExternalToolsSetting("DGRM_EXPORT_EDGES_FILE", file.getPath());
+
+    /* Binary edge list file, can be imported again */
+    var edges = radioMedium.getEdges();
+    try {
+      DGRMEdgeFile.writeBinary(file, edges);
+      logger.info("Exported " + edges.length + " DGRM edges to " + file);
+    } catch (IOException e) {
+      Cooja.showErrorDialog("Error when exporting DGRM edges to " + file.getName(), e, false);
+    }
+  }
+
 	static final int INDEX_SRC = 0;
 	static final int INDEX_DST = 1;
 	static final int INDEX_PRR = 2;
@@ -424,6 +457,7 @@ public class DGRMConfigurator extends VisPlugin {
       	else {
           super.setValueAt(value, row, column);
       	}
+      	radioMedium.edgeModified(edge);
       	radioMedium.requestEdgeAnalysis();
       } catch (ClassCastException e) {
       }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.plugins;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.contikios.cooja.LogOutputHistory;
+
+/**
+ * Absolute indices of the log history rows that pass a filter.
+ * <p>
+ * The index is built incrementally by a background thread that scans the
+ * history from the first row of the view and then follows new rows as they
+ * are logged. The event dispatch thread reads the matches found so far and
+ * trims the matches of rows that are no longer shown.
+ */
+final class LogFilterIndex {
+  private static final int SCAN_BATCH = 4096;
+
+  /** Filter on mote ID and message, as in the Mote output table. */
+  record Filter(Pattern pattern, boolean inverse, boolean hideDebug) {
+    boolean accept(Matcher matcher, int moteID, String msg) {
+      if (pattern != null) {
+        String id = "ID:" + moteID;
+        boolean pass = matcher.reset(id).find() || matcher.reset(msg).find()
+                || matcher.reset(id + ' ' + msg).find();
+        if (pass == inverse) {
+          return false;
+        }
+      }
+      return !hideDebug || !msg.startsWith("DEBUG: ");
+    }
+
+    boolean accept(int moteID, String msg) {
+      return accept(pattern == null ? null : pattern.matcher(""), moteID, msg);
+    }
+  }
+
+  private final LogOutputHistory history;
+  private final Filter filter;
+  private final Thread scanner;
+  private volatile boolean cancelled;
+
+  /* Guarded by this. Matches are in matches[head, tail). */
+  private long[] matches = new long[1024];
+  private int head;
+  private int tail;
+  /** Absolute index of the next row to scan. */
+  private long scanned;
+  /** Rows may have been logged since the scanner last looked at the history. */
+  private boolean pending;
+
+  /**
+   * Starts building the index in the background.
+   *
+   * @param history Log history
+   * @param filter Filter
+   * @param start Absolute index of the first row to scan
+   */
+  LogFilterIndex(LogOutputHistory history, Filter filter, long start) {
+    this.history = history;
+    this.filter = filter;
+    this.scanned = start;
+    scanner = new Thread(this::scan, "LogListener filter");
+    scanner.setDaemon(true);
+    scanner.start();
+  }
+
+  Filter getFilter() {
+    return filter;
+  }
+
+  /** Stops the background thread. */
+  void cancel() {
+    cancelled = true;
+    scanner.interrupt();
+  }
+
+  /** Wakes up the background thread to scan rows logged since the last scan. */
+  synchronized void wakeup() {
+    pending = true;
+    notifyAll();
+  }
+
+  /** Returns the number of matches found so far. */
+  synchronized int size() {
+    return tail - head;
+  }
+
+  /** Returns the absolute history index of a match. */
+  synchronized long get(int match) {
+    return matches[head + match];
+  }
+
+  /**
+   * Returns the first match at or after the given absolute index,
+   * or the number of matches if there is none.
+   */
+  synchronized int find(long index) {
+    int pos = Arrays.binarySearch(matches, head, tail, index);
+    return (pos >= 0 ? pos : -pos - 1) - head;
+  }
+
+  /**
+   * Removes the matches before the given absolute index.
+   *
+   * @return Number of removed matches
+   */
+  synchronized int trimBefore(long index) {
+    int removed = find(index);
+    head += removed;
+    if (head == tail) {
+      head = tail = 0;
+    }
+    if (scanned < index) {
+      scanned = index;
+    }
+    return removed;
+  }
+
+  private synchronized void add(long[] found, int count) {
+    if (tail + count > matches.length) {
+      int size = tail - head;
+      long[] dst = size + count > matches.length / 2 ? new long[Math.max(matches.length * 2, size + count)] : matches;
+      System.arraycopy(matches, head, dst, 0, size);
+      matches = dst;
+      head = 0;
+      tail = size;
+    }
+    System.arraycopy(found, 0, matches, tail, count);
+    tail += count;
+  }
+
+  private void scan() {
+    var matcher = filter.pattern() == null ? null : filter.pattern().matcher("");
+    var found = new long[SCAN_BATCH];
+    var moteIDs = new int[SCAN_BATCH];
+    var messages = new String[SCAN_BATCH];
+    try {
+      while (!cancelled) {
+        long from;
+        synchronized (this) {
+          from = scanned;
+          pending = false;
+        }
+        long to;
+        // Copy the batch out, the simulation thread appends to the history while the filter runs.
+        synchronized (history) {
+          from = Math.max(from, history.getFirstIndex());
+          to = Math.min(history.getEndIndex(), from + SCAN_BATCH);
+          for (long i = from; i < to; i++) {
+            moteIDs[(int) (i - from)] = history.getMote(i).getID();
+            messages[(int) (i - from)] = history.getMessage(i);
+          }
+        }
+        int count = 0;
+        for (long i = from; i < to; i++) {
+          if (filter.accept(matcher, moteIDs[(int) (i - from)], messages[(int) (i - from)])) {
+            found[count++] = i;
+          }
+        }
+        Arrays.fill(messages, 0, (int) (to - from), null);
+        synchronized (this) {
+          if (scanned > from) {
+            // Trimmed during the scan, drop the rows that are no longer shown.
+            int skip = 0;
+            while (skip < count && found[skip] < scanned) {
+              skip++;
+            }
+            System.arraycopy(found, skip, found, 0, count - skip);
+            count -= skip;
+          }
+          add(found, count);
+          scanned = Math.max(scanned, to);
+          while (to == from && !pending) {
+            wait();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      // Cancelled.
+    }
+  }
+}
@@ -56,7 +56,7 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -75,23 +75,21 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.KeyStroke;
-import javax.swing.RowFilter;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
 import org.contikios.cooja.ClassDescription;
 import org.contikios.cooja.Cooja;
 import org.contikios.cooja.HasQuickHelp;
+import org.contikios.cooja.LogOutputHistory;
+import org.contikios.cooja.Mote;
 import org.contikios.cooja.PluginType;
 import org.contikios.cooja.SimEventCentral.LogOutputEvent;
 import org.contikios.cooja.SimEventCentral.LogOutputListener;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.VisPlugin;
 import org.contikios.cooja.dialogs.TableColumnAdjuster;
-import org.contikios.cooja.dialogs.UpdateAggregator;
-import org.contikios.cooja.util.ArrayQueue;
 import org.jdom2.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,6 +97,10 @@ import org.slf4j.LoggerFactory;
 /**
  * A simple mote log listener.
  * Listens to all motes' log interfaces.
+ * <p>
+ * The table is a view of the log output history of the simulation, rows
+ * are read from the history when painted. Filtered rows are found by a
+ * background thread that keeps the history indices of the matching rows.
  *
  * @author Fredrik Osterlind, Niclas Finne
  */
@@ -139,8 +141,16 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
   private boolean hasHours;
 
   private final JTable logTable;
-  private final TableRowSorter<TableModel> logFilter;
-  private final ArrayQueue<LogData> logs = new ArrayQueue<>();
+  private final LogOutputHistory history;
+
+  /** Absolute history index of the first row after the last clear. */
+  private long viewStart;
+  /** Absolute history index of the first row in the table when not filtering. */
+  private long shownFirst;
+  /** Number of rows in the table, updated by the event dispatch thread. */
+  private int shownRows;
+  /** Filtered rows, or null when not filtering. */
+  private LogFilterIndex filterIndex;
 
   private final Simulation simulation;
 
@@ -164,45 +174,9 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
   private final JCheckBoxMenuItem appendCheckBox;
 
   private static final int UPDATE_INTERVAL = 250;
-  private final UpdateAggregator<LogData> logUpdateAggregator = new UpdateAggregator<>(UPDATE_INTERVAL) {
-    private final Runnable scroll = new Runnable() {
-      @Override
-      public void run() {
-        logTable.scrollRectToVisible(
-            new Rectangle(0, logTable.getHeight() - 2, 1, logTable.getHeight()));
-      }
-    };
-    @Override
-    protected void handle(List<LogData> ls) {
-      boolean isVisible = true;
-      if (logTable.getRowCount() > 0) {
-        Rectangle visible = logTable.getVisibleRect();
-        if (visible.y + visible.height < logTable.getHeight()) {
-          isVisible = false;
-        }
-      }
-
-      /* Add */
-      int index = logs.size();
-      logs.addAll(ls);
-      model.fireTableRowsInserted(index, logs.size()-1);
-
-      /* Remove old */
-      int removed = 0;
-      int log_limit = simulation.getEventCentral().getLogOutputBufferSize();
-      while (logs.size() > log_limit ) {
-        logs.remove(0);
-        removed++;
-      }
-      if (removed > 0) {
-        model.fireTableRowsDeleted(0, removed-1);
-      }
-
-      if (isVisible) {
-        SwingUtilities.invokeLater(scroll);
-      }
-    }
-  };
+  /** Rows checked when adjusting column widths, the table may have millions of rows. */
+  private static final int MAX_ADJUST_ROWS = 1000;
+  private final Timer updateTimer = new Timer(UPDATE_INTERVAL, e -> updateRows());
 
   /**
    * @param simulation Simulation
@@ -211,6 +185,7 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
   public LogListener(final Simulation simulation, final Cooja gui) {
     super("Mote output", gui);
     this.simulation = simulation;
+    history = simulation.getEventCentral().getLogOutputHistoryStore();
 
     /* Menus */
     JMenuBar menuBar = new JMenuBar();
@@ -229,10 +204,12 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
         Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
 
         StringBuilder sb = new StringBuilder();
-        for (var data : logs) {
-          sb.append(data.getTime()).append("\t");
-          sb.append(data.getID()).append("\t");
-          sb.append(data.ev.getMessage()).append("\n");
+        synchronized (history) {
+          for (long i = Math.max(viewStart, history.getFirstIndex()), end = history.getEndIndex(); i < end; i++) {
+            sb.append(getTime(history.getTime(i))).append("\t");
+            sb.append(getID(history.getMote(i))).append("\t");
+            sb.append(history.getMessage(i)).append("\n");
+          }
         }
 
         StringSelection stringSelection = new StringSelection(sb.toString());
@@ -246,8 +223,10 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
         Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
 
         StringBuilder sb = new StringBuilder();
-        for (var data : logs) {
-          sb.append(data.ev.getMessage()).append("\n");
+        synchronized (history) {
+          for (long i = Math.max(viewStart, history.getFirstIndex()), end = history.getEndIndex(); i < end; i++) {
+            sb.append(history.getMessage(i)).append("\n");
+          }
         }
 
         StringSelection stringSelection = new StringSelection(sb.toString());
@@ -317,11 +296,13 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
         }
 
         try (var outStream = new PrintWriter(Files.newBufferedWriter(saveFile.toPath(), UTF_8))) {
-          for (LogData data : logs) {
-            outStream.println(
-                    data.getTime() + "\t" +
-                            data.getID() + "\t" +
-                            data.ev.getMessage());
+          synchronized (history) {
+            for (long i = Math.max(viewStart, history.getFirstIndex()), end = history.getEndIndex(); i < end; i++) {
+              outStream.println(
+                      getTime(history.getTime(i)) + "\t" +
+                              getID(history.getMote(i)) + "\t" +
+                              history.getMessage(i));
+            }
           }
         } catch (Exception ex) {
           logger.error("Could not write to file: " + saveFile);
@@ -408,7 +389,7 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
       }
       @Override
       public int getRowCount() {
-        return logs.size();
+        return shownRows;
       }
       @Override
       public int getColumnCount() {
@@ -416,15 +397,21 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
       }
       @Override
       public Object getValueAt(int row, int col) {
-        LogData log = logs.get(row);
-        if (col == COLUMN_TIME) {
-          return log.getTime();
-        } else if (col == COLUMN_FROM) {
-          return log.getID();
-        } else if (col == COLUMN_DATA) {
-          return log.ev.getMessage();
-        } else if (col == COLUMN_CONCAT) {
-          return log.getID() + ' ' + log.ev.getMessage();
+        long index = getHistoryIndex(row);
+        synchronized (history) {
+          if (index < history.getFirstIndex()) {
+            // Evicted from the history since the last update.
+            return null;
+          }
+          if (col == COLUMN_TIME) {
+            return getTime(history.getTime(index));
+          } else if (col == COLUMN_FROM) {
+            return getID(history.getMote(index));
+          } else if (col == COLUMN_DATA) {
+            return history.getMessage(index);
+          } else if (col == COLUMN_CONCAT) {
+            return getID(history.getMote(index)) + ' ' + history.getMessage(index);
+          }
         }
         return null;
       }
@@ -466,9 +453,9 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
               table, value, isSelected, hasFocus, row, column);
       	}
 
-      	if (backgroundColors) {
-          LogData d = logs.get(logTable.getRowSorter().convertRowIndexToModel(row));
-          int color = (10+d.ev.getMote().getID())%10;
+      	Mote mote = backgroundColors ? getMote(row) : null;
+      	if (mote != null) {
+          int color = (10+mote.getID())%10;
           setBackground(BG_COLORS[color]);
         } else {
           setBackground(null);
@@ -493,11 +480,6 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
         }
       }
     });
-    logFilter = new TableRowSorter<>(model);
-    for (int i = 0, n = model.getColumnCount(); i < n; i++) {
-      logFilter.setSortable(i, false);
-    }
-    logTable.setRowSorter(logFilter);
 
     /* Toggle time format */
     logTable.getTableHeader().addMouseListener(new MouseAdapter() {
@@ -525,16 +507,17 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
         if (rowIndex == -1) {
           return;
         }
-        LogData d = logs.get(logTable.getRowSorter().convertRowIndexToModel(rowIndex));
-        if (d == null) {
+        Mote mote = getMote(rowIndex);
+        if (mote == null) {
         	return;
         }
-        gui.signalMoteHighlight(d.ev.getMote());
+        gui.signalMoteHighlight(mote);
     	}
 		});
 
     /* Automatically update column widths */
     final TableColumnAdjuster adjuster = new TableColumnAdjuster(logTable);
+    adjuster.setMaxRowsChecked(MAX_ADJUST_ROWS);
     adjuster.packColumns();
 
     /* Popup menu */
@@ -551,19 +534,14 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
     popupMenu.addSeparator();
     popupMenu.add(new JMenuItem(clearAction));
     logTable.setComponentPopupMenu(popupMenu);
-    /* Fetch log output history */
-    LogOutputEvent[] history = simulation.getEventCentral().getLogOutputHistory();
-    if (history.length > 0) {
-      for (LogOutputEvent historyEv: history) {
-      	if (!hasHours && historyEv.getTime() > TIME_HOUR) {
-      		hasHours = true;
-      		repaintTimeColumn();
-      	}
-        LogData data = new LogData(historyEv);
-        logs.add(data);
-      }
+    /* Show log output history */
+    synchronized (history) {
+      viewStart = shownFirst = history.getFirstIndex();
+      shownRows = history.size();
+      hasHours = shownRows > 0 && history.getTime(history.getEndIndex() - 1) > TIME_HOUR;
+    }
+    if (shownRows > 0) {
       java.awt.EventQueue.invokeLater(() -> {
-        model.fireTableDataChanged();
         logTable.scrollRectToVisible(new Rectangle(0, logTable.getHeight() - 2, 1, logTable.getHeight()));
       });
     }
@@ -575,18 +553,16 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
     });
 
     /* Start observing motes for new log output */
-    logUpdateAggregator.start();
     simulation.getEventCentral().addLogOutputListener(logOutputListener = ev -> {
       if (!hasHours && ev.getTime() > TIME_HOUR) {
         hasHours = true;
-        repaintTimeColumn();
+        java.awt.EventQueue.invokeLater(this::repaintTimeColumn);
       }
-      var data = new LogData(ev);
-      logUpdateAggregator.add(data);
       if (appendToFile) {
-        appendToFile(appendStreamFile, data.getTime() + "\t" + data.getID() + "\t" + data.ev.getMessage() + "\n");
+        appendToFile(appendStreamFile, getTime(ev.getTime()) + "\t" + getID(ev.getMote()) + "\t" + ev.getMessage() + "\n");
       }
     });
+    updateTimer.start();
 
     /* UI components */
     JPanel filterPanel = new JPanel();
@@ -604,10 +580,6 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
       if (s < 0) {
         return;
       }
-      s = logTable.getRowSorter().convertRowIndexToView(s);
-      if (s < 0) {
-        return;
-      }
       int v = logTable.getRowHeight() * s;
       logTable.scrollRectToVisible(new Rectangle(0, v - 5, 1, v + 5));
     });
@@ -633,8 +605,12 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
   public void closePlugin() {
     /* Stop observing motes */
     appendToFile(null, null);
-    logUpdateAggregator.stop();
+    updateTimer.stop();
     simulation.getEventCentral().removeLogOutputListener(logOutputListener);
+    if (filterIndex != null) {
+      filterIndex.cancel();
+      filterIndex = null;
+    }
   }
 
   @Override
@@ -710,105 +686,133 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
 
   public void setFilter(String str) {
     filterTextField.setText(str);
-    resetFiltered();
 
+    Pattern pattern = null;
     try {
-    	final RowFilter<Object,Integer> regexp;
       if (str != null && !str.isEmpty()) {
-      	regexp = RowFilter.regexFilter(str, COLUMN_FROM, COLUMN_DATA, COLUMN_CONCAT);
-      } else {
-      	regexp = null;
+        pattern = Pattern.compile(str);
       }
-    	RowFilter<Object, Integer> wrapped = new RowFilter<>() {
-        @Override
-        public boolean include(RowFilter.Entry<?, ? extends Integer> entry) {
-          if (regexp != null) {
-            boolean pass;
-            if (entry.getIdentifier() != null) {
-              // entry alredy in logs, so can check is it filetred?
-              int row = entry.getIdentifier().intValue();
-              LogData log = logs.get(row);
-              pass = (log.filtered == FilterState.PASS);
-              if (log.filtered == FilterState.NONE) {
-                pass = regexp.include(entry);
-                log.setFiltered(pass);
-              }
-            } else {
-              pass = regexp.include(entry);
-            }
-            if (inverseFilter && pass) {
-              return false;
-            } else if (!inverseFilter && !pass) {
-              return false;
-            }
-          }
-          if (hideDebug) {
-            return !entry.getStringValue(COLUMN_DATA).startsWith("DEBUG: ");
-          }
-          return true;
-        }
-      };
-      logFilter.setRowFilter(wrapped);
       filterTextField.setBackground(filterTextFieldBackground);
       filterTextField.setToolTipText(null);
     } catch (PatternSyntaxException e) {
-      logFilter.setRowFilter(null);
       filterTextField.setBackground(Color.red);
       filterTextField.setToolTipText("Syntax error in regular expression: " + e.getMessage());
     }
+
+    if (filterIndex != null) {
+      filterIndex.cancel();
+      filterIndex = null;
+    }
+    int removed = shownRows;
+    shownRows = 0;
+    if (removed > 0) {
+      model.fireTableRowsDeleted(0, removed - 1);
+    }
+    if (pattern != null || hideDebug) {
+      var filter = new LogFilterIndex.Filter(pattern, inverseFilter, hideDebug);
+      filterIndex = new LogFilterIndex(history, filter, Math.max(viewStart, history.getFirstIndex()));
+    }
+    updateRows();
     Cooja.getDesktopPane().repaint();
   }
 
-  public void trySelectTime(final long time) {
-    for (int i = 0; i < logs.size(); i++) {
-      if (logs.get(i).ev.getTime() < time) {
-        continue;
-      }
-      int view = logTable.convertRowIndexToView(i);
-      if (view < 0) {
-        continue;
+  /**
+   * Shows rows logged or found by the filter since the last update and
+   * removes rows no longer in the history. Called on the event dispatch thread.
+   */
+  private void updateRows() {
+    boolean isVisible = true;
+    if (shownRows > 0) {
+      Rectangle visible = logTable.getVisibleRect();
+      if (visible.y + visible.height < logTable.getHeight()) {
+        isVisible = false;
       }
-      logTable.scrollRectToVisible(logTable.getCellRect(view, 0, true));
-      logTable.setRowSelectionInterval(view, view);
-      return;
     }
-  }
 
-  private enum FilterState { NONE, PASS, REJECTED }
+    long first;
+    long end;
+    synchronized (history) {
+      first = Math.max(viewStart, history.getFirstIndex());
+      end = history.getEndIndex();
+    }
+    int removed;
+    int rows;
+    if (filterIndex == null) {
+      removed = (int) Math.min(Math.max(first - shownFirst, 0), shownRows);
+      shownFirst = first;
+      rows = (int) (end - first);
+    } else {
+      removed = Math.min(filterIndex.trimBefore(first), shownRows);
+      filterIndex.wakeup();
+      rows = filterIndex.size();
+    }
 
-  private class LogData {
-    final LogOutputEvent ev;
-    FilterState    filtered;
+    /* Remove old */
+    if (removed > 0) {
+      shownRows -= removed;
+      model.fireTableRowsDeleted(0, removed - 1);
+    }
 
-    LogData(LogOutputEvent ev) {
-      this.ev = ev;
-      this.filtered = FilterState.NONE;
+    /* Add */
+    if (rows > shownRows) {
+      int index = shownRows;
+      shownRows = rows;
+      model.fireTableRowsInserted(index, rows - 1);
+      if (isVisible) {
+        SwingUtilities.invokeLater(() -> logTable.scrollRectToVisible(
+            new Rectangle(0, logTable.getHeight() - 2, 1, logTable.getHeight())));
+      }
     }
+  }
 
-    String getID() {
-      return "ID:" + ev.getMote().getID();
+  /** Returns the absolute history index of a table row. */
+  private long getHistoryIndex(int row) {
+    return filterIndex == null ? shownFirst + row : filterIndex.get(row);
+  }
+
+  /** Returns the mote of a table row, or null if no longer in the history. */
+  private Mote getMote(int row) {
+    if (row < 0 || row >= shownRows) {
+      return null;
+    }
+    long index = getHistoryIndex(row);
+    synchronized (history) {
+      return index < history.getFirstIndex() ? null : history.getMote(index);
     }
+  }
 
-    String getTime() {
-      if (formatTimeString) {
-        return getFormattedTime(ev.getTime());
-      } else {
-        return String.valueOf(ev.getTime() / Simulation.MILLISECOND);
-      }
+  /** Returns the simulation time of a table row, or -1 if no longer in the history. */
+  private long getSimulationTime(int row) {
+    if (row < 0 || row >= shownRows) {
+      return -1;
     }
+    long index = getHistoryIndex(row);
+    synchronized (history) {
+      return index < history.getFirstIndex() ? -1 : history.getTime(index);
+    }
+  }
 
-    void setFiltered(boolean pass) {
-        if (pass)
-            filtered = FilterState.PASS;
-        else
-            filtered = FilterState.REJECTED;
+  public void trySelectTime(final long time) {
+    long index = history.findFirstIndex(time);
+    long row = filterIndex == null ? Math.max(index - shownFirst, 0) : filterIndex.find(index);
+    if (row >= shownRows) {
+      return;
     }
+    int view = (int) row;
+    logTable.scrollRectToVisible(logTable.getCellRect(view, 0, true));
+    logTable.setRowSelectionInterval(view, view);
   }
-  
-  private void resetFiltered() {
-      for( LogData x: logs) {
-          x.filtered = FilterState.NONE;
-      }
+
+  private static String getID(Mote mote) {
+    return "ID:" + mote.getID();
+  }
+
+  private String getTime(long time) {
+    if (formatTimeString) {
+      return getFormattedTime(time);
+    } else {
+      return String.valueOf(time / Simulation.MILLISECOND);
+    }
   }
 
   private boolean appendToFile;
@@ -859,8 +863,10 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
       if (view < 0) {
         return;
       }
-      int model = logTable.convertRowIndexToModel(view);
-      long time = logs.get(model).ev.getTime();
+      long time = getSimulationTime(view);
+      if (time < 0) {
+        return;
+      }
       simulation.getCooja().getPlugins(TimeLine.class).forEach(p -> p.trySelectTime(time));
     }
   };
@@ -872,8 +878,10 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
       if (view < 0) {
         return;
       }
-      int model = logTable.convertRowIndexToModel(view);
-      long time = logs.get(model).ev.getTime();
+      long time = getSimulationTime(view);
+      if (time < 0) {
+        return;
+      }
       simulation.getCooja().getPlugins(RadioLogger.class).forEach(p -> p.trySelectTime(time));
     }
   };
@@ -891,11 +899,8 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
   };
 
   public void clear() {
-    int size = logs.size();
-    if (size > 0) {
-      logs.clear();
-      model.fireTableRowsDeleted(0, size - 1);
-    }
+    viewStart = history.getEndIndex();
+    updateRows();
   }
 
   @Override
@@ -917,43 +922,12 @@ public class LogListener extends VisPlugin implements HasQuickHelp {
 
   /* Experimental feature: let other plugins learn if a log output would be filtered or not */
   public boolean filterWouldAccept(LogOutputEvent ev) {
-    RowFilter<? super TableModel, ? super Integer> rowFilter = logFilter.getRowFilter();
-    if (rowFilter == null) {
+    var index = filterIndex;
+    if (index == null) {
       /* No filter */
       return true;
     }
-
-    final LogData ld = new LogData(ev);
-    RowFilter.Entry<? extends TableModel, ? extends Integer> entry = new RowFilter.Entry<>() {
-      @Override
-      public TableModel getModel() {
-        return model;
-      }
-      @Override
-      public int getValueCount() {
-        return model.getColumnCount();
-      }
-      @Override
-      public Object getValue(int index) {
-        if (index == COLUMN_TIME) {
-          return ld.getTime();
-        } else if (index == COLUMN_FROM) {
-          return ld.getID();
-        } else if (index == COLUMN_DATA) {
-          return ld.ev.getMessage();
-        } else if (index == COLUMN_CONCAT) {
-          return ld.getID() + ' ' + ld.ev.getMessage();
-        }
-        return null;
-      }
-      @Override
-      public Integer getIdentifier() {
-        return null;
-      }
-    };
-    boolean show;
-    show = rowFilter.include(entry);
-    return show;
+    return index.getFilter().accept(ev.getMote().getID(), ev.getMessage());
   }
   public Color getColorOfEntry(LogOutputEvent logEvent) {
     int color = (10+logEvent.getMote().getID())%10;
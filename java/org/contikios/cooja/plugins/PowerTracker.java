@@ -38,8 +38,15 @@ import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import javax.swing.AbstractAction;
 import javax.swing.Box;
 import javax.swing.JButton;
@@ -55,16 +62,24 @@ import org.contikios.cooja.Mote;
 import org.contikios.cooja.Plugin;
 import org.contikios.cooja.PluginType;
 import org.contikios.cooja.Simulation;
+import org.contikios.cooja.TimeEvent;
 import org.contikios.cooja.VisPlugin;
 import org.contikios.cooja.interfaces.Radio;
+import org.contikios.cooja.motes.AbstractEmulatedMote;
 import org.contikios.cooja.util.EventTriggers;
 import org.jdom2.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import se.sics.mspsim.core.MSP430Constants;
 
 /**
  * Tracks radio events to sum up transmission, reception, and radio on times.
  * This plugin can be run without visualization, i.e. from a Contiki test.
+ * <p>
+ * For emulated motes the time spent in each CPU operating mode (active and
+ * LPM0-LPM4) is tracked as well. The durations can be exported as a timeline
+ * with one row per mote and simulated interval, in CSV or JSON lines format,
+ * see {@link #startTimelineExport(File, boolean, long)}.
  *
  * @author Fredrik Osterlind, Adam Dunkels
  */
@@ -80,6 +95,22 @@ public class PowerTracker implements Plugin {
   private static final int COLUMN_RADIOTX = 2;
   private static final int COLUMN_RADIORX = 3;
 
+  /** Timeline columns, durations in microseconds. */
+  public static final String[] TIMELINE_COLUMNS = {
+    "monitored", "radio_on", "radio_tx", "radio_rx", "radio_int",
+    "cpu_active", "cpu_lpm0", "cpu_lpm1", "cpu_lpm2", "cpu_lpm3", "cpu_lpm4"
+  };
+  private static final int TIMELINE_MONITORED = 0;
+  private static final int TIMELINE_RADIOON = 1;
+  private static final int TIMELINE_RADIOTX = 2;
+  private static final int TIMELINE_RADIORX = 3;
+  private static final int TIMELINE_RADIOINT = 4;
+  private static final int TIMELINE_CPU = 5;
+  private static final int CPU_MODES = MSP430Constants.MODE_MAX + 1;
+
+  /** Number of dwell time histogram bins, bin i counts durations in [2^i, 2^(i+1)) us. */
+  public static final int HISTOGRAM_BINS = 40;
+
   private final Simulation simulation;
   private final ArrayList<MoteTracker> moteTrackers = new ArrayList<>();
 
@@ -88,6 +119,8 @@ public class PowerTracker implements Plugin {
 
   private final VisPlugin frame;
 
+  private TimelineExport timelineExport;
+
   public PowerTracker(final Simulation simulation, final Cooja gui) {
     this.simulation = simulation;
 
@@ -301,6 +334,21 @@ public class PowerTracker implements Plugin {
     long radioRx;
     long radioInterfered;
 
+    /* durations of the current timeline interval, indexed by timeline column */
+    final long[] interval = new long[TIMELINE_COLUMNS.length];
+
+    /* dwell time histograms of radio states and CPU modes */
+    private long radioStateStart;
+    private final long[][] radioHistogram = new long[RadioState.values().length][HISTOGRAM_BINS];
+    private final long[][] cpuHistogram = new long[CPU_MODES][HISTOGRAM_BINS];
+
+    /* CPU operating modes, emulated motes only */
+    private AbstractEmulatedMote<?, ?, ?> cpuMote;
+    private int cpuMode;
+    private long cpuModeStart;
+    private long cpuLastUpdate;
+    final long[] cpuModeTime = new long[CPU_MODES];
+
     private final Simulation simulation;
     private Mote mote;
     private Radio radio;
@@ -321,7 +369,81 @@ public class PowerTracker implements Plugin {
         lastRadioState = RadioState.IDLE;
       }
       lastUpdateTime = simulation.getSimulationTime();
+      radioStateStart = lastUpdateTime;
       radio.getRadioEventTriggers().addTrigger(this, this::trigger);
+
+      if (mote instanceof AbstractEmulatedMote<?, ?, ?> emulated && emulated.getCPU() != null) {
+        cpuMote = emulated;
+        cpuMode = Math.min(emulated.getCPU().getMode(), CPU_MODES - 1);
+        cpuModeStart = cpuLastUpdate = getCpuTime();
+        emulated.getCPUModeTriggers().addTrigger(this, this::cpuModeChanged);
+      }
+    }
+
+    /**
+     * Returns the simulation time of a CPU mode change. The CPU clock runs
+     * ahead of the simulation time during a mote execution and drifts from it,
+     * so the simulation time keeps the CPU columns consistent with the others.
+     */
+    private long getCpuTime() {
+      return simulation.getSimulationTime();
+    }
+
+    private void cpuModeChanged(EventTriggers.Update event, Integer mode) {
+      updateCpu(mode);
+    }
+
+    private void updateCpu(int mode) {
+      long now = getCpuTime();
+      long t = now - cpuLastUpdate;
+      cpuModeTime[cpuMode] += t;
+      interval[TIMELINE_CPU + cpuMode] += t;
+      cpuLastUpdate = now;
+      mode = Math.min(mode, CPU_MODES - 1);
+      if (mode != cpuMode) {
+        addDwellTime(cpuHistogram[cpuMode], now - cpuModeStart);
+        cpuModeStart = now;
+        cpuMode = mode;
+      }
+    }
+
+    private static void addDwellTime(long[] histogram, long t) {
+      int bin = t <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(t);
+      histogram[Math.min(bin, HISTOGRAM_BINS - 1)]++;
+    }
+
+    /**
+     * Accumulates the durations up to now and returns the durations of
+     * the current timeline interval. The caller starts a new interval by
+     * clearing the returned array.
+     */
+    long[] closeInterval() {
+      update();
+      if (cpuMote != null) {
+        updateCpu(cpuMote.getCPU().getMode());
+      }
+      return interval;
+    }
+
+    /**
+     * Returns the dwell time histogram of a radio state.
+     * Bin i counts the times the state lasted between 2^i and 2^(i+1) us.
+     */
+    public long[] getRadioStateHistogram(RadioState state) {
+      return radioHistogram[state.ordinal()];
+    }
+
+    /**
+     * Returns the dwell time histogram of a CPU operating mode,
+     * see {@link MSP430Constants#MODE_NAMES}. Empty for motes without an emulated CPU.
+     */
+    public long[] getCpuModeHistogram(int mode) {
+      return cpuHistogram[mode];
+    }
+
+    /** Returns the time spent in a CPU operating mode in microseconds. */
+    public long getCpuModeTime(int mode) {
+      return cpuModeTime[mode];
     }
 
     private void trigger(Radio.RadioEvent event, Radio radio) {
@@ -348,16 +470,22 @@ public class PowerTracker implements Plugin {
       }
 
       /* Await next radio event */
+      RadioState state;
       if (radio.isTransmitting()) {
-        lastRadioState = RadioState.TRANSMITTING;
+        state = RadioState.TRANSMITTING;
       } else if (!radio.isRadioOn()) {
-        lastRadioState = RadioState.IDLE;
+        state = RadioState.IDLE;
       } else if (radio.isInterfered()) {
-        lastRadioState = RadioState.INTERFERED;
+        state = RadioState.INTERFERED;
       } else if (radio.isReceiving()) {
-        lastRadioState = RadioState.RECEIVING;
+        state = RadioState.RECEIVING;
       } else {
-        lastRadioState = RadioState.IDLE;
+        state = RadioState.IDLE;
+      }
+      if (state != lastRadioState) {
+        addDwellTime(radioHistogram[lastRadioState.ordinal()], now - radioStateStart);
+        radioStateStart = now;
+        lastRadioState = state;
       }
       radioWasOn = radio.isRadioOn();
       lastUpdateTime = now;
@@ -365,18 +493,23 @@ public class PowerTracker implements Plugin {
 
     void accumulateDuration(long t) {
       duration += t;
+      interval[TIMELINE_MONITORED] += t;
     }
     void accumulateRadioOn(long t) {
       radioOn += t;
+      interval[TIMELINE_RADIOON] += t;
     }
     void accumulateRadioTx(long t) {
       radioTx += t;
+      interval[TIMELINE_RADIOTX] += t;
     }
     void accumulateRadioRx(long t) {
       radioRx += t;
+      interval[TIMELINE_RADIORX] += t;
     }
     void accumulateRadioIntefered(long t) {
       radioInterfered += t;
+      interval[TIMELINE_RADIOINT] += t;
     }
 
     double getRadioOnRatio() {
@@ -401,6 +534,10 @@ public class PowerTracker implements Plugin {
 
     void dispose() {
       radio.getRadioEventTriggers().removeTrigger(this, this::trigger);
+      if (cpuMote != null) {
+        cpuMote.getCPUModeTriggers().deleteTriggers(this);
+        cpuMote = null;
+      }
       radio = null;
       mote = null;
     }
@@ -478,21 +615,171 @@ public class PowerTracker implements Plugin {
   public void startPlugin() {
   }
 
+  /**
+   * Starts exporting the radio and CPU durations of all motes once every
+   * simulated interval. Each row holds the durations of one mote during the
+   * interval ending at the row time, see {@link #TIMELINE_COLUMNS}.
+   * JSON output also gets the dwell time histograms when the export stops.
+   *
+   * @param file Output file
+   * @param json True for JSON lines, false for CSV
+   * @param interval Simulated interval in microseconds
+   * @throws IOException If the file could not be opened
+   */
+  public void startTimelineExport(File file, boolean json, long interval) throws IOException {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Bad timeline interval: " + interval);
+    }
+    stopTimelineExport();
+    var export = new TimelineExport(file, json, interval);
+    timelineExport = export;
+    simulation.invokeSimulationThread(() -> {
+      if (timelineExport != export) {
+        return;
+      }
+      /* Start the first interval now */
+      for (MoteTracker mt : moteTrackers) {
+        Arrays.fill(mt.closeInterval(), 0);
+      }
+      simulation.scheduleEvent(export, simulation.getSimulationTime() + interval);
+    });
+  }
+
+  /**
+   * Stops the timeline export, writing the durations since the last
+   * exported interval.
+   */
+  public void stopTimelineExport() {
+    var export = timelineExport;
+    if (export == null) {
+      return;
+    }
+    timelineExport = null;
+    /* The export reads the mote trackers, which the simulation thread updates */
+    invokeSimulationThread(() -> closeTimelineExport(export));
+  }
+
+  private void closeTimelineExport(TimelineExport export) {
+    export.remove();
+    export.close(moteTrackers.toArray(new MoteTracker[0]));
+  }
+
+  private void invokeSimulationThread(Runnable r) {
+    if (simulation.isSimulationThread() || simulation.isShutdown()) {
+      r.run();
+    } else {
+      simulation.invokeSimulationThread(r);
+    }
+  }
+
+  private final class TimelineExport extends TimeEvent {
+    final File file;
+    final boolean json;
+    final long interval;
+    private final PrintWriter out;
+    private long lastTime;
+    private final StringBuilder sb = new StringBuilder();
+
+    TimelineExport(File file, boolean json, long interval) throws IOException {
+      this.file = file;
+      this.json = json;
+      this.interval = interval;
+      out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8));
+      lastTime = simulation.getSimulationTime();
+      if (!json) {
+        sb.append("time,mote");
+        for (String column : TIMELINE_COLUMNS) {
+          sb.append(',').append(column);
+        }
+        out.println(sb);
+      }
+    }
+
+    @Override
+    public void execute(long t) {
+      writeInterval(t, moteTrackers.toArray(new MoteTracker[0]));
+      simulation.scheduleEvent(this, t + interval);
+    }
+
+    private void writeInterval(long t, MoteTracker[] trackers) {
+      lastTime = t;
+      for (MoteTracker mt : trackers) {
+        long[] durations = mt.closeInterval();
+        sb.setLength(0);
+        if (json) {
+          sb.append("{\"time\":").append(t).append(",\"mote\":").append(mt.mote.getID());
+          for (int i = 0; i < durations.length; i++) {
+            sb.append(",\"").append(TIMELINE_COLUMNS[i]).append("\":").append(durations[i]);
+          }
+          sb.append('}');
+        } else {
+          sb.append(t).append(',').append(mt.mote.getID());
+          for (long d : durations) {
+            sb.append(',').append(d);
+          }
+        }
+        out.println(sb);
+        Arrays.fill(durations, 0);
+      }
+      if (out.checkError()) {
+        logger.error("Failed writing PowerTracker timeline to " + file);
+      }
+    }
+
+    private void appendHistogram(String name, long[] histogram) {
+      int bins = histogram.length;
+      while (bins > 0 && histogram[bins - 1] == 0) {
+        bins--;
+      }
+      if (bins == 0) {
+        return;
+      }
+      sb.append(",\"").append(name).append("\":[");
+      for (int i = 0; i < bins; i++) {
+        sb.append(i > 0 ? "," : "").append(histogram[i]);
+      }
+      sb.append(']');
+    }
+
+    void close(MoteTracker[] trackers) {
+      long now = simulation.getSimulationTime();
+      if (now > lastTime) {
+        writeInterval(now, trackers);
+      }
+      if (json) {
+        for (MoteTracker mt : trackers) {
+          sb.setLength(0);
+          sb.append("{\"mote\":").append(mt.mote.getID()).append(",\"histogram\":{\"bins\":").append(HISTOGRAM_BINS);
+          for (RadioState state : RadioState.values()) {
+            appendHistogram("radio_" + state.name().toLowerCase(), mt.getRadioStateHistogram(state));
+          }
+          for (int mode = 0; mode < CPU_MODES; mode++) {
+            appendHistogram(TIMELINE_COLUMNS[TIMELINE_CPU + mode], mt.getCpuModeHistogram(mode));
+          }
+          out.println(sb.append("}}"));
+        }
+      }
+      out.close();
+    }
+  }
+
   @Override
   public void closePlugin() {
     /* Remove repaint timer */
     repaintTimer.stop();
     simulation.getMoteTriggers().deleteTriggers(this);
-    /* Remove mote trackers */
-    for (Mote m: simulation.getMotes()) {
-      removeMote(m);
-    }
-    if (!moteTrackers.isEmpty()) {
-      logger.error("Mote observers not cleaned up correctly");
-      for (MoteTracker t: moteTrackers.toArray(new MoteTracker[0])) {
+    var export = timelineExport;
+    timelineExport = null;
+    /* Write the last timeline interval before the mote trackers are removed */
+    invokeSimulationThread(() -> {
+      if (export != null) {
+        closeTimelineExport(export);
+      }
+      for (MoteTracker t: moteTrackers) {
         t.dispose();
       }
-    }
+      moteTrackers.clear();
+    });
   }
 
   public enum RadioState {
@@ -522,10 +809,30 @@ public class PowerTracker implements Plugin {
 
   @Override
   public Collection<Element> getConfigXML() {
-    return null;
+    var export = timelineExport;
+    if (export == null) {
+      return null;
+    }
+    var element = new Element("timeline");
+    element.setAttribute("interval", String.valueOf(export.interval / Simulation.MILLISECOND));
+    element.setAttribute("format", export.json ? "json" : "csv");
+    element.setText(simulation.getCooja().createPortablePath(export.file).getPath());
+    return List.of(element);
   }
   @Override
   public boolean setConfigXML(Collection<Element> configXML, boolean visAvailable) {
+    for (Element element : configXML) {
+      if ("timeline".equals(element.getName())) {
+        var file = simulation.getCooja().restorePortablePath(new File(element.getText()));
+        var interval = Long.parseLong(element.getAttributeValue("interval", "1000")) * Simulation.MILLISECOND;
+        try {
+          startTimelineExport(file, "json".equals(element.getAttributeValue("format")), interval);
+        } catch (IOException | IllegalArgumentException e) {
+          logger.error("Failed starting PowerTracker timeline export to " + file + ": " + e.getMessage());
+          return false;
+        }
+      }
+    }
     return true;
   }
 
@@ -52,6 +52,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.regex.PatternSyntaxException;
@@ -135,6 +136,15 @@ public class RadioLogger extends VisPlugin {
   private final JTable dataTable;
   private final TableRowSorter<TableModel> logFilter;
   private final ArrayList<RadioConnectionLog> connections = new ArrayList<>();
+
+  /** Decoded packets, the least recently used are evicted. */
+  private static final int DECODED_CACHE_SIZE = 4096;
+  private final LinkedHashMap<RadioConnectionLog, Decoded> decoded = new LinkedHashMap<>(256, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<RadioConnectionLog, Decoded> eldest) {
+      return size() > DECODED_CACHE_SIZE;
+    }
+  };
   private final RadioMedium radioMedium;
   private final AbstractTableModel model;
 
@@ -232,17 +242,15 @@ public class RadioLogger extends VisPlugin {
           }
           return "[" + dests.length + " d]";
         } else if (col == COLUMN_DATA) {
-          if (conn.data == null) {
-            prepareDataString(connections.get(row));
-          }
+          String data = getDecoded(conn).data();
           if (aliases != null) {
             /* Check if alias exists */
-            String alias = aliases.getProperty(conn.data);
+            String alias = aliases.getProperty(data);
             if (alias != null) {
               return alias;
             }
           }
-          return conn.data;
+          return data;
         }
         return null;
       }
@@ -317,10 +325,7 @@ public class RadioLogger extends VisPlugin {
           tip.append("</html>");
           return tip.toString();
         } else if (modelColumnIndex == COLUMN_DATA) {
-          if (conn.tooltip == null) {
-            prepareTooltipString(conn);
-          }
-          return conn.tooltip;
+          return getTooltip(conn);
         }
         return super.getToolTipText(e);
       }
@@ -375,10 +380,7 @@ public class RadioLogger extends VisPlugin {
       int modelRowIndex = dataTable.convertRowIndexToModel(row);
       if (modelRowIndex >= 0) {
         RadioConnectionLog conn = connections.get(modelRowIndex);
-        if (conn.tooltip == null) {
-          prepareTooltipString(conn);
-        }
-        verboseBox.setText(conn.tooltip);
+        verboseBox.setText(getTooltip(conn));
         verboseBox.setCaretPosition(0);
       }
     });
@@ -443,15 +445,15 @@ public class RadioLogger extends VisPlugin {
         if (selectedRow < 0) return;
 
         String current = "";
-        if (aliases != null && aliases.getProperty(connections.get(selectedRow).data) != null) {
-          current = aliases.getProperty(connections.get(selectedRow).data);
+        if (aliases != null && aliases.getProperty(getDecoded(connections.get(selectedRow)).data()) != null) {
+          current = aliases.getProperty(getDecoded(connections.get(selectedRow)).data());
         }
 
         String alias = (String) JOptionPane.showInputDialog(
                 Cooja.getTopParentContainer(),
                 "Enter alias for all packets with identical payload.\n"
                         + "An empty string removes the current alias.\n\n"
-                        + connections.get(selectedRow).data + "\n",
+                        + getDecoded(connections.get(selectedRow)).data() + "\n",
                 "Create packet payload alias",
                 JOptionPane.QUESTION_MESSAGE,
                 null,
@@ -469,7 +471,7 @@ public class RadioLogger extends VisPlugin {
 
         // Remove current alias
         if (alias.isEmpty()) {
-          aliases.remove(connections.get(selectedRow).data);
+          aliases.remove(getDecoded(connections.get(selectedRow)).data());
 
           // Should be null if empty
           if (aliases.isEmpty()) {
@@ -480,7 +482,7 @@ public class RadioLogger extends VisPlugin {
         }
 
         // (Re)define alias
-        aliases.put(connections.get(selectedRow).data, alias);
+        aliases.put(getDecoded(connections.get(selectedRow)).data(), alias);
         repaint();
       }
     };
@@ -691,7 +693,7 @@ public class RadioLogger extends VisPlugin {
         r = (row - i + rows) % rows;
       }
       String val = (String) dataTable.getModel().getValueAt(r, COLUMN_DATA);
-      if (!val.contains(text)) {
+      if (!val.contains(text) && !getDecoded(connections.get(r)).contains(text)) {
         continue;
       }
       dataTable.setRowSelectionInterval(r, r);
@@ -725,9 +727,8 @@ public class RadioLogger extends VisPlugin {
   }
 
   private void applyFilter() {
+    decoded.clear();
     for (RadioConnectionLog conn: connections) {
-      conn.data = null;
-      conn.tooltip = null;
       conn.hides = 0;
       conn.hiddenBy = null;
     }
@@ -773,7 +774,20 @@ public class RadioLogger extends VisPlugin {
     }
   }
 
-  private void prepareDataString(RadioConnectionLog conn) {
+  /**
+   * Returns the decoded packet of a connection, decoding it with the
+   * selected analyzers if not cached.
+   */
+  private Decoded getDecoded(RadioConnectionLog conn) {
+    var d = decoded.get(conn);
+    if (d == null) {
+      d = decode(conn);
+      decoded.put(conn, d);
+    }
+    return d;
+  }
+
+  private Decoded decode(RadioConnectionLog conn) {
     byte[] data;
     if (conn.packet == null) {
       data = null;
@@ -783,8 +797,7 @@ public class RadioLogger extends VisPlugin {
       data = conn.packet.getPacketData();
     }
     if (data == null) {
-      conn.data = "[unknown data]";
-      return;
+      return new Decoded("[unknown data]", null, Map.of());
     }
 
     StringBuilder brief = new StringBuilder();
@@ -805,14 +818,10 @@ public class RadioLogger extends VisPlugin {
                 .append(StringUtils.hexDump(payload))
                 .append("</pre>");
       }
-      conn.data = (data.length < 100 ? (data.length < 10 ? "  " : " ") : "")
-              + data.length + ": " + brief;
-      if (!verbose.isEmpty()) {
-        conn.tooltip = verbose.toString();
-      }
-    } else {
-      conn.data = data.length + ": 0x" + StringUtils.toHex(data, 4);
+      return new Decoded((data.length < 100 ? (data.length < 10 ? "  " : " ") : "")
+              + data.length + ": " + brief, verbose.isEmpty() ? null : verbose.toString(), packet.getFields());
     }
+    return new Decoded(data.length + ": 0x" + StringUtils.toHex(data, 4), null, packet.getFields());
   }
 
   private boolean analyzePacket(PacketAnalyzer.Packet packet, StringBuilder brief, StringBuilder verbose) {
@@ -845,17 +854,20 @@ public class RadioLogger extends VisPlugin {
     return !brief.isEmpty();
   }
 
-  private void prepareTooltipString(RadioConnectionLog conn) {
-    RadioPacket packet = conn.packet;
+  private String getTooltip(RadioConnectionLog conn) {
+    String tooltip = getDecoded(conn).tooltip();
+    return tooltip != null ? tooltip : getPacketDataTooltip(conn.packet);
+  }
+
+  private static String getPacketDataTooltip(RadioPacket packet) {
     if (packet == null) {
-      conn.tooltip = "";
-      return;
+      return "";
     }
 
     if (packet instanceof ConvertedRadioPacket && packet.getPacketData().length > 0) {
       byte[] original = ((ConvertedRadioPacket) packet).getOriginalPacketData();
       byte[] converted = packet.getPacketData();
-      conn.tooltip = "<html><font face=\"Monospaced\">"
+      return "<html><font face=\"Monospaced\">"
               + "<b>Packet data (" + original.length + " bytes)</b><br>"
               + "<pre>" + StringUtils.hexDump(original) + "</pre>"
               + "</font><font face=\"Monospaced\">"
@@ -864,7 +876,7 @@ public class RadioLogger extends VisPlugin {
               + "</font></html>";
     } else if (packet instanceof ConvertedRadioPacket) {
       byte[] original = ((ConvertedRadioPacket) packet).getOriginalPacketData();
-      conn.tooltip = "<html><font face=\"Monospaced\">"
+      return "<html><font face=\"Monospaced\">"
               + "<b>Packet data (" + original.length + " bytes)</b><br>"
               + "<pre>" + StringUtils.hexDump(original) + "</pre>"
               + "</font><font face=\"Monospaced\">"
@@ -872,7 +884,7 @@ public class RadioLogger extends VisPlugin {
               + "</font></html>";
     } else {
       byte[] data = packet.getPacketData();
-      conn.tooltip = "<html><font face=\"Monospaced\">"
+      return "<html><font face=\"Monospaced\">"
               + "<b>Packet data (" + data.length + " bytes)</b><br>"
               + "<pre>" + StringUtils.hexDump(data) + "</pre>"
               + "</font></html>";
@@ -979,18 +991,30 @@ public class RadioLogger extends VisPlugin {
     RadioConnectionLog hiddenBy;
     int hides;
 
-    String data;
-    String tooltip;
-
     @Override
     public String toString() {
-      if (data == null) {
-        RadioLogger.this.prepareDataString(this);
-      }
       return startTime / Simulation.MILLISECOND + "\t"
               + connection.getSource().getMote().getID() + "\t"
               + getDestString(this) + "\t"
-              + data;
+              + getDecoded(this).data();
+    }
+  }
+
+  /**
+   * Packet decoded by the analyzers. Brief and verbose texts are built once,
+   * the header fields allow searching without analyzing the packet again.
+   */
+  private record Decoded(String data, String tooltip, Map<String, Object> fields) {
+    boolean contains(String text) {
+      if (data.contains(text)) {
+        return true;
+      }
+      for (var field : fields.entrySet()) {
+        if ((field.getKey() + '=' + field.getValue()).contains(text)) {
+          return true;
+        }
+      }
+      return false;
     }
   }
 
@@ -111,6 +111,15 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
   private static final boolean PAINT_ZERO_WIDTH_EVENTS = true;
   private static final int PAINT_MIN_WIDTH_EVENTS = 5;
   private static final int TIMELINE_UPDATE_INTERVAL = 100;
+  /** Maximum number of filtered out events tried when painting a pixel. */
+  private static final int MAX_PIXEL_EVENT_SCAN = 16;
+
+  /* State codes of the event tracks */
+  private static final int NO_HISTORY_STATE = 0x7f;
+  private static final int CHANNEL_ON = 0x80;
+  private static final int LED_RED = 1;
+  private static final int LED_GREEN = 2;
+  private static final int LED_BLUE = 4;
 
   private double currentPixelDivisor;
 
@@ -144,6 +153,7 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
   private final ArrayList<MoteObservation> activeMoteObservers = new ArrayList<>();
 
   private ArrayList<MoteEvents> allMoteEvents = new ArrayList<>();
+  private final TimeLineTrack.Storage eventStorage = new TimeLineTrack.Storage();
 
   private boolean showRadioRXTX = true;
   private boolean showRadioChannels;
@@ -298,23 +308,12 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
         try (var outStream = Files.newBufferedWriter(saveFile.toPath(), UTF_8)) {
           // Output all events (sorted per mote).
           for (MoteEvents events : allMoteEvents) {
-            for (MoteEvent ev : events.ledEvents) {
-              outStream.write(events.mote + "\t" + ev.time + "\t" + ev + "\n");
-            }
-            for (MoteEvent ev : events.logEvents) {
-              outStream.write(events.mote + "\t" + ev.time + "\t" + ev + "\n");
-            }
-            for (MoteEvent ev : events.radioChannelEvents) {
-              outStream.write(events.mote + "\t" + ev.time + "\t" + ev + "\n");
-            }
-            for (MoteEvent ev : events.radioHWEvents) {
-              outStream.write(events.mote + "\t" + ev.time + "\t" + ev + "\n");
-            }
-            for (MoteEvent ev : events.radioRXTXEvents) {
-              outStream.write(events.mote + "\t" + ev.time + "\t" + ev + "\n");
-            }
-            for (MoteEvent ev : events.watchpointEvents) {
-              outStream.write(events.mote + "\t" + ev.time + "\t" + ev + "\n");
+            for (var kind : new EventKind[] { EventKind.LED, EventKind.LOG, EventKind.RADIO_CHANNEL,
+                                              EventKind.RADIO_HW, EventKind.RADIO_RXTX, EventKind.WATCHPOINT }) {
+              for (int i = 0, n = events.track(kind).size(); i < n; i++) {
+                MoteEvent ev = events.getEvent(kind, i);
+                outStream.write(events.mote + "\t" + ev.time + "\t" + ev + "\n");
+              }
             }
           }
         } catch (Exception ex) {
@@ -339,6 +338,17 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
         }
       }
     }));
+    editMenu.add(new JCheckBoxMenuItem(new AbstractAction("Keep timeline data in temporary file") {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        eventStorage.setSpilling(!eventStorage.isSpilling());
+      }
+    }) {
+      @Override
+      public boolean isSelected() {
+        return eventStorage.isSpilling();
+      }
+    });
 
     showRadioTXRXCheckbox.setToolTipText("Show radio transmissions, receptions, and collisions");
     showRadioTXRXCheckbox.setName("showRadioRXTX");
@@ -549,6 +559,7 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
   }
 
   public void clear() {
+    eventStorage.reset();
     for (MoteEvents me : allMoteEvents) {
       me.clear();
     }
@@ -610,73 +621,74 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
       stats.mote = moteEvents.mote;
 
       if (leds) {
-        for (int i = 0, n = moteEvents.ledEvents.size(); i < n; i++) {
-          if (!(moteEvents.ledEvents.get(i) instanceof LEDEvent ledEvent)) continue;
+        var track = moteEvents.track(EventKind.LED);
+        for (int i = 0, n = track.size(); i < n; i++) {
+          int state = track.getState(i);
+          if (state == NO_HISTORY_STATE) continue;
 
-          MoteEvent nextEvent = i + 1 < n ? moteEvents.ledEvents.get(i + 1) : null;
-          long endTime = nextEvent != null ? nextEvent.time : simulation.getSimulationTime();
+          long time = track.getTime(i);
+          long endTime = i + 1 < n ? track.getTime(i + 1) : simulation.getSimulationTime();
 
           /* Red */
-          if (ledEvent.red) {
+          if ((state & LED_RED) != 0) {
             /* LED is on, add time interval */
-            stats.onTimeRedLED += endTime - ledEvent.time;
+            stats.onTimeRedLED += endTime - time;
           }
 
           /* Green */
-          if (ledEvent.green) {
+          if ((state & LED_GREEN) != 0) {
             /* LED is on, add time interval */
-            stats.onTimeGreenLED += endTime - ledEvent.time;
+            stats.onTimeGreenLED += endTime - time;
           }
 
           /* Blue */
-          if (ledEvent.blue) {
+          if ((state & LED_BLUE) != 0) {
             /* LED is on, add time interval */
-            stats.onTimeBlueLED += endTime - ledEvent.time;
+            stats.onTimeBlueLED += endTime - time;
           }
         }
       }
 
       if (logs) {
-        for (MoteEvent ev: moteEvents.logEvents) {
-          if (!(ev instanceof LogEvent)) continue;
+        var track = moteEvents.track(EventKind.LOG);
+        for (int i = 0, n = track.size(); i < n; i++) {
+          if (track.getState(i) == NO_HISTORY_STATE) continue;
           stats.nrLogs++;
         }
       }
 
       if (radioHW) {
-        for (int i = 0, n = moteEvents.radioHWEvents.size(); i < n; i++) {
-          if (!(moteEvents.radioHWEvents.get(i) instanceof RadioHWEvent hwEvent)) continue;
-
-          if (hwEvent.on) {
-            MoteEvent nextEvent = i + 1 < n ? moteEvents.radioHWEvents.get(i + 1) : null;
-            long endTime = nextEvent != null ? nextEvent.time : simulation.getSimulationTime();
+        var track = moteEvents.track(EventKind.RADIO_HW);
+        for (int i = 0, n = track.size(); i < n; i++) {
+          if (track.getState(i) == 1) {
+            long endTime = i + 1 < n ? track.getTime(i + 1) : simulation.getSimulationTime();
 
             /* HW is on */
-            stats.radioOn += endTime - hwEvent.time;
+            stats.radioOn += endTime - track.getTime(i);
           }
         }
       }
 
       if (radioRXTX) {
-        for (int i = 0, n = moteEvents.radioRXTXEvents.size(); i < n; i++) {
-          if (!(moteEvents.radioRXTXEvents.get(i) instanceof RadioRXTXEvent rxtxEvent)) continue;
-          if (rxtxEvent.state == RXTXRadioEvent.IDLE) {
+        var track = moteEvents.track(EventKind.RADIO_RXTX);
+        for (int i = 0, n = track.size(); i < n; i++) {
+          int state = track.getState(i);
+          if (state == NO_HISTORY_STATE || state == RXTXRadioEvent.IDLE.ordinal()) {
             continue;
           }
 
-          MoteEvent nextEvent = i + 1 < n ? moteEvents.radioRXTXEvents.get(i + 1) : null;
-          long endTime = nextEvent != null ? nextEvent.time : simulation.getSimulationTime();
-          long diff = endTime - rxtxEvent.time;
+          long endTime = i + 1 < n ? track.getTime(i + 1) : simulation.getSimulationTime();
+          long diff = endTime - track.getTime(i);
 
-          if (rxtxEvent.state == RXTXRadioEvent.TRANSMITTING) {
+          if (state == RXTXRadioEvent.TRANSMITTING.ordinal()) {
             stats.onTimeTX += diff;
             continue;
           }
-          if (rxtxEvent.state == RXTXRadioEvent.INTERFERED) {
+          if (state == RXTXRadioEvent.INTERFERED.ordinal()) {
             stats.onTimeInterfered += diff;
             continue;
           }
-          if (rxtxEvent.state == RXTXRadioEvent.RECEIVING) {
+          if (state == RXTXRadioEvent.RECEIVING.ordinal()) {
             stats.onTimeRX += diff;
           }
         }
@@ -835,32 +847,21 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
     /* LEDs */
     final LED moteLEDs = mote.getInterfaces().getLED();
     if (moteLEDs != null) {
-      LEDEvent startupEv = new LEDEvent(
-          simulation.getSimulationTime(),
-          moteLEDs.isRedOn(),
-          moteLEDs.isGreenOn(),
-          moteLEDs.isYellowOn()
-      );
-      moteEvents.addLED(startupEv);
+      moteEvents.addLED(simulation.getSimulationTime(),
+          moteLEDs.isRedOn(), moteLEDs.isGreenOn(), moteLEDs.isYellowOn());
       var moteObserver = new MoteObservation(mote, moteLEDs.getTriggers());
       moteLEDs.getTriggers().addTrigger(moteObserver, (o, m) ->
-              moteEvents.addLED(new LEDEvent(simulation.getSimulationTime(),
-                                             moteLEDs.isRedOn(), moteLEDs.isGreenOn(), moteLEDs.isYellowOn())));
+              moteEvents.addLED(simulation.getSimulationTime(),
+                                moteLEDs.isRedOn(), moteLEDs.isGreenOn(), moteLEDs.isYellowOn()));
       activeMoteObservers.add(moteObserver);
     }
 
     /* Radio OnOff, RXTX, and channels */
     final Radio moteRadio = mote.getInterfaces().getRadio();
     if (moteRadio != null) {
-      RadioChannelEvent startupChannel = new RadioChannelEvent(
-          simulation.getSimulationTime(), moteRadio.getChannel(), moteRadio.isRadioOn());
-      moteEvents.addRadioChannel(startupChannel);
-      RadioHWEvent startupHW = new RadioHWEvent(
-          simulation.getSimulationTime(), moteRadio.isRadioOn());
-      moteEvents.addRadioHW(startupHW);
-      RadioRXTXEvent startupRXTX = new RadioRXTXEvent(
-          simulation.getSimulationTime(), RXTXRadioEvent.IDLE);
-      moteEvents.addRadioRXTX(startupRXTX);
+      moteEvents.addRadioChannel(simulation.getSimulationTime(), moteRadio.getChannel(), moteRadio.isRadioOn(), null);
+      moteEvents.addRadioHW(simulation.getSimulationTime(), moteRadio.isRadioOn(), null);
+      moteEvents.addRadioRXTX(simulation.getSimulationTime(), RXTXRadioEvent.IDLE, null);
       var observer = new BiConsumer<RadioEvent, Radio>() {
         int lastChannel = -1;
         @Override
@@ -877,27 +878,16 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
           int nowChannel = moteRadio.getChannel();
           if (nowChannel != lastChannel) {
             lastChannel = nowChannel;
-            RadioChannelEvent ev = new RadioChannelEvent(
-                simulation.getSimulationTime(), nowChannel, moteRadio.isRadioOn());
-            moteEvents.addRadioChannel(ev);
-
-            ev.details = details;
+            moteEvents.addRadioChannel(simulation.getSimulationTime(), nowChannel, moteRadio.isRadioOn(), details);
           }
           
           if (radioEv == RadioEvent.HW_ON ||
               radioEv == RadioEvent.HW_OFF) {
-            RadioHWEvent ev = new RadioHWEvent(
-                simulation.getSimulationTime(), moteRadio.isRadioOn());
-            moteEvents.addRadioHW(ev);
-
-            ev.details = details;
+            moteEvents.addRadioHW(simulation.getSimulationTime(), moteRadio.isRadioOn(), details);
 
             /* Also create another channel event here */
             lastChannel = nowChannel;
-            RadioChannelEvent ev2 = new RadioChannelEvent(
-                simulation.getSimulationTime(), nowChannel, moteRadio.isRadioOn());
-            ev2.details = details;
-            moteEvents.addRadioChannel(ev2);
+            moteEvents.addRadioChannel(simulation.getSimulationTime(), nowChannel, moteRadio.isRadioOn(), details);
           }
 
           /* Radio RXTX events */
@@ -907,28 +897,21 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
               radioEv == RadioEvent.RECEPTION_INTERFERED ||
               radioEv == RadioEvent.RECEPTION_FINISHED) {
 
-            RadioRXTXEvent ev;
+            RXTXRadioEvent state;
             /* Override events, instead show state */
             if (moteRadio.isTransmitting()) {
-              ev = new RadioRXTXEvent(
-                  simulation.getSimulationTime(), RXTXRadioEvent.TRANSMITTING);
+              state = RXTXRadioEvent.TRANSMITTING;
             } else if (!moteRadio.isRadioOn()) {
-              ev = new RadioRXTXEvent(
-                  simulation.getSimulationTime(), RXTXRadioEvent.IDLE);
+              state = RXTXRadioEvent.IDLE;
             } else if (moteRadio.isInterfered()) {
-              ev = new RadioRXTXEvent(
-                  simulation.getSimulationTime(), RXTXRadioEvent.INTERFERED);
+              state = RXTXRadioEvent.INTERFERED;
             } else if (moteRadio.isReceiving()) {
-              ev = new RadioRXTXEvent(
-                  simulation.getSimulationTime(), RXTXRadioEvent.RECEIVING);
+              state = RXTXRadioEvent.RECEIVING;
             } else {
-              ev = new RadioRXTXEvent(
-                  simulation.getSimulationTime(), RXTXRadioEvent.IDLE);
+              state = RXTXRadioEvent.IDLE;
             }
 
-            moteEvents.addRadioRXTX(ev);
-
-            ev.details = details;
+            moteEvents.addRadioRXTX(simulation.getSimulationTime(), state, details);
           }
 
         }
@@ -976,7 +959,7 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
       }
     }
 
-    MoteEvents newMoteLog = new MoteEvents(newMote);
+    MoteEvents newMoteLog = new MoteEvents(newMote, eventStorage);
     allMoteEvents.add(newMoteLog);
     addMoteObservers(newMote, newMoteLog);
 
@@ -1049,6 +1032,7 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
       o.dispose();
     }
     activeMoteObservers.clear();
+    eventStorage.close();
   }
 
   @Override
@@ -1088,6 +1072,9 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
     if (executionDetails) {
       config.add(new Element("executionDetails"));
     }
+    if (eventStorage.isSpilling()) {
+      config.add(new Element("spillToFile"));
+    }
 
     var element = new Element("zoomfactor");
     element.addContent(String.valueOf(currentPixelDivisor));
@@ -1132,6 +1119,8 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
         showWatchpoints = true;
       } else if ("executionDetails".equals(name)) {
       	executionDetails = true;
+      } else if ("spillToFile".equals(name)) {
+        eventStorage.setSpilling(true);
       } else if ("zoomfactor".equals(name)) {
         /* NB: Historically no validation on this option */
         zoomFinish(Double.parseDouble(element.getText()), 0, 0);
@@ -1386,27 +1375,27 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
         dark = !dark;
 
         if (showRadioRXTX) {
-          paintEvents(g, events.radioRXTXEvents, intervalStart, intervalEnd, lineHeightOffset);
+          paintEvents(g, events, EventKind.RADIO_RXTX, intervalStart, intervalEnd, lineHeightOffset);
           lineHeightOffset += EVENT_PIXEL_HEIGHT;
         }
         if (showRadioChannels) {
-          paintEvents(g, events.radioChannelEvents, intervalStart, intervalEnd, lineHeightOffset);
+          paintEvents(g, events, EventKind.RADIO_CHANNEL, intervalStart, intervalEnd, lineHeightOffset);
           lineHeightOffset += EVENT_PIXEL_HEIGHT;
         }
         if (showRadioOnoff) {
-          paintEvents(g, events.radioHWEvents, intervalStart, intervalEnd, lineHeightOffset);
+          paintEvents(g, events, EventKind.RADIO_HW, intervalStart, intervalEnd, lineHeightOffset);
           lineHeightOffset += EVENT_PIXEL_HEIGHT;
         }
         if (showLeds) {
-          paintEvents(g, events.ledEvents, intervalStart, intervalEnd, lineHeightOffset);
+          paintEvents(g, events, EventKind.LED, intervalStart, intervalEnd, lineHeightOffset);
           lineHeightOffset += 3*LED_PIXEL_HEIGHT;
         }
         if (showLogOutputs) {
-          paintEvents(g, events.logEvents, intervalStart, intervalEnd, lineHeightOffset);
+          paintEvents(g, events, EventKind.LOG, intervalStart, intervalEnd, lineHeightOffset);
           lineHeightOffset += EVENT_PIXEL_HEIGHT;
         }
         if (showWatchpoints) {
-          paintEvents(g, events.watchpointEvents, intervalStart, intervalEnd, lineHeightOffset);
+          paintEvents(g, events, EventKind.WATCHPOINT, intervalStart, intervalEnd, lineHeightOffset);
           lineHeightOffset += EVENT_PIXEL_HEIGHT;
         }
 
@@ -1417,71 +1406,82 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
       drawMouseTime(g, intervalStart, intervalEnd);
     }
 
-    private void paintEvents(Graphics g, ArrayList<MoteEvent> events, long intervalStart, long intervalEnd,
+    private void paintEvents(Graphics g, MoteEvents events, EventKind kind, long intervalStart, long intervalEnd,
                              int lineHeightOffset) {
-      if (events.isEmpty()) {
+      var track = events.track(kind);
+      int n = track.size();
+      if (n == 0) {
         return;
       }
 
       int lastPosition = -1;
-      for (int i = getIndexOfFirstIntervalEvent(events, intervalStart), n = events.size(); i < n; i++) {
-        MoteEvent event = events.get(i);
-        if (event.time >= intervalEnd) {
+      int i = Math.max(track.floorIndex(intervalStart), 0);
+      while (i < n) {
+        long time = track.getTime(i);
+        if (time >= intervalEnd) {
           break;
         }
 
-        int x = (int) (event.time / currentPixelDivisor);
-        if (event.collapseOverlapping && x < lastPosition + 1) {
-          continue;
-        }
-
-        /* Calculate event width */
-        int width;
-        if (event.fixedWidth == 0) {
-          MoteEvent nextEvent = i + 1 < n ? events.get(i + 1) : null;
-          long endTime = (nextEvent != null ? nextEvent.time : intervalEnd) - event.time;
-          width = (int) (endTime / currentPixelDivisor);
-          /* Handle zero pixel width events */
-          if (width == 0) {
-            if (PAINT_ZERO_WIDTH_EVENTS) {
-              width = 1;
-            } else {
-              continue;
+        int x = (int) (time / currentPixelDivisor);
+        /* First event of the next pixel */
+        int next = track.ceilIndex((long) Math.ceil((x + 1) * currentPixelDivisor), i + 1);
+
+        if (next - i == 1) {
+          MoteEvent event = events.getEvent(kind, i);
+          if (!event.collapseOverlapping || x >= lastPosition + 1) {
+            /* Calculate event width */
+            int width = event.fixedWidth;
+            if (width == 0) {
+              long endTime = (next < n ? track.getTime(next) : intervalEnd) - time;
+              width = (int) (endTime / currentPixelDivisor);
+              /* Handle zero pixel width events */
+              if (width == 0 && PAINT_ZERO_WIDTH_EVENTS) {
+                width = 1;
+              }
+            }
+            /* Always respect the minimum width configuration */
+            if (width > 0 && paintEvent(g, event, x, Math.max(width, paintEventMinWidth), lineHeightOffset)) {
+              lastPosition = x;
             }
           }
-        } else {
-          width = event.fixedWidth;
+          i = next;
+          continue;
         }
 
-        /* Always respect the minimum width configuration */
-        if (width < paintEventMinWidth) {
-          width = paintEventMinWidth;
-        }
+        /* Several events within one pixel, paint what happened in it */
+        MoteEvent summary = kind.toSummaryEvent(time, track.getSummary(i, next));
+        if (summary != null) {
+          paintEvent(g, summary, x, Math.max(1, paintEventMinWidth), lineHeightOffset);
 
-        Color color = event.getEventColor(TimeLine.this);
-        if (color == null) {
-          /* Skip painting event */
-          continue;
+          /* The last event of the pixel lasts until the next event */
+          long endTime = next < n ? track.getTime(next) : intervalEnd;
+          int width = (int) (endTime / currentPixelDivisor) - (x + 1);
+          if (width > 0) {
+            paintEvent(g, events.getEvent(kind, next - 1), x + 1, width, lineHeightOffset);
+          }
+        } else if (x >= lastPosition + 1) {
+          /* Paint the first event of the pixel that is not filtered out */
+          for (int j = i; j < next && j < i + MAX_PIXEL_EVENT_SCAN; j++) {
+            MoteEvent event = events.getEvent(kind, j);
+            if (paintEvent(g, event, x, Math.max(event.fixedWidth, paintEventMinWidth), lineHeightOffset)) {
+              lastPosition = x;
+              break;
+            }
+          }
         }
-        g.setColor(color);
-
-        lastPosition = x;
-        event.paintInterval(TimeLine.this, g, x, lineHeightOffset, width);
+        i = next;
       }
     }
 
-    private static <T extends MoteEvent> int getIndexOfFirstIntervalEvent(ArrayList<T> events, long time) {
-      /* TODO IMPLEMENT ME: Binary search */
-      int nrEvents = events.size();
-      if (nrEvents == 0) {
-        return -1;
-      }
-
-      int ev = 0;
-      while (ev < nrEvents && events.get(ev).time < time) {
-        ev++;
+    private boolean paintEvent(Graphics g, MoteEvent event, int x, int width, int lineHeightOffset) {
+      Color color = event.getEventColor(TimeLine.this);
+      if (color == null) {
+        /* Skip painting event */
+        return false;
       }
-      return Math.max(ev - 1, 0);
+      g.setColor(color);
+      event.paintInterval(TimeLine.this, g, x, lineHeightOffset, width);
+      return true;
     }
 
     private void drawTimeRule(Graphics g, long start, long end) {
@@ -1560,55 +1560,54 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
       tooltip += "Time (ms): " + (double)time/Simulation.MILLISECOND + "<br>";
 
       /* Event */
-      ArrayList<? extends MoteEvent> events = null;
+      EventKind kind = null;
       int evMatched = 0;
       int evMouse = ((event.getPoint().y-FIRST_MOTE_PIXEL_OFFSET) % paintedMoteHeight) / EVENT_PIXEL_HEIGHT;
       if (showRadioRXTX) {
         if (evMatched == evMouse) {
-          events = allMoteEvents.get(mote).radioRXTXEvents;
+          kind = EventKind.RADIO_RXTX;
         }
         evMatched++;
       }
       if (showRadioChannels) {
         if (evMatched == evMouse) {
-          events = allMoteEvents.get(mote).radioChannelEvents;
+          kind = EventKind.RADIO_CHANNEL;
         }
         evMatched++;
       }
       if (showRadioOnoff) {
         if (evMatched == evMouse) {
-          events = allMoteEvents.get(mote).radioHWEvents;
+          kind = EventKind.RADIO_HW;
         }
         evMatched++;
       }
       if (showLeds) {
         if (evMatched == evMouse) {
-          events = allMoteEvents.get(mote).ledEvents;
+          kind = EventKind.LED;
         }
         evMatched++;
       }
       if (showLogOutputs) {
         if (evMatched == evMouse) {
-          events = allMoteEvents.get(mote).logEvents;
+          kind = EventKind.LOG;
         }
         evMatched++;
       }
       if (showWatchpoints) {
         if (evMatched == evMouse) {
-          events = allMoteEvents.get(mote).watchpointEvents;
+          kind = EventKind.WATCHPOINT;
         }
         evMatched++;
       }
-      if (events != null) {
-        int index = getIndexOfFirstIntervalEvent(events, time);
+      if (kind != null) {
+        MoteEvents events = allMoteEvents.get(mote);
+        int index = events.track(kind).floorIndex(time);
         if (index >= 0) {
-          MoteEvent ev = events.get(index);
-          if (time >= ev.time) {
-            tooltip += ev + "<br>";
+          MoteEvent ev = events.getEvent(kind, index);
+          tooltip += ev + "<br>";
 
-            if (ev.details != null) {
-              tooltip += "Details:<br>" + ev.details;
-            }
+          if (ev.details != null) {
+            tooltip += "Details:<br>" + ev.details;
           }
         }
       }
@@ -1797,6 +1796,7 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
   public enum RXTXRadioEvent {
     IDLE, RECEIVING, TRANSMITTING, INTERFERED
   }
+  private static final RXTXRadioEvent[] RXTX_STATES = RXTXRadioEvent.values();
   static class RadioRXTXEvent extends MoteEvent {
     final RXTXRadioEvent state;
     RadioRXTXEvent(long time, RXTXRadioEvent ev) {
@@ -2015,56 +2015,118 @@ public class TimeLine extends VisPlugin implements HasQuickHelp {
     }
   }
 
+  /** Kinds of events, with the state codes their tracks store. */
+  enum EventKind {
+    RADIO_RXTX, RADIO_CHANNEL, RADIO_HW, LED, LOG, WATCHPOINT;
+
+    /** Summary bit of a state code, see {@link TimeLineTrack}. */
+    int summaryBit(int state) {
+      if (state == NO_HISTORY_STATE) {
+        return 63;
+      }
+      if (this == RADIO_CHANNEL) {
+        /* Off is bit 0, channel c is bit c + 1 */
+        return (state & CHANNEL_ON) != 0 ? Math.min(state & ~CHANNEL_ON, 62) : 0;
+      }
+      return state & 0x3f;
+    }
+
+    /** Creates the event stored as a state code and payload. */
+    MoteEvent toEvent(long time, int state, Object payload) {
+      if (payload instanceof MoteEvent ev) {
+        return ev;
+      }
+      MoteEvent ev = switch (this) {
+        case RADIO_RXTX -> new RadioRXTXEvent(time, RXTX_STATES[state]);
+        case RADIO_CHANNEL -> new RadioChannelEvent(time, (state & ~CHANNEL_ON) - 1, (state & CHANNEL_ON) != 0);
+        case RADIO_HW -> new RadioHWEvent(time, state != 0);
+        case LED -> new LEDEvent(time, (state & LED_RED) != 0, (state & LED_GREEN) != 0, (state & LED_BLUE) != 0);
+        case LOG, WATCHPOINT -> throw new IllegalStateException("No payload for " + this + " event");
+      };
+      ev.details = (String) payload;
+      return ev;
+    }
+
+    /**
+     * Creates an event that stands for all events with the given summary bits,
+     * or null if the events must be painted one by one.
+     */
+    MoteEvent toSummaryEvent(long time, long mask) {
+      if (mask == 1L << 63) {
+        return new NoHistoryEvent(time);
+      }
+      mask &= ~(1L << 63);
+      int highest = 63 - Long.numberOfLeadingZeros(mask);
+      return switch (this) {
+        case RADIO_RXTX -> new RadioRXTXEvent(time, RXTX_STATES[highest]);
+        case RADIO_CHANNEL -> new RadioChannelEvent(time, highest - 1, highest > 0);
+        case RADIO_HW -> new RadioHWEvent(time, (mask & 2) != 0);
+        case LED -> {
+          int leds = 0;
+          for (int state = 0; state <= highest; state++) {
+            if ((mask & (1L << state)) != 0) {
+              leds |= state;
+            }
+          }
+          yield new LEDEvent(time, (leds & LED_RED) != 0, (leds & LED_GREEN) != 0, (leds & LED_BLUE) != 0);
+        }
+        case LOG, WATCHPOINT -> null;
+      };
+    }
+  }
+
   static class MoteEvents {
     final Mote mote;
-    final ArrayList<MoteEvent> radioRXTXEvents = new ArrayList<>();
-    final ArrayList<MoteEvent> radioChannelEvents = new ArrayList<>();
-    final ArrayList<MoteEvent> radioHWEvents = new ArrayList<>();
-    final ArrayList<MoteEvent> ledEvents = new ArrayList<>();
-    final ArrayList<MoteEvent> logEvents = new ArrayList<>();
-    final ArrayList<MoteEvent> watchpointEvents = new ArrayList<>();
-
-    MoteEvents(Mote mote) {
+    private final TimeLineTrack[] tracks = new TimeLineTrack[EventKind.values().length];
+
+    MoteEvents(Mote mote, TimeLineTrack.Storage storage) {
       this.mote = mote;
+      for (var kind : EventKind.values()) {
+        tracks[kind.ordinal()] = new TimeLineTrack(storage, kind::summaryBit);
+      }
       clear();
     }
 
-    void clear() {
-      this.radioRXTXEvents.clear();
-      this.radioChannelEvents.clear();
-      this.radioHWEvents.clear();
-      this.ledEvents.clear();
-      this.logEvents.clear();
-      this.watchpointEvents.clear();
+    TimeLineTrack track(EventKind kind) {
+      return tracks[kind.ordinal()];
+    }
+
+    MoteEvent getEvent(EventKind kind, int index) {
+      var track = track(kind);
+      synchronized (track) {
+        return kind.toEvent(track.getTime(index), track.getState(index), track.getPayload(index));
+      }
+    }
 
-      if (mote.getSimulation().getSimulationTime() > 0) {
-        /* Create no history events */
-        radioRXTXEvents.add(new NoHistoryEvent(0));
-        radioChannelEvents.add(new NoHistoryEvent(0));
-        radioHWEvents.add(new NoHistoryEvent(0));
-        ledEvents.add(new NoHistoryEvent(0));
-        logEvents.add(new NoHistoryEvent(0));
-        watchpointEvents.add(new NoHistoryEvent(0));
+    void clear() {
+      boolean noHistory = mote.getSimulation().getSimulationTime() > 0;
+      for (var track : tracks) {
+        track.clear();
+        if (noHistory) {
+          /* Create no history events */
+          track.add(0, NO_HISTORY_STATE, new NoHistoryEvent(0));
+        }
       }
     }
 
-    void addRadioRXTX(RadioRXTXEvent ev) {
-      radioRXTXEvents.add(ev);
+    void addRadioRXTX(long time, RXTXRadioEvent state, String details) {
+      track(EventKind.RADIO_RXTX).add(time, state.ordinal(), details);
     }
-    void addRadioChannel(RadioChannelEvent ev) {
-      radioChannelEvents.add(ev);
+    void addRadioChannel(long time, int channel, boolean radioOn, String details) {
+      int state = Math.max(0, Math.min(channel + 1, CHANNEL_ON - 2));
+      track(EventKind.RADIO_CHANNEL).add(time, radioOn ? state | CHANNEL_ON : state, details);
     }
-    void addRadioHW(RadioHWEvent ev) {
-      radioHWEvents.add(ev);
+    void addRadioHW(long time, boolean on, String details) {
+      track(EventKind.RADIO_HW).add(time, on ? 1 : 0, details);
     }
-    void addLED(LEDEvent ev) {
-      ledEvents.add(ev);
+    void addLED(long time, boolean red, boolean green, boolean blue) {
+      track(EventKind.LED).add(time, (red ? LED_RED : 0) | (green ? LED_GREEN : 0) | (blue ? LED_BLUE : 0), null);
     }
     void addLog(LogEvent ev) {
-      logEvents.add(ev);
+      track(EventKind.LOG).add(ev.time, 0, ev);
     }
     void addWatchpoint(WatchpointEvent ev) {
-      watchpointEvents.add(ev);
+      track(EventKind.WATCHPOINT).add(ev.time, 0, ev);
     }
   }
 
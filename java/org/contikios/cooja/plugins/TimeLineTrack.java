@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Columnar event track of one mote in the Timeline.
+ * <p>
+ * Every event is a timestamp and a state code, kept in chunks of up to 4096
+ * events without an object per event. Most tracks only get a few events, so
+ * the first chunk starts small and doubles until it is full size. Events that
+ * need more than the state code, such as log outputs, have a payload object in
+ * a side column that is only allocated for chunks that use it.
+ * <p>
+ * Each state code maps to one of 64 summary bits. Levels of detail keep the
+ * union of the summary bits of blocks of 64, 4096 and 262144 events, so the
+ * states occurring within any range of events are found in a bounded number
+ * of steps. The Timeline uses this to paint one summary per pixel where
+ * events are denser than the zoom level.
+ * <p>
+ * Full size chunks are allocated from a {@link Storage} that either keeps
+ * them on the heap or in a memory-mapped temporary file.
+ * <p>
+ * All methods are synchronized, events are added by the simulation thread
+ * and read by the event dispatch thread.
+ */
+final class TimeLineTrack {
+  private static final Logger logger = LoggerFactory.getLogger(TimeLineTrack.class);
+
+  private static final int CHUNK_BITS = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  /** Chunk layout: capacity timestamps followed by capacity state codes. */
+  private static final int EVENT_BYTES = Long.BYTES + 1;
+  private static final int CHUNK_BYTES = CHUNK_SIZE * EVENT_BYTES;
+  /** Capacity of the first chunk of a track, it grows by doubling to CHUNK_SIZE. */
+  private static final int INITIAL_CHUNK_SIZE = 16;
+  /** Chunks are sliced from mappings of this size, each mapping counts against vm.max_map_count. */
+  private static final int REGION_BYTES = (64 << 20) / CHUNK_BYTES * CHUNK_BYTES;
+
+  private static final int LOD_BITS = 6;
+  private static final int LOD_LEVELS = 3;
+
+  private final Storage storage;
+  private final IntUnaryOperator summaryBit;
+
+  private final ArrayList<ByteBuffer> chunks = new ArrayList<>();
+  private final ArrayList<Object[]> payloads = new ArrayList<>();
+  /** Union of summary bits per block, level l has blocks of 2^(LOD_BITS * (l + 1)) events. */
+  private final long[][] summaries = new long[LOD_LEVELS][];
+  private int size;
+
+  /**
+   * @param storage Chunk storage
+   * @param summaryBit Maps a state code to its summary bit (0-63)
+   */
+  TimeLineTrack(Storage storage, IntUnaryOperator summaryBit) {
+    this.storage = storage;
+    this.summaryBit = summaryBit;
+    for (int l = 0; l < LOD_LEVELS; l++) {
+      summaries[l] = new long[1];
+    }
+  }
+
+  /**
+   * Appends an event. Events must be added in time order.
+   *
+   * @param time Simulation time
+   * @param state State code
+   * @param payload Payload or null
+   */
+  synchronized void add(long time, int state, Object payload) {
+    int chunk = size >>> CHUNK_BITS;
+    int pos = size & CHUNK_MASK;
+    if (chunk == chunks.size()) {
+      chunks.add(chunk == 0 ? ByteBuffer.allocate(INITIAL_CHUNK_SIZE * EVENT_BYTES) : storage.allocate());
+      payloads.add(null);
+    } else if (pos == capacity(chunks.get(chunk))) {
+      grow(chunk);
+    }
+    var buf = chunks.get(chunk);
+    buf.putLong(pos * Long.BYTES, time);
+    buf.put(capacity(buf) * Long.BYTES + pos, (byte) state);
+    if (payload != null) {
+      var p = payloads.get(chunk);
+      if (p == null) {
+        payloads.set(chunk, p = new Object[capacity(buf)]);
+      }
+      p[pos] = payload;
+    }
+    long bit = 1L << summaryBit.applyAsInt(state);
+    for (int l = 0; l < LOD_LEVELS; l++) {
+      int block = size >>> (LOD_BITS * (l + 1));
+      if (block == summaries[l].length) {
+        summaries[l] = Arrays.copyOf(summaries[l], block * 2);
+      }
+      summaries[l][block] |= bit;
+    }
+    size++;
+  }
+
+  /** Doubles the capacity of a full chunk. */
+  private void grow(int chunk) {
+    var old = chunks.get(chunk);
+    int n = capacity(old);
+    int capacity = n * 2;
+    var buf = capacity == CHUNK_SIZE ? storage.allocate() : ByteBuffer.allocate(capacity * EVENT_BYTES);
+    buf.put(0, old, 0, n * Long.BYTES);
+    buf.put(capacity * Long.BYTES, old, n * Long.BYTES, n);
+    chunks.set(chunk, buf);
+    var p = payloads.get(chunk);
+    if (p != null) {
+      payloads.set(chunk, Arrays.copyOf(p, capacity));
+    }
+  }
+
+  private static int capacity(ByteBuffer chunk) {
+    return chunk.capacity() / EVENT_BYTES;
+  }
+
+  /** Removes all events. */
+  synchronized void clear() {
+    chunks.clear();
+    payloads.clear();
+    for (int l = 0; l < LOD_LEVELS; l++) {
+      summaries[l] = new long[1];
+    }
+    size = 0;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  synchronized long getTime(int index) {
+    return chunks.get(index >>> CHUNK_BITS).getLong((index & CHUNK_MASK) * Long.BYTES);
+  }
+
+  synchronized int getState(int index) {
+    var buf = chunks.get(index >>> CHUNK_BITS);
+    return Byte.toUnsignedInt(buf.get(capacity(buf) * Long.BYTES + (index & CHUNK_MASK)));
+  }
+
+  synchronized Object getPayload(int index) {
+    var p = payloads.get(index >>> CHUNK_BITS);
+    return p == null ? null : p[index & CHUNK_MASK];
+  }
+
+  /**
+   * Returns the index of the last event at or before the given time,
+   * or -1 if all events are later.
+   */
+  synchronized int floorIndex(long time) {
+    return ceilIndex(time + 1, 0) - 1;
+  }
+
+  /**
+   * Returns the index of the first event at or after the given time,
+   * searching from the given index, or the number of events if there is none.
+   */
+  synchronized int ceilIndex(long time, int from) {
+    int lo = from;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (getTime(mid) < time) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Returns the union of the summary bits of the events in [from, to).
+   * Takes at most 63 steps per level of detail at each end of the range,
+   * plus one step per 262144 events in between.
+   */
+  synchronized long getSummary(int from, int to) {
+    long mask = 0;
+    int i = from;
+    while (i < to) {
+      int level = 0;
+      while (level < LOD_LEVELS) {
+        int block = 1 << (LOD_BITS * (level + 1));
+        if ((i & (block - 1)) != 0 || i + block > to) {
+          break;
+        }
+        level++;
+      }
+      if (level == 0) {
+        mask |= 1L << summaryBit.applyAsInt(getState(i));
+        i++;
+      } else {
+        mask |= summaries[level - 1][i >>> (LOD_BITS * level)];
+        i += 1 << (LOD_BITS * level);
+      }
+    }
+    return mask;
+  }
+
+  /** Chunk storage shared by the tracks of a Timeline. */
+  static final class Storage {
+    private File spillFile;
+    private FileChannel spillChannel;
+    private long spillEnd;
+    /** Mapped region the next chunks are sliced from. */
+    private ByteBuffer region;
+
+    synchronized ByteBuffer allocate() {
+      if (spillChannel != null) {
+        try {
+          if (region == null || !region.hasRemaining()) {
+            region = spillChannel.map(FileChannel.MapMode.READ_WRITE, spillEnd, REGION_BYTES);
+            spillEnd += REGION_BYTES;
+          }
+          var buf = region.slice(region.position(), CHUNK_BYTES);
+          region.position(region.position() + CHUNK_BYTES);
+          return buf;
+        } catch (IOException e) {
+          logger.error("Failed to map timeline file, keeping events in memory: " + e.getMessage());
+          close();
+        }
+      }
+      return ByteBuffer.allocate(CHUNK_BYTES);
+    }
+
+    /** Returns true if new chunks are allocated in a memory-mapped file. */
+    synchronized boolean isSpilling() {
+      return spillChannel != null;
+    }
+
+    /**
+     * Enables or disables allocating new chunks in a memory-mapped temporary
+     * file. Existing chunks stay where they are.
+     */
+    synchronized void setSpilling(boolean spill) {
+      if (spill == isSpilling()) {
+        return;
+      }
+      if (!spill) {
+        // The mapped chunks stay valid after the channel is closed.
+        close();
+        return;
+      }
+      try {
+        spillFile = File.createTempFile("cooja-timeline", ".bin");
+        spillFile.deleteOnExit();
+        spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        spillEnd = 0;
+      } catch (IOException e) {
+        logger.error("Failed to create timeline file: " + e.getMessage());
+        close();
+      }
+    }
+
+    /** Releases the file, after all tracks have been cleared it starts a new one if spilling. */
+    synchronized void reset() {
+      if (isSpilling()) {
+        close();
+        setSpilling(true);
+      }
+    }
+
+    /** Releases the spill file. */
+    synchronized void close() {
+      if (spillChannel != null) {
+        try {
+          spillChannel.close();
+        } catch (IOException e) {
+          logger.warn("Failed to close timeline file: " + e.getMessage());
+        }
+        spillChannel = null;
+      }
+      region = null;
+      if (spillFile != null) {
+        if (!spillFile.delete()) {
+          logger.debug("Could not delete timeline file {}", spillFile);
+        }
+        spillFile = null;
+      }
+    }
+  }
+}
@@ -64,10 +64,13 @@ public class FragHeadPacketAnalyzer extends PacketAnalyzer {
     int datagram_size = ((packet.get(0) & 0x07) << 8) + packet.get(1);
     int datagram_tag = packet.getInt(2, 2);
     
+    packet.putField("6lowpan.frag.size", datagram_size);
+    packet.putField("6lowpan.frag.tag", datagram_tag);
     verbose.append("size = ").append(datagram_size)
             .append(", tag = ").append(String.format("0x%04x", datagram_tag));
     
     if (hdr_size == 5) {
+      packet.putField("6lowpan.frag.offset", (packet.get(4) & 0xff) * 8);
       verbose.append(", offset = ").append(packet.get(4) * 8);
     }
     
@@ -52,6 +52,8 @@ public class ICMPv6Analyzer extends PacketAnalyzer {
     int code = packet.get(1) & 0xff;
 //        int checksum = ((packet.get(2) & 0xff) << 8) | packet.get(3) & 0xff;
 
+    packet.putField("icmpv6.type", type);
+    packet.putField("icmpv6.code", code);
     brief.append("ICMPv6 ");
         verbose.append("<b>ICMPv6</b>");
     if (type >= 128 && (type - 128) < TYPE_NAME.length) {
@@ -75,6 +77,11 @@ public class ICMPv6Analyzer extends PacketAnalyzer {
           int rank = ((packet.get(6) & 0xff) << 8) + (packet.get(7) & 0xff);
           int mop = (packet.get(8) >> 3) & 0x07;
           int dtsn = packet.get(9) & 0xFF;
+          packet.putField("icmpv6.rpl.dio.instance", instanceID);
+          packet.putField("icmpv6.rpl.dio.version", version);
+          packet.putField("icmpv6.rpl.dio.rank", rank);
+          packet.putField("icmpv6.rpl.dio.mop", mop);
+          packet.putField("icmpv6.rpl.dio.dtsn", dtsn);
           verbose.append(" InstanceID: ").append(instanceID)
                   .append(", Version: ").append(version)
                   .append(", Rank: ").append(rank)
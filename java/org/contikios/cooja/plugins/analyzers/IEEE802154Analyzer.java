@@ -127,6 +127,21 @@ public class IEEE802154Analyzer extends PacketAnalyzer {
     }
 
 //        int payloadLen = packet.data.length - pos;
+    packet.putField("wpan.type", fcfType < typeS.length ? typeS[fcfType] : "?");
+    packet.putField("wpan.seq", seqNumber);
+    packet.putField("wpan.security", fcfSecurity);
+    packet.putField("wpan.pending", fcfPending);
+    packet.putField("wpan.ack_request", fcfAckRequested);
+    packet.putField("wpan.version", fcfFrameVersion);
+    if (fcfDestAddrMode > 0) {
+      packet.putField("wpan.dst_pan", destPanID);
+      packet.putField("wpan.dst", addressString(fcfDestAddrMode, destAddress));
+    }
+    if (fcfSrcAddrMode > 0) {
+      packet.putField("wpan.src_pan", srcPanID);
+      packet.putField("wpan.src", addressString(fcfSrcAddrMode, sourceAddress));
+    }
+
     brief.append("15.4 ");
     brief.append(fcfType < typeS.length ? typeS[fcfType] : "?").append(' ');
 
@@ -181,6 +196,12 @@ public class IEEE802154Analyzer extends PacketAnalyzer {
     return ANALYSIS_OK_CONTINUE;
   }
 
+  private static String addressString(int type, byte[] addr) {
+    var sb = new StringBuilder();
+    printAddress(sb, type, addr);
+    return sb.toString();
+  }
+
   private static void printAddress(StringBuilder sb, int type, byte[] addr) {
     if (type == SHORT_ADDRESS) {
       sb.append("0x").append(StringUtils.toHex(addr));
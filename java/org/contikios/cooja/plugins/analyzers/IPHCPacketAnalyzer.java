@@ -451,6 +451,12 @@ public class IPHCPacketAnalyzer extends PacketAnalyzer {
 
     // IPv6 Information
 
+    packet.putField("ipv6.tc", trafficClass);
+    packet.putField("ipv6.flow", flowLabel);
+    packet.putField("ipv6.hlim", ttl);
+    packet.putField("ipv6.nxt", proto);
+    packet.putField("ipv6.src", IPUtils.getCompressedIPv6AddressString(srcAddress));
+    packet.putField("ipv6.dst", IPUtils.getCompressedIPv6AddressString(destAddress));
     brief.append("|IPv6");
     verbose.append("<br/><b>IPv6</b>")
             .append(" TC = ").append(trafficClass)
@@ -472,6 +478,8 @@ public class IPHCPacketAnalyzer extends PacketAnalyzer {
       verbose.append("<br/><b>").append(protoStr).append("</b>");
     }
     if (proto == PROTO_UDP) {
+      packet.putField("udp.srcport", srcPort);
+      packet.putField("udp.dstport", destPort);
       brief.append(' ').append(srcPort).append(' ').append(destPort);
       verbose.append("<br/>Src Port: ").append(srcPort);
       verbose.append(", Dst Port: ").append(destPort);
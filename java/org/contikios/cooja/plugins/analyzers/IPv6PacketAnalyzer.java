@@ -53,6 +53,11 @@ public class IPv6PacketAnalyzer extends PacketAnalyzer {
       protoStr = "TCP";
     }
 
+    packet.putField("ipv6.hlim", ttl);
+    packet.putField("ipv6.nxt", proto);
+    packet.putField("ipv6.src", IPUtils.getCompressedIPv6AddressString(srcAddress));
+    packet.putField("ipv6.dst", IPUtils.getCompressedIPv6AddressString(destAddress));
+
     /* consume dispatch + IP header */
     packet.pos += 41;
 
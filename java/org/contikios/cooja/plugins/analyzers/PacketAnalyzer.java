@@ -1,5 +1,8 @@
 package org.contikios.cooja.plugins.analyzers;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public abstract class PacketAnalyzer {
 
   public static final int ANALYSIS_FAILED = -1;
@@ -26,9 +29,16 @@ public abstract class PacketAnalyzer {
 
     byte lastDispatch;
 
+    /* Decoded header fields, in decoding order */
+    private final LinkedHashMap<String, Object> fields = new LinkedHashMap<>();
+
+    /**
+     * Creates a packet for analysis. Analyzers only read the data, so it is
+     * not copied and must not be modified while analyzing.
+     */
     public Packet(byte[] data, int level, long ts) {
       this.level = level;
-      this.data = data.clone();
+      this.data = data;
       this.size = data.length;
       this.ts = ts;
     }
@@ -85,6 +95,19 @@ public abstract class PacketAnalyzer {
     public long getTimestamp() {
       return ts;
     }
+
+    /**
+     * Records a decoded header field. Field names are prefixed with
+     * the protocol, for example "wpan.seq" or "ipv6.src".
+     */
+    public void putField(String name, Object value) {
+      fields.put(name, value);
+    }
+
+    /** Returns the decoded header fields, in decoding order. */
+    public Map<String, Object> getFields() {
+      return fields;
+    }
   }
 
   public abstract boolean matchPacket(Packet packet);
@@ -33,9 +33,12 @@ package org.contikios.cooja.radiomediums;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 import org.contikios.cooja.RadioConnection;
 import org.contikios.cooja.RadioMedium;
 import org.contikios.cooja.Simulation;
@@ -43,6 +46,7 @@ import org.contikios.cooja.TimeEvent;
 import org.contikios.cooja.interfaces.CustomDataRadio;
 import org.contikios.cooja.interfaces.Radio;
 import org.contikios.cooja.util.EventTriggers;
+import org.contikios.cooja.util.Registry;
 import org.jdom2.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,11 +78,21 @@ public abstract class AbstractRadioMedium implements RadioMedium {
 	protected final Map<Radio, Double> baseRssi = java.util.Collections.synchronizedMap(new HashMap<>());
 	protected final Map<Radio, Double> sendRssi = java.util.Collections.synchronizedMap(new HashMap<>());
 	
-	private final ArrayList<Radio> registeredRadios = new ArrayList<>();
+	private final Registry<Radio> registeredRadios = new Registry<>(Radio[]::new);
 	
-	private final ArrayList<RadioConnection> activeConnections = new ArrayList<>();
+	private final Registry<RadioConnection> activeConnections = new Registry<>(RadioConnection[]::new);
+	/** Active connections by source radio, the first one if a source has several. */
+	private final IdentityHashMap<Radio, RadioConnection> activeConnectionsFrom = new IdentityHashMap<>();
+	/** Number of active connections not in activeConnectionsFrom. */
+	private int laterConnectionsFrom;
+	/* Active connections by the channel they started on */
+	private final HashMap<Integer, Registry<RadioConnection>> activeConnectionsOnChannel = new HashMap<>();
+	private static final RadioConnection[] NO_CONNECTIONS = new RadioConnection[0];
 	
 	private RadioConnection lastConnection;
+
+	private final HashMap<Integer, RandomGenerator> sourceRandom = new HashMap<>();
+	private final HashMap<Long, RandomGenerator> linkRandom = new HashMap<>();
 	
 	protected final Simulation simulation;
 	
@@ -129,16 +143,12 @@ public abstract class AbstractRadioMedium implements RadioMedium {
           if (radio.isReceiving()) {
             // Radio starts transmitting when it should be receiving! Ok, but it won't receive the packet.
             radio.interfereAnyReception();
-            for (var conn : activeConnections) {
-              if (conn.isDestination(radio)) {
-                conn.addInterfered(radio);
-              }
-            }
+            forEachConnectionTo(radio, conn -> conn.addInterfered(radio));
           }
 
           var newConnection = createConnections(radio);
           if (newConnection != null) {
-            activeConnections.add(newConnection);
+            addActiveConnection(newConnection);
             for (var r : newConnection.getAllDestinations()) {
               if (newConnection.getDestinationDelay(r) == 0) {
                 r.signalReceptionStart();
@@ -164,7 +174,7 @@ public abstract class AbstractRadioMedium implements RadioMedium {
             return; // SilentRadioMedium will return here.
           }
 
-          activeConnections.remove(connection);
+          removeActiveConnection(connection);
           lastConnection = connection;
           COUNTER_TX++;
           for (var dstRadio : connection.getAllDestinations()) {
@@ -276,18 +286,68 @@ public abstract class AbstractRadioMedium implements RadioMedium {
 	}
 	
 	/**
-	 * @return All registered radios
+	 * @return All registered radios, the array is shared and must not be modified
 	 */
 	public Radio[] getRegisteredRadios() {
-		return registeredRadios.toArray(new Radio[0]);
+		return registeredRadios.snapshot();
 	}
 	
 	/**
-	 * @return All active connections
+	 * @return All active connections, the array is shared and must not be modified
 	 */
 	public RadioConnection[] getActiveConnections() {
-		/* NOTE: toArray([0]) creates array and handles synchronization */
-		return activeConnections.toArray(new RadioConnection[0]);
+		return activeConnections.snapshot();
+	}
+
+	/**
+	 * @param channel Channel, or -1 for connections from radios without channels
+	 * @return Active connections that started on the channel, the array is shared and must not be modified
+	 * @see RadioConnection#getChannel()
+	 */
+	public RadioConnection[] getActiveConnections(int channel) {
+		var connections = activeConnectionsOnChannel.get(channel);
+		return connections == null ? NO_CONNECTIONS : connections.snapshot();
+	}
+
+	private void addActiveConnection(RadioConnection connection) {
+		connection.setRadioIndex(registeredRadios::indexOf);
+		activeConnections.add(connection);
+		if (activeConnectionsFrom.putIfAbsent(connection.getSource(), connection) != null) {
+			laterConnectionsFrom++;
+		}
+		activeConnectionsOnChannel.computeIfAbsent(connection.getChannel(),
+				channel -> new Registry<>(RadioConnection[]::new)).add(connection);
+	}
+
+	private void removeActiveConnection(RadioConnection connection) {
+		activeConnections.remove(connection);
+		var channelConnections = activeConnectionsOnChannel.get(connection.getChannel());
+		if (channelConnections != null) {
+			channelConnections.remove(connection);
+		}
+		var source = connection.getSource();
+		if (!activeConnectionsFrom.remove(source, connection)) {
+			laterConnectionsFrom--;
+		} else if (laterConnectionsFrom > 0) {
+			/* Rare: the source started another transmission before this one finished */
+			for (var conn : activeConnections.snapshot()) {
+				if (conn.getSource() == source) {
+					activeConnectionsFrom.put(source, conn);
+					laterConnectionsFrom--;
+					break;
+				}
+			}
+		}
+		activeConnectionRemoved(connection);
+	}
+
+	/**
+	 * Called when a connection is no longer active, before its destinations
+	 * are notified that the reception ended.
+	 *
+	 * @param connection Connection
+	 */
+	protected void activeConnectionRemoved(RadioConnection connection) {
 	}
 	
 	/**
@@ -299,6 +359,34 @@ public abstract class AbstractRadioMedium implements RadioMedium {
 	 * @return New connection
 	 */
   protected abstract RadioConnection createConnections(Radio radio);
+
+	/**
+	 * Returns the random stream of transmissions from a radio, for example
+	 * for failing transmissions randomly.
+	 *
+	 * @param source Source radio
+	 * @return Random generator of the source mote
+	 */
+	protected RandomGenerator getRandom(Radio source) {
+		return sourceRandom.computeIfAbsent(source.getMote().getID(),
+				id -> simulation.getRandomStreams().create(getClass().getName(), id));
+	}
+
+	/**
+	 * Returns the random stream of a directed radio link, for example for
+	 * failing receptions randomly. The numbers drawn for a link do not depend
+	 * on the traffic on other links.
+	 *
+	 * @param source Source radio
+	 * @param dest Destination radio
+	 * @return Random generator of the link
+	 */
+	protected RandomGenerator getRandom(Radio source, Radio dest) {
+		int src = source.getMote().getID();
+		int dst = dest.getMote().getID();
+		return linkRandom.computeIfAbsent(((long) src << 32) | (dst & 0xffffffffL),
+				key -> simulation.getRandomStreams().create(getClass().getName(), src, dst));
+	}
 	
 	/**
 	 * Updates all radio interfaces' signal strengths according to
@@ -356,7 +444,7 @@ public abstract class AbstractRadioMedium implements RadioMedium {
 	 */
 	private void removeFromActiveConnections(Radio radio) {
 		/* Set interfered if currently a connection destination */
-		for (RadioConnection conn : activeConnections) {
+		for (RadioConnection conn : activeConnections.snapshot()) {
 			if (conn.isDestination(radio)) {
 				conn.addInterfered(radio);
 				if (!radio.isInterfered()) {
@@ -365,14 +453,36 @@ public abstract class AbstractRadioMedium implements RadioMedium {
 			}
 		}
 	}
-	
-	private RadioConnection getActiveConnectionFrom(Radio source) {
-		for (RadioConnection conn : activeConnections) {
-			if (conn.getSource() == source) {
-				return conn;
+
+	/**
+	 * Calls the action for every active connection the radio is a destination of.
+	 * Destinations are on the channel of the connection when it starts, so only
+	 * the connections of the current channel of the radio and the connections
+	 * without channel are searched. A radio that changed channel during a
+	 * reception is therefore not found in the connection of that reception.
+	 *
+	 * @param radio Radio
+	 * @param action Action
+	 */
+	private void forEachConnectionTo(Radio radio, Consumer<RadioConnection> action) {
+		int channel = radio.getChannel();
+		var conns = channel < 0 ? activeConnections.snapshot() : getActiveConnections(channel);
+		for (var conn : conns) {
+			if (conn.isDestination(radio)) {
+				action.accept(conn);
+			}
+		}
+		if (channel >= 0) {
+			for (var conn : getActiveConnections(-1)) {
+				if (conn.isDestination(radio)) {
+					action.accept(conn);
+				}
 			}
 		}
-		return null;
+	}
+	
+	private RadioConnection getActiveConnectionFrom(Radio source) {
+		return activeConnectionsFrom.get(source);
 	}
 	
 	@Override
@@ -397,7 +507,15 @@ public abstract class AbstractRadioMedium implements RadioMedium {
 			return;
 		}
     radio.getRadioEventTriggers().removeTrigger(this, radioEventsObserver);
+		/* The index of the radio is reused by the next radio registered */
+		for (var conn : activeConnections.snapshot()) {
+			conn.clearRadioIndex(radio);
+		}
 		registeredRadios.remove(radio);
+		/* Drop the random streams of the radio, a new mote may reuse its ID */
+		int id = radio.getMote().getID();
+		sourceRandom.remove(id);
+		linkRandom.keySet().removeIf(key -> (int) (key >> 32) == id || key.intValue() == id);
 		
 		removeFromActiveConnections(radio);
     radioMediumTriggers.trigger(EventTriggers.AddRemove.REMOVE, radio);
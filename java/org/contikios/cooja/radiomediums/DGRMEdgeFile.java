@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.radiomediums;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.contikios.cooja.Mote;
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.interfaces.Radio;
+
+/**
+ * Edge list files for the Directed Graph Radio Medium.
+ * <p>
+ * Large topologies, such as links measured in a testbed, are kept in a
+ * separate file that the simulation config refers to instead of one XML
+ * element per edge. Every edge has the fields
+ * <code>src dst ratio rssi lqi delay channel</code>, where src and dst are
+ * mote IDs and delay is in simulation time units (microseconds).
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li>Text (CSV): one edge per line, fields separated by commas or
+ * whitespace. Lines starting with '#' and a header line starting with "src"
+ * are ignored. Trailing fields may be left out and get the defaults of
+ * {@link DGRMDestinationRadio}.
+ * <li>Binary: the magic "DGRM", a version and an edge count, followed by
+ * fixed size big-endian records. The DGRM configurator exports the edges
+ * of a simulation in this format.
+ * </ul>
+ */
+public final class DGRMEdgeFile {
+  private static final int MAGIC = 0x4447524d; /* "DGRM" */
+  private static final int VERSION = 1;
+  private static final Pattern SEPARATOR = Pattern.compile("[,\\s]+");
+
+  private DGRMEdgeFile() {
+  }
+
+  /**
+   * Reads the edges of a text or binary edge list file.
+   *
+   * @param file Edge list file
+   * @param simulation Simulation with the motes referred to by the file
+   * @return Edges in file order
+   * @throws IOException If the file cannot be read, is malformed or refers to an unknown mote
+   */
+  public static List<DirectedGraphMedium.Edge> read(File file, Simulation simulation) throws IOException {
+    var radios = new HashMap<Integer, Radio>();
+    for (Mote m : simulation.getMotes()) {
+      radios.put(m.getID(), m.getInterfaces().getRadio());
+    }
+    return read(file, radios);
+  }
+
+  /**
+   * Reads the edges of a text or binary edge list file.
+   *
+   * @param file Edge list file
+   * @param radios Radios by mote ID
+   * @return Edges in file order
+   * @throws IOException If the file cannot be read, is malformed or refers to an unknown mote
+   */
+  static List<DirectedGraphMedium.Edge> read(File file, Map<Integer, Radio> radios) throws IOException {
+    try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+      int magic;
+      try {
+        magic = in.readInt();
+      } catch (EOFException e) {
+        magic = 0;
+      }
+      if (magic == MAGIC) {
+        return readBinary(in, radios);
+      }
+    }
+    return readText(file, radios);
+  }
+
+  private static List<DirectedGraphMedium.Edge> readBinary(DataInputStream in, Map<Integer, Radio> radios)
+          throws IOException {
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported edge file version " + version);
+    }
+    int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("Bad edge count " + count);
+    }
+    /* A truncated file fails with EOFException, do not trust the count for the capacity */
+    var edges = new ArrayList<DirectedGraphMedium.Edge>(Math.min(count, 1 << 16));
+    for (int i = 0; i < count; i++) {
+      var source = getRadio(radios, in.readInt(), i);
+      var dest = new DGRMDestinationRadio(getRadio(radios, in.readInt(), i));
+      dest.ratio = in.readDouble();
+      dest.signal = in.readDouble();
+      dest.lqi = in.readInt();
+      dest.delay = in.readLong();
+      dest.channel = in.readInt();
+      edges.add(new DirectedGraphMedium.Edge(source, dest));
+    }
+    return edges;
+  }
+
+  private static List<DirectedGraphMedium.Edge> readText(File file, Map<Integer, Radio> radios)
+          throws IOException {
+    var edges = new ArrayList<DirectedGraphMedium.Edge>();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      int lineNr = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNr++;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#") || line.startsWith("src")) {
+          continue;
+        }
+        String[] f = SEPARATOR.split(line);
+        if (f.length < 2) {
+          throw new IOException("Line " + lineNr + ": expected at least source and destination");
+        }
+        try {
+          var source = getRadio(radios, Integer.parseInt(f[0]), lineNr);
+          var dest = new DGRMDestinationRadio(getRadio(radios, Integer.parseInt(f[1]), lineNr));
+          if (f.length > 2) dest.ratio = Double.parseDouble(f[2]);
+          if (f.length > 3) dest.signal = Double.parseDouble(f[3]);
+          if (f.length > 4) dest.lqi = Integer.parseInt(f[4]);
+          if (f.length > 5) dest.delay = Long.parseLong(f[5]);
+          if (f.length > 6) dest.channel = Integer.parseInt(f[6]);
+          edges.add(new DirectedGraphMedium.Edge(source, dest));
+        } catch (NumberFormatException e) {
+          throw new IOException("Line " + lineNr + ": " + e.getMessage(), e);
+        }
+      }
+    }
+    return edges;
+  }
+
+  private static Radio getRadio(Map<Integer, Radio> radios, int id, int position) throws IOException {
+    var radio = radios.get(id);
+    if (radio == null) {
+      throw new IOException("Edge " + position + ": no simulation mote with ID " + id);
+    }
+    return radio;
+  }
+
+  /**
+   * Writes edges in the binary format.
+   *
+   * @param file File to write
+   * @param edges Edges
+   * @throws IOException If the file cannot be written
+   */
+  public static void writeBinary(File file, DirectedGraphMedium.Edge[] edges) throws IOException {
+    try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(edges.length);
+      for (var edge : edges) {
+        var dest = edge.superDest;
+        out.writeInt(edge.source.getMote().getID());
+        out.writeInt(dest.radio.getMote().getID());
+        out.writeDouble(dest.ratio);
+        out.writeDouble(dest.signal);
+        out.writeInt(dest.lqi);
+        out.writeLong(dest.delay);
+        out.writeInt(dest.channel);
+      }
+    }
+  }
+}
@@ -30,13 +30,16 @@
 
 package org.contikios.cooja.radiomediums;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Set;
 import org.contikios.cooja.ClassDescription;
 import org.contikios.cooja.Mote;
 import org.contikios.cooja.RadioConnection;
@@ -55,6 +58,10 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The stand-alone radio medium supports propagation delays
  * and per-link transmission success ratio/RSSI.
+ * <p>
+ * Large topologies can be imported from an edge list file, see
+ * {@link DGRMEdgeFile}. The simulation config then refers to the file
+ * instead of containing the imported edges.
  * 
  * @see AbstractRadioMedium
  * @author Fredrik Osterlind
@@ -63,17 +70,21 @@ import org.slf4j.LoggerFactory;
 public class DirectedGraphMedium extends AbstractRadioMedium {
   private static final Logger logger = LoggerFactory.getLogger(DirectedGraphMedium.class);
 
-  private final Random random;
-
-  private final ArrayList<Edge> edges = new ArrayList<>();
+  /* Edges in insertion order */
+  private final LinkedHashSet<Edge> edges = new LinkedHashSet<>();
+  private Edge[] edgesArray;
   private boolean edgesDirty = true;
 
-  /* Used for optimizing lookup time */
-  private HashMap<Radio,DGRMDestinationRadio[]> edgesTable = new HashMap<>();
+  /* Adjacency used for optimizing lookup time: destinations per source radio index */
+  private final IdentityHashMap<Radio, Integer> radioIndex = new IdentityHashMap<>();
+  private DGRMDestinationRadio[][] adjacency = new DGRMDestinationRadio[0][];
+
+  /* Edge list file the imported edges were read from */
+  private File edgeFile;
+  private final Set<Edge> importedEdges = Collections.newSetFromMap(new IdentityHashMap<>());
 
   public DirectedGraphMedium(Simulation simulation) {
     super(simulation);
-    random = simulation.getRandomGenerator();
 
     requestEdgeAnalysis();
   }
@@ -88,29 +99,101 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
   }
 
   public void addEdge(Edge e) {
-    edges.add(e);
-    requestEdgeAnalysis();
+    if (!edges.add(e)) {
+      return;
+    }
+    edgesArray = null;
+    if (!edgesDirty) {
+      addToAdjacency(e);
+      radioMediumTriggers.trigger(EventTriggers.AddRemove.ADD, null);
+    }
     radioTransmissionTriggers.trigger(Radio.RadioEvent.UNKNOWN, e);
   }
 
+  /**
+   * Adds many edges at once. Observers are notified once, and the
+   * adjacency is rebuilt when next used.
+   *
+   * @param newEdges Edges
+   */
+  public void addEdges(Collection<Edge> newEdges) {
+    edges.addAll(newEdges);
+    edgesArray = null;
+    requestEdgeAnalysis();
+    radioTransmissionTriggers.trigger(Radio.RadioEvent.UNKNOWN, null);
+  }
+
   public void removeEdge(Edge edge) {
-    if (!edges.contains(edge)) {
+    if (!edges.remove(edge)) {
       logger.error("Cannot remove edge: " + edge);
       return;
     }
-    edges.remove(edge);
-    requestEdgeAnalysis();
+    edgesArray = null;
+    edgeModified(edge);
+    if (!edgesDirty) {
+      removeFromAdjacency(edge);
+      radioMediumTriggers.trigger(EventTriggers.AddRemove.REMOVE, null);
+    }
     radioTransmissionTriggers.trigger(Radio.RadioEvent.UNKNOWN, edge);
   }
 
   public void clearEdges() {
     edges.clear();
+    edgesArray = null;
+    edgeFile = null;
+    importedEdges.clear();
     requestEdgeAnalysis();
     radioTransmissionTriggers.trigger(Radio.RadioEvent.UNKNOWN, null);
   }
 
+  /**
+   * Returns all edges in insertion order. The returned array is shared
+   * until the edges change and must not be modified.
+   */
   public Edge[] getEdges() {
-    return edges.toArray(new Edge[0]);
+    if (edgesArray == null) {
+      edgesArray = edges.toArray(new Edge[0]);
+    }
+    return edgesArray;
+  }
+
+  /**
+   * Imports the edges of an edge list file. The simulation config refers to
+   * the file as long as the imported edges are not removed or modified.
+   *
+   * @param file Edge list file
+   * @throws IOException If the file cannot be read
+   * @see DGRMEdgeFile
+   */
+  public void importEdges(File file) throws IOException {
+    var newEdges = DGRMEdgeFile.read(file, simulation);
+    if (edgeFile != null) {
+      /* Only one edge file is referred to, keep the previous edges in the config */
+      importedEdges.clear();
+    }
+    addEdges(newEdges);
+    edgeFile = file;
+    importedEdges.addAll(newEdges);
+    logger.info("Imported " + newEdges.size() + " DGRM edges from " + file);
+  }
+
+  /** Returns the edge list file the imported edges were read from, or null. */
+  public File getEdgeFile() {
+    return edgeFile;
+  }
+
+  /**
+   * Signal that the properties of an edge changed. If the edge was imported,
+   * the config stops referring to the edge list file and contains all edges.
+   *
+   * @param edge Edge
+   */
+  public void edgeModified(Edge edge) {
+    if (importedEdges.contains(edge)) {
+      logger.info("Imported DGRM edge changed, edges from " + edgeFile + " are saved in the simulation config");
+      edgeFile = null;
+      importedEdges.clear();
+    }
   }
 
   /**
@@ -129,12 +212,22 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
   public void unregisterRadioInterface(Radio radio, Simulation sim) {
     super.unregisterRadioInterface(radio, sim);
 
+    var removed = new ArrayList<Edge>();
     for (Edge edge: getEdges()) {
       if (edge.source == radio || edge.superDest.radio == radio) {
-        removeEdge(edge);
-        requestEdgeAnalysis();
+        removed.add(edge);
       }
     }
+    if (removed.isEmpty()) {
+      return;
+    }
+    edges.removeAll(removed);
+    edgesArray = null;
+    for (Edge edge : removed) {
+      edgeModified(edge);
+    }
+    requestEdgeAnalysis();
+    radioTransmissionTriggers.trigger(Radio.RadioEvent.UNKNOWN, null);
   }
 
 
@@ -187,37 +280,70 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
 
 
   /**
-   * Generates hash table using current edges for efficient lookup.
+   * Generates the adjacency of the current edges for efficient lookup.
    */
   protected void analyzeEdges() {
-    HashMap<Radio,ArrayList<DGRMDestinationRadio>> listTable = new HashMap<>();
+    Edge[] all = getEdges();
 
-    /* Fill edge hash table with all edges */
-    for (Edge edge: getEdges()) {
-      ArrayList<DGRMDestinationRadio> destRadios;
-      if (!listTable.containsKey(edge.source)) {
-        destRadios = new ArrayList<>();
-      } else {
-        destRadios = listTable.get(edge.source);
-      }
-
-      destRadios.add(edge.superDest);
-      listTable.put(edge.source, destRadios);
+    /* Index the source radios and count their edges */
+    radioIndex.clear();
+    int[] sourceIndex = new int[all.length];
+    for (int i = 0; i < all.length; i++) {
+      sourceIndex[i] = radioIndex.computeIfAbsent(all[i].source, r -> radioIndex.size());
+    }
+    int[] degree = new int[radioIndex.size()];
+    for (int index : sourceIndex) {
+      degree[index]++;
     }
 
-    /* Convert to arrays */
-    HashMap<Radio,DGRMDestinationRadio[]> arrTable = new HashMap<>();
-    for (var entry : listTable.entrySet()) {
-      arrTable.put(entry.getKey(), entry.getValue().toArray(new DGRMDestinationRadio[0]));
+    /* Fill the destinations of every source in edge order */
+    DGRMDestinationRadio[][] rows = new DGRMDestinationRadio[degree.length][];
+    for (int r = 0; r < rows.length; r++) {
+      rows[r] = new DGRMDestinationRadio[degree[r]];
+      degree[r] = 0;
+    }
+    for (int i = 0; i < all.length; i++) {
+      rows[sourceIndex[i]][degree[sourceIndex[i]]++] = all[i].superDest;
     }
 
-    this.edgesTable = arrTable;
+    this.adjacency = rows;
     edgesDirty = false;
     
     /* Radio Medium changed here so notify Observers */
     radioMediumTriggers.trigger(EventTriggers.AddRemove.ADD, null);
   }
 
+  private void addToAdjacency(Edge edge) {
+    Integer index = radioIndex.get(edge.source);
+    if (index == null) {
+      index = radioIndex.size();
+      radioIndex.put(edge.source, index);
+      adjacency = Arrays.copyOf(adjacency, index + 1);
+      adjacency[index] = new DGRMDestinationRadio[0];
+    }
+    /* Copy the row, arrays returned by getPotentialDestinations stay unchanged */
+    var row = Arrays.copyOf(adjacency[index], adjacency[index].length + 1);
+    row[row.length - 1] = edge.superDest;
+    adjacency[index] = row;
+  }
+
+  private void removeFromAdjacency(Edge edge) {
+    Integer index = radioIndex.get(edge.source);
+    if (index == null) {
+      return;
+    }
+    var row = adjacency[index];
+    for (int i = 0; i < row.length; i++) {
+      if (row[i] == edge.superDest) {
+        var newRow = new DGRMDestinationRadio[row.length - 1];
+        System.arraycopy(row, 0, newRow, 0, i);
+        System.arraycopy(row, i + 1, newRow, i, row.length - i - 1);
+        adjacency[index] = newRow;
+        return;
+      }
+    }
+  }
+
   /**
    * Returns all potential destination radios, i.e. all radios "within reach".
    * Does not consider radio channels, transmission success ratios etc.
@@ -229,7 +355,8 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
     if (edgesDirty) {
       analyzeEdges();
     }
-    return edgesTable.get(source);
+    Integer index = radioIndex.get(source);
+    return index == null ? null : adjacency[index];
   }
 
   @Override
@@ -310,7 +437,7 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
          continue;
       }
             
-      if (dest.ratio < 1.0 && random.nextDouble() > dest.ratio) {
+      if (dest.ratio < 1.0 && getRandom(source, dest.radio).nextDouble() > dest.ratio) {
     	/* Fail: Reception ratio */
         /*logger.info(source + ": Fail, randomly");*/
         newConn.addInterfered(dest.radio);
@@ -329,7 +456,15 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
   public Collection<Element> getConfigXML() {
     Collection<Element> config = super.getConfigXML();
 
+    if (edgeFile != null) {
+      var element = new Element("edgefile");
+      element.setText(simulation.getCooja().createPortablePath(edgeFile).getPath().replaceAll("\\\\", "/"));
+      config.add(element);
+    }
     for (Edge edge: getEdges()) {
+      if (importedEdges.contains(edge)) {
+        continue;
+      }
       Element element;
       element = new Element("edge");
       element.addContent(edge.getConfigXML());
@@ -344,7 +479,15 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
     super.setConfigXML(configXML, visAvailable);
     boolean oldConfig = false;
     for (var element : configXML) {
-      if (element.getName().equals("edge")) {
+      if (element.getName().equals("edgefile")) {
+        var file = simulation.getCooja().restorePortablePath(new File(element.getText()));
+        try {
+          importEdges(file);
+        } catch (IOException e) {
+          logger.error("Failed loading DGRM edges from " + file + ": " + e.getMessage());
+          return false;
+        }
+      } else if (element.getName().equals("edge")) {
         Collection<Element> edgeConfig = element.getChildren();
         Radio source = null;
         DGRMDestinationRadio dest = null;
@@ -30,16 +30,15 @@
 
 package org.contikios.cooja.radiomediums;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
 import org.contikios.cooja.ClassDescription;
 import org.contikios.cooja.RadioConnection;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.interfaces.Position;
 import org.contikios.cooja.interfaces.Radio;
+import org.contikios.cooja.util.RandomStreams;
 import org.jdom2.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -143,17 +142,13 @@ public class LogisticLoss extends AbstractRadioMedium {
     /* How often to update the time-varying path loss value (in simulation time)? */
     private static final double TIME_VARIATION_STEP_SEC = 10.0;
 
-    private long lastTimeVariationUpdatePeriod;
-
     private final DirectedGraphMedium dgrm; /* Used only for efficient destination lookup */
 
-    private final Random random;
 
-    private final HashMap<Index, TimeVaryingEdge> edgesTable = new HashMap<>();
+    private final TimeVaryingEdges edgesTable = new TimeVaryingEdges();
 
     public LogisticLoss(Simulation simulation) {
         super(simulation);
-        random = simulation.getRandomGenerator();
         dgrm = new DirectedGraphMedium(simulation) {
                 @Override
                 protected void analyzeEdges() {
@@ -180,11 +175,10 @@ public class LogisticLoss extends AbstractRadioMedium {
 
                                 if (ENABLE_TIME_VARIATION) {
                                     int destID = dest.getMote().getID();
-                                    if (sourceID < destID) {
-                                        Index key = new Index(sourceID, destID);
-                                        if (!edgesTable.containsKey(key)) {
-                                            edgesTable.put(key, new TimeVaryingEdge());
-                                        }
+                                    if (sourceID < destID && edgesTable.find(sourceID, destID) < 0) {
+                                        edgesTable.add(sourceID, destID, simulation.getRandomStreams().streamKey(
+                                                LogisticLoss.class.getName() + ".timeVariation", sourceID, destID),
+                                                getTimeVariationPeriod());
                                     }
                                 }
                             }
@@ -213,7 +207,7 @@ public class LogisticLoss extends AbstractRadioMedium {
         RadioConnection newConnection = new RadioConnection(sender);
 
         /* Fail radio transmission randomly - no radios will hear this transmission */
-        if (getTxSuccessProbability() < 1.0 && random.nextDouble() > getTxSuccessProbability()) {
+        if (getTxSuccessProbability() < 1.0 && getRandom(sender).nextDouble() > getTxSuccessProbability()) {
             return newConnection;
         }
 
@@ -255,7 +249,7 @@ public class LogisticLoss extends AbstractRadioMedium {
                 } else if (recv.isTransmitting()) {
                     newConnection.addInterfered(recv);
                 } else {
-                    boolean receiveNewOk = random.nextDouble() < getRxSuccessProbability(sender, recv);
+                    boolean receiveNewOk = getRandom(sender, recv).nextDouble() < getRxSuccessProbability(sender, recv);
 
                     if (recv.isReceiving()) {
                         /*
@@ -332,8 +326,8 @@ public class LogisticLoss extends AbstractRadioMedium {
     }
 
     /* Additive White Gaussian Noise, sampled from the distribution N(0.0, AWGN_SIGMA) */
-    private double getAWGN() {
-        return random.nextGaussian() * AWGN_SIGMA;
+    private double getAWGN(Radio source, Radio dst) {
+        return getRandom(source, dst).nextGaussian() * AWGN_SIGMA;
     }
 
     private double getRSSI(Radio source, Radio dst) {
@@ -348,40 +342,28 @@ public class LogisticLoss extends AbstractRadioMedium {
 
         /* Add the time-varying component if enabled */
         if (ENABLE_TIME_VARIATION) {
-            Index key = new Index(source.getMote().getID(), dst.getMote().getID());
-            TimeVaryingEdge e = edgesTable.get(key);
-            if (e != null) {
-                path_loss_dbm += e.getPL();
+            int edge = edgesTable.find(source.getMote().getID(), dst.getMote().getID());
+            if (edge >= 0) {
+                path_loss_dbm += edgesTable.getPL(edge, getTimeVariationPeriod());
             } else {
                 logger.warn("No edge between " + source.getMote().getID() + " and " + dst.getMote().getID());
             }
         }
 
-        return DEFAULT_TX_POWER_DBM - path_loss_dbm + getAWGN();
+        return DEFAULT_TX_POWER_DBM - path_loss_dbm + getAWGN(source, dst);
     }
 
-    private void updateTimeVariationComponent() {
-        long period = (long)(simulation.getSimulationTimeMillis() / (1000.0 * TIME_VARIATION_STEP_SEC));
-
-        if (dgrm.needsEdgeAnalysis()) {
-            dgrm.analyzeEdges();
-        }
-
-        while (period > lastTimeVariationUpdatePeriod) {
-            for (Map.Entry<Index, TimeVaryingEdge> entry : edgesTable.entrySet()) {
-                entry.getValue().evolve();
-            }
-            /* update the time state */
-            lastTimeVariationUpdatePeriod += 1;
-        }
+    private long getTimeVariationPeriod() {
+        return (long)(simulation.getSimulationTimeMillis() / (1000.0 * TIME_VARIATION_STEP_SEC));
     }
 
     @Override
     protected void updateSignalStrengths() {
         /* Override: uses distance as signal strength factor */
 
-        if(ENABLE_TIME_VARIATION) {
-            updateTimeVariationComponent();
+        /* Create the time-varying edges of new neighbors, they evolve when used */
+        if (ENABLE_TIME_VARIATION && dgrm.needsEdgeAnalysis()) {
+            dgrm.analyzeEdges();
         }
     
         /* Reset signal strengths */
@@ -536,62 +518,107 @@ public class LogisticLoss extends AbstractRadioMedium {
         return true;
     }
 
-    // Invariant: x <= y
-    private static class Index {
-        private final int x;
-        private final int y;
-
-        Index(int a, int b) {
-            if(a <= b) {
-                this.x = a;
-                this.y = b;
-            } else {
-                this.x = b;
-                this.y = a;
-            }
+    /**
+     * Time-varying path loss of the edges, indexed by the unordered pair of
+     * mote IDs in an open addressing table of primitive arrays.
+     * <p>
+     * Each edge is a bounded random walk with one step per period. The steps
+     * are drawn from a counter-based stream of the edge, so an edge is only
+     * evolved when its path loss is read, by the periods that passed since
+     * it was last read.
+     */
+    private class TimeVaryingEdges {
+        private static final long EMPTY = -1;
+
+        private long[] keys = newKeys(64);
+        private long[] streamKeys = new long[64];
+        /* The period the value was last evolved to */
+        private long[] periods = new long[64];
+        /* The current value of the time-varying component */
+        private double[] plDb = new double[64];
+        private int size;
+
+        private static long[] newKeys(int capacity) {
+            long[] k = new long[capacity];
+            Arrays.fill(k, EMPTY);
+            return k;
         }
 
-        @Override
-        public int hashCode() {
-            return this.x ^ this.y;
+        private static long pairKey(int a, int b) {
+            int x = Math.min(a, b);
+            int y = Math.max(a, b);
+            return ((long) x << 32) | (y & 0xffffffffL);
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            Index other = (Index) obj;
-            if (x != other.x)
-                return false;
-          return y == other.y;
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int i = (int) (key * 0x9e3779b97f4a7c15L >>> 40) & mask;
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
         }
-    }
 
-    private class TimeVaryingEdge {
-        /* The current value of the time-varying */
-        private double timeVariationPlDb;
+        /** Returns the edge between two motes, in any direction, or -1. */
+        int find(int a, int b) {
+            int i = slot(pairKey(a, b));
+            return keys[i] == EMPTY ? -1 : i;
+        }
 
-        TimeVaryingEdge() {
-            timeVariationPlDb = 0.0;
+        void add(int a, int b, long streamKey, long period) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            long key = pairKey(a, b);
+            int i = slot(key);
+            if (keys[i] == EMPTY) {
+                size++;
+            }
+            keys[i] = key;
+            streamKeys[i] = streamKey;
+            periods[i] = period;
+            plDb[i] = 0.0;
         }
 
-        void evolve() {
-            /* evolve the value */
-            timeVariationPlDb += random.nextDouble() - 0.5;
-            /* bound the value */
-            if (timeVariationPlDb < TIME_VARIATION_MIN_PL_DB) {
-                timeVariationPlDb = TIME_VARIATION_MIN_PL_DB;
-            } else if (timeVariationPlDb > TIME_VARIATION_MAX_PL_DB) {
-                timeVariationPlDb = TIME_VARIATION_MAX_PL_DB;
+        /** Returns the path loss of an edge, after evolving it to the given period. */
+        double getPL(int edge, long period) {
+            double value = plDb[edge];
+            for (long p = periods[edge]; p < period; p++) {
+                /* evolve the value */
+                value += RandomStreams.nextDouble(streamKeys[edge], p) - 0.5;
+                /* bound the value */
+                if (value < TIME_VARIATION_MIN_PL_DB) {
+                    value = TIME_VARIATION_MIN_PL_DB;
+                } else if (value > TIME_VARIATION_MAX_PL_DB) {
+                    value = TIME_VARIATION_MAX_PL_DB;
+                }
+            }
+            if (period > periods[edge]) {
+                periods[edge] = period;
+                plDb[edge] = value;
             }
+            return value;
         }
 
-        double getPL() {
-            return timeVariationPlDb;
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldStreamKeys = streamKeys;
+            long[] oldPeriods = periods;
+            double[] oldPlDb = plDb;
+            int capacity = oldKeys.length * 2;
+            keys = newKeys(capacity);
+            streamKeys = new long[capacity];
+            periods = new long[capacity];
+            plDb = new double[capacity];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = slot(oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    streamKeys[i] = oldStreamKeys[j];
+                    periods[i] = oldPeriods[j];
+                    plDb[i] = oldPlDb[j];
+                }
+            }
         }
     }
 }
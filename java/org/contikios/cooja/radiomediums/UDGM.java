@@ -33,7 +33,6 @@ package org.contikios.cooja.radiomediums;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Random;
 import org.contikios.cooja.ClassDescription;
 import org.contikios.cooja.RadioConnection;
 import org.contikios.cooja.Simulation;
@@ -84,11 +83,9 @@ public class UDGM extends AbstractRadioMedium {
 
   private final DirectedGraphMedium dgrm; /* Used only for efficient destination lookup */
 
-  private final Random random;
 
   public UDGM(Simulation simulation) {
     super(simulation);
-    random = simulation.getRandomGenerator();
     dgrm = new DirectedGraphMedium(simulation) {
       @Override
       protected void analyzeEdges() {
@@ -158,7 +155,7 @@ public class UDGM extends AbstractRadioMedium {
     RadioConnection newConnection = new RadioConnection(sender);
 
     /* Fail radio transmission randomly - no radios will hear this transmission */
-    if (getTxSuccessProbability() < 1.0 && random.nextDouble() > getTxSuccessProbability()) {
+    if (getTxSuccessProbability() < 1.0 && getRandom(sender).nextDouble() > getTxSuccessProbability()) {
       return newConnection;
     }
 
@@ -220,7 +217,7 @@ public class UDGM extends AbstractRadioMedium {
         } else if (recv.isTransmitting()) {
           newConnection.addInterfered(recv);
         } else if (recv.isReceiving() ||
-            (random.nextDouble() > getRxSuccessProbability(sender, recv))) {
+            (getRandom(sender, recv).nextDouble() > getRxSuccessProbability(sender, recv))) {
           /* Was receiving, or reception failed: start interfering */
           newConnection.addInterfered(recv);
           recv.interfereAnyReception();
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2024, RISE Research Institutes of Sweden AB.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDER AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.util;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Independent random number streams derived from a simulation seed.
+ * <p>
+ * Every stream is identified by a component name and up to two numeric
+ * keys, for example a mote ID or the source and destination of a radio
+ * link. The seed of a stream depends only on the simulation seed and the
+ * identity of the stream, so draws from one component never shift the
+ * numbers seen by another, and the result does not depend on the order in
+ * which components are created or executed.
+ * <p>
+ * The returned generators are not synchronized. Each stream should be
+ * owned by a single component, which keeps the draws cheap and allows
+ * components to run in parallel.
+ */
+public final class RandomStreams {
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final long seed;
+
+  public RandomStreams(long seed) {
+    this.seed = seed;
+  }
+
+  /** Returns the simulation seed the streams are derived from. */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Creates the stream of a component.
+   *
+   * @param component Component name, for example "UDGM"
+   * @return New generator, calls with the same arguments return equal streams
+   */
+  public RandomGenerator create(String component) {
+    return new SplittableRandom(key(component));
+  }
+
+  /**
+   * Creates the stream of a component instance, for example a mote.
+   *
+   * @param component Component name
+   * @param id Instance key, for example a mote ID
+   * @return New generator, calls with the same arguments return equal streams
+   */
+  public RandomGenerator create(String component, long id) {
+    return new SplittableRandom(mix64(key(component) + GOLDEN_GAMMA * (id + 1)));
+  }
+
+  /**
+   * Creates the stream of a pair of instances, for example a radio link.
+   *
+   * @param component Component name
+   * @param first First key, for example the source mote ID
+   * @param second Second key, for example the destination mote ID
+   * @return New generator, calls with the same arguments return equal streams
+   */
+  public RandomGenerator create(String component, long first, long second) {
+    return new SplittableRandom(streamKey(component, first, second));
+  }
+
+  /**
+   * Returns the key of a counter-based stream for a pair of instances. Draw
+   * number n of the stream is {@link #nextDouble(long, long)}, so a component
+   * that only needs a few draws now and then can skip ahead without keeping a
+   * generator object per pair.
+   *
+   * @param component Component name
+   * @param first First key
+   * @param second Second key
+   * @return Stream key
+   */
+  public long streamKey(String component, long first, long second) {
+    long k = mix64(key(component) + GOLDEN_GAMMA * (first + 1));
+    return mix64(k + GOLDEN_GAMMA * (second + 1));
+  }
+
+  /**
+   * Returns a draw of a counter-based stream, uniformly distributed in [0, 1).
+   *
+   * @param streamKey Stream key from {@link #streamKey(String, long, long)}
+   * @param n Draw number
+   * @return Draw n of the stream
+   */
+  public static double nextDouble(long streamKey, long n) {
+    return (mix64(streamKey + GOLDEN_GAMMA * (n + 1)) >>> 11) * 0x1.0p-53;
+  }
+
+  private long key(String component) {
+    long h = seed;
+    for (int i = 0; i < component.length(); i++) {
+      h = mix64(h + GOLDEN_GAMMA * (component.charAt(i) + 1));
+    }
+    return h;
+  }
+
+  /** David Stafford's variant 13 of the MurmurHash3 finalizer, as in SplittableRandom. */
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
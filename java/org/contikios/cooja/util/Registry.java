@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Registry of objects, for example the motes of a simulation or the radios
+ * of a radio medium.
+ * <p>
+ * Every object gets a stable integer index when added, which it keeps
+ * until removed; indices of removed objects are reused. The objects in
+ * order of addition are returned as a snapshot array that is only rebuilt
+ * after the registry has changed, so iterating over the objects does not
+ * allocate. Snapshots are shared and must not be modified.
+ * <p>
+ * Snapshots may be read from any thread, changes are synchronized.
+ *
+ * @param <T> Object type
+ */
+public final class Registry<T> {
+  private final IntFunction<T[]> arrayFactory;
+  /** Objects in order of addition, removed objects are null until compacted. */
+  private final ArrayList<T> items = new ArrayList<>();
+  private int removedItems;
+  private final IdentityHashMap<T, Integer> indices = new IdentityHashMap<>();
+  private final ArrayList<T> slots = new ArrayList<>();
+  /** Position in items of the object with each index. */
+  private int[] positions = new int[16];
+  private int[] freeSlots = new int[16];
+  private int freeCount;
+  private volatile T[] snapshot;
+
+  /**
+   * @param arrayFactory Creates snapshot arrays, for example Mote[]::new
+   */
+  public Registry(IntFunction<T[]> arrayFactory) {
+    this.arrayFactory = arrayFactory;
+    snapshot = arrayFactory.apply(0);
+  }
+
+  /**
+   * Adds an object.
+   *
+   * @param item Object
+   * @return Index of the object, or the existing index if already added
+   */
+  public synchronized int add(T item) {
+    var index = indices.get(item);
+    if (index != null) {
+      return index;
+    }
+    int slot;
+    if (freeCount > 0) {
+      slot = freeSlots[--freeCount];
+      slots.set(slot, item);
+    } else {
+      slot = slots.size();
+      slots.add(item);
+      if (slot == positions.length) {
+        positions = Arrays.copyOf(positions, slot * 2);
+      }
+    }
+    indices.put(item, slot);
+    positions[slot] = items.size();
+    items.add(item);
+    snapshot = null;
+    return slot;
+  }
+
+  /**
+   * Removes an object.
+   *
+   * @param item Object
+   * @return True if the object was removed
+   */
+  public synchronized boolean remove(T item) {
+    var index = indices.remove(item);
+    if (index == null) {
+      return false;
+    }
+    slots.set(index, null);
+    if (freeCount == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+    }
+    freeSlots[freeCount++] = index;
+    items.set(positions[index], null);
+    if (++removedItems > items.size() / 2) {
+      compact();
+    }
+    snapshot = null;
+    return true;
+  }
+
+  public synchronized boolean contains(T item) {
+    return indices.containsKey(item);
+  }
+
+  /**
+   * Returns the index of an object.
+   *
+   * @param item Object
+   * @return Index, or -1 if the object is not registered
+   */
+  public synchronized int indexOf(T item) {
+    var index = indices.get(item);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the object with the given index.
+   *
+   * @param index Index
+   * @return Object, or null if no object has the index
+   */
+  public synchronized T getByIndex(int index) {
+    return index >= 0 && index < slots.size() ? slots.get(index) : null;
+  }
+
+  /** Returns the object at the given position in order of addition. */
+  public T get(int pos) {
+    return snapshot()[pos];
+  }
+
+  public int size() {
+    return snapshot().length;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Returns all objects in order of addition. The array is shared
+   * and must not be modified.
+   */
+  public T[] snapshot() {
+    var s = snapshot;
+    if (s == null) {
+      synchronized (this) {
+        s = snapshot;
+        if (s == null) {
+          if (removedItems > 0) {
+            compact();
+          }
+          s = items.toArray(arrayFactory.apply(items.size()));
+          snapshot = s;
+        }
+      }
+    }
+    return s;
+  }
+
+  /** Drops removed objects from items, keeping the order of the others. */
+  private void compact() {
+    int n = 0;
+    for (int i = 0; i < items.size(); i++) {
+      var item = items.get(i);
+      if (item != null) {
+        positions[indices.get(item)] = n;
+        items.set(n++, item);
+      }
+    }
+    items.subList(n, items.size()).clear();
+    removedItems = 0;
+  }
+}
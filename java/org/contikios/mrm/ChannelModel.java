@@ -39,7 +39,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 import javax.swing.tree.DefaultMutableTreeNode;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.interfaces.DirectionalAntennaRadio;
@@ -96,6 +96,9 @@ public class ChannelModel {
    */
   // TODO: Change Parameter to a type that can also signal adding/removing obstacles, etc.
   private final EventTriggers<EventTriggers.Update, Parameter> settingsTriggers = new EventTriggers<>();
+
+  /* Used when applying random values without a link stream, for example by the area viewer */
+  private final RandomGenerator random;
   public enum Parameter {
     apply_random,
     snr_threshold,
@@ -123,7 +126,8 @@ public class ChannelModel {
     obstacle_attenuation,
     captureEffect,
     captureEffectPreambleDuration,
-    captureEffectSignalTreshold;
+    captureEffectSignalTreshold,
+    captureEffectSinr;
 
     public static Object getDefaultValue(Parameter p) {
       return switch (p) {
@@ -150,6 +154,7 @@ public class ChannelModel {
         case captureEffect -> true;
         case captureEffectPreambleDuration -> 1000 * 1000 * 4 * 0.5 * 8 / 250000; // 2 bytes, 250kbit/s, us.
         case captureEffectSignalTreshold -> 3.0; // dB, according to previous 802.15.4 studies.
+        case captureEffectSinr -> Boolean.FALSE;
       };
     }
     
@@ -180,6 +185,7 @@ public class ChannelModel {
         case "captureEffect" -> captureEffect;
         case "captureEffectPreambleDuration" -> captureEffectPreambleDuration;
         case "captureEffectSignalTreshold" -> captureEffectSignalTreshold;
+        case "captureEffectSinr" -> captureEffectSinr;
         default -> null;
       };
     }
@@ -213,11 +219,13 @@ public class ChannelModel {
         case captureEffect -> "Use Capture Effect";
         case captureEffectPreambleDuration -> "Capture effect preamble (us)";
         case captureEffectSignalTreshold -> "Capture effect threshold (dB)";
+        case captureEffectSinr -> "Capture effect on SINR of summed interference";
       };
     }
   }
   
   public ChannelModel(Simulation simulation) {
+    random = simulation.getRandomStreams().create(ChannelModel.class.getName());
     /* Default values */
     for (Parameter p: Parameter.values()) {
       parameters.put(p, Parameter.getDefaultValue(p));
@@ -1273,12 +1281,25 @@ public class ChannelModel {
    *         the random variable mean, and the second is the variance.
    */
   public double[] getReceivedSignalStrength(TxPair txPair) {
-    return getTransmissionData(txPair, TransmissionData.SIGNAL_STRENGTH);
+    return getReceivedSignalStrength(txPair, random);
+  }
+
+  /**
+   * Calculates the received signal strength as {@link #getReceivedSignalStrength(TxPair)},
+   * drawing random values from the given stream.
+   *
+   * @param txPair Information about the source and destination coordinates
+   *               and transmission power.
+   * @param random Random stream of the link, used when applying random values
+   * @return Received signal strength (dBm) random variable
+   */
+  public double[] getReceivedSignalStrength(TxPair txPair, RandomGenerator random) {
+    return getTransmissionData(txPair, TransmissionData.SIGNAL_STRENGTH, random);
   }
   
 
   // TODO Fix better data type support
-  private double[] getTransmissionData(TxPair txPair, TransmissionData dataType) {
+  private double[] getTransmissionData(TxPair txPair, TransmissionData dataType, RandomGenerator random) {
     Point2D source = txPair.getFrom();
     Point2D dest = txPair.getTo();
     double accumulatedVariance = 0;
@@ -1454,7 +1475,6 @@ public class ChannelModel {
     double outputPower = txPair.getTxPower();
     double systemGain = getParameterDoubleValue(Parameter.system_gain_mean);
     if (getParameterBooleanValue(Parameter.apply_random)) {
-      Random random = new Random(); /* TODO Use main random generator? */
       systemGain += Math.sqrt(getParameterDoubleValue(Parameter.system_gain_var)) * random.nextGaussian();
     } else {
       accumulatedVariance += getParameterDoubleValue(Parameter.system_gain_var);
@@ -1525,10 +1545,24 @@ public class ChannelModel {
    * The third value is the received signal strength which may be used in comparison with interference etc.
    */
   public double[] getSINR(TxPair txPair, double interference) {
+    return getSINR(txPair, interference, random);
+  }
+
+  /**
+   * Calculates the signal-to-noise ratio as {@link #getSINR(TxPair, double)},
+   * drawing random values from the given stream.
+   *
+   * @param txPair Information about the source and destination coordinates
+   *               and transmission power.
+   * @param interference Current interference at destination (dBm)
+   * @param random Random stream of the link, used when applying random values
+   * @return Received SNR (dB) random variable, signal strength
+   */
+  public double[] getSINR(TxPair txPair, double interference, RandomGenerator random) {
     /* TODO Cache values: called repeatedly with noise sources. */
 
     // Calculate received signal strength
-    double[] signalStrength = getReceivedSignalStrength(txPair);
+    double[] signalStrength = getReceivedSignalStrength(txPair, random);
     double[] snrData = { signalStrength[0], signalStrength[1], signalStrength[0] };
 
     // Add antenna gain
@@ -1544,7 +1578,6 @@ public class ChannelModel {
     }
 
     if (getParameterBooleanValue(Parameter.apply_random)) {
-      Random random = new Random(); /* TODO Use main random generator? */
       noiseMean += Math.sqrt(noiseVariance) * random.nextGaussian();
       noiseVariance = 0;
     }
@@ -1575,7 +1608,22 @@ public class ChannelModel {
    * @return [Probability of reception, signal strength at destination]
    */
   public double[] getProbability(TxPair txPair, double interference) {
-    double[] snrData = getSINR(txPair, interference);
+    return getProbability(txPair, interference, random);
+  }
+
+  /**
+   * Calculates the reception probability as {@link #getProbability(TxPair, double)},
+   * drawing random values from the given stream. Radio mediums pass the
+   * stream of the link, so the result does not depend on other links' traffic.
+   *
+   * @param txPair Information about the source and destination coordinates
+   *               and transmission power.
+   * @param interference Current interference at destination (dBm)
+   * @param random Random stream of the link, used when applying random values
+   * @return [Probability of reception, signal strength at destination]
+   */
+  public double[] getProbability(TxPair txPair, double interference, RandomGenerator random) {
+    double[] snrData = getSINR(txPair, interference, random);
     double snrMean = snrData[0];
     double snrVariance = snrData[1];
     double signalStrength = snrData[2];
@@ -1627,7 +1675,7 @@ public class ChannelModel {
    * @return RMS delay spread
    */
   public double getRMSDelaySpread(TxPair txPair) {
-    return getTransmissionData(txPair, TransmissionData.DELAY_SPREAD)[1];
+    return getTransmissionData(txPair, TransmissionData.DELAY_SPREAD, random)[1];
   }
 
   /**
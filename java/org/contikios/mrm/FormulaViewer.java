@@ -178,6 +178,13 @@ public class FormulaViewer extends org.contikios.cooja.VisPlugin {
         channelModel.getParameterDoubleValue(Parameter.captureEffectSignalTreshold)
     );
 
+    addBooleanParameter(
+        Parameter.captureEffectSinr,
+        Parameter.getDescription(Parameter.captureEffectSinr),
+        collapsableArea,
+        channelModel.getParameterBooleanValue(Parameter.captureEffectSinr)
+    );
+
     // Transmitter parameters
     collapsableArea = createCollapsableArea("Transmitter parameters", allComponents);
     areaTransmitter = collapsableArea;
@@ -30,9 +30,10 @@
 
 package org.contikios.mrm;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Random;
+import java.util.IdentityHashMap;
 import org.contikios.cooja.ClassDescription;
 import org.contikios.cooja.Cooja;
 import org.contikios.cooja.RadioConnection;
@@ -63,6 +64,16 @@ import org.jdom2.Element;
  * Future work includes adding support for diffraction and scattering.
  * <p>
  * MRM supports both noise source radios and directional antenna radios.
+ * <p>
+ * With the SINR capture effect, the received power of all active
+ * transmissions is summed per radio in linear units. A radio starts receiving
+ * when the signal is strong enough over background noise and the summed
+ * interference, and keeps receiving as long as its SINR stays above the
+ * capture effect threshold. The capture effect setting decides whether a new
+ * transmission may capture a radio during the preamble of its reception.
+ * Transmission power is only added to radios on the transmission channel when
+ * the transmission starts, a radio that joins the channel mid-transmission
+ * does not hear it.
  * 
  * @see DirectionalAntennaRadio
  * @see NoiseSourceRadio
@@ -76,27 +87,31 @@ public class MRM extends AbstractRadioMedium {
   private boolean WITH_CAPTURE_EFFECT;
   private double CAPTURE_EFFECT_THRESHOLD;
   private double CAPTURE_EFFECT_PREAMBLE_DURATION;
+  private boolean WITH_CAPTURE_EFFECT_SINR;
   
-  private final Random random;
   private final ChannelModel currentChannelModel;
 
+  /** Received power of the active transmissions, updated as they start and end. */
+  private final InterferenceAccumulator interference = new InterferenceAccumulator();
+
   /**
    * Creates a new Multi-path Ray-tracing Medium (MRM).
    */
   public MRM(Simulation simulation) {
     super(simulation);
 
-    random = simulation.getRandomGenerator();
     currentChannelModel = new ChannelModel(simulation);
     
     WITH_CAPTURE_EFFECT = currentChannelModel.getParameterBooleanValue(ChannelModel.Parameter.captureEffect);
     CAPTURE_EFFECT_THRESHOLD = currentChannelModel.getParameterDoubleValue(ChannelModel.Parameter.captureEffectSignalTreshold);
     CAPTURE_EFFECT_PREAMBLE_DURATION = currentChannelModel.getParameterDoubleValue(ChannelModel.Parameter.captureEffectPreambleDuration);
+    WITH_CAPTURE_EFFECT_SINR = currentChannelModel.getParameterBooleanValue(ChannelModel.Parameter.captureEffectSinr);
    
     currentChannelModel.getSettingsTriggers().addTrigger(this, (event, arg) -> {
       WITH_CAPTURE_EFFECT = currentChannelModel.getParameterBooleanValue(Parameter.captureEffect);
       CAPTURE_EFFECT_THRESHOLD = currentChannelModel.getParameterDoubleValue(Parameter.captureEffectSignalTreshold);
       CAPTURE_EFFECT_PREAMBLE_DURATION = currentChannelModel.getParameterDoubleValue(Parameter.captureEffectPreambleDuration);
+      WITH_CAPTURE_EFFECT_SINR = currentChannelModel.getParameterBooleanValue(Parameter.captureEffectSinr);
       // Radio Medium changed here, so notify.
       radioMediumTriggers.trigger(EventTriggers.AddRemove.ADD, null);
     });
@@ -138,10 +153,19 @@ public class MRM extends AbstractRadioMedium {
     if (WITH_NOISE && radio instanceof NoiseSourceRadio noiseRadio) {
       noiseRadio.removeNoiseLevelListener(noiseListener);
     }
+    interference.remove(radio);
+  }
+
+  @Override
+  protected void activeConnectionRemoved(RadioConnection connection) {
+    ((MRMRadioConnection) connection).removePower(interference);
   }
   
   @Override
   protected MRMRadioConnection createConnections(final Radio sender) {
+    if (WITH_CAPTURE_EFFECT_SINR) {
+      return createSinrConnections(sender);
+    }
     MRMRadioConnection newConnection = new MRMRadioConnection(sender);
 
     /* TODO Cache potential destination in DGRM */
@@ -171,12 +195,13 @@ public class MRM extends AbstractRadioMedium {
       };
       double[] probData = currentChannelModel.getProbability(
           txPair,
-          -Double.MAX_VALUE /* TODO Include interference */
+          -Double.MAX_VALUE, /* TODO Include interference */
+          getRandom(sender, recv)
       );
 
       double recvProb = probData[0];
       double recvSignalStrength = probData[1];
-      if (recvProb == 1.0 || random.nextDouble() < recvProb) {
+      if (recvProb == 1.0 || getRandom(sender, recv).nextDouble() < recvProb) {
         /* Yes, the receiver *may* receive this packet (it's strong enough) */
         if (!recv.isRadioOn()) {
           newConnection.addInterfered(recv);
@@ -269,28 +294,193 @@ public class MRM extends AbstractRadioMedium {
     return newConnection;
   }
 
+  /**
+   * Creates a new connection deciding receptions on the SINR at every radio.
+   * <p>
+   * The received power of the new transmission is added to the interference
+   * of every radio on the same channel. A radio that is already receiving
+   * keeps receiving if its SINR stays above the capture effect threshold.
+   * Otherwise, with the capture effect enabled, the new transmission captures
+   * the radio if it is strong enough to be received and the ongoing reception
+   * is still in its preamble. Else the ongoing reception is interfered.
+   * <p>
+   * The power is only added to radios on the transmission channel when the
+   * transmission starts. A radio that switches to the channel later, as with
+   * TSCH channel hopping, never hears the power of that transmission.
+   *
+   * @param sender Source radio
+   * @return New connection
+   */
+  private MRMRadioConnection createSinrConnections(final Radio sender) {
+    MRMRadioConnection newConnection = new MRMRadioConnection(sender);
+    double background = dBmToMilliwatt(currentChannelModel.getParameterDoubleValue(Parameter.bg_noise_mean));
+    int srcChannel = newConnection.getChannel();
+    long now = simulation.getSimulationTime();
+
+    for (final var recv: getRegisteredRadios()) {
+      if (sender == recv) {
+        continue;
+      }
+
+      /* Fail if radios are on different (but configured) channels */
+      var dstChannel = recv.getChannel();
+      if (srcChannel >= 0 && dstChannel >= 0 && srcChannel != dstChannel) {
+        newConnection.addInterfered(recv);
+        continue;
+      }
+
+      /* Receive probability given the ongoing transmissions */
+      TxPair txPair = new RadioPair() {
+        @Override
+        public Radio getFromRadio() {
+          return sender;
+        }
+        @Override
+        public Radio getToRadio() {
+          return recv;
+        }
+      };
+      double noise = background + interference.get(recv, dstChannel);
+      double[] probData = currentChannelModel.getProbability(txPair, milliwattToDBm(noise), getRandom(sender, recv));
+      double recvProb = probData[0];
+      double recvSignalStrength = probData[1];
+      boolean received = recvProb == 1.0 || getRandom(sender, recv).nextDouble() < recvProb;
+
+      double power = dBmToMilliwatt(recvSignalStrength);
+      newConnection.addPower(recv, power);
+      interference.add(recv, srcChannel, power);
+
+      if (!recv.isRadioOn()) {
+        if (received) {
+          newConnection.addInterfered(recv);
+          recv.interfereAnyReception();
+        }
+        continue;
+      }
+      if (recv.isInterfered() || recv.isTransmitting()) {
+        if (received) {
+          newConnection.addInterfered(recv, recvSignalStrength);
+        }
+        continue;
+      }
+
+      MRMRadioConnection ongoing = recv.isReceiving() ? getReceptionOf(recv) : null;
+      if (ongoing == null) {
+        if (received) {
+          /* Success: radio starts receiving */
+          newConnection.addDestination(recv, recvSignalStrength);
+        }
+        continue;
+      }
+
+      switch (resolveOngoingReception(ongoing.getDestinationSignalStrength(recv),
+          interference.get(recv, dstChannel), background, received, now - ongoing.getReceptionStartTime(),
+          WITH_CAPTURE_EFFECT, CAPTURE_EFFECT_THRESHOLD, CAPTURE_EFFECT_PREAMBLE_DURATION)) {
+        case SURVIVED -> {
+        }
+        case CAPTURED -> {
+          /* Captured: radio receives the new transmission instead */
+          ongoing.removeDestination(recv);
+          newConnection.addDestination(recv, recvSignalStrength);
+        }
+        case INTERFERED -> {
+          newConnection.addInterfered(recv, recvSignalStrength);
+          recv.interfereAnyReception();
+          for (RadioConnection conn : getActiveConnections()) {
+            if (conn.isDestination(recv)) {
+              conn.addInterfered(recv);
+            }
+          }
+        }
+      }
+    }
+
+    return newConnection;
+  }
+
+  /** Outcome of a new transmission at a radio that is already receiving. */
+  enum SinrOutcome { SURVIVED, CAPTURED, INTERFERED }
+
+  /**
+   * Decides whether an ongoing reception survives a new transmission.
+   *
+   * @param signal Received signal strength (dBm) of the ongoing reception
+   * @param interference Summed received power (mW) of all active transmissions the radio hears,
+   *                     the ongoing reception and the new transmission included
+   * @param background Background noise (mW)
+   * @param received True if the new transmission is strong enough to be received
+   * @param receivingFor Time (us) since the ongoing reception started
+   * @param capture True if a new transmission may capture the radio during the preamble
+   * @param threshold Capture effect threshold (dB)
+   * @param preambleDuration Capture effect preamble duration (us)
+   * @return Outcome
+   */
+  static SinrOutcome resolveOngoingReception(double signal, double interference, double background,
+                                             boolean received, long receivingFor, boolean capture,
+                                             double threshold, double preambleDuration) {
+    double sinr = signal - milliwattToDBm(Math.max(background,
+        background + interference - dBmToMilliwatt(signal)));
+    if (sinr >= threshold) {
+      return SinrOutcome.SURVIVED;
+    }
+    if (capture && received && receivingFor < preambleDuration) {
+      return SinrOutcome.CAPTURED;
+    }
+    return SinrOutcome.INTERFERED;
+  }
+
+  /**
+   * @param radio Radio
+   * @return Active connection the radio is receiving, or null
+   */
+  private MRMRadioConnection getReceptionOf(Radio radio) {
+    for (RadioConnection conn : getActiveConnections()) {
+      if (conn.isDestination(radio)) {
+        return (MRMRadioConnection) conn;
+      }
+    }
+    return null;
+  }
+
+  private static double dBmToMilliwatt(double dBm) {
+    return Math.pow(10, dBm / 10.0);
+  }
+
+  private static double milliwattToDBm(double mW) {
+    return 10 * Math.log10(mW);
+  }
+
   @Override
   protected void updateSignalStrengths() {
 
     /* Reset: Background noise */
         double background = 
                 currentChannelModel.getParameterDoubleValue(Parameter.bg_noise_mean);
-    for (Radio radio : getRegisteredRadios()) {
-      radio.setCurrentSignalStrength(background);
-    }
-
-    /* Active radio connections */
     RadioConnection[] conns = getActiveConnections();
-    for (RadioConnection conn : conns) {
-      var srcChannel = conn.getSource().getChannel();
-      for (Radio dstRadio : conn.getDestinations()) {
-        double signalStrength = ((MRMRadioConnection) conn).getDestinationSignalStrength(dstRadio);
-        var dstChannel = dstRadio.getChannel();
-        if (srcChannel >= 0 && dstChannel >= 0 && srcChannel != dstChannel) {
-          continue;
-        }
-        if (dstRadio.getCurrentSignalStrength() < signalStrength) {
-          dstRadio.setCurrentSignalStrength(signalStrength);
+    if (WITH_CAPTURE_EFFECT_SINR) {
+      /* Background noise and the summed power of active transmissions */
+      double backgroundPower = dBmToMilliwatt(background);
+      for (Radio radio : getRegisteredRadios()) {
+        radio.setCurrentSignalStrength(milliwattToDBm(
+            backgroundPower + interference.get(radio, radio.getChannel())));
+      }
+    } else {
+      for (Radio radio : getRegisteredRadios()) {
+        radio.setCurrentSignalStrength(background);
+      }
+
+      /* Active radio connections */
+      for (RadioConnection conn : conns) {
+        var srcChannel = conn.getSource().getChannel();
+        for (Radio dstRadio : conn.getDestinations()) {
+          double signalStrength = ((MRMRadioConnection) conn).getDestinationSignalStrength(dstRadio);
+          var dstChannel = dstRadio.getChannel();
+          if (srcChannel >= 0 && dstChannel >= 0 && srcChannel != dstChannel) {
+            continue;
+          }
+          if (dstRadio.getCurrentSignalStrength() < signalStrength) {
+            dstRadio.setCurrentSignalStrength(signalStrength);
+          }
         }
       }
     }
@@ -341,7 +531,7 @@ public class MRM extends AbstractRadioMedium {
             return affectedRadio;
           }
         };
-        double[] signalMeanVar = currentChannelModel.getReceivedSignalStrength(txPair);
+        double[] signalMeanVar = currentChannelModel.getReceivedSignalStrength(txPair, getRandom(noiseRadio, affectedRadio));
         double signal = signalMeanVar[0];
         if (signal < background) {
           continue;
@@ -415,6 +605,9 @@ public class MRM extends AbstractRadioMedium {
 
   static class MRMRadioConnection extends RadioConnection {
     private final HashMap<Radio, Double> signalStrengths = new HashMap<>();
+    private Radio[] powerRadios = new Radio[0];
+    private double[] powers = new double[0];
+    private int powerCount;
 
     MRMRadioConnection(Radio sourceRadio) {
       super(sourceRadio);
@@ -443,6 +636,86 @@ public class MRM extends AbstractRadioMedium {
         }
       return signalStrengths.get(radio);
     }
+
+    /** Records the received power (mW) of this transmission at a radio. */
+    void addPower(Radio radio, double power) {
+      if (powerCount == powerRadios.length) {
+        int size = Math.max(16, powerCount * 2);
+        powerRadios = Arrays.copyOf(powerRadios, size);
+        powers = Arrays.copyOf(powers, size);
+      }
+      powerRadios[powerCount] = radio;
+      powers[powerCount++] = power;
+    }
+
+    /** Removes the recorded received power of this transmission from the interference. */
+    void removePower(InterferenceAccumulator interference) {
+      for (int i = 0; i < powerCount; i++) {
+        interference.remove(powerRadios[i], getChannel(), powers[i]);
+        powerRadios[i] = null;
+      }
+      powerCount = 0;
+    }
+  }
+
+  /**
+   * Summed received power (mW) of the active transmissions at every radio,
+   * per transmission channel. Transmissions add their power when they start
+   * and remove it when they end, so the interference at a radio is looked up
+   * instead of summed over all active connections.
+   */
+  static final class InterferenceAccumulator {
+    private static final class Power {
+      double power;
+      int transmissions;
+    }
+
+    private final HashMap<Integer, IdentityHashMap<Radio, Power>> channels = new HashMap<>();
+
+    void add(Radio radio, int channel, double power) {
+      var p = channels.computeIfAbsent(channel, c -> new IdentityHashMap<>()).computeIfAbsent(radio, r -> new Power());
+      p.power += power;
+      p.transmissions++;
+    }
+
+    void remove(Radio radio, int channel, double power) {
+      var radios = channels.get(channel);
+      var p = radios == null ? null : radios.get(radio);
+      if (p == null || p.transmissions == 0) {
+        return;
+      }
+      /* Reset when idle to not accumulate rounding errors */
+      p.power = --p.transmissions == 0 ? 0 : Math.max(0, p.power - power);
+    }
+
+    /** Forgets an unregistered radio. */
+    void remove(Radio radio) {
+      for (var radios : channels.values()) {
+        radios.remove(radio);
+      }
+    }
+
+    /**
+     * @param radio Radio
+     * @param channel Radio channel, or -1 to include all channels
+     * @return Summed received power (mW) of transmissions the radio hears
+     */
+    double get(Radio radio, int channel) {
+      if (channel >= 0) {
+        /* Transmissions on the channel and from radios without channels */
+        return get(channels.get(channel), radio) + get(channels.get(-1), radio);
+      }
+      double sum = 0;
+      for (var radios : channels.values()) {
+        sum += get(radios, radio);
+      }
+      return sum;
+    }
+
+    private static double get(IdentityHashMap<Radio, Power> radios, Radio radio) {
+      var p = radios == null ? null : radios.get(radio);
+      return p == null ? 0 : p.power;
+    }
   }
 
 }
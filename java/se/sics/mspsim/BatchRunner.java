@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * BatchRunner
+ *
+ * Runs nodes headless at full speed and reports the emulation speed.
+ */
+package se.sics.mspsim;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import se.sics.mspsim.cli.CommandHandler;
+import se.sics.mspsim.core.EmulationException;
+import se.sics.mspsim.core.MSP430;
+import se.sics.mspsim.platform.GenericNode;
+import se.sics.mspsim.util.ConfigManager;
+
+/**
+ * Runs one or more nodes round-robin in the calling thread, without GUI and
+ * without throttling, for a number of cycles or simulated seconds. Every
+ * node runs {@value #SLICE_MICROS} simulated microseconds before the next
+ * node takes over, so the nodes stay close in simulated time.
+ */
+public class BatchRunner {
+
+  /** Simulated time a node runs before the next node takes over. */
+  private static final long SLICE_MICROS = 1000;
+
+  private final GenericNode[] nodes;
+  private final String[] firmwareFiles;
+  private final long[] instructions;
+  private final long[] startCycles;
+  private final long[] startCpuCycles;
+  private final double[] startMillis;
+  private final long[][] startModeCycles;
+  private final boolean[] done;
+  private final boolean[] stopped;
+  private long wallNanos;
+
+  /**
+   * Creates a batch runner for nodes that have been set up.
+   *
+   * @param nodes Nodes
+   * @param firmwareFiles Firmware file of each node, for the report
+   */
+  public BatchRunner(List<GenericNode> nodes, List<String> firmwareFiles) {
+    this.nodes = nodes.toArray(new GenericNode[0]);
+    this.firmwareFiles = firmwareFiles.toArray(new String[0]);
+    int n = this.nodes.length;
+    instructions = new long[n];
+    startCycles = new long[n];
+    startCpuCycles = new long[n];
+    startMillis = new double[n];
+    startModeCycles = new long[n][];
+    done = new boolean[n];
+    stopped = new boolean[n];
+  }
+
+  /**
+   * Creates and sets up headless nodes.
+   *
+   * @param nodeType Node class name
+   * @param firmwareFiles Firmware files
+   * @param copies Number of nodes for each firmware file
+   * @return Batch runner, or null if the node type is not supported
+   */
+  public static BatchRunner create(String nodeType, List<String> firmwareFiles, int copies) throws IOException {
+    var nodes = new ArrayList<GenericNode>();
+    var files = new ArrayList<String>();
+    for (var firmware : firmwareFiles) {
+      for (int i = 0; i < copies; i++) {
+        var node = Main.createNode(nodeType, firmware);
+        if (node == null) {
+          return null;
+        }
+        var config = new ConfigManager();
+        config.setProperty("nogui", "true");
+        config.setProperty("firmwareFile", firmware);
+        node.setCommandHandler(new CommandHandler(System.out, System.err));
+        node.setup(config);
+        nodes.add(node);
+        files.add(firmware);
+      }
+    }
+    return new BatchRunner(nodes, files);
+  }
+
+  /**
+   * Runs all nodes until every node has reached the limit or stopped.
+   *
+   * @param maxCycles Cycles to run each node, or 0 for no cycle limit
+   * @param maxSeconds Simulated seconds to run each node, or 0 for no time limit
+   */
+  public void run(long maxCycles, double maxSeconds) throws EmulationException {
+    if (maxCycles <= 0 && maxSeconds <= 0) {
+      throw new IllegalArgumentException("no cycle or time limit");
+    }
+    for (int i = 0; i < nodes.length; i++) {
+      MSP430 cpu = nodes[i].getCPU();
+      var stats = nodes[i].getStatistics();
+      if (stats.getChip(cpu.getID()) == null) {
+        stats.addMonitor(cpu);
+      }
+      startCycles[i] = cpu.cycles;
+      startCpuCycles[i] = cpu.cpuCycles;
+      startMillis[i] = cpu.getTimeMillis();
+      startModeCycles[i] = getModeCycles(nodes[i]);
+    }
+    long start = System.nanoTime();
+    int running = nodes.length;
+    while (running > 0) {
+      for (int i = 0; i < nodes.length; i++) {
+        if (done[i]) {
+          continue;
+        }
+        MSP430 cpu = nodes[i].getCPU();
+        long target = cpu.cycles + SLICE_MICROS * cpu.getDCOFrequency() / 1000000;
+        if (maxCycles > 0) {
+          target = Math.min(target, startCycles[i] + maxCycles);
+        }
+        instructions[i] += cpu.runCycles(target);
+        // The CPU stops before the target on breakpoints and stop commands.
+        stopped[i] = cpu.cycles < target;
+        if (stopped[i]
+            || maxCycles > 0 && cpu.cycles >= startCycles[i] + maxCycles
+            || maxSeconds > 0 && cpu.getTimeMillis() - startMillis[i] >= maxSeconds * 1000) {
+          done[i] = true;
+          running--;
+        }
+      }
+    }
+    wallNanos = System.nanoTime() - start;
+  }
+
+  private static long[] getModeCycles(GenericNode node) {
+    MSP430 cpu = node.getCPU();
+    var cycles = new long[cpu.getModeMax() + 1];
+    for (int mode = 0; mode < cycles.length; mode++) {
+      cycles[mode] = node.getStatistics().getModeCycles(cpu.getID(), mode);
+    }
+    return cycles;
+  }
+
+  /**
+   * Prints the cycles, instructions, low power mode residency and speed of
+   * every node, and the total speed.
+   *
+   * @param out Output stream
+   */
+  public void printReport(PrintStream out) {
+    double wallSeconds = wallNanos / 1e9;
+    long totalInstructions = 0;
+    double totalSimulated = 0;
+    for (int i = 0; i < nodes.length; i++) {
+      MSP430 cpu = nodes[i].getCPU();
+      long cycles = cpu.cycles - startCycles[i];
+      long active = cpu.cpuCycles - startCpuCycles[i];
+      double simulated = (cpu.getTimeMillis() - startMillis[i]) / 1000;
+      totalInstructions += instructions[i];
+      totalSimulated += simulated;
+      out.printf("Node %d: %s %s%s%n", i + 1, nodes[i].getName(), firmwareFiles[i],
+              stopped[i] ? " (stopped)" : "");
+      out.printf("  cycles: %d, active cycles: %d (%.1f%%), instructions: %d, simulated time: %.3f s%n",
+              cycles, active, cycles == 0 ? 0.0 : 100.0 * active / cycles, instructions[i], simulated);
+      var modeCycles = getModeCycles(nodes[i]);
+      var modes = new StringBuilder();
+      for (int mode = 0; mode < modeCycles.length; mode++) {
+        long inMode = modeCycles[mode] - startModeCycles[i][mode];
+        modes.append(mode == 0 ? "" : ", ").append(cpu.getModeName(mode)).append(' ')
+             .append(String.format("%.1f%%", cycles == 0 ? 0.0 : 100.0 * inMode / cycles));
+      }
+      out.println("  modes: " + modes);
+    }
+    out.printf("Wall time: %.3f s, %d nodes, %.2f MIPS, %.1f times real time%n", wallSeconds, nodes.length,
+            wallSeconds == 0 ? 0.0 : totalInstructions / wallSeconds / 1e6,
+            wallSeconds == 0 ? 0.0 : totalSimulated / wallSeconds);
+  }
+}
@@ -41,9 +41,11 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Locale;
 import se.sics.mspsim.chip.AT45DB;
 import se.sics.mspsim.chip.M25P80;
+import se.sics.mspsim.core.EmulationException;
 import se.sics.mspsim.platform.GenericNode;
 import se.sics.mspsim.platform.esb.ESBNode;
 import se.sics.mspsim.platform.jcreate.JCreateNode;
@@ -165,7 +167,7 @@ public class Main {
     var config = new ArgumentManager(args);
     var processedArgs = config.getArguments();
     if (processedArgs.length == 0) {
-      System.err.println("Usage: -platform=name <firmware>");
+      System.err.println("Usage: -platform=name [-cycles=N | -seconds=S [-nodes=N]] <firmware> ...");
       System.exit(1);
     }
     if (!Files.exists(Path.of(processedArgs[0]))) {
@@ -191,6 +193,38 @@ public class Main {
       }
       nodeType = getNodeTypeByPlatform(platform);
     }
+    if (config.getProperty("cycles") != null || config.getProperty("seconds") != null) {
+      // Batch mode: run all firmware files headless at full speed.
+      int nodes;
+      long cycles;
+      double seconds;
+      String option = "nodes";
+      try {
+        nodes = Integer.parseInt(config.getProperty(option, "1"));
+        option = "cycles";
+        cycles = Long.parseLong(config.getProperty(option, "0"));
+        option = "seconds";
+        seconds = Double.parseDouble(config.getProperty(option, "0"));
+      } catch (NumberFormatException e) {
+        System.err.println("Invalid number for -" + option + ": '" + config.getProperty(option) + "'.");
+        System.exit(1);
+        return;
+      }
+      var runner = BatchRunner.create(nodeType, List.of(processedArgs), nodes);
+      if (runner == null) {
+        System.err.println("MSPSim does not currently support the platform '" + nodeType + "'.");
+        System.exit(1);
+      }
+      try {
+        runner.run(cycles, seconds);
+      } catch (EmulationException e) {
+        System.err.println("Emulation failed: " + e.getMessage());
+        runner.printReport(System.out);
+        System.exit(1);
+      }
+      runner.printReport(System.out);
+      System.exit(0);
+    }
     var node = createNode(nodeType, config.getArguments()[0]);
     if (node == null) {
       System.err.println("MSPSim does not currently support the platform '" + nodeType + "'.");
@@ -889,22 +889,7 @@ public class CC2420 extends Radio802154 implements USARTListener {
       }
       return; /* avoid returning the status byte */
       case WRITE_TXFIFO:
-        if(txfifoFlush) {
-          txCursor = 0;
-          txfifoFlush = false;
-        }
-        if (logLevel > INFO) log("Writing data: " + data + " to tx: " + txCursor);
-
-        if(txCursor == 0) {
-          if ((data & 0xff) > 127) {
-            logger.logw(this, WarningType.EXECUTION, "CC2420: Warning - packet size too large: " + (data & 0xff));
-          }
-        } else if (txCursor > 127) {
-          logger.logw(this, WarningType.EXECUTION, "CC2420: Warning - TX Cursor wrapped");
-          txCursor = 0;
-        }
-        memory[RAM_TXFIFO + txCursor] = data & 0xff;
-        txCursor++;
+        writeTXFIFO(data);
         if (sendEvents) {
           sendEvent("WRITE_TXFIFO", null);
         }
@@ -949,6 +934,44 @@ public class CC2420 extends Radio802154 implements USARTListener {
     }
   }
 
+  @Override
+  public void dataReceived(USARTSource source, int[] data, int offset, int length) {
+    int end = offset + length;
+    while (offset < end && !(chipSelect && stateMachine != RadioState.VREG_OFF
+        && state == SpiState.WRITE_TXFIFO)) {
+      dataReceived(source, data[offset++]);
+    }
+    /* The rest of the burst goes to the TXFIFO until chip select is released
+     * and every byte is answered with the (unchanged) status byte. */
+    int answer = status;
+    for (int i = offset; i < end; i++) {
+      writeTXFIFO(data[i]);
+      if (sendEvents) {
+        sendEvent("WRITE_TXFIFO", null);
+      }
+      source.byteReceived(answer);
+    }
+  }
+
+  private void writeTXFIFO(int data) {
+    if(txfifoFlush) {
+      txCursor = 0;
+      txfifoFlush = false;
+    }
+    if (logLevel > INFO) log("Writing data: " + data + " to tx: " + txCursor);
+
+    if(txCursor == 0) {
+      if ((data & 0xff) > 127) {
+        logger.logw(this, WarningType.EXECUTION, "CC2420: Warning - packet size too large: " + (data & 0xff));
+      }
+    } else if (txCursor > 127) {
+      logger.logw(this, WarningType.EXECUTION, "CC2420: Warning - TX Cursor wrapped");
+      txCursor = 0;
+    }
+    memory[RAM_TXFIFO + txCursor] = data & 0xff;
+    txCursor++;
+  }
+
   // Needs to get information about when it is possible to write
   // next data...
   private void strobe(int data) {
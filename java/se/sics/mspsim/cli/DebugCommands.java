@@ -92,7 +92,7 @@ public class DebugCommands implements CommandBundle {
                   }
               }
           };
-          cpu.addWatchPoint(address, monitor);
+          cpu.addWatchPoint(address, monitor, MemoryMonitor.WATCH_EXECUTE);
           context.err.println("Breakpoint set at $" + cpu.getAddressAsString(address));
           return 0;
         }
@@ -392,9 +392,9 @@ public class DebugCommands implements CommandBundle {
           public int executeCommand(CommandContext context) {
             int adr = context.getArgumentAsAddress(0);
             if (adr >= 0) {
-              int value = cpu.memory[adr];
+              int value = getByte(cpu, adr);
               if (adr >= 0x100 && adr + 1 < cpu.MAX_MEM) {
-                  value |= cpu.memory[adr + 1] << 8;
+                  value |= getByte(cpu, adr + 1) << 8;
               }
               context.out.println(context.getArgument(0) + " = $" + Utils.hex16(value));
               return 0;
@@ -503,9 +503,9 @@ public class DebugCommands implements CommandBundle {
                     start += dbg.getSize();
                 } else {
                     int data;
-                    data = cpu.memory[start++];
+                    data = getByte(cpu, start++);
                     if (Utils.size(type) == 2) {
-                        data = data  + (cpu.memory[start++] << 8);
+                        data = data  + (getByte(cpu, start++) << 8);
                     }
                     context.out.print((mode != Utils.ASCII ? " " : "") +
                             Utils.toString(data, type, mode));
@@ -748,6 +748,11 @@ public class DebugCommands implements CommandBundle {
     }
   }
 
+  /** Reads a byte from RAM or flash, or the register value of an IO address. */
+  private static int getByte(MSP430 cpu, int adr) {
+    return adr < cpu.MAX_MEM_IO ? cpu.ioMemory[adr] : cpu.memory[adr] & 0xff;
+  }
+
   private static String getSymOrAddr(MSP430 cpu, CommandContext context, int adr) {
     MapEntry me = context.getMapTable().getEntry(adr);
     if (me != null) {
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * ByteMemory
+ *
+ * Little-endian accessors for the byte packed CPU memory.
+ */
+package se.sics.mspsim.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Word access to the RAM and flash image of the CPU, which is stored with
+ * one byte per address. Words are read and written with a single
+ * little-endian view access instead of one array access per byte.
+ */
+public final class ByteMemory {
+
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private ByteMemory() {
+    }
+
+    public static int getByte(byte[] memory, int address) {
+        return memory[address] & 0xff;
+    }
+
+    public static int getWord(byte[] memory, int address) {
+        return (short) SHORT.get(memory, address) & 0xffff;
+    }
+
+    public static void setWord(byte[] memory, int address, int data) {
+        SHORT.set(memory, address, (short) data);
+    }
+
+    /**
+     * Reads a byte, word or 20-bit word. Only the low nibble of the third byte is
+     * used for 20-bit words.
+     */
+    public static int read(byte[] memory, int address, Memory.AccessMode mode) {
+        return switch (mode) {
+            case BYTE -> memory[address] & 0xff;
+            case WORD -> (short) SHORT.get(memory, address) & 0xffff;
+            default -> ((short) SHORT.get(memory, address) & 0xffff) | (memory[address + 2] & 0xf) << 16;
+        };
+    }
+
+    /**
+     * Writes a byte, word or 20-bit word. 20-bit words are written as four bytes.
+     */
+    public static void write(byte[] memory, int address, int data, Memory.AccessMode mode) {
+        switch (mode) {
+            case BYTE -> memory[address] = (byte) data;
+            case WORD -> SHORT.set(memory, address, (short) data);
+            default -> INT.set(memory, address, data);
+        }
+    }
+
+}
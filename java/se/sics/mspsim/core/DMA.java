@@ -64,6 +64,14 @@ public class DMA extends IOUnit {
         boolean dmaIE;
         boolean dmaIFG;
 
+        /* completion of a burst transfer, flagged when the last byte would have been moved */
+        private final TimeEvent completeEvent = new TimeEvent(0, "DMA complete") {
+            @Override
+            public void execute(long t) {
+                complete();
+            }
+        };
+
         Channel(int i) {
             channelNo = i;
         }
@@ -75,6 +83,12 @@ public class DMA extends IOUnit {
         }
 
         void write(int address, int data) {
+            /* A burst has already moved all bytes, so the transfer it would
+             * still be doing is completed before the write takes effect. */
+            if (completeEvent.isScheduled()) {
+                completeEvent.remove();
+                complete();
+            }
             switch (address) {
                 case 0 -> {
                     ctl = data;
@@ -134,6 +148,13 @@ public class DMA extends IOUnit {
             /* perform memory move and possibly clear triggering flag!!! */
             /* NOTE: show config byte/word also !!! */
             if (enable) {
+                if (burstTransfers && transferMode == 0 && size > 1 && dstIncr == 0 && index == 1
+                        && trigger instanceof USART usart
+                        && currentDestinationAddress == usart.getTXBufferAddress()
+                        && usart.canTransmitBurst()) {
+                    transmitBurst(usart);
+                    return;
+                }
                 int data = cpu.currentSegment.read(currentSourceAddress, Memory.AccessMode.BYTE, Memory.AccessType.READ);
                 if (DEBUG) log("DMA Triggered reading from: " +
                         currentSourceAddress + " => " + data + " " + (char) data +
@@ -146,19 +167,60 @@ public class DMA extends IOUnit {
                 currentDestinationAddress += dstIncr;
                 size--;
                 if (size == 0) {
-                    currentSourceAddress = sourceAddress;
-                    currentDestinationAddress = destinationAddress;
-                    size = storedSize;
-                    if ((transferMode & 0x04) == 0) {
-                        enable = false;
-                    }
-                    /* flag interrupt and update interrupt vector */
-                    dmaIFG = true;
-                    interruptMultiplexer.updateInterrupt(dmaIFG && dmaIE, channelNo);
+                    complete();
                 }
             }
         }
 
+        /* Moves the remaining bytes to the USART at once, see USART.transmitBurst() */
+        private void transmitBurst(USART usart) {
+            int length = size;
+            int[] data = new int[length];
+            for (int i = 0; i < length; i++) {
+                data[i] = cpu.currentSegment.read(currentSourceAddress, Memory.AccessMode.BYTE, Memory.AccessType.READ);
+                currentSourceAddress += srcIncr;
+            }
+            if (DEBUG) log("DMA Ch." + channelNo + ": burst of " + length + " bytes to " + usart.getName());
+            size = 0;
+            enable = false;
+            completeAt(usart.transmitBurst(data, length));
+        }
+
+        /* Receives bytes shifted in during a burst, byte i arriving at firstCycle + i * period */
+        int receiveBurst(int[] data, int length, long firstCycle, long period) {
+            int count = Math.min(length, size);
+            for (int i = 0; i < count; i++) {
+                cpu.currentSegment.write(currentDestinationAddress, data[i], Memory.AccessMode.BYTE);
+                currentDestinationAddress += dstIncr;
+            }
+            size -= count;
+            if (size == 0) {
+                enable = false;
+                completeAt(firstCycle + (count - 1) * period);
+            }
+            return count;
+        }
+
+        private void completeAt(long cycles) {
+            if (cycles <= cpu.cycles) {
+                complete();
+            } else {
+                cpu.scheduleCycleEvent(completeEvent, cycles);
+            }
+        }
+
+        private void complete() {
+            currentSourceAddress = sourceAddress;
+            currentDestinationAddress = destinationAddress;
+            size = storedSize;
+            if ((transferMode & 0x04) == 0) {
+                enable = false;
+            }
+            /* flag interrupt and update interrupt vector */
+            dmaIFG = true;
+            interruptMultiplexer.updateInterrupt(dmaIFG && dmaIE, channelNo);
+        }
+
         @Override
         public void interruptServiced(int vector) {
         }
@@ -182,6 +244,7 @@ public class DMA extends IOUnit {
     private final Channel[] channels = new Channel[3];
     private int dmactl0;
     private int dmactl1;
+    private boolean burstTransfers = true;
 
     /* MAX 16 triggers ? */
     private final DMATrigger[] dmaTrigger = new DMATrigger[16];
@@ -194,6 +257,30 @@ public class DMA extends IOUnit {
         channels[2] = new Channel(2);
     }
 
+    /**
+     * Enables or disables burst transfers, which are enabled by default.
+     * <p>
+     * A single transfer triggered by UTXIFG into a USART transmit buffer in
+     * SPI mode is then done as one burst, see USART.transmitBurst(). The
+     * flags, the final URXBUF value, the memory and the DMA interrupt flag
+     * change at the same cycles as when the bytes are moved one by one with
+     * the CPU in a low power mode. With the CPU active, the byte by byte
+     * transfer sets some flags up to an instruction late, the burst does not.
+     * Firmware racing the transfer sees a difference:
+     * <ul>
+     * <li>DMAxSZ reads 0 until the transfer completes instead of counting down.
+     * <li>URXBUF does not take the intermediate values shifted in.
+     * <li>A write to a register of the channel before the transfer completes
+     * completes it at once, all bytes have already been sent. Moved byte by
+     * byte, clearing DMAEN would stop the transfer instead.
+     * </ul>
+     *
+     * @param burstTransfers true to move DMA-driven SPI transfers as bursts
+     */
+    public void setBurstTransfers(boolean burstTransfers) {
+        this.burstTransfers = burstTransfers;
+    }
+
     public void setInterruptMultiplexer(InterruptMultiplexer interruptMultiplexer) {
         this.interruptMultiplexer = interruptMultiplexer;
     }
@@ -216,6 +303,23 @@ public class DMA extends IOUnit {
       }
     }
 
+    /**
+     * Offers bytes that a trigger source received during a burst transfer to
+     * the channel moving them from the given receive buffer on trigger index 0.
+     *
+     * @return the number of bytes moved by a channel
+     */
+    public int receiveBurst(DMATrigger trigger, int address, int[] data, int length, long firstCycle, long period) {
+        for (Channel channel : channels) {
+            if (channel.trigger == trigger && channel.triggerIndex == 0 && channel.enable
+                    && channel.transferMode == 0 && channel.srcIncr == 0
+                    && channel.currentSourceAddress == address) {
+                return channel.receiveBurst(data, length, firstCycle, period);
+            }
+        }
+        return 0;
+    }
+
     @Override
     public void interruptServiced(int vector) {
     }
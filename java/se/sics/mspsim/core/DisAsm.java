@@ -67,11 +67,11 @@ public class DisAsm implements MSP430Constants {
     return map;
   }
 
-  public DbgInstruction disassemble(int pc, int[] memory, int[] reg) {
+  public DbgInstruction disassemble(int pc, byte[] memory, int[] reg) {
     return disassemble(pc, memory, reg, 0);
   }
 
-  public DbgInstruction disassemble(int pc, int[] memory, int[] reg,
+  public DbgInstruction disassemble(int pc, byte[] memory, int[] reg,
                                  int interrupt) {
     DbgInstruction dbg = disassemble(pc, memory, reg, new DbgInstruction(),
                                      interrupt);
@@ -97,11 +97,11 @@ public class DisAsm implements MSP430Constants {
                        cpu.servicedInterrupt);
   }
 
-  public DbgInstruction disassemble(int pc, int[] memory, int[] reg,
+  public DbgInstruction disassemble(int pc, byte[] memory, int[] reg,
                                            DbgInstruction dbg, int interrupt) {
     int startPC = pc;
     int size = 0;
-    int instruction = memory[pc] + (memory[pc + 1] << 8);
+    int instruction = ByteMemory.getWord(memory, pc);
     int op = instruction >> 12;
     boolean word = (instruction & 0x40) == 0;
 
@@ -137,7 +137,7 @@ public class DisAsm implements MSP430Constants {
         op = instruction & 0xf0f0;
         int srcdata = (instruction & 0x0f00) >> 8;
         int dst = instruction & 0x000f;
-        int nextData = memory[pc] + (memory[pc + 1] << 8);
+        int nextData = ByteMemory.getWord(memory, pc);
         boolean rrword = true;
 
         switch(op) {
@@ -216,7 +216,7 @@ public class DisAsm implements MSP430Constants {
     {
         /* check CALLA first */
         int dst = instruction & 0x000f;
-        int nextData = memory[pc] + (memory[pc + 1] << 8);
+        int nextData = ByteMemory.getWord(memory, pc);
         String opstr = null;
         switch(instruction & 0xfff0) {
         case CALLA_REG:
@@ -267,7 +267,7 @@ public class DisAsm implements MSP430Constants {
                 adr = "R" + register;
                 break;
             case AM_INDEX:
-                dstAddress = memory[pc] + (memory[pc + 1] << 8);
+                dstAddress = ByteMemory.getWord(memory, pc);
                 adr = "R" + register + "(" + dstAddress + ")";
                 dstAddress = (register == CG1 ? 0 : reg[register]) + dstAddress;
                 pc += 2;
@@ -281,7 +281,7 @@ public class DisAsm implements MSP430Constants {
             case AM_IND_AUTOINC:
                 if (register == 0) {
                     // Can this be PC and be incremented only one byte?
-                    int tmp = memory[pc] + (memory[pc + 1] << 8);
+                    int tmp = ByteMemory.getWord(memory, pc);
                     MapEntry me;
                     if (map != null && (me = map.getEntry(tmp)) != null) {
                         adr = me.getName(); // + " = $" + Utils.hex16(tmp);
@@ -396,7 +396,7 @@ public class DisAsm implements MSP430Constants {
       case AM_INDEX:
         // Indexed if reg != PC & CG1/CG2 - will PC be incremented?
         if (srcRegister == CG1) {
-          srcAddress = memory[pc] + (memory[pc + 1] << 8);
+          srcAddress = ByteMemory.getWord(memory, pc);
 
           MapEntry me;
           if (map != null && (me = map.getEntry(srcAddress)) != null) {
@@ -408,8 +408,8 @@ public class DisAsm implements MSP430Constants {
         } else if (srcRegister == CG2) {
           srcadr = "#1";
         } else {
-          srcAddress = reg[srcRegister] + memory[pc] + (memory[pc + 1] << 8);
-          srcadr = "$" + Utils.hex16(memory[pc] + (memory[pc + 1] << 8)) + "(R" + srcRegister + ")";
+          srcAddress = reg[srcRegister] + ByteMemory.getWord(memory, pc);
+          srcadr = "$" + Utils.hex16(ByteMemory.getWord(memory, pc)) + "(R" + srcRegister + ")";
           size += 2;
         }
         pc += 2;
@@ -430,7 +430,7 @@ public class DisAsm implements MSP430Constants {
         } else if (srcRegister == CG1) {
           srcadr = "#8";
         } else if (srcRegister == PC) {
-          srcadr = "#$" + Utils.hex16(memory[pc] + (memory[pc + 1] << 8));
+          srcadr = "#$" + Utils.hex16(ByteMemory.getWord(memory, pc));
           pc += 2;
           size += 2;
         } else {
@@ -443,7 +443,7 @@ public class DisAsm implements MSP430Constants {
       if (dstRegMode) {
         dstadr = getRegName(dstRegister);
       } else {
-        dstAddress = memory[pc] + (memory[pc + 1] << 8);
+        dstAddress = ByteMemory.getWord(memory, pc);
         MapEntry me = map != null ? map.getEntry(dstAddress) : null;
         if (dstRegister == 2) {
           if (me != null) {
@@ -529,8 +529,8 @@ public class DisAsm implements MSP430Constants {
       srcAddress &= 0xffff;
       if (srcAddress != -1) {
         srcAddress &= 0xffff;
-        regs += " sMem:" + Utils.hex16(memory[srcAddress] +
-                                       (memory[(srcAddress + 1) % 0xffff]
+        regs += " sMem:" + Utils.hex16((memory[srcAddress] & 0xff) +
+                                       ((memory[(srcAddress + 1) % 0xffff] & 0xff)
                                         << 8));
       }
     }
@@ -586,10 +586,10 @@ public class DisAsm implements MSP430Constants {
       (((sr & CARRY) != 0) ? "C" : "-");
   }
 
-  private static String dumpMem(int pc, int size, int[] memory) {
+  private static String dumpMem(int pc, int size, byte[] memory) {
     StringBuilder output = new StringBuilder();
     for (int i = 0; i < size; i++) {
-      output.append(Utils.hex8(memory[pc + i])).append(" ");
+      output.append(Utils.hex8(memory[pc + i] & 0xff)).append(" ");
     }
     return output.toString();
   }
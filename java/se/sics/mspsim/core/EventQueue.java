@@ -114,6 +114,19 @@ class EventQueue {
     return true;
   }
 
+  /**
+   * Returns the time of the first event that is not quiet, or
+   * Long.MAX_VALUE if there are only quiet events.
+   */
+  public long nextWakeupTime() {
+    for (TimeEvent event = first; event != null; event = event.nextEvent) {
+      if (!event.isQuiet()) {
+        return event.time;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
   public TimeEvent popFirst() {
     TimeEvent tmp = first;
     if (tmp != null) {
@@ -105,6 +105,7 @@ public class Flash extends IOUnit {
 
   private final FlashRange main_range;
   private final FlashRange info_range;
+  private final byte[] flashMemory;
 
   private int mode;      /* FCTL1 */
   private int clockcfg;  /* FCTL2 */
@@ -173,9 +174,10 @@ public class Flash extends IOUnit {
     }
   };
 
-  public Flash(MSP430Core cpu, int[] memory, FlashRange main_range,
+  public Flash(MSP430Core cpu, byte[] flashMemory, FlashRange main_range,
       FlashRange info_range, int offset) {
-    super("Flash", "Internal Flash", cpu, memory, offset);
+    super("Flash", "Internal Flash", cpu, cpu.ioMemory, offset);
+    this.flashMemory = flashMemory;
     this.main_range = main_range;
     this.info_range = info_range;
     locked = true;
@@ -270,7 +272,7 @@ public class Flash extends IOUnit {
             Utils.hex(area_end, 4));
       }
       for (int i = area_start; i < area_end; i++) {
-        memory[i] = 0xff;
+        flashMemory[i] = (byte) 0xff;
       }
       waitFlashProcess(SEGMENT_ERASE_TIME);
       break;
@@ -280,17 +282,17 @@ public class Flash extends IOUnit {
         return;
       }
       for (int i = main_range.start; i < main_range.end; i++) {
-        memory[i] = 0xff;
+        flashMemory[i] = (byte) 0xff;
       }
       waitFlashProcess(MASS_ERASE_TIME);
       break;
 
     case ERASE_ALL:
       for (int i = main_range.start; i < main_range.end; i++) {
-        memory[i] = 0xff;
+        flashMemory[i] = (byte) 0xff;
       }
       for (int i = info_range.start; i < main_range.end; i++) {
-        memory[i] = 0xff;
+        flashMemory[i] = (byte) 0xff;
       }
       waitFlashProcess(MASS_ERASE_TIME);
       break;
@@ -315,13 +317,13 @@ public class Flash extends IOUnit {
         wait_time = WRITE_TIME;
       }
       /* Flash memory allows clearing bits only */
-      memory[address] &= data & 0xff;
+      flashMemory[address] &= (byte) data;
       if (dataMode != AccessMode.BYTE) {
-          memory[address + 1] &= (data >> 8) & 0xff;
+          flashMemory[address + 1] &= (byte) (data >> 8);
           if (dataMode == AccessMode.WORD20) {
               /* TODO should the write really write the full word? CHECK THIS */
-              memory[address + 2] &= (data >> 16) & 0xff;
-              memory[address + 3] &= (data >> 24) & 0xff;
+              flashMemory[address + 2] &= (byte) (data >> 16);
+              flashMemory[address + 3] &= (byte) (data >> 24);
           }
       }
       if (DEBUG) {
@@ -52,6 +52,7 @@ public class MSP430 extends MSP430Core {
   private boolean running;
   private boolean isBreaking;
   private double rate = 2.0;
+  private boolean maxSpeed;
 
   // Debug time - measure cycles
   private long lastCycles;
@@ -70,11 +71,19 @@ public class MSP430 extends MSP430Core {
    * Creates a new <code>MSP430</code> instance.
    *
    */
-  public MSP430(MSP430Config config, int[] mem, ELF elf) {
+  public MSP430(MSP430Config config, byte[] mem, ELF elf) {
+    this(config, mem, elf, elf == null ? null : elf.getMap());
+  }
+
+  /**
+   * Creates a new <code>MSP430</code> instance with an already built map
+   * of the ELF, for example shared by CPUs running the same firmware.
+   *
+   */
+  public MSP430(MSP430Config config, byte[] mem, ELF elf, MapTable map) {
     super(config, mem);
     disAsm = new DisAsm();
     if (elf != null) {
-      var map = elf.getMap();
       disAsm.setMap(map);
       setMap(map);
       registry.registerComponent("elf", elf);
@@ -107,35 +116,18 @@ public class MSP430 extends MSP430Core {
   private void run() throws EmulationException {
       while (!isStopping) {
 
-      if (cycles > nextOut && !debug) {
+      if (cycles > nextOut && !debug && !maxSpeed) {
         printCPUSpeed(reg[PC]);
         nextOut = cycles + 20000007;
       }
 
       int pc = emulateOP(-1);
       if (pc >= 0) {
-        if (execCounter != null) {
-          execCounter[pc]++;
-        }
-        if (trace != null) {
-            trace[tracePos++] = pc;
-            if (tracePos >= trace.length)
-                tracePos = 0;
-        }
-        // -------------------------------------------------------------------
-        // Debug information
-        // -------------------------------------------------------------------
-        if (debug) {
-            if (servicedInterrupt >= 0) {
-                disAsm.disassemble(pc, memory, reg, servicedInterrupt);
-            } else {
-                disAsm.disassemble(pc, memory, reg);
-            }
-        }
+        monitorExecution(pc);
       }
 
       /* Just a test to see if it gets down to a reasonable speed */
-      if (cycles > nextSleep) {
+      if (cycles > nextSleep && !maxSpeed) {
         try {
           Thread.sleep(100);
         } catch (Exception e) {
@@ -149,6 +141,57 @@ public class MSP430 extends MSP430Core {
     isStopping = isBreaking = false;
   }
 
+  /**
+   * Executes until the cycle counter reaches maxCycles or the CPU is
+   * stopped. Low power periods are skipped up to the next event, and the
+   * execution is not throttled to the execution rate.
+   *
+   * @param maxCycles Cycle counter value to stop at
+   * @return Number of executed instructions
+   */
+  public long runCycles(long maxCycles) throws EmulationException {
+    if (isRunning()) {
+      throw new IllegalStateException("run not possible when CPU is running");
+    }
+    long instructions = 0;
+    setRunning(true);
+    try {
+      while (cycles < maxCycles && !isStopping) {
+        int pc = emulateOP(maxCycles);
+        if (pc >= 0) {
+          instructions++;
+          monitorExecution(pc);
+        }
+      }
+    } finally {
+      setRunning(false);
+    }
+    isStopping = isBreaking = false;
+    return instructions;
+  }
+
+  private void monitorExecution(int pc) {
+    if (execCounter != null) {
+      execCounter[pc]++;
+    }
+    if (trace != null) {
+      trace[tracePos++] = pc;
+      if (tracePos >= trace.length) {
+        tracePos = 0;
+      }
+    }
+    // -------------------------------------------------------------------
+    // Debug information
+    // -------------------------------------------------------------------
+    if (debug) {
+      if (servicedInterrupt >= 0) {
+        disAsm.disassemble(pc, memory, reg, servicedInterrupt);
+      } else {
+        disAsm.disassemble(pc, memory, reg);
+      }
+    }
+  }
+
   /* Use stepInstructions or stepMicros instead */
   @Deprecated public long step() throws EmulationException {
     return stepMicros(1, 1);
@@ -164,26 +207,7 @@ public class MSP430 extends MSP430Core {
       int pc = emulateOP(-1);
       if (pc >= 0) {
         count--;
-        if (execCounter != null) {
-          execCounter[pc]++;
-        }
-        if (trace != null) {
-          trace[tracePos++] = pc;
-          if (tracePos >= trace.length) {
-            tracePos = 0;
-          }
-        }
-
-        // -------------------------------------------------------------------
-        // Debug information
-        // -------------------------------------------------------------------
-        if (debug) {
-            if (servicedInterrupt >= 0) {
-                disAsm.disassemble(pc, memory, reg, servicedInterrupt);
-            } else {
-                disAsm.disassemble(pc, memory, reg);
-            }
-        }
+        monitorExecution(pc);
       }
     }
     } finally {
@@ -233,7 +257,8 @@ public class MSP430 extends MSP430Core {
     /* check that we did not miss any events (by comparing with last return value) */
     maxCycles = lastMicrosCycles + (lastMicrosDelta * dcoFrq) / 1000000;
     if (cpuOff) {
-      if(maxCycles > nextEventCycles) {
+      /* quiet events on the way are executed below */
+      if(maxCycles > getNextWakeupCycles()) {
         /* back this time again... */
         lastMicrosDelta -= jumpMicros;
         printEventQueues(System.out);
@@ -294,7 +319,8 @@ public class MSP430 extends MSP430Core {
     }
 
     if (cpuOff && !(interruptsEnabled && servicedInterrupt == -1 && interruptMax >= 0)) {
-      lastReturnedMicros = (1000000 * (nextEventCycles - cycles)) / dcoFrq;
+      /* sleep past quiet events to the next event that can wake the CPU */
+      lastReturnedMicros = (1000000 * (getNextWakeupCycles() - cycles)) / dcoFrq;
     } else {
       lastReturnedMicros = 0;
     }
@@ -439,6 +465,20 @@ public class MSP430 extends MSP430Core {
     this.rate = rate;
   }
 
+  public boolean isMaxSpeed() {
+    return maxSpeed;
+  }
+
+  /**
+   * Runs the CPU loop as fast as possible, without throttling to the
+   * execution rate and without measuring the CPU speed.
+   *
+   * @param maxSpeed True to run at maximal speed
+   */
+  public void setMaxSpeed(boolean maxSpeed) {
+    this.maxSpeed = maxSpeed;
+  }
+
   public synchronized void addSimEventListener(SimEventListener l) {
     simEventListeners = ArrayUtils.add(SimEventListener.class, simEventListeners, l);
   }
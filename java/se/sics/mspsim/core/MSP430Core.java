@@ -71,7 +71,10 @@ public class MSP430Core extends Chip implements MSP430Constants {
   private final RegisterMonitor[] regWriteMonitors = new RegisterMonitor[16];
   private final RegisterMonitor[] regReadMonitors = new RegisterMonitor[16];
 
-  public final int[] memory;
+  /** RAM and flash, one byte per address. */
+  public final byte[] memory;
+  /** IO unit registers below MAX_MEM_IO. */
+  public final int[] ioMemory;
   private final Flash flash;
   boolean isFlashBusy;
   boolean isStopping;
@@ -79,6 +82,12 @@ public class MSP430Core extends Chip implements MSP430Constants {
   private final Memory[] memorySegments;
   Memory currentSegment;
 
+  /* Watch points, one table per access kind. An access is a single bit test
+   * unless the address is watched. */
+  private final WatchTable readWatchPoints;
+  private final WatchTable writeWatchPoints;
+  private final WatchTable executeWatchPoints;
+
   public long cycles;
   public long cpuCycles;
   MapTable map;
@@ -131,7 +140,7 @@ public class MSP430Core extends Chip implements MSP430Constants {
   final ComponentRegistry registry;
   Profiler profiler;
 
-  public MSP430Core(MSP430Config config, int[] mem) {
+  public MSP430Core(MSP430Config config, byte[] mem) {
     super("MSP430", "MSP430 Core", null);
     var registry = new ComponentRegistry(
             new ComponentEntry("cpu", this),
@@ -142,7 +151,11 @@ public class MSP430Core extends Chip implements MSP430Constants {
     MSP430XArch = config.MSP430XArch;
 
     memory = mem;
+    ioMemory = new int[MAX_MEM_IO];
     memorySegments = new Memory[MAX_MEM >> 8];
+    readWatchPoints = new WatchTable(MAX_MEM >> 8);
+    writeWatchPoints = new WatchTable(MAX_MEM >> 8);
+    executeWatchPoints = new WatchTable(MAX_MEM >> 8);
 
     flash = new Flash(this, memory,
             new Flash.FlashRange(config.mainFlashStart, config.mainFlashStart + config.mainFlashSize, 512, 64),
@@ -155,6 +168,18 @@ public class MSP430Core extends Chip implements MSP430Constants {
             if (address >= MAX_MEM) {
                 throw new EmulationException("Reading outside memory: 0x" + Utils.hex(address, 4));
             }
+            final WatchTable watchPoints = type == AccessType.EXECUTE ? executeWatchPoints : readWatchPoints;
+            final long[] watched = watchPoints.bits[address >> 8];
+            if (watched != null && (watched[(address >> 6) & 3] & (1L << address)) != 0) {
+                // The watch point may be removed concurrently, read the monitor once.
+                final MemoryMonitor mon = watchPoints.get(address);
+                if (mon != null) {
+                    mon.notifyReadBefore(address, mode, type);
+                    final int val = memorySegments[address >> 8].read(address, mode, type);
+                    mon.notifyReadAfter(address, mode, type);
+                    return val;
+                }
+            }
             return memorySegments[address >> 8].read(address, mode, type);
         }
         @Override
@@ -162,6 +187,16 @@ public class MSP430Core extends Chip implements MSP430Constants {
             if (address >= MAX_MEM) {
                 throw new EmulationException("Writing outside memory: 0x" + Utils.hex(address, 4));
             }
+            final long[] watched = writeWatchPoints.bits[address >> 8];
+            if (watched != null && (watched[(address >> 6) & 3] & (1L << address)) != 0) {
+                final MemoryMonitor mon = writeWatchPoints.get(address);
+                if (mon != null) {
+                    mon.notifyWriteBefore(address, data, mode);
+                    memorySegments[address >> 8].write(address, data, mode);
+                    mon.notifyWriteAfter(address, data, mode);
+                    return;
+                }
+            }
             memorySegments[address >> 8].write(address, data, mode);
         }
         @Override
@@ -180,7 +215,7 @@ public class MSP430Core extends Chip implements MSP430Constants {
         }
     };
     /* this is for detecting writes/read to/from non-existing IO */
-    IOUnit voidIO = new IOUnit("void", this, memory, 0) {
+    IOUnit voidIO = new IOUnit("void", this, ioMemory, 0) {
         @Override
         public void interruptServiced(int vector) {
         }
@@ -237,19 +272,19 @@ public class MSP430Core extends Chip implements MSP430Constants {
     ioSegment.setIORange(config.flashControllerOffset, Flash.SIZE, flash);
 
     /* Setup special function registers */
-    sfr = new SFR(this, memory);
+    sfr = new SFR(this, ioMemory);
     ioSegment.setIORange(config.sfrOffset, 0x10, sfr);
 
     // first step towards making core configurable
     Timer[] timers = new Timer[config.timerConfig.length];
     for (int i = 0; i < config.timerConfig.length; i++) {
-        Timer t = new Timer(this, memory, config.timerConfig[i]);
+        Timer t = new Timer(this, ioMemory, config.timerConfig[i]);
         ioSegment.setIORange(config.timerConfig[i].offset, 0x20, t);
         ioSegment.setIORange(config.timerConfig[i].timerIVAddr, 1, t);
         timers[i] = t;
     }
 
-    bcs = config.createClockSystem(this, memory, timers);
+    bcs = config.createClockSystem(this, ioMemory, timers);
     ioSegment.setIORange(bcs.getAddressRangeMin(), bcs.getAddressRangeMax() - bcs.getAddressRangeMin() + 1, bcs);
 
     // SFR and Basic clock system.
@@ -366,28 +401,109 @@ public class MSP430Core extends Chip implements MSP430Constants {
   }
 
   public boolean hasWatchPoint(int address) {
-      Memory mem = memorySegments[address >> 8];
-      if (mem instanceof WatchedMemory) {
-          return ((WatchedMemory)mem).hasWatchPoint(address);
-      }
-      return false;
+      return readWatchPoints.isWatched(address) || writeWatchPoints.isWatched(address)
+          || executeWatchPoints.isWatched(address);
   }
 
-  public synchronized void addWatchPoint(int address, MemoryMonitor mon) {
-      int seg = address >> 8;
-      WatchedMemory wm;
-      if (memorySegments[seg] instanceof WatchedMemory) {
-          wm = (WatchedMemory) memorySegments[seg];
-      } else {
-          wm = new WatchedMemory(address & 0xfff00, memorySegments[seg]);
-          memorySegments[seg] = wm;
+  /**
+   * Watches reads, writes and instruction fetches at an address.
+   */
+  public void addWatchPoint(int address, MemoryMonitor mon) {
+      addWatchPoint(address, mon, MemoryMonitor.WATCH_ALL);
+  }
+
+  /**
+   * Watches accesses at an address. The monitor is only notified of the
+   * given access kinds, other accesses to the address and accesses to the
+   * rest of the page are not slowed down.
+   *
+   * @param address address to watch
+   * @param mon monitor to notify
+   * @param kinds watched access kinds, a combination of MemoryMonitor.WATCH_READ,
+   *              WATCH_WRITE and WATCH_EXECUTE
+   */
+  public synchronized void addWatchPoint(int address, MemoryMonitor mon, int kinds) {
+      if (address < 0 || address >= MAX_MEM) {
+          throw new IllegalArgumentException("Watch point outside memory: 0x" + Utils.hex(address, 4));
+      }
+      if ((kinds & MemoryMonitor.WATCH_READ) != 0) {
+          readWatchPoints.add(address, mon);
+      }
+      if ((kinds & MemoryMonitor.WATCH_WRITE) != 0) {
+          writeWatchPoints.add(address, mon);
+      }
+      if ((kinds & MemoryMonitor.WATCH_EXECUTE) != 0) {
+          executeWatchPoints.add(address, mon);
       }
-      wm.addWatchPoint(address, mon);
   }
 
   public synchronized void removeWatchPoint(int address, MemoryMonitor mon) {
-      if (memorySegments[address >> 8] instanceof WatchedMemory wm) {
-          wm.removeWatchPoint(address, mon);
+      if (address < 0 || address >= MAX_MEM) {
+          return;
+      }
+      readWatchPoints.remove(address, mon);
+      writeWatchPoints.remove(address, mon);
+      executeWatchPoints.remove(address, mon);
+  }
+
+  /**
+   * Watch points of one access kind. Every page with watch points has a
+   * bitmap with one bit per address and the monitors of the watched
+   * addresses, pages without watch points have neither.
+   * <p>
+   * Watch points are added and removed under the CPU lock while the CPU may
+   * be reading the table. Bits are set after the monitor and cleared before
+   * it, and a reader that still sees a bit gets null from get() once the
+   * monitor is gone.
+   */
+  private static final class WatchTable {
+      final long[][] bits;
+      private final MemoryMonitor[][] monitors;
+
+      WatchTable(int pages) {
+          bits = new long[pages][];
+          monitors = new MemoryMonitor[pages][];
+      }
+
+      boolean isWatched(int address) {
+          final long[] watched = bits[address >> 8];
+          return watched != null && (watched[(address >> 6) & 3] & (1L << address)) != 0;
+      }
+
+      /** Returns the monitor of an address, or null if it has none. */
+      MemoryMonitor get(int address) {
+          final MemoryMonitor[] pageMonitors = monitors[address >> 8];
+          return pageMonitors == null ? null : pageMonitors[address & 0xff];
+      }
+
+      void add(int address, MemoryMonitor mon) {
+          final int page = address >> 8;
+          if (monitors[page] == null) {
+              monitors[page] = new MemoryMonitor[Memory.SEGMENT_SIZE];
+              bits[page] = new long[Memory.SEGMENT_SIZE / 64];
+          }
+          monitors[page][address & 0xff] = MemoryMonitor.Proxy.INSTANCE.add(monitors[page][address & 0xff], mon);
+          bits[page][(address >> 6) & 3] |= 1L << address;
+      }
+
+      void remove(int address, MemoryMonitor mon) {
+          final int page = address >> 8;
+          final MemoryMonitor[] pageMonitors = monitors[page];
+          if (pageMonitors == null || pageMonitors[address & 0xff] == null) {
+              return;
+          }
+          final MemoryMonitor remaining = MemoryMonitor.Proxy.INSTANCE.remove(pageMonitors[address & 0xff], mon);
+          if (remaining != null) {
+              pageMonitors[address & 0xff] = remaining;
+              return;
+          }
+          final long[] watched = bits[page];
+          watched[(address >> 6) & 3] &= ~(1L << address);
+          pageMonitors[address & 0xff] = null;
+          if ((watched[0] | watched[1] | watched[2] | watched[3]) == 0) {
+              bits[page] = null;
+              monitors[page] = null;
+          }
       }
   }
 
@@ -616,6 +732,20 @@ public class MSP430Core extends Chip implements MSP430Constants {
     nextEventCycles = Math.min(nextCycleEventCycles, nextVTimeEventCycles);
   }
 
+  /**
+   * Returns the cycle of the next event that can wake up the CPU. Quiet
+   * events before it are executed when the emulation passes them. If there
+   * are only quiet events, this is the cycle of the next event.
+   */
+  public long getNextWakeupCycles() {
+    long next = cycleEventQueue.nextWakeupTime();
+    long vTime = vTimeEventQueue.nextWakeupTime();
+    if (vTime != Long.MAX_VALUE) {
+      next = Math.min(next, convertVTime(vTime));
+    }
+    return next == Long.MAX_VALUE ? nextEventCycles : next;
+  }
+
   /**
    * Schedules a new Time event using the cycles counter
    * @param event
@@ -2126,6 +2256,14 @@ public class MSP430Core extends Chip implements MSP430Constants {
       return currentSegment;
   }
 
+  /**
+   * Returns the number of bytes used by the memory arrays of the CPU,
+   * not counting the state of the IO units.
+   */
+  public long getMemoryFootprint() {
+      return memory.length + 4L * ioMemory.length + 4L * memorySegments.length;
+  }
+
   public int getPC() {
     return reg[PC];
   }
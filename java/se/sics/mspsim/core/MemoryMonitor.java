@@ -40,6 +40,12 @@ import se.sics.mspsim.util.ProxySupport;
 
 public interface MemoryMonitor {
 
+  /** Access kinds watched by {@link MSP430Core#addWatchPoint(int, MemoryMonitor, int)}. */
+  int WATCH_READ = 1;
+  int WATCH_WRITE = 2;
+  int WATCH_EXECUTE = 4;
+  int WATCH_ALL = WATCH_READ | WATCH_WRITE | WATCH_EXECUTE;
+
   void notifyReadBefore(int addr, Memory.AccessMode mode, Memory.AccessType type);
   void notifyReadAfter(int addr, Memory.AccessMode mode, Memory.AccessType type);
 
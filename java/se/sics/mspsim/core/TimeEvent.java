@@ -77,6 +77,16 @@ public abstract class TimeEvent {
 
   public abstract void execute(long t);
 
+  /**
+   * Returns true if executing this event can neither flag an interrupt nor
+   * affect anything outside of the MCU. While the CPU is off, quiet events
+   * do not need a wakeup of their own and are executed when the CPU catches
+   * up with the next event that can wake it.
+   */
+  public boolean isQuiet() {
+    return false;
+  }
+
   public String getShort() {
     return time + ": " + (name != null ? name : this.getClass().getName());
   }
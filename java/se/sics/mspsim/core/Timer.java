@@ -281,6 +281,12 @@ public class Timer extends IOUnit {
           }
       }
 
+      @Override
+      public boolean isQuiet() {
+          /* can only flag an interrupt when enabled */
+          return mode == STOP || (tcctl & CC_IE) == 0;
+      }
+
       /* this method only takes care of the interrupt triggering! */
       void triggerInterrupt(long cycles) {
           /* trigger if trigger should be... */
@@ -400,6 +406,11 @@ public class Timer extends IOUnit {
               cpu.flagInterrupt(ccr1Vector, Timer.this, true);
           }
       }
+
+      @Override
+      public boolean isQuiet() {
+          return !interruptEnable;
+      }
   };
 
   private int lastTIV;
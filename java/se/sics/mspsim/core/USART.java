@@ -37,6 +37,7 @@
 
 package se.sics.mspsim.core;
 
+import java.util.Arrays;
 import se.sics.mspsim.core.EmulationLogger.WarningType;
 
 public class USART extends IOUnit implements SFRModule, DMATrigger, USARTSource {
@@ -96,6 +97,17 @@ public class USART extends IOUnit implements SFRModule, DMATrigger, USARTSource
   private int nextRXByte = -1;
   private boolean receiving;
 
+  /* Burst transmission, see transmitBurst() */
+  private static final int BURST_IDLE = 0;
+  private static final int BURST_LAST_BYTE = 1;
+  private static final int BURST_SHIFTING = 2;
+  private int burstPhase = BURST_IDLE;
+  private boolean bursting;
+  private int[] burstRx = new int[128];
+  private int burstRxLen;
+  private int burstRxByte = -1;
+  private boolean burstRxConsumed;
+
   private final SFR sfr;
 
   private int uctl;
@@ -170,6 +182,8 @@ public class USART extends IOUnit implements SFRModule, DMATrigger, USARTSource
     nextTXReady = cpu.cycles + 100;
     txShiftReg = nextTXByte = -1;
     transmitting = false;
+    burstPhase = BURST_IDLE;
+    burstRxByte = -1;
     clrBitIFG(urxifg);
     setBitIFG(utxifg); /* empty at start! */
     utctl |= UTCTL_TXEMPTY;
@@ -374,6 +388,29 @@ public class USART extends IOUnit implements SFRModule, DMATrigger, USARTSource
       logw(WarningType.EXECUTION, "Warning: USART transmission during LPM!!! " + nextTXByte);
     }
 
+    if (burstPhase == BURST_LAST_BYTE) {
+      /* the last byte of a burst has been moved to the shift register */
+      burstPhase = BURST_SHIFTING;
+      setBitIFG(utxifg);
+      nextTXReady = cycles + tickPerByte + 1;
+      cpu.scheduleCycleEvent(txTrigger, nextTXReady);
+      return;
+    }
+    if (burstPhase == BURST_SHIFTING) {
+      /* the last byte of a burst has been shifted out - the listener already
+       * got it, only the byte shifted in remains to be received */
+      burstPhase = BURST_IDLE;
+      if (burstRxByte != -1) {
+        if (burstRxConsumed) {
+          urxbuf = burstRxByte;
+          stateChanged(USARTListener.RXFLAG_CLEARED, true);
+        } else {
+          byteReceived(burstRxByte);
+        }
+        burstRxByte = -1;
+      }
+    }
+
     if (transmitting) {
         /* in this case we have shifted out the last character */
         USARTListener listener = this.usartListener;
@@ -394,10 +431,12 @@ public class USART extends IOUnit implements SFRModule, DMATrigger, USARTSource
         txShiftReg = nextTXByte;
         nextTXByte = -1;
         transmitting = true;
+        nextTXReady = cycles + tickPerByte + 1;
         /* txbuf always empty after this */
         setBitIFG(utxifg);
-        nextTXReady = cycles + tickPerByte + 1;
-        cpu.scheduleCycleEvent(txTrigger, nextTXReady);
+        if (burstPhase == BURST_IDLE) {
+            cpu.scheduleCycleEvent(txTrigger, nextTXReady);
+        }
     }
 
     if (DEBUG) {
@@ -409,6 +448,76 @@ public class USART extends IOUnit implements SFRModule, DMATrigger, USARTSource
   }
 
 
+  public int getTXBufferAddress() {
+    return offset + UTXBUF;
+  }
+
+  public int getRXBufferAddress() {
+    return offset + URXBUF;
+  }
+
+  /**
+   * Returns true if the transmit buffer is empty and a sequence of bytes
+   * can be shifted out in SPI mode using transmitBurst().
+   */
+  public boolean canTransmitBurst() {
+    return spiMode && (txEnabled || rxEnabled) && nextTXByte == -1
+        && burstPhase == BURST_IDLE && usartListener != null;
+  }
+
+  /**
+   * Shifts out a sequence of bytes in SPI mode as if each byte was written to
+   * UTXBUF as soon as UTXIFG got set, which is what a DMA single transfer
+   * triggered by UTXIFG does. The listener gets all bytes at once and only
+   * two events are scheduled for the whole burst. UTXIFG, TXEMPTY, URXIFG and
+   * URXBUF change at the same cycles as when transmitting byte by byte,
+   * except that URXBUF skips the values that the DMA or firmware could only
+   * have read by racing the transfer. The bytes shifted in are first offered
+   * to the DMA channel triggered by URXIFG.
+   *
+   * @param data the bytes to transmit
+   * @param length number of bytes to transmit
+   * @return the cycle at which the last byte would have been written to UTXBUF
+   */
+  public long transmitBurst(int[] data, int length) {
+    long now = cpu.cycles;
+    long period = tickPerByte + 1;
+    int shifting = transmitting ? txShiftReg : -1;
+    /* cycle at which the first byte shifted out during the burst is done */
+    long firstDone = transmitting ? nextTXReady : now + 1 + period;
+    long lastDone = firstDone + (length - (shifting == -1 ? 1 : 0)) * period;
+
+    USARTListener listener = this.usartListener;
+    bursting = true;
+    burstRxLen = 0;
+    if (shifting != -1) {
+      listener.dataReceived(this, shifting);
+    }
+    listener.dataReceived(this, data, 0, length);
+    bursting = false;
+
+    txShiftReg = -1;
+    transmitting = true;
+    clrBitIFG(utxifg);
+    utctl &= ~UTCTL_TXEMPTY;
+    burstPhase = BURST_LAST_BYTE;
+    nextTXReady = lastDone - period;
+    cpu.scheduleCycleEvent(txTrigger, nextTXReady);
+
+    int consumed = burstRxLen > 0 && dma != null ?
+        dma.receiveBurst(this, getRXBufferAddress(), burstRx, burstRxLen, firstDone + 1, period) : 0;
+    if (burstRxLen - consumed > 1 && !receiving) {
+      /* URXIFG is set when the first of the remaining bytes arrives */
+      nextRXByte = burstRx[consumed];
+      receiving = true;
+      cpu.scheduleCycleEvent(rxTrigger, firstDone + consumed * period + 1);
+    }
+    burstRxConsumed = consumed == burstRxLen;
+    burstRxByte = burstRxLen > 0 ? burstRx[burstRxLen - 1] : -1;
+
+    return length > 1 ? lastDone - 2 * period : now;
+  }
+
   @Override
   public boolean isReceiveFlagCleared() {
     return !receiving && (getIFG() & urxifg) == 0;
@@ -423,6 +532,13 @@ public class USART extends IOUnit implements SFRModule, DMATrigger, USARTSource
     if (DEBUG) {
       log(" byteReceived: " + b + " " + (b > 32 ? (char)b : '.'));
     }
+    if (bursting) {
+      if (burstRxLen == burstRx.length) {
+        burstRx = Arrays.copyOf(burstRx, burstRx.length * 2);
+      }
+      burstRx[burstRxLen++] = b & 0xff;
+      return;
+    }
     nextRXByte = b & 0xff;
     if (!receiving) {
       receiving = true;
@@ -43,6 +43,17 @@ public interface USARTListener {
     int RXFLAG_CLEARED = 1;
     void dataReceived(USARTSource source, int data);
 
+    /**
+     * Receives a sequence of bytes shifted out back-to-back, as when a DMA
+     * channel feeds the transmit buffer. Listeners that can handle several
+     * bytes at once, such as radio FIFO writes, override this method.
+     */
+    default void dataReceived(USARTSource source, int[] data, int offset, int length) {
+        for (int i = offset, n = offset + length; i < n; i++) {
+            dataReceived(source, data[i]);
+        }
+    }
+
     class Proxy extends ProxySupport<USARTListener> implements USARTListener {
         public static final Proxy INSTANCE = new Proxy();
 
@@ -54,6 +65,14 @@ public interface USARTListener {
             }
         }
 
+        @Override
+        public void dataReceived(USARTSource source, int[] data, int offset, int length) {
+            USARTListener[] listeners = this.listeners;
+            for(USARTListener listener : listeners) {
+                listener.dataReceived(source, data, offset, length);
+            }
+        }
+
     }
 
 }
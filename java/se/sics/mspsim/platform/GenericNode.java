@@ -81,7 +81,7 @@ public abstract class GenericNode extends Chip implements Runnable {
 
   public static MSP430 makeCPU(MSP430Config config, String firmwareFile) throws IOException {
     ELF elf = null;
-    int[] memory;
+    byte[] memory;
     if (firmwareFile.endsWith("ihex")) { // IHEX Reading.
       memory = IHexReader.readFile(firmwareFile, config.maxMem);
     } else {
@@ -107,6 +107,10 @@ public abstract class GenericNode extends Chip implements Runnable {
     return cpu;
   }
 
+  public OperatingModeStatistics getStatistics() {
+    return stats;
+  }
+
   public abstract void setupNode();
 
   public void setCommandHandler(CommandHandler handler) {
@@ -69,6 +69,15 @@ public class SkyNode extends MoteIVNode<M25P80> {
     }
   }
 
+  @Override
+  public void dataReceived(USARTSource source, int[] data, int offset, int length) {
+    if (radio.getChipSelect() && !flash.getChipSelect()) {
+      radio.dataReceived(source, data, offset, length);
+    } else {
+      super.dataReceived(source, data, offset, length);
+    }
+  }
+
   @Override
   protected void flashWrite(IOPort source, int data) {
     flash.portWrite(source, data);
@@ -105,7 +105,7 @@ public class ContikiChecker implements CallListener, ActiveComponent {
                         }
                     };
                     for (int i = 0; i < 0x100; i++) {
-                        cpu.addWatchPoint(i, monitor);
+                        cpu.addWatchPoint(i, monitor, MemoryMonitor.WATCH_WRITE);
                     }
                     return 0;
                 }
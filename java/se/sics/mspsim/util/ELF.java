@@ -41,6 +41,7 @@ import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import se.sics.mspsim.debug.DwarfReader;
 import se.sics.mspsim.debug.StabDebug;
 
@@ -280,8 +281,8 @@ public class ELF {
     }
   }
 
-  public int[] loadPrograms(int size) {
-    var memory = new int[size];
+  public byte[] loadPrograms(int size) {
+    var memory = new byte[size];
     for (int i = 0, n = phnum; i < n; i++) {
       // paddr or vaddr???
       loadBytes(memory, programs[i].offset, programs[i].paddr,
@@ -290,23 +291,20 @@ public class ELF {
     return memory;
   }
 
-  private void loadBytes(int[] memory, int offset, int addr, int len,
+  private void loadBytes(byte[] memory, int offset, int addr, int len,
                          int fill) {
     if (DEBUG) {
       System.out.println("Loading " + len + " bytes into " +
              Integer.toString(addr, 16) + " fill " + fill);
     }
-    for (int i = 0; i < len; i++) {
-      memory[addr++] = elfData[offset++] & 0xff;
-    }
+    System.arraycopy(elfData, offset, memory, addr, len);
+    addr += len;
     if (fill > len) {
       int n = fill - len;
       if (n + addr > memory.length) {
         n = memory.length - addr;
       }
-      for (int i = 0; i < n; i++) {
-        memory[addr++] = 0;
-      }
+      Arrays.fill(memory, addr, addr + n, (byte) 0);
     }
   }
 
@@ -0,0 +1,817 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * GDBServer
+ *
+ * Selector based GDB remote protocol server for several CPUs.
+ */
+package se.sics.mspsim.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.mspsim.core.MSP430Core;
+import se.sics.mspsim.core.Memory;
+import se.sics.mspsim.core.MemoryMonitor;
+
+/**
+ * GDB remote protocol server that exposes several CPUs through one listen
+ * port. Every CPU is a target with a positive process id, reported as a
+ * separate inferior to clients that support the multiprocess extensions and
+ * as a separate thread to clients that do not.
+ * <p>
+ * All connections are served by one selector thread. Packets are executed by
+ * the host, e.g. on the simulation thread, so targets are only accessed
+ * between emulation steps. Memory is read and written in bulk from the CPU
+ * memory array. Breakpoints and watchpoints only stop the emulation when
+ * their own target hits them.
+ * <p>
+ * Except for {@link #close()}, the methods of the server must be called by
+ * the host thread.
+ */
+public final class GDBServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(GDBServer.class);
+
+    /** Emulation that runs the targets. */
+    public interface Host {
+        /** Runs a task on the thread that runs the emulation. */
+        void invoke(Runnable task);
+        /** Resumes the emulation. */
+        void resume();
+        boolean isRunning();
+    }
+
+    /** An emulated CPU served by the server. */
+    public interface Target {
+        MSP430Core getCPU();
+        String getName();
+        /** Stops the emulation at the next instruction of this target. */
+        void stopNextInstruction();
+    }
+
+    private static final int PACKET_SIZE = 0x4000;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int SIGINT = 2;
+    private static final int SIGTRAP = 5;
+
+    private final Host host;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /* Accessed by the host thread only. */
+    private final TreeMap<Integer, Target> targets = new TreeMap<>();
+    private final ArrayList<Connection> connections = new ArrayList<>();
+    private Target stopTarget;
+    private String stopInfo = "";
+
+    /**
+     * Opens the listen port and starts serving connections.
+     *
+     * @param port TCP port, or 0 for any free port
+     * @param host emulation that runs the targets
+     */
+    public GDBServer(int port, Host host) throws IOException {
+        this.host = host;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        thread = new Thread(this::serve, "GDBServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void addTarget(int pid, Target target) {
+        if (pid <= 0) {
+            throw new IllegalArgumentException("Process id must be positive: " + pid);
+        }
+        targets.put(pid, target);
+    }
+
+    public void removeTarget(int pid) {
+        Target target = targets.remove(pid);
+        if (target == null) {
+            return;
+        }
+        for (Connection c : connections) {
+            c.removeWatches(target);
+            if (c.stepTarget == target) {
+                c.stopStepping();
+            }
+        }
+        if (stopTarget == target) {
+            stopTarget = null;
+        }
+    }
+
+    /**
+     * Reports that the emulation has stopped. Clients waiting for a target
+     * to stop get the stop reason.
+     */
+    public void stopped() {
+        Target target = stopTarget;
+        String info = stopInfo;
+        stopTarget = null;
+        stopInfo = "";
+        for (Connection c : connections) {
+            c.stopStepping();
+            if (c.waiting) {
+                c.waiting = false;
+                int pid = target == null ? c.generalPid : pidOf(target);
+                c.sendStopReply(target == null ? SIGINT : SIGTRAP, info, pid);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        host.invoke(() -> {
+            for (Connection c : connections) {
+                c.release();
+            }
+            connections.clear();
+        });
+    }
+
+    private int pidOf(Target target) {
+        for (Map.Entry<Integer, Target> e : targets.entrySet()) {
+            if (e.getValue() == target) {
+                return e.getKey();
+            }
+        }
+        return 0;
+    }
+
+    private void serve() {
+        try {
+            while (!closed) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        SocketChannel channel = serverChannel.accept();
+                        if (channel != null) {
+                            channel.configureBlocking(false);
+                            Connection c = new Connection(channel);
+                            channel.register(selector, SelectionKey.OP_READ, c);
+                            host.invoke(() -> connections.add(c));
+                        }
+                        continue;
+                    }
+                    Connection c = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            c.read();
+                        }
+                    } catch (IOException e) {
+                        c.closeChannel();
+                        key.cancel();
+                    }
+                }
+                selector.selectedKeys().clear();
+                for (SelectionKey key : selector.keys()) {
+                    if (key.isValid() && key.attachment() instanceof Connection c) {
+                        try {
+                            key.interestOps(c.flush() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        } catch (IOException e) {
+                            c.closeChannel();
+                            key.cancel();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("GDB server stopped", e);
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            // Ignore.
+        }
+    }
+
+    /** A breakpoint or watchpoint set by a client. */
+    private final class Watch extends MemoryMonitor.Adapter {
+        final Target target;
+        final int type;
+        final int address;
+        final int length;
+        private long lastCycles = -1;
+
+        Watch(Target target, int type, int address, int length) {
+            this.target = target;
+            this.type = type;
+            this.address = address;
+            this.length = length;
+        }
+
+        int kinds() {
+            return switch (type) {
+                case 0, 1 -> MemoryMonitor.WATCH_EXECUTE;
+                case 2 -> MemoryMonitor.WATCH_WRITE;
+                case 3 -> MemoryMonitor.WATCH_READ;
+                default -> MemoryMonitor.WATCH_READ | MemoryMonitor.WATCH_WRITE;
+            };
+        }
+
+        void install() {
+            for (int i = 0; i < length; i++) {
+                target.getCPU().addWatchPoint(address + i, this, kinds());
+            }
+        }
+
+        void uninstall() {
+            for (int i = 0; i < length; i++) {
+                target.getCPU().removeWatchPoint(address + i, this);
+            }
+        }
+
+        @Override
+        public void notifyReadBefore(int addr, Memory.AccessMode mode, Memory.AccessType accessType) {
+            hit(addr);
+        }
+
+        @Override
+        public void notifyWriteBefore(int addr, int data, Memory.AccessMode mode) {
+            hit(addr);
+        }
+
+        private void hit(int addr) {
+            long cycles = target.getCPU().cycles;
+            if (cycles == lastCycles || !host.isRunning()) {
+                return;
+            }
+            lastCycles = cycles;
+            stopTarget = target;
+            stopInfo = switch (type) {
+                case 0, 1 -> "swbreak:;";
+                case 2 -> "watch:" + Integer.toHexString(addr) + ';';
+                case 3 -> "rwatch:" + Integer.toHexString(addr) + ';';
+                default -> "awatch:" + Integer.toHexString(addr) + ';';
+            };
+            target.stopNextInstruction();
+        }
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(8192);
+        private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+
+        /* Packet parser state, selector thread only. */
+        private final ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        private int state;
+        private boolean escape;
+        private int sum;
+        private int checksum;
+
+        /* Host thread only. */
+        private final ArrayList<Watch> watches = new ArrayList<>();
+        private boolean multiprocess;
+        private boolean noAck;
+        private boolean waiting;
+        private int generalPid;
+        private int continuePid = -1;
+        private Target stepTarget;
+        private MemoryMonitor stepMonitor;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /* Selector thread. */
+
+        void read() throws IOException {
+            in.clear();
+            int n = channel.read(in);
+            if (n < 0) {
+                throw new IOException("closed");
+            }
+            byte[] data = in.array();
+            for (int i = 0; i < n; i++) {
+                int b = data[i] & 0xff;
+                switch (state) {
+                    case 0 -> {
+                        if (b == '$') {
+                            packet.reset();
+                            escape = false;
+                            sum = 0;
+                            state = 1;
+                        } else if (b == 0x03) {
+                            host.invoke(this::interrupt);
+                        }
+                    }
+                    case 1 -> {
+                        if (b != '#') {
+                            sum += b;
+                        }
+                        if (escape) {
+                            packet.write(b ^ 0x20);
+                            escape = false;
+                        } else if (b == '}') {
+                            escape = true;
+                        } else if (b == '#') {
+                            state = 2;
+                        } else {
+                            packet.write(b);
+                        }
+                    }
+                    case 2 -> {
+                        checksum = Character.digit(b, 16) << 4;
+                        state = 3;
+                    }
+                    default -> {
+                        state = 0;
+                        checksum |= Character.digit(b, 16);
+                        if (checksum == (sum & 0xff)) {
+                            byte[] p = packet.toByteArray();
+                            host.invoke(() -> handle(p));
+                        } else {
+                            host.invoke(this::reject);
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Writes queued output, returns true when all output was written. */
+        boolean flush() throws IOException {
+            synchronized (out) {
+                while (!out.isEmpty()) {
+                    ByteBuffer buf = out.peek();
+                    channel.write(buf);
+                    if (buf.hasRemaining()) {
+                        return false;
+                    }
+                    out.poll();
+                }
+            }
+            return true;
+        }
+
+        void closeChannel() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+            host.invoke(() -> {
+                release();
+                connections.remove(this);
+            });
+        }
+
+        /* Host thread. */
+
+        void release() {
+            for (Watch w : watches) {
+                w.uninstall();
+            }
+            watches.clear();
+            stopStepping();
+        }
+
+        void removeWatches(Target target) {
+            watches.removeIf(w -> {
+                if (w.target == target) {
+                    w.uninstall();
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        void stopStepping() {
+            if (stepMonitor != null) {
+                stepTarget.getCPU().removeGlobalMonitor(stepMonitor);
+                stepMonitor = null;
+                stepTarget = null;
+            }
+        }
+
+        private void send(ByteBuffer buf) {
+            synchronized (out) {
+                out.add(buf);
+            }
+            selector.wakeup();
+        }
+
+        /** Sends a packet with the given payload. */
+        void sendPacket(byte[] payload, int length) {
+            byte[] p = new byte[length + 4];
+            int i = 0;
+            p[i++] = '$';
+            int sum = 0;
+            for (int j = 0; j < length; j++) {
+                sum += payload[j];
+                p[i++] = payload[j];
+            }
+            p[i++] = '#';
+            p[i++] = HEX[(sum >> 4) & 0xf];
+            p[i++] = HEX[sum & 0xf];
+            send(ByteBuffer.wrap(p, 0, i));
+        }
+
+        void sendPacket(String payload) {
+            byte[] p = payload.getBytes(StandardCharsets.US_ASCII);
+            sendPacket(p, p.length);
+        }
+
+        void sendStopReply(int signal, String info, int pid) {
+            sendPacket("T" + hex2(signal) + info + (pid > 0 ? "thread:" + threadId(pid) + ';' : ""));
+        }
+
+        private String threadId(int pid) {
+            return multiprocess ? "p" + Integer.toHexString(pid) + ".1" : Integer.toHexString(pid);
+        }
+
+        /** Parses a thread id, returns the process id, 0 for any or -1 for all. */
+        private int parseThreadId(String id) {
+            if (id.startsWith("p")) {
+                int dot = id.indexOf('.');
+                id = id.substring(1, dot < 0 ? id.length() : dot);
+            }
+            return id.equals("-1") ? -1 : Integer.parseInt(id, 16);
+        }
+
+        private Target target(int pid) {
+            if (pid <= 0) {
+                return targets.isEmpty() ? null : targets.firstEntry().getValue();
+            }
+            return targets.get(pid);
+        }
+
+        private void interrupt() {
+            Target target = target(continuePid > 0 ? continuePid : generalPid);
+            if (target != null && host.isRunning()) {
+                target.stopNextInstruction();
+            } else if (waiting) {
+                waiting = false;
+                sendStopReply(SIGINT, "", target == null ? 0 : pidOf(target));
+            }
+        }
+
+        /** Asks the client to resend a packet with a bad checksum. */
+        private void reject() {
+            if (noAck) {
+                logger.warn("Dropped GDB packet with bad checksum");
+            } else {
+                send(ByteBuffer.wrap(new byte[] {'-'}));
+            }
+        }
+
+        private void handle(byte[] p) {
+            if (!noAck) {
+                send(ByteBuffer.wrap(new byte[] {'+'}));
+            }
+            if (p.length == 0) {
+                sendPacket("");
+                return;
+            }
+            try {
+                handleCommand(p);
+            } catch (RuntimeException e) {
+                sendPacket("E01");
+            }
+        }
+
+        private void handleCommand(byte[] p) {
+            String cmd = binaryPacket(p) ? "X" : new String(p, StandardCharsets.ISO_8859_1);
+            Target target = target(generalPid);
+            switch (p[0]) {
+                case '!', 'k' -> sendPacket("OK");
+                case '?' -> sendStopReply(SIGTRAP, "", target == null ? 0 : pidOf(target));
+                case 'H' -> {
+                    int pid = parseThreadId(cmd.substring(2));
+                    if (pid > 0 && !targets.containsKey(pid)) {
+                        sendPacket("E01");
+                    } else {
+                        if (cmd.charAt(1) == 'g') {
+                            generalPid = Math.max(pid, 0);
+                        } else {
+                            continuePid = pid;
+                        }
+                        sendPacket("OK");
+                    }
+                }
+                case 'T' -> sendPacket(targets.containsKey(parseThreadId(cmd.substring(1))) ? "OK" : "E01");
+                case 'D' -> {
+                    int semi = cmd.indexOf(';');
+                    Target t = semi < 0 ? null : target(parseThreadId("p" + cmd.substring(semi + 1)));
+                    if (t == null) {
+                        release();
+                    } else {
+                        removeWatches(t);
+                    }
+                    sendPacket("OK");
+                }
+                case 'q' -> handleQuery(cmd);
+                case 'Q' -> {
+                    if (cmd.equals("QStartNoAckMode")) {
+                        sendPacket("OK");
+                        noAck = true;
+                    } else {
+                        sendPacket("");
+                    }
+                }
+                case 'v' -> handleV(cmd);
+                case 'g' -> {
+                    if (target == null) {
+                        sendPacket("E01");
+                        return;
+                    }
+                    byte[] regs = new byte[64];
+                    for (int i = 0; i < 16; i++) {
+                        int r = target.getCPU().reg[i];
+                        putHex(regs, i * 4, r & 0xff);
+                        putHex(regs, i * 4 + 2, (r >> 8) & 0xff);
+                    }
+                    sendPacket(regs, regs.length);
+                }
+                case 'G' -> {
+                    for (int i = 0; i < 16 && target != null && 1 + i * 4 + 4 <= p.length; i++) {
+                        target.getCPU().writeRegister(i, getHex(p, 1 + i * 4) | (getHex(p, 3 + i * 4) << 8));
+                    }
+                    sendPacket(target == null ? "E01" : "OK");
+                }
+                case 'p' -> {
+                    int r = Integer.parseInt(cmd.substring(1), 16);
+                    if (target == null || r >= 16) {
+                        sendPacket("E01");
+                        return;
+                    }
+                    int v = target.getCPU().reg[r];
+                    sendPacket(hex2(v & 0xff) + hex2((v >> 8) & 0xff));
+                }
+                case 'P' -> {
+                    int eq = cmd.indexOf('=');
+                    int r = Integer.parseInt(cmd.substring(1, eq), 16);
+                    if (target == null || r >= 16) {
+                        sendPacket("E01");
+                        return;
+                    }
+                    target.getCPU().writeRegister(r, getHex(p, eq + 1) | (getHex(p, eq + 3) << 8));
+                    sendPacket("OK");
+                }
+                case 'm' -> readMemory(target, cmd);
+                case 'M', 'X' -> writeMemory(target, p);
+                case 'Z', 'z' -> {
+                    String[] parts = cmd.substring(1).split("[,;]");
+                    int type = Integer.parseInt(parts[0]);
+                    int address = Integer.parseInt(parts[1], 16);
+                    int length = type < 2 ? 1 : Math.max(1, Integer.parseInt(parts[2], 16));
+                    if (target == null || type > 4 || address < 0 || address + length > target.getCPU().MAX_MEM) {
+                        sendPacket("E01");
+                    } else if (p[0] == 'Z') {
+                        Watch w = new Watch(target, type, address, length);
+                        w.install();
+                        watches.add(w);
+                        sendPacket("OK");
+                    } else {
+                        for (Watch w : watches) {
+                            if (w.target == target && w.type == type && w.address == address) {
+                                w.uninstall();
+                                watches.remove(w);
+                                break;
+                            }
+                        }
+                        sendPacket("OK");
+                    }
+                }
+                case 'c', 'C' -> resume();
+                case 's', 'S' -> step(target(continuePid > 0 ? continuePid : generalPid));
+                default -> sendPacket("");
+            }
+        }
+
+        private boolean binaryPacket(byte[] p) {
+            return p[0] == 'X';
+        }
+
+        private void handleQuery(String cmd) {
+            if (cmd.startsWith("qSupported")) {
+                multiprocess = cmd.contains("multiprocess+");
+                sendPacket("PacketSize=" + Integer.toHexString(PACKET_SIZE) + ";QStartNoAckMode+;swbreak+"
+                        + (multiprocess ? ";multiprocess+" : ""));
+            } else if (cmd.equals("qC")) {
+                Target target = target(generalPid);
+                sendPacket(target == null ? "" : "QC" + threadId(pidOf(target)));
+            } else if (cmd.equals("qfThreadInfo")) {
+                StringBuilder sb = new StringBuilder("m");
+                for (int pid : targets.keySet()) {
+                    if (sb.length() > 1) {
+                        sb.append(',');
+                    }
+                    sb.append(threadId(pid));
+                }
+                sendPacket(sb.length() > 1 ? sb.toString() : "l");
+            } else if (cmd.equals("qsThreadInfo")) {
+                sendPacket("l");
+            } else if (cmd.startsWith("qThreadExtraInfo,")) {
+                Target target = targets.get(parseThreadId(cmd.substring(17)));
+                byte[] name = (target == null ? "" : target.getName()).getBytes(StandardCharsets.UTF_8);
+                byte[] reply = new byte[name.length * 2];
+                for (int i = 0; i < name.length; i++) {
+                    putHex(reply, i * 2, name[i] & 0xff);
+                }
+                sendPacket(reply, reply.length);
+            } else if (cmd.startsWith("qAttached")) {
+                sendPacket("1");
+            } else if (cmd.equals("qOffsets")) {
+                sendPacket("Text=0;Data=0;Bss=0");
+            } else if (cmd.startsWith("qSymbol")) {
+                sendPacket("OK");
+            } else {
+                sendPacket("");
+            }
+        }
+
+        private void handleV(String cmd) {
+            if (cmd.startsWith("vAttach;")) {
+                int pid = Integer.parseInt(cmd.substring(8), 16);
+                if (!targets.containsKey(pid)) {
+                    sendPacket("E01");
+                    return;
+                }
+                generalPid = pid;
+                sendStopReply(0, "", pid);
+            } else if (cmd.startsWith("vKill;")) {
+                sendPacket("OK");
+            } else if (cmd.equals("vCont?")) {
+                sendPacket("vCont;c;C;s;S");
+            } else if (cmd.startsWith("vCont;")) {
+                String action = cmd.substring(6);
+                int colon = action.indexOf(':');
+                int pid = colon < 0 ? continuePid : parseThreadId(action.substring(colon + 1));
+                if (action.startsWith("s") || action.startsWith("S")) {
+                    step(target(pid));
+                } else {
+                    resume();
+                }
+            } else {
+                sendPacket("");
+            }
+        }
+
+        private void resume() {
+            waiting = true;
+            if (!host.isRunning()) {
+                host.resume();
+            }
+        }
+
+        private void step(Target target) {
+            if (target == null) {
+                sendPacket("E01");
+                return;
+            }
+            stopStepping();
+            stepTarget = target;
+            stepMonitor = new MemoryMonitor.Adapter() {
+                private int fetches;
+
+                @Override
+                public void notifyReadBefore(int address, Memory.AccessMode mode, Memory.AccessType type) {
+                    // The first fetch is the current instruction, stop at the next.
+                    if (type == Memory.AccessType.EXECUTE && ++fetches == 2) {
+                        stopTarget = target;
+                        stopInfo = "";
+                        target.stopNextInstruction();
+                    }
+                }
+            };
+            target.getCPU().addGlobalMonitor(stepMonitor);
+            resume();
+        }
+
+        private void readMemory(Target target, String cmd) {
+            int comma = cmd.indexOf(',');
+            int address = Integer.parseInt(cmd.substring(1, comma), 16);
+            int length = Math.min(Integer.parseInt(cmd.substring(comma + 1), 16), (PACKET_SIZE - 8) / 2);
+            MSP430Core cpu = target == null ? null : target.getCPU();
+            if (cpu == null || address < 0 || address >= cpu.MAX_MEM) {
+                sendPacket("E01");
+                return;
+            }
+            length = Math.min(length, cpu.MAX_MEM - address);
+            byte[] reply = new byte[length * 2];
+            Memory mem = cpu.getMemory();
+            for (int i = 0; i < length; i++) {
+                int a = address + i;
+                // IO registers are not backed by the memory array.
+                int b = a < cpu.MAX_MEM_IO ? mem.get(a, Memory.AccessMode.BYTE) : cpu.memory[a];
+                putHex(reply, i * 2, b & 0xff);
+            }
+            sendPacket(reply, reply.length);
+        }
+
+        private void writeMemory(Target target, byte[] p) {
+            int comma = indexOf(p, ',', 1);
+            int colon = indexOf(p, ':', comma);
+            String cmd = new String(p, 0, colon, StandardCharsets.ISO_8859_1);
+            int address = Integer.parseInt(cmd.substring(1, comma), 16);
+            int length = Integer.parseInt(cmd.substring(comma + 1), 16);
+            MSP430Core cpu = target == null ? null : target.getCPU();
+            boolean binary = p[0] == 'X';
+            if (cpu == null || address < 0 || address + length > cpu.MAX_MEM
+                    || p.length - colon - 1 < (binary ? length : length * 2)) {
+                sendPacket("E01");
+                return;
+            }
+            Memory mem = cpu.getMemory();
+            for (int i = 0; i < length; i++) {
+                int a = address + i;
+                int b = binary ? p[colon + 1 + i] & 0xff : getHex(p, colon + 1 + i * 2);
+                if (a < cpu.MAX_MEM_IO) {
+                    mem.set(a, b, Memory.AccessMode.BYTE);
+                } else {
+                    cpu.memory[a] = (byte) b;
+                }
+            }
+            sendPacket("OK");
+        }
+    }
+
+    private static int indexOf(byte[] p, char c, int from) {
+        for (int i = from; i < p.length; i++) {
+            if (p[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Missing '" + c + "'");
+    }
+
+    private static void putHex(byte[] dst, int pos, int b) {
+        dst[pos] = HEX[b >> 4];
+        dst[pos + 1] = HEX[b & 0xf];
+    }
+
+    private static int getHex(byte[] src, int pos) {
+        return (Character.digit(src[pos], 16) << 4) | Character.digit(src[pos + 1], 16);
+    }
+
+    private static String hex2(int b) {
+        return new String(new byte[] {HEX[(b >> 4) & 0xf], HEX[b & 0xf]}, StandardCharsets.US_ASCII);
+    }
+}
@@ -46,6 +46,7 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.sics.mspsim.core.MSP430;
@@ -58,11 +59,9 @@ public class IHexReader {
    */
   private IHexReader() {}
 
-  public static int[] readFile(String file, int memSize) {
-    var memory = new int[memSize];
-    for (int i = 0, n = memory.length; i < n; i++) {
-      memory[i] = -1;
-    }
+  public static byte[] readFile(String file, int memSize) {
+    var memory = new byte[memSize];
+    Arrays.fill(memory, (byte) 0xff);
     try (var bInput = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
       String line;
       boolean terminate = false;
@@ -83,7 +82,7 @@ public class IHexReader {
         } else {
           int index = 9;
           for (int i = 0; i < size; i++) {
-            memory[adr + i] = (hexToInt(line.charAt(index++)) * 0x10 +
+            memory[adr + i] = (byte) (hexToInt(line.charAt(index++)) * 0x10 +
                                   hexToInt(line.charAt(index++)));
           }
         }
@@ -92,6 +92,19 @@ public class OperatingModeStatistics {
     }
   }
 
+  /**
+   * Returns the number of cycles a chip has spent in a mode since the chip
+   * was added to the statistics.
+   *
+   * @param chip Chip ID or name
+   * @param mode Mode
+   * @return Number of cycles, or -1 if the chip is not monitored
+   */
+  public long getModeCycles(String chip, int mode) {
+    StatEntry se = getStatEntry(chip);
+    return se == null ? -1 : se.getValue(mode, cpu.cycles);
+  }
+
   public synchronized void printStat() {
     for (StatEntry entry : statistics) {
       entry.printStat();
@@ -105,6 +105,7 @@ public class Test implements USARTListener {
     try {
       var cpu = CC2420Node.makeCPU(CC2420Node.makeChipConfig(), args[index]);
       cpu.setDebug(debug);
+      cpu.setMaxSpeed(true);
       cpu.reset();
 
       // Create the "tester"
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.contikios.cooja.motes.FlyweightMoteType;
+import org.contikios.cooja.plugins.ScriptRunner;
+import org.jdom2.Element;
+
+/**
+ * Creates headless simulations for the benchmarks.
+ * <p>
+ * The simulations are built from a config in memory, with a grid of
+ * flyweight motes and a script that ends the simulation with TEST OK
+ * after the given simulated time.
+ */
+public final class BenchmarkSimulations {
+  private static Cooja cooja;
+  private static Path logDir;
+
+  private BenchmarkSimulations() {
+  }
+
+  /** Returns the Cooja directory, from the system property cooja.dir. */
+  public static Path coojaDir() {
+    return Path.of(System.getProperty("cooja.dir", "."));
+  }
+
+  /** Returns the headless Cooja shared by all simulations in this JVM. */
+  public static synchronized Cooja getCooja() throws Cooja.ParseProjectsException {
+    if (cooja == null) {
+      try {
+        logDir = Files.createTempDirectory("cooja-jmh");
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      var colors = new Cooja.LogbackColors("", "", "", "");
+      Cooja.configuration = new Cooja.Config(colors, false, null, null, "--language=es6",
+              logDir.toString(), null, coojaDir().toAbsolutePath() + "/");
+      Cooja.resetExternalToolsSettings();
+      cooja = Cooja.makeCooja();
+    }
+    return cooja;
+  }
+
+  /**
+   * Creates a simulation with motes on a square grid. The simulation replaces
+   * the previous simulation created by this class.
+   *
+   * @param radioMedium Radio medium class name
+   * @param motes Number of motes
+   * @param spacing Distance between neighbours in the grid
+   * @param txInterval Average time between transmissions, 0 for silent motes
+   * @param duration Simulated time in milliseconds before the script ends the simulation
+   * @return Simulation, not started
+   */
+  public static Simulation create(String radioMedium, int motes, double spacing, long txInterval,
+                                  long duration) throws Exception {
+    return create(radioMedium, motes, spacing, txInterval, "TIMEOUT(" + duration + ", log.testOK());");
+  }
+
+  /**
+   * Creates a simulation with motes on a square grid, controlled by the given
+   * script. The simulation replaces the previous simulation created by this class.
+   *
+   * @param radioMedium Radio medium class name
+   * @param motes Number of motes
+   * @param spacing Distance between neighbours in the grid
+   * @param txInterval Average time between transmissions, 0 for silent motes
+   * @param script Script that ends the simulation
+   * @return Simulation, not started
+   */
+  public static Simulation create(String radioMedium, int motes, double spacing, long txInterval,
+                                  String script) throws Exception {
+    var gui = getCooja();
+    var root = new Element("simconf");
+    var simulation = new Element("simulation");
+    root.addContent(simulation);
+    simulation.addContent(new Element("title").setText("Benchmark"));
+    simulation.addContent(new Element("randomseed").setText("123456"));
+    simulation.addContent(new Element("motedelay_us").setText("0"));
+    simulation.addContent(new Element("radiomedium").setText(radioMedium));
+
+    var moteType = new Element("motetype").setText(FlyweightMoteType.class.getName());
+    moteType.addContent(new Element("identifier").setText("flyweight1"));
+    moteType.addContent(new Element("txinterval").setText(String.valueOf(txInterval)));
+    moteType.addContent(new Element("radio").setText("true"));
+    int columns = (int) Math.ceil(Math.sqrt(motes));
+    for (int i = 0; i < motes; i++) {
+      var id = new Element("interface_config").setText(FlyweightMoteType.FlyweightMoteID.class.getName());
+      id.addContent(new Element("id").setText(String.valueOf(i + 1)));
+      var pos = new Element("pos");
+      pos.setAttribute("x", String.valueOf(i % columns * spacing));
+      pos.setAttribute("y", String.valueOf(i / columns * spacing));
+      var position = new Element("interface_config").setText(FlyweightMoteType.FlyweightPosition.class.getName());
+      position.addContent(pos);
+      moteType.addContent(new Element("mote").addContent(id).addContent(position));
+    }
+    simulation.addContent(moteType);
+
+    // Headless simulations need a controller.
+    var plugin = new Element("plugin").setText(ScriptRunner.class.getName());
+    plugin.addContent(new Element("plugin_config").addContent(new Element("script").setText(script))
+            .addContent(new Element("active").setText("true")));
+    root.addContent(plugin);
+
+    var cfg = new Simulation.SimConfig("benchmark.csc", 123456L, true, false, logDir.toString(), Map.of());
+    return gui.createSimulation(cfg, root, true, null);
+  }
+
+  /** Removes the current simulation. */
+  public static synchronized void remove() {
+    if (cooja != null) {
+      cooja.doRemoveSimulation();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Event queue operations with a steady number of pending events, as in a
+ * simulation where every mote has a few timers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventQueueBenchmark {
+  /** Maximal time between scheduling and execution of an event. */
+  private static final int MAX_DELAY = 10 * (int) Simulation.MILLISECOND;
+
+  @Param({"16", "1024", "16384"})
+  public int events;
+
+  private EventQueue queue;
+  private TimeEvent[] timeEvents;
+  private SplittableRandom random;
+  private long now;
+
+  private static final class NopEvent extends TimeEvent {
+    @Override
+    public void execute(long t) {
+    }
+  }
+
+  @Setup
+  public void setup() {
+    queue = new EventQueue();
+    timeEvents = new TimeEvent[events];
+    random = new SplittableRandom(events);
+    now = 0;
+    for (int i = 0; i < events; i++) {
+      timeEvents[i] = new NopEvent();
+      queue.addEvent(timeEvents[i], random.nextInt(MAX_DELAY));
+    }
+  }
+
+  /** Executes the first event, which schedules itself again. */
+  @Benchmark
+  public EventQueue.Pair popAndAdd() {
+    var pair = queue.popFirst();
+    now = pair.time;
+    queue.addEvent(pair.event, now + 1 + random.nextInt(MAX_DELAY));
+    return pair;
+  }
+
+  /** Moves a pending event to a new time, as a mote that changes its next wakeup. */
+  @Benchmark
+  public TimeEvent reschedule() {
+    var event = timeEvents[random.nextInt(events)];
+    event.remove();
+    queue.addEvent(event, now + 1 + random.nextInt(MAX_DELAY));
+    return event;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.mote.memory;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Variable accessors on a two section mote memory, as used by the mote
+ * interfaces to exchange state with Contiki-NG every tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VarMemoryBenchmark {
+  private static final int VARIABLES = 64;
+  private static final int ARRAY_SIZE = 128;
+  private static final long DATA_ADDR = 0x1000;
+  private static final long BSS_ADDR = 0x2000;
+
+  private VarMemory mem;
+  private String[] names;
+  private final byte[] array = new byte[ARRAY_SIZE];
+  private int next;
+
+  @Setup
+  public void setup() {
+    var symbols = new HashMap<String, Symbol>();
+    names = new String[VARIABLES];
+    for (int i = 0; i < VARIABLES; i++) {
+      names[i] = "simVariable" + i;
+      long addr = (i % 2 == 0 ? DATA_ADDR : BSS_ADDR) + i / 2 * 8;
+      symbols.put(names[i], new Symbol(Symbol.Type.VARIABLE, names[i], addr, 8));
+    }
+    symbols.put("simArray", new Symbol(Symbol.Type.VARIABLE, "simArray", BSS_ADDR + 0x800, ARRAY_SIZE));
+    var layout = MemoryLayout.getNative();
+    var memory = new SectionMoteMemory(symbols);
+    memory.addMemorySection("data", new ArrayMemory(DATA_ADDR, layout, new byte[0x1000], symbols));
+    memory.addMemorySection("bss", new ArrayMemory(BSS_ADDR, layout, new byte[0x1000], symbols));
+    mem = new VarMemory(memory);
+  }
+
+  private String nextName() {
+    var name = names[next];
+    next = (next + 1) % VARIABLES;
+    return name;
+  }
+
+  @Benchmark
+  public int getIntValueOf() {
+    return mem.getIntValueOf(nextName());
+  }
+
+  @Benchmark
+  public void setIntValueOf() {
+    mem.setIntValueOf(nextName(), next);
+  }
+
+  @Benchmark
+  public long getLongValueOf() {
+    return mem.getLongValueOf(nextName());
+  }
+
+  @Benchmark
+  public byte getByteValueOf() {
+    return mem.getByteValueOf(nextName());
+  }
+
+  @Benchmark
+  public byte[] getByteArray() {
+    return mem.getByteArray("simArray", ARRAY_SIZE);
+  }
+
+  @Benchmark
+  public void setByteArray() {
+    mem.setByteArray("simArray", array);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.motes;
+
+import java.util.concurrent.TimeUnit;
+import org.contikios.cooja.BenchmarkSimulations;
+import org.contikios.cooja.Mote;
+import org.contikios.cooja.MoteType;
+import org.contikios.cooja.Simulation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Handoff between the simulation thread and blocking logic, once per
+ * simulated millisecond for {@value #HANDOFFS} milliseconds.
+ * <p>
+ * "BlockingApplicationMote" is a mote that sleeps for a millisecond in a
+ * loop, "LogScriptEngine" is a script that waits for a message it generated
+ * itself a millisecond earlier, which hands off through the semaphores of
+ * the script engine. The score is the wall clock time per handoff.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(MoteHandoffBenchmark.HANDOFFS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MoteHandoffBenchmark {
+  static final int HANDOFFS = 10000;
+
+  private static final String WAIT_SCRIPT = """
+      TIMEOUT(%d, log.testOK());
+      mote = sim.getMote(0);
+      while (true) {
+        GENERATE_MSG(1, "tick");
+        YIELD_THEN_WAIT_UNTIL(msg.equals("tick"));
+        msg = "";
+      }
+      """;
+
+  @Param({"BlockingApplicationMote", "LogScriptEngine"})
+  public String handoff;
+
+  private Simulation simulation;
+
+  @Setup(Level.Iteration)
+  public void setup() throws Exception {
+    String script = handoff.equals("LogScriptEngine")
+            ? WAIT_SCRIPT.formatted(HANDOFFS) : "TIMEOUT(" + HANDOFFS + ", log.testOK());";
+    simulation = BenchmarkSimulations.create("org.contikios.cooja.radiomediums.SilentRadioMedium",
+            1, 1, 0, script);
+    if (handoff.equals("BlockingApplicationMote")) {
+      var sim = simulation;
+      var moteType = new AbstractApplicationMoteType(true) {
+        @Override
+        public Mote generateMote(Simulation simulation) {
+          throw new UnsupportedOperationException();
+        }
+      };
+      sim.invokeSimulationThread(() -> {
+        try {
+          sim.addMote(new BlockingApplicationMote(moteType, sim) {
+            @Override
+            protected void run() {
+              while (true) {
+                sleep(Simulation.MILLISECOND);
+              }
+            }
+          });
+        } catch (MoteType.MoteTypeCreationException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    BenchmarkSimulations.remove();
+  }
+
+  @Benchmark
+  public long run() {
+    var rv = simulation.startSimulation(true);
+    if (rv != null) {
+      throw new IllegalStateException("Simulation failed: " + rv);
+    }
+    return simulation.getSimulationTime();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.radiomediums;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.contikios.cooja.BenchmarkSimulations;
+import org.contikios.cooja.RadioConnection;
+import org.contikios.cooja.interfaces.Radio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Connection setup at the start of a transmission, for every sender in a
+ * grid of motes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateConnectionsBenchmark {
+  /** Distance between neighbours, every mote has about 20 motes within 50 m. */
+  private static final double SPACING = 20;
+  /** Range of the edges of the directed graph medium. */
+  private static final double DGRM_RANGE = 50;
+
+  @Param({"UDGM", "DirectedGraphMedium", "LogisticLoss"})
+  public String medium;
+
+  @Param({"25", "100", "400", "1600"})
+  public int motes;
+
+  private AbstractRadioMedium radioMedium;
+  private Radio[] radios;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    var sim = BenchmarkSimulations.create(AbstractRadioMedium.class.getPackageName() + "." + medium,
+            motes, SPACING, 0, 1000);
+    radioMedium = (AbstractRadioMedium) sim.getRadioMedium();
+    radios = radioMedium.getRegisteredRadios();
+    if (radioMedium instanceof DirectedGraphMedium dgrm) {
+      var edges = new ArrayList<DirectedGraphMedium.Edge>();
+      for (var source : radios) {
+        for (var dest : radios) {
+          if (source != dest && source.getPosition().getDistanceTo(dest.getPosition()) < DGRM_RANGE) {
+            edges.add(new DirectedGraphMedium.Edge(source, new DGRMDestinationRadio(dest)));
+          }
+        }
+      }
+      dgrm.addEdges(edges);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkSimulations.remove();
+  }
+
+  @Benchmark
+  public RadioConnection createConnections() {
+    var sender = radios[next];
+    next = next + 1 == radios.length ? 0 : next + 1;
+    return radioMedium.createConnections(sender);
+  }
+}
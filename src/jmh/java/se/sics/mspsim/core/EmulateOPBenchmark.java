@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file is part of MSPSim.
+ *
+ * -----------------------------------------------------------------
+ *
+ * EmulateOPBenchmark
+ *
+ * Instruction throughput of the MSP430 core on the bundled test firmware.
+ */
+package se.sics.mspsim.core;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.contikios.cooja.BenchmarkSimulations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.sics.mspsim.chip.M25P80;
+import se.sics.mspsim.cli.CommandHandler;
+import se.sics.mspsim.platform.sky.SkyNode;
+import se.sics.mspsim.util.ConfigManager;
+
+/**
+ * Runs the firmware from reset at the start of every iteration, so every
+ * iteration executes the same instruction mix. The score is the time per
+ * call to emulateOP, which executes one instruction or advances the clock
+ * to the next event when the CPU is in low power mode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(EmulateOPBenchmark.BATCH)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmulateOPBenchmark {
+  static final int BATCH = 1000;
+
+  @Param({"cputest.sky", "timertest.sky"})
+  public String firmware;
+
+  private MSP430 cpu;
+
+  @Setup(Level.Iteration)
+  public void setup() throws Exception {
+    var file = BenchmarkSimulations.coojaDir().resolve("firmware/sky").resolve(firmware).toString();
+    cpu = SkyNode.makeCPU(SkyNode.makeChipConfig(), file);
+    var node = new SkyNode(cpu, new M25P80(cpu));
+    var quiet = new PrintStream(OutputStream.nullOutputStream());
+    node.setCommandHandler(new CommandHandler(quiet, quiet));
+    node.setup(new ConfigManager());
+  }
+
+  @Benchmark
+  public int emulateOP() throws EmulationException {
+    int pc = 0;
+    for (int i = 0; i < BATCH; i++) {
+      pc += cpu.emulateOP(-1);
+    }
+    return pc;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.contikios.cooja.radiomediums.SilentRadioMedium;
+import org.jdom2.Element;
+
+/** Motes and simulations for tests. */
+public final class TestFixtures {
+  private TestFixtures() {
+  }
+
+  /** Returns a mote that only knows its ID. */
+  public static Mote mote(int id) {
+    return mote(id, null);
+  }
+
+  /** Returns a mote that only knows its ID and simulation. */
+  public static Mote mote(int id, Simulation sim) {
+    return (Mote) Proxy.newProxyInstance(Mote.class.getClassLoader(), new Class<?>[] { Mote.class },
+        (proxy, method, args) -> switch (method.getName()) {
+          case "getID" -> id;
+          case "getSimulation" -> sim;
+          case "toString" -> "Mote " + id;
+          case "hashCode" -> id;
+          case "equals" -> proxy == args[0];
+          default -> null;
+        });
+  }
+
+  /**
+   * Creates a headless simulation without motes and plugins, with a
+   * SilentRadioMedium. Remove it with {@link #remove(Simulation)}.
+   *
+   * @param seed Random seed
+   * @return Simulation, not started
+   */
+  public static Simulation simulation(long seed) throws Exception {
+    var medium = SilentRadioMedium.class.getName();
+    var simulation = new Element("simulation").addContent(new Element("radiomedium").setText(medium));
+    var root = new Element("simconf").addContent(simulation);
+    // Headless simulations are refused without a controlling plugin, so create it as visualized.
+    Cooja.configuration = config(true);
+    Cooja.resetExternalToolsSettings();
+    try {
+      return new Simulation(null, null, "test", false, seed, medium, 0, true, SimulationConfigReader.of(root));
+    } finally {
+      Cooja.configuration = config(false);
+    }
+  }
+
+  private static Cooja.Config config(boolean vis) {
+    return new Cooja.Config(null, vis, null, null, null, null, null, null);
+  }
+
+  /**
+   * Runs an action in the simulation thread and waits for it.
+   *
+   * @param sim Simulation
+   * @param action Action, its exceptions are rethrown
+   */
+  public static void invoke(Simulation sim, Runnable action) {
+    var done = new CompletableFuture<Void>();
+    sim.invokeSimulationThread(() -> {
+      try {
+        action.run();
+        done.complete(null);
+      } catch (Throwable t) {
+        done.completeExceptionally(t);
+      }
+    });
+    try {
+      done.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      if (e.getCause() instanceof Error err) {
+        throw err;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException | TimeoutException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Runs a stopped simulation until the given time.
+   *
+   * @param sim Simulation
+   * @param until Simulation time to stop at
+   */
+  public static void run(Simulation sim, long until) {
+    var reached = new CompletableFuture<Void>();
+    invoke(sim, () -> sim.scheduleEvent(new TimeEvent() {
+      @Override
+      public void execute(long t) {
+        reached.complete(null);
+        throw new Simulation.SimulationStop("Test", "time " + t);
+      }
+    }, until));
+    sim.startSimulation();
+    try {
+      reached.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException | InterruptedException | TimeoutException e) {
+      throw new IllegalStateException("Simulation did not reach " + until, e);
+    }
+    // Returns once the simulation thread has stopped.
+    invoke(sim, () -> {});
+  }
+
+  /** Removes a simulation and ends its thread. */
+  public static void remove(Simulation sim) {
+    sim.removed();
+  }
+}
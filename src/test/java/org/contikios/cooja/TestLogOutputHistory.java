@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TestLogOutputHistory {
+  private static final int MAX_MESSAGE_BYTES = 1 << 20;
+
+  @Test
+  void testAppendAndEvict() {
+    var history = new LogOutputHistory(3);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i, history.append(null, 10L * i, "line " + i));
+    }
+    assertEquals(2, history.getFirstIndex());
+    assertEquals(5, history.getEndIndex());
+    assertEquals(3, history.size());
+    assertEquals("line 2", history.getMessage(2));
+    assertEquals(40, history.getTime(4));
+    assertEquals(3, history.findFirstIndex(25));
+    assertThrows(IndexOutOfBoundsException.class, () -> history.getMessage(1));
+  }
+
+  @Test
+  void testNonAscii() {
+    var history = new LogOutputHistory(10);
+    history.append(null, 0, "temperatur 21°C ✓");
+    assertEquals("temperatur 21°C ✓", history.getMessage(0));
+  }
+
+  @Test
+  void testTruncateAscii() {
+    var history = new LogOutputHistory(10);
+    history.append(null, 0, "x".repeat(MAX_MESSAGE_BYTES + 10));
+    assertEquals(MAX_MESSAGE_BYTES, history.getMessage(0).length());
+  }
+
+  @Test
+  void testTruncateKeepsCharacters() {
+    var history = new LogOutputHistory(10);
+    // Three byte characters, the limit falls in the middle of one.
+    var msg = "€".repeat(MAX_MESSAGE_BYTES / 3 + 1);
+    assertTrue(msg.getBytes(UTF_8).length > MAX_MESSAGE_BYTES);
+    history.append(null, 0, msg);
+    history.append(null, 1, "next");
+    var stored = history.getMessage(0);
+    assertFalse(stored.contains("�"));
+    assertEquals(MAX_MESSAGE_BYTES / 3, stored.length());
+    assertTrue(msg.startsWith(stored));
+    assertEquals("next", history.getMessage(1));
+  }
+
+  @Test
+  void testClearKeepsIndices() {
+    var history = new LogOutputHistory(10);
+    history.append(null, 0, "a");
+    history.append(null, 1, "b");
+    history.clear();
+    assertEquals(0, history.size());
+    assertEquals(2, history.append(null, 2, "c"));
+    assertEquals("c", history.getMessage(2));
+  }
+}
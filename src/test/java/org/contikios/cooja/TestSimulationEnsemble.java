@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class TestSimulationEnsemble {
+  private static long[] seeds(String spec) {
+    var seeds = new long[0];
+    for (var it = SimulationEnsemble.parseSeeds(spec).iterator(); it.hasNext(); ) {
+      seeds = Arrays.copyOf(seeds, seeds.length + 1);
+      seeds[seeds.length - 1] = it.nextLong();
+    }
+    return seeds;
+  }
+
+  @Test
+  void testParseSeeds() {
+    assertArrayEquals(new long[] {5}, seeds("5"));
+    assertArrayEquals(new long[] {1, 2, 3, 4}, seeds("1..4"));
+    assertArrayEquals(new long[] {3, 7, 10, 11, 12, 0x10}, seeds(" 3, 7,10 .. 12,0x10"));
+    assertArrayEquals(new long[] {-2, -1, 0}, seeds("-2..0"));
+    assertEquals(6, SimulationEnsemble.parseSeeds("3,7,10..12,16").count());
+  }
+
+  @Test
+  void testParseInvalidSeeds() {
+    assertThrows(IllegalArgumentException.class, () -> SimulationEnsemble.parseSeeds(null));
+    assertThrows(IllegalArgumentException.class, () -> SimulationEnsemble.parseSeeds(" "));
+    assertThrows(IllegalArgumentException.class, () -> SimulationEnsemble.parseSeeds("5..4"));
+    assertThrows(IllegalArgumentException.class, () -> SimulationEnsemble.parseSeeds("1..x"));
+    assertThrows(IllegalArgumentException.class, () -> SimulationEnsemble.parseSeeds("1,,2"));
+  }
+
+  @Test
+  void testHugeRangeIsLazy() {
+    var seeds = SimulationEnsemble.parseSeeds("0..9223372036854775807");
+    assertEquals(Long.MAX_VALUE, seeds.count());
+    var it = seeds.iterator();
+    assertEquals(0, it.nextLong());
+    assertEquals(1, it.nextLong());
+    assertTrue(it.hasNext());
+
+    it = SimulationEnsemble.parseSeeds("9223372036854775806..9223372036854775807").iterator();
+    assertEquals(Long.MAX_VALUE - 1, it.nextLong());
+    assertEquals(Long.MAX_VALUE, it.nextLong());
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  void testPassRateInterval() {
+    var all = SimulationEnsemble.passRateInterval(10, 10);
+    assertEquals(1, all.high(), 1e-12);
+    assertEquals(0.7225, all.low(), 1e-4);
+    var none = SimulationEnsemble.passRateInterval(0, 10);
+    assertEquals(0, none.low(), 1e-12);
+    assertEquals(0.2775, none.high(), 1e-4);
+    var half = SimulationEnsemble.passRateInterval(50, 100);
+    assertEquals(0.4038, half.low(), 1e-4);
+    assertEquals(0.5962, half.high(), 1e-4);
+    assertEquals(1 - half.low(), half.high(), 1e-12);
+  }
+
+  @Test
+  void testIntervalNarrowsWithRuns() {
+    double previous = 1;
+    for (int runs = 10; runs <= 10000; runs *= 10) {
+      double width = SimulationEnsemble.passRateInterval(runs * 9 / 10, runs).width();
+      assertTrue(width < previous);
+      previous = width;
+    }
+    assertTrue(previous < 0.02);
+  }
+}
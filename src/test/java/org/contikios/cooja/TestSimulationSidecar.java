@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.jdom2.Attribute;
+import org.jdom2.Element;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestSimulationSidecar {
+  /* Motes of the first mote type follow each other, the second has a mote type element in between */
+  private static final String CONFIG = """
+      <?xml version="1.0" encoding="UTF-8"?>
+      <simconf version="2023090101">
+        <simulation>
+          <title>Sidecar ✓ test</title>
+          <randomseed>123456</randomseed>
+          <motedelay_us>1000000</motedelay_us>
+          <radiomedium>
+            org.contikios.cooja.radiomediums.UDGM
+            <transmitting_range>50.0</transmitting_range>
+          </radiomedium>
+          <motetype>
+            org.contikios.cooja.motes.ImportAppMoteType
+            <description>Sender ✓</description>
+            <identifier>apptype1</identifier>
+            <mote>
+              <interface_config>
+                org.contikios.cooja.interfaces.Position
+                <pos x="1.5" y="-2.25" />
+              </interface_config>
+              <interface_config>
+                org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+                <id>1</id>
+              </interface_config>
+            </mote>
+            <!-- <mote> in a comment is not a mote -->
+            <mote>
+              <interface_config>
+                org.contikios.cooja.interfaces.Position
+                <pos x="3.0" y="4.0" z="5.0" />
+              </interface_config>
+              <interface_config>
+                org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+                <id>2</id>
+              </interface_config>
+              <interface_config>
+                org.contikios.cooja.interfaces.Mote2MoteRelations
+                <relation dest="1" color="#ff0000">naïve &lt;text&gt;</relation>
+              </interface_config>
+            </mote>
+            <mote>
+              <interface_config>
+                org.contikios.cooja.interfaces.Position
+                <pos x="1" y="2" />
+              </interface_config>
+            </mote>
+          </motetype>
+          <motetype>
+            org.contikios.cooja.motes.ImportAppMoteType
+            <identifier>apptype2</identifier>
+            <mote>
+              <interface_config>
+                org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+                <id>4</id>
+              </interface_config>
+            </mote>
+            <description>Receiver</description>
+            <mote>
+              <interface_config>
+                org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+                <id>5</id>
+              </interface_config>
+            </mote>
+          </motetype>
+        </simulation>
+        <plugin>
+          org.contikios.cooja.plugins.LogListener
+          <plugin_config>
+            <filter />
+          </plugin_config>
+        </plugin>
+      </simconf>
+      """;
+
+  private File dir;
+  private File config;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("sidecar").toFile();
+    config = new File(dir, "test.csc");
+    Files.writeString(config.toPath(), CONFIG);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    for (var file : dir.listFiles()) {
+      assertTrue(file.delete());
+    }
+    assertTrue(dir.delete());
+  }
+
+  /** Reads a config with all motes added to their mote types. */
+  private static Element load(File file) throws Cooja.SimulationCreationException {
+    var reader = SimulationConfigReader.open(file);
+    Element element;
+    while ((element = reader.nextSimulationElement()) != null) {
+      if ("motetype".equals(element.getName())) {
+        Element mote;
+        while ((mote = reader.nextMote()) != null) {
+          element.addContent(mote);
+        }
+      }
+    }
+    reader.finish();
+    return reader.getRoot();
+  }
+
+  /**
+   * Returns the names, attributes, trimmed texts and children of an element.
+   * Motes come after the other children, the order between them depends on
+   * when they are read.
+   */
+  private static String toString(Element element) {
+    var sb = new StringBuilder("<").append(element.getName());
+    element.getAttributes().stream().sorted(Comparator.comparing(Attribute::getName))
+        .forEach(a -> sb.append(' ').append(a.getName()).append("='").append(a.getValue()).append('\''));
+    sb.append('>').append(element.getTextTrim());
+    for (var child : element.getChildren()) {
+      if (!"mote".equals(child.getName())) {
+        sb.append(toString(child));
+      }
+    }
+    for (var child : element.getChildren("mote")) {
+      sb.append(toString(child));
+    }
+    return sb.append("</").append(element.getName()).append('>').toString();
+  }
+
+  private Element writeSidecar() throws Exception {
+    var root = load(config);
+    SimulationSidecar.write(config, root);
+    return root;
+  }
+
+  @Test
+  void testRoundTrip() throws Exception {
+    var root = writeSidecar();
+    assertEquals(5, root.getChild("simulation").getChildren("motetype").stream()
+        .mapToInt(t -> t.getChildren("mote").size()).sum());
+    assertArrayEquals(new String[] { "test.csc", "test.csc.motes" }, Arrays.stream(dir.list()).sorted().toArray());
+    try (var sidecar = SimulationSidecar.open(config)) {
+      assertNotNull(sidecar);
+      assertEquals(2, sidecar.getMoteTypeCount());
+      assertEquals("apptype2", sidecar.getMoteTypeIdentifier(1));
+      /* Byte offsets, the config has multibyte characters before the motes */
+      var bytes = CONFIG.getBytes(UTF_8);
+      var first = new String(bytes, (int) sidecar.getMotesStart(0),
+          (int) (sidecar.getMotesEnd(0) - sidecar.getMotesStart(0)), UTF_8);
+      assertTrue(first.startsWith("<mote>"));
+      assertTrue(first.endsWith("</mote>"));
+      assertTrue(first.contains("<id>2</id>"));
+      assertTrue(first.contains("<pos x=\"1\""));
+      assertEquals(-1, sidecar.getMotesStart(1));
+    }
+    assertEquals(toString(root), toString(load(config)));
+  }
+
+  @Test
+  void testSkipsConfigMotes() throws Exception {
+    var root = writeSidecar();
+    long start;
+    long end;
+    try (var sidecar = SimulationSidecar.open(config)) {
+      start = sidecar.getMotesStart(0);
+      end = sidecar.getMotesEnd(0);
+    }
+    /* Break the motes in the config, keeping its size and modification time */
+    long modified = config.lastModified();
+    try (var file = new RandomAccessFile(config, "rw")) {
+      file.seek(start);
+      var junk = new byte[(int) (end - start)];
+      Arrays.fill(junk, (byte) '<');
+      file.write(junk);
+    }
+    assertTrue(config.setLastModified(modified));
+    assertEquals(toString(root), toString(load(config)));
+  }
+
+  @Test
+  void testStaleSidecar() throws Exception {
+    writeSidecar();
+    Files.writeString(config.toPath(), CONFIG.replace("<id>5</id>", "<id>7</id>"));
+    assertTrue(config.setLastModified(config.lastModified() + 2000));
+    assertNull(SimulationSidecar.open(config));
+    var root = load(config);
+    assertTrue(toString(root).contains("<id>7</id>"));
+  }
+
+  @Test
+  void testTruncatedSidecar() throws Exception {
+    var root = writeSidecar();
+    var sidecar = SimulationSidecar.getFile(config);
+    try (var file = new RandomAccessFile(sidecar, "rw")) {
+      file.setLength(file.length() - 3);
+    }
+    assertNull(SimulationSidecar.open(config));
+    assertEquals(toString(root), toString(load(config)));
+    /* Saving again replaces the sidecar */
+    SimulationSidecar.write(config, root);
+    assertNotNull(SimulationSidecar.open(config));
+    assertArrayEquals(new String[] { "test.csc", "test.csc.motes" }, Arrays.stream(dir.list()).sorted().toArray());
+  }
+}
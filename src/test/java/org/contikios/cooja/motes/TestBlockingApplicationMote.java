@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja.motes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.contikios.cooja.COOJARadioPacket;
+import org.contikios.cooja.Mote;
+import org.contikios.cooja.MoteType;
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.TestFixtures;
+import org.contikios.cooja.TimeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestBlockingApplicationMote {
+  private Simulation sim;
+  private final MoteType moteType = new AbstractApplicationMoteType(true) {
+    @Override
+    public Mote generateMote(Simulation simulation) {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  /** Mote running the given logic. */
+  private interface Logic {
+    void run(BlockingApplicationMote mote);
+  }
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    sim = TestFixtures.simulation(1);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    TestFixtures.remove(sim);
+  }
+
+  /** Creates a mote that is not added to the simulation. */
+  private BlockingApplicationMote createMote(Logic logic) {
+    var mote = new AtomicReference<BlockingApplicationMote>();
+    TestFixtures.invoke(sim, () -> {
+      try {
+        mote.set(new BlockingApplicationMote(moteType, sim) {
+          @Override
+          protected void run() {
+            logic.run(this);
+          }
+        });
+      } catch (MoteType.MoteTypeCreationException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    return mote.get();
+  }
+
+  private BlockingApplicationMote addMote(Logic logic) {
+    var mote = createMote(logic);
+    TestFixtures.invoke(sim, () -> sim.addMote(mote));
+    return mote;
+  }
+
+  private void at(long time, Runnable action) {
+    TestFixtures.invoke(sim, () -> sim.scheduleEvent(new TimeEvent() {
+      @Override
+      public void execute(long t) {
+        action.run();
+      }
+    }, time));
+  }
+
+  @Test
+  void testSleep() {
+    var times = new ArrayList<Long>();
+    addMote(mote -> {
+      times.add(mote.now());
+      mote.sleep(1000);
+      times.add(mote.now());
+      mote.sleep(2500);
+      times.add(mote.now());
+      mote.sleep(0);
+      times.add(mote.now());
+    });
+    TestFixtures.run(sim, 2000);
+    assertEquals(List.of(0L, 1000L), times);
+    TestFixtures.run(sim, 10000);
+    assertEquals(List.of(0L, 1000L, 3500L, 3500L), times);
+  }
+
+  @Test
+  void testAwaitPacket() {
+    var packet = new COOJARadioPacket(new byte[] { 1, 2, 3 });
+    var received = new ArrayList<Object>();
+    var times = new ArrayList<Long>();
+    var mote = addMote(m -> {
+      received.add(m.awaitPacket(500));
+      times.add(m.now());
+      received.add(m.awaitPacket(-1));
+      times.add(m.now());
+    });
+    // Other wakeups before the packet do not end the wait.
+    at(2000, mote::requestImmediateWakeup);
+    at(3000, () -> mote.receivedPacket(packet));
+    TestFixtures.run(sim, 10000);
+    assertNull(received.get(0));
+    assertSame(packet, received.get(1));
+    assertEquals(List.of(500L, 3000L), times);
+  }
+
+  @Test
+  void testRemoveEndsThread() throws InterruptedException {
+    var thread = new AtomicReference<Thread>();
+    var unwound = new boolean[1];
+    var mote = addMote(m -> {
+      thread.set(Thread.currentThread());
+      try {
+        m.sleep(1000000);
+      } finally {
+        unwound[0] = true;
+      }
+    });
+    TestFixtures.run(sim, 1000);
+    assertTrue(thread.get().isAlive());
+    assertFalse(unwound[0]);
+    TestFixtures.invoke(sim, () -> sim.removeMote(mote));
+    TestFixtures.invoke(sim, () -> {});
+    thread.get().join(10000);
+    assertFalse(thread.get().isAlive());
+    assertTrue(unwound[0]);
+  }
+
+  @Test
+  void testExceptionPropagated() throws InterruptedException {
+    var thread = new AtomicReference<Thread>();
+    // The mote is executed directly, the exception would end the simulation.
+    var mote = createMote(m -> {
+      thread.set(Thread.currentThread());
+      m.sleep(100);
+      throw new IllegalStateException("mote failed");
+    });
+    TestFixtures.invoke(sim, () -> mote.execute(0));
+    var e = assertThrows(IllegalStateException.class, () -> TestFixtures.invoke(sim, () -> mote.execute(100)));
+    assertEquals("mote failed", e.getMessage());
+    thread.get().join(10000);
+    assertFalse(thread.get().isAlive());
+    // The mote does nothing after its logic ended.
+    TestFixtures.invoke(sim, () -> mote.execute(200));
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja.mspmote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TestMspMote {
+  /**
+   * Drives the drift clock like MspMote.execute() does, with the CPU asking
+   * to be woken up at random mote times. Some wakeups are early, as when a
+   * radio packet arrives.
+   */
+  private static void runDriftClock(double deviation) {
+    var clock = new MspMote.DriftClock();
+    var random = new Random(1);
+    long lastExecute = 0;
+    long t = 0;
+    long moteTime = 0;
+    long event = -1;
+    long requested = -1;
+    for (int i = 0; i < 100000; i++) {
+      long jump = clock.jump(deviation, lastExecute, t);
+      int duration = clock.duration(t, jump, 1);
+      moteTime += jump;
+      assertEquals(t * deviation, moteTime, 1.0);
+      if (t == requested) {
+        // The requested wakeup executes the microsecond of its event, as without drift, and nothing past it.
+        assertEquals(event + 1, moteTime + duration, "Deviation " + deviation + " at " + t);
+      } else {
+        assertEquals(1, duration);
+        assertTrue(event < 0 || moteTime <= event);
+      }
+      // The CPU asks to be woken up 0-100 ms after the executed microsecond.
+      event = moteTime + duration + random.nextInt(100000);
+      lastExecute = t;
+      requested = clock.wakeup(deviation, t, event - moteTime);
+      assertTrue(requested >= t);
+      t = random.nextInt(8) == 0 && requested > t + 1 ? t + 1 + random.nextInt((int) (requested - t - 1)) : requested;
+    }
+  }
+
+  @Test
+  void testDriftWakeupReachesEvent() {
+    runDriftClock(1.0);
+    runDriftClock(0.99997);
+    runDriftClock(1.00003);
+    runDriftClock(0.99);
+    runDriftClock(1.01);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja.radiomediums;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.contikios.cooja.COOJARadioPacket;
+import org.contikios.cooja.RadioConnection;
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.TestFixtures;
+import org.contikios.cooja.interfaces.ApplicationRadio;
+import org.contikios.cooja.interfaces.Radio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestAbstractRadioMedium {
+  private Simulation sim;
+  private BroadcastMedium medium;
+
+  /** Every registered radio on the channel of the source is a destination. */
+  private static class BroadcastMedium extends AbstractRadioMedium {
+    BroadcastMedium(Simulation simulation) {
+      super(simulation);
+    }
+
+    @Override
+    protected RadioConnection createConnections(Radio radio) {
+      var conn = new RadioConnection(radio);
+      for (var r : getRegisteredRadios()) {
+        if (r != radio && (r.getChannel() < 0 || radio.getChannel() < 0 || r.getChannel() == radio.getChannel())) {
+          conn.addDestination(r);
+        }
+      }
+      return conn;
+    }
+  }
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    sim = TestFixtures.simulation(1);
+    medium = new BroadcastMedium(sim);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    TestFixtures.remove(sim);
+  }
+
+  private ApplicationRadio radio(int id, int channel) {
+    var radio = new ApplicationRadio(TestFixtures.mote(id, sim));
+    radio.setChannel(channel);
+    medium.registerRadioInterface(radio, sim);
+    return radio;
+  }
+
+  private static void transmit(Radio radio) {
+    ((ApplicationRadio) radio).startTransmittingPacket(new COOJARadioPacket(new byte[] { 1 }), 1000);
+  }
+
+  @Test
+  void testReusedRadioIndex() {
+    var a = radio(1, 26);
+    var b = radio(2, 26);
+    TestFixtures.invoke(sim, () -> transmit(a));
+    var conn = medium.getActiveConnections()[0];
+    assertTrue(conn.isDestination(b));
+    assertFalse(conn.isInterfered(b));
+
+    // The removed radio is interfered, the radio that reuses its index is not part of the connection.
+    TestFixtures.invoke(sim, () -> medium.unregisterRadioInterface(b, sim));
+    var c = radio(3, 26);
+    assertTrue(conn.isInterfered(b));
+    assertFalse(conn.isDestination(c));
+    assertFalse(conn.isInterfered(c));
+
+    // A reused index that is interfered and then removed does not leak either.
+    var d = radio(4, 26);
+    TestFixtures.invoke(sim, () -> transmit(c));
+    var conn2 = medium.getActiveConnections()[1];
+    assertTrue(conn2.isDestination(d));
+    TestFixtures.invoke(sim, () -> medium.unregisterRadioInterface(d, sim));
+    var e = radio(5, 26);
+    assertTrue(conn2.isInterfered(d));
+    assertFalse(conn2.isDestination(e));
+    assertFalse(conn2.isInterfered(e));
+  }
+
+  @Test
+  void testConnectionsByChannel() {
+    var a = radio(1, 26);
+    var b = radio(2, 26);
+    var c = radio(3, 15);
+    var d = radio(4, -1);
+    TestFixtures.invoke(sim, () -> transmit(a));
+    var conn = medium.getActiveConnections()[0];
+    assertSame(conn, medium.getActiveConnections(26)[0]);
+    assertEquals(0, medium.getActiveConnections(15).length);
+    assertTrue(conn.isDestination(b));
+    assertTrue(conn.isDestination(d));
+    assertFalse(conn.isDestination(c));
+
+    // Radios that transmit while receiving interfere their reception.
+    TestFixtures.invoke(sim, () -> transmit(d));
+    assertEquals(2, medium.getActiveConnections().length);
+    assertEquals(1, medium.getActiveConnections(-1).length);
+    assertTrue(conn.isInterfered(d));
+    assertFalse(conn.isInterfered(b));
+    TestFixtures.invoke(sim, () -> transmit(b));
+    assertTrue(conn.isInterfered(b));
+    assertTrue(medium.getActiveConnections(-1)[0].isInterfered(b));
+    assertEquals(2, medium.getActiveConnections(26).length);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.radiomediums;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import org.contikios.cooja.TestFixtures;
+import org.contikios.cooja.interfaces.ApplicationRadio;
+import org.contikios.cooja.interfaces.Radio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestDGRMEdgeFile {
+  private final HashMap<Integer, Radio> radios = new HashMap<>();
+  private File file;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    for (int id = 1; id <= 3; id++) {
+      radios.put(id, new ApplicationRadio(TestFixtures.mote(id)));
+    }
+    file = File.createTempFile("dgrm", ".edges");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    assertTrue(file.delete());
+  }
+
+  private DirectedGraphMedium.Edge edge(int src, int dst) {
+    return new DirectedGraphMedium.Edge(radios.get(src), new DGRMDestinationRadio(radios.get(dst)));
+  }
+
+  @Test
+  void testBinaryRoundTrip() throws IOException {
+    var a = edge(1, 2);
+    a.superDest.ratio = 0.25;
+    a.superDest.signal = -87.5;
+    a.superDest.lqi = 80;
+    a.superDest.delay = 1234;
+    a.superDest.channel = 26;
+    var b = edge(3, 1);
+    DGRMEdgeFile.writeBinary(file, new DirectedGraphMedium.Edge[] { a, b });
+
+    List<DirectedGraphMedium.Edge> edges = DGRMEdgeFile.read(file, radios);
+    assertEquals(2, edges.size());
+    var e = edges.get(0);
+    assertSame(radios.get(1), e.source);
+    assertSame(radios.get(2), e.superDest.radio);
+    assertEquals(0.25, e.superDest.ratio);
+    assertEquals(-87.5, e.superDest.signal);
+    assertEquals(80, e.superDest.lqi);
+    assertEquals(1234, e.superDest.delay);
+    assertEquals(26, e.superDest.channel);
+    e = edges.get(1);
+    assertSame(radios.get(3), e.source);
+    assertSame(radios.get(1), e.superDest.radio);
+    assertEquals(b.superDest.ratio, e.superDest.ratio);
+    assertEquals(b.superDest.channel, e.superDest.channel);
+  }
+
+  @Test
+  void testText() throws IOException {
+    Files.writeString(file.toPath(), """
+        # measured links
+        src,dst,ratio,rssi,lqi,delay,channel
+        1,2,0.5,-90,70,10,11
+        2 3 0.75
+        """, StandardCharsets.UTF_8);
+    var edges = DGRMEdgeFile.read(file, radios);
+    assertEquals(2, edges.size());
+    assertEquals(0.5, edges.get(0).superDest.ratio);
+    assertEquals(-90.0, edges.get(0).superDest.signal);
+    assertEquals(11, edges.get(0).superDest.channel);
+    assertSame(radios.get(3), edges.get(1).superDest.radio);
+    assertEquals(0.75, edges.get(1).superDest.ratio);
+    // Defaults for the fields left out.
+    assertEquals(new DGRMDestinationRadio(radios.get(3)).lqi, edges.get(1).superDest.lqi);
+  }
+
+  @Test
+  void testUnknownMote() throws IOException {
+    Files.writeString(file.toPath(), "1,9\n", StandardCharsets.UTF_8);
+    assertThrows(IOException.class, () -> DGRMEdgeFile.read(file, radios));
+  }
+
+  @Test
+  void testBadNumber() throws IOException {
+    Files.writeString(file.toPath(), "1,2,x\n", StandardCharsets.UTF_8);
+    assertThrows(IOException.class, () -> DGRMEdgeFile.read(file, radios));
+  }
+
+  private void writeHeader(int version, int count) throws IOException {
+    try (var out = new DataOutputStream(new FileOutputStream(file))) {
+      out.writeInt(0x4447524d);
+      out.writeInt(version);
+      out.writeInt(count);
+    }
+  }
+
+  @Test
+  void testBadBinaryHeader() throws IOException {
+    writeHeader(1, -1);
+    assertThrows(IOException.class, () -> DGRMEdgeFile.read(file, radios));
+    writeHeader(2, 0);
+    assertThrows(IOException.class, () -> DGRMEdgeFile.read(file, radios));
+    // Truncated: the count promises more edges than the file holds.
+    writeHeader(1, Integer.MAX_VALUE);
+    assertThrows(IOException.class, () -> DGRMEdgeFile.read(file, radios));
+  }
+}
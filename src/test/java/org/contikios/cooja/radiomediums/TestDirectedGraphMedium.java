@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja.radiomediums;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.TestFixtures;
+import org.contikios.cooja.interfaces.ApplicationRadio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestDirectedGraphMedium {
+  private Simulation sim;
+  private DirectedGraphMedium medium;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    sim = TestFixtures.simulation(1);
+    medium = new DirectedGraphMedium(sim);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    TestFixtures.remove(sim);
+  }
+
+  private ApplicationRadio radio(int id) {
+    var radio = new ApplicationRadio(TestFixtures.mote(id, sim));
+    medium.registerRadioInterface(radio, sim);
+    return radio;
+  }
+
+  @Test
+  void testAddEdgeTwice() {
+    var a = radio(1);
+    var b = radio(2);
+    var c = radio(3);
+    var edge = new DirectedGraphMedium.Edge(a, new DGRMDestinationRadio(b));
+    medium.addEdge(edge);
+    medium.addEdge(edge);
+    assertEquals(1, medium.getEdges().length);
+    assertEquals(1, medium.getNeighbors(a).size());
+
+    // Edges added after the adjacency was built are not duplicated either.
+    var other = new DirectedGraphMedium.Edge(a, new DGRMDestinationRadio(c));
+    medium.addEdge(other);
+    medium.addEdge(other);
+    medium.addEdge(edge);
+    assertEquals(2, medium.getEdges().length);
+    assertEquals(2, medium.getNeighbors(a).size());
+
+    medium.removeEdge(edge);
+    assertEquals(1, medium.getNeighbors(a).size());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.contikios.cooja.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.random.RandomGenerator;
+import org.junit.jupiter.api.Test;
+
+class TestRandomStreams {
+  private static long[] draw(RandomGenerator random, int n) {
+    var values = new long[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = random.nextLong();
+    }
+    return values;
+  }
+
+  @Test
+  void testReproducible() {
+    var a = new RandomStreams(42);
+    var b = new RandomStreams(42);
+    assertArrayEquals(draw(a.create("UDGM"), 16), draw(b.create("UDGM"), 16));
+    assertArrayEquals(draw(a.create("Clock", 3), 16), draw(b.create("Clock", 3), 16));
+    assertArrayEquals(draw(a.create("MRM", 1, 2), 16), draw(b.create("MRM", 1, 2), 16));
+    assertEquals(a.streamKey("LogisticLoss", 1, 2), b.streamKey("LogisticLoss", 1, 2));
+  }
+
+  @Test
+  void testSeedChangesStreams() {
+    assertNotEquals(new RandomStreams(1).create("UDGM").nextLong(),
+        new RandomStreams(2).create("UDGM").nextLong());
+  }
+
+  @Test
+  void testStreamsAreDistinct() {
+    var streams = new RandomStreams(7);
+    var first = new HashSet<Long>();
+    assertTrue(first.add(streams.create("UDGM").nextLong()));
+    assertTrue(first.add(streams.create("MRM").nextLong()));
+    for (int id = 0; id < 100; id++) {
+      assertTrue(first.add(streams.create("UDGM", id).nextLong()));
+    }
+    for (int src = 0; src < 20; src++) {
+      for (int dst = 0; dst < 20; dst++) {
+        assertTrue(first.add(streams.create("UDGM", src, dst).nextLong()), src + "->" + dst);
+      }
+    }
+  }
+
+  @Test
+  void testIndependentOfOrder() {
+    // Draws from one stream do not shift the numbers of another.
+    var a = new RandomStreams(3);
+    var link = a.create("UDGM", 1, 2);
+    long[] expected = draw(link, 8);
+
+    var b = new RandomStreams(3);
+    var other = b.create("UDGM", 2, 1);
+    draw(other, 100);
+    assertArrayEquals(expected, draw(b.create("UDGM", 1, 2), 8));
+  }
+
+  @Test
+  void testCounterBasedStream() {
+    var streams = new RandomStreams(5);
+    long key = streams.streamKey("LogisticLoss", 4, 9);
+    double sum = 0;
+    for (int n = 0; n < 10000; n++) {
+      double d = RandomStreams.nextDouble(key, n);
+      assertTrue(d >= 0 && d < 1);
+      assertEquals(d, RandomStreams.nextDouble(key, n));
+      sum += d;
+    }
+    assertEquals(0.5, sum / 10000, 0.02);
+    assertNotEquals(RandomStreams.nextDouble(key, 0), RandomStreams.nextDouble(key, 1));
+  }
+}
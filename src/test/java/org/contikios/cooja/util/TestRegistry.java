@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.cooja.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+class TestRegistry {
+  @Test
+  void testIndices() {
+    var registry = new Registry<>(String[]::new);
+    assertEquals(0, registry.add("a"));
+    assertEquals(1, registry.add("b"));
+    assertEquals(2, registry.add("c"));
+    assertEquals(1, registry.add("b"));
+    assertEquals(3, registry.size());
+    assertEquals(1, registry.indexOf("b"));
+    assertSame("c", registry.getByIndex(2));
+    assertNull(registry.getByIndex(3));
+    assertNull(registry.getByIndex(-1));
+    assertEquals(-1, registry.indexOf("d"));
+  }
+
+  @Test
+  void testIndexReuse() {
+    var registry = new Registry<>(String[]::new);
+    registry.add("a");
+    registry.add("b");
+    registry.add("c");
+    assertTrue(registry.remove("b"));
+    assertFalse(registry.remove("b"));
+    assertFalse(registry.contains("b"));
+    assertEquals(-1, registry.indexOf("b"));
+    assertNull(registry.getByIndex(1));
+    // The index of the removed object is reused, the others keep theirs.
+    assertEquals(1, registry.add("d"));
+    assertEquals(0, registry.indexOf("a"));
+    assertEquals(2, registry.indexOf("c"));
+    assertSame("d", registry.getByIndex(1));
+    assertEquals(3, registry.add("e"));
+    // Objects are identified by identity, not equality.
+    var other = new String("a");
+    assertEquals(4, registry.add(other));
+    assertEquals(0, registry.indexOf("a"));
+  }
+
+  @Test
+  void testSnapshot() {
+    var registry = new Registry<>(String[]::new);
+    var empty = registry.snapshot();
+    assertEquals(0, empty.length);
+    assertTrue(registry.isEmpty());
+    registry.add("a");
+    registry.add("b");
+    var first = registry.snapshot();
+    assertArrayEquals(new String[] {"a", "b"}, first);
+    // Unchanged registries return the same array.
+    assertSame(first, registry.snapshot());
+    assertEquals(1, registry.add("b"));
+    assertSame(first, registry.snapshot());
+
+    registry.remove("a");
+    var second = registry.snapshot();
+    assertNotSame(first, second);
+    assertArrayEquals(new String[] {"a", "b"}, first);
+    assertArrayEquals(new String[] {"b"}, second);
+    assertSame("b", registry.get(0));
+
+    // Snapshots are in order of addition, not index order.
+    registry.add("c");
+    assertEquals(0, registry.indexOf("c"));
+    assertArrayEquals(new String[] {"b", "c"}, registry.snapshot());
+    assertFalse(registry.remove("a"));
+    assertSame(registry.snapshot(), registry.snapshot());
+  }
+
+  @Test
+  void testRemoveByIdentity() {
+    var registry = new Registry<>(String[]::new);
+    var first = new String("a");
+    var second = new String("a");
+    registry.add(first);
+    registry.add("b");
+    registry.add(second);
+    // Removes the given object, not the first equal one.
+    assertTrue(registry.remove(second));
+    var snapshot = registry.snapshot();
+    assertEquals(2, snapshot.length);
+    assertSame(first, snapshot[0]);
+    assertSame("b", snapshot[1]);
+    assertTrue(registry.remove(first));
+    assertArrayEquals(new String[] {"b"}, registry.snapshot());
+  }
+
+  @Test
+  void testOrderAfterManyRemovals() {
+    var registry = new Registry<>(Integer[]::new);
+    var items = new Integer[100];
+    for (int i = 0; i < items.length; i++) {
+      items[i] = i;
+      registry.add(items[i]);
+    }
+    // Remove without taking snapshots in between, then add some back.
+    for (int i = 0; i < items.length; i += 3) {
+      registry.remove(items[i]);
+    }
+    for (int i = 0; i < items.length; i += 6) {
+      registry.add(items[i]);
+    }
+    for (int i = 1; i < items.length; i += 3) {
+      registry.remove(items[i]);
+    }
+    var expected = new ArrayList<Integer>();
+    for (int i = 2; i < items.length; i += 3) {
+      expected.add(items[i]);
+    }
+    for (int i = 0; i < items.length; i += 6) {
+      expected.add(items[i]);
+    }
+    assertArrayEquals(expected.toArray(), registry.snapshot());
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.contikios.mrm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.contikios.cooja.COOJARadioPacket;
+import org.contikios.cooja.RadioConnection;
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.TestFixtures;
+import org.contikios.cooja.interfaces.ApplicationRadio;
+import org.contikios.cooja.interfaces.Position;
+import org.contikios.cooja.interfaces.Radio;
+import org.contikios.mrm.ChannelModel.Parameter;
+import org.contikios.mrm.MRM.InterferenceAccumulator;
+import org.contikios.mrm.MRM.SinrOutcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TestMRM {
+  private static final double BACKGROUND = 1e-10; // -100 dBm
+  private static final double THRESHOLD = 3;
+  private static final double PREAMBLE = 1000;
+
+  private Simulation sim;
+  private MRM medium;
+
+  @AfterEach
+  public void tearDown() {
+    if (sim != null) {
+      TestFixtures.remove(sim);
+    }
+  }
+
+  /** Returns a radio of a mote that only knows its ID. */
+  private static Radio radio(int id) {
+    return new ApplicationRadio(TestFixtures.mote(id));
+  }
+
+  /** Creates an MRM with the SINR capture effect and deterministic signal strengths. */
+  private void createMedium() throws Exception {
+    sim = TestFixtures.simulation(1);
+    medium = new MRM(sim);
+    var channelModel = medium.getChannelModel();
+    channelModel.setParameterValue(Parameter.captureEffectSinr, true);
+    channelModel.setParameterValue(Parameter.system_gain_var, 0.0);
+    channelModel.setParameterValue(Parameter.tx_with_gain, false);
+  }
+
+  /** Returns a registered radio on channel 26 at the given position. */
+  private ApplicationRadio radio(int id, double x, double y) {
+    var radio = new ApplicationRadio(TestFixtures.mote(id, sim)) {
+      private final Position position = new Position(getMote());
+
+      @Override
+      public Position getPosition() {
+        return position;
+      }
+    };
+    radio.getPosition().setCoordinates(x, y, 0);
+    radio.setChannel(26);
+    medium.registerRadioInterface(radio, sim);
+    return radio;
+  }
+
+  /** Starts a transmission of 1000 us and returns its connection. */
+  private RadioConnection transmit(ApplicationRadio radio) {
+    TestFixtures.invoke(sim, () -> radio.startTransmittingPacket(new COOJARadioPacket(new byte[] { 1 }), 1000));
+    var connections = medium.getActiveConnections();
+    return connections[connections.length - 1];
+  }
+
+  private static double power(double dBm) {
+    return Math.pow(10, dBm / 10.0);
+  }
+
+  private static SinrOutcome resolve(double signal, double interference, boolean received, long receivingFor,
+                                     boolean capture) {
+    return MRM.resolveOngoingReception(signal, interference, BACKGROUND, received, receivingFor, capture,
+        THRESHOLD, PREAMBLE);
+  }
+
+  @Test
+  void testAccumulateIncrementally() {
+    var interference = new InterferenceAccumulator();
+    var a = radio(1);
+    var b = radio(2);
+    interference.add(a, 11, 1e-6);
+    interference.add(a, 11, 2e-6);
+    interference.add(b, 11, 4e-6);
+    assertEquals(3e-6, interference.get(a, 11), 1e-18);
+    assertEquals(4e-6, interference.get(b, 11), 1e-18);
+    interference.remove(a, 11, 1e-6);
+    assertEquals(2e-6, interference.get(a, 11), 1e-18);
+    assertEquals(4e-6, interference.get(b, 11), 1e-18);
+    // Removing power of another channel or radio changes nothing.
+    interference.remove(a, 12, 2e-6);
+    interference.remove(radio(3), 11, 2e-6);
+    assertEquals(2e-6, interference.get(a, 11), 1e-18);
+    interference.remove(b);
+    assertEquals(0, interference.get(b, 11));
+    assertEquals(2e-6, interference.get(a, 11), 1e-18);
+  }
+
+  @Test
+  void testResetWhenIdle() {
+    var interference = new InterferenceAccumulator();
+    var a = radio(1);
+    interference.add(a, 11, 0.1);
+    interference.add(a, 11, 0.2);
+    interference.remove(a, 11, 0.1);
+    // Subtracting leaves a rounding error, the last transmission resets it.
+    assertEquals(0.2, interference.get(a, 11), 1e-15);
+    interference.remove(a, 11, 0.2);
+    assertEquals(0.0, interference.get(a, 11));
+    // Extra removals do not go negative or count transmissions.
+    interference.remove(a, 11, 0.2);
+    assertEquals(0.0, interference.get(a, 11));
+    interference.add(a, 11, 0.3);
+    assertEquals(0.3, interference.get(a, 11));
+  }
+
+  @Test
+  void testChannels() {
+    var interference = new InterferenceAccumulator();
+    var a = radio(1);
+    interference.add(a, 11, 1e-6);
+    interference.add(a, 26, 2e-6);
+    interference.add(a, -1, 4e-6);
+    // Transmissions without channel are heard on every channel.
+    assertEquals(5e-6, interference.get(a, 11), 1e-18);
+    assertEquals(6e-6, interference.get(a, 26), 1e-18);
+    assertEquals(4e-6, interference.get(a, 15), 1e-18);
+    // Radios without channel hear every transmission.
+    assertEquals(7e-6, interference.get(a, -1), 1e-18);
+    interference.remove(a, -1, 4e-6);
+    assertEquals(1e-6, interference.get(a, 11), 1e-18);
+    assertEquals(3e-6, interference.get(a, -1), 1e-18);
+  }
+
+  @Test
+  void testSurvival() {
+    // A weak transmission leaves the SINR of the ongoing reception above the threshold.
+    assertEquals(SinrOutcome.SURVIVED, resolve(-60, power(-60) + power(-80), false, 0, true));
+    assertEquals(SinrOutcome.SURVIVED, resolve(-60, power(-60) + power(-80), true, 0, true));
+    // Only interference from other transmissions counts against the reception.
+    assertEquals(SinrOutcome.SURVIVED, resolve(-60, power(-60), false, 0, true));
+  }
+
+  @Test
+  void testCapture() {
+    var strong = power(-60) + power(-55);
+    assertEquals(SinrOutcome.CAPTURED, resolve(-60, strong, true, 100, true));
+    // Not after the preamble, not if not received, not without the capture effect.
+    assertEquals(SinrOutcome.INTERFERED, resolve(-60, strong, true, (long) PREAMBLE, true));
+    assertEquals(SinrOutcome.INTERFERED, resolve(-60, strong, false, 100, true));
+    assertEquals(SinrOutcome.INTERFERED, resolve(-60, strong, true, 100, false));
+  }
+
+  @Test
+  void testSummedInterference() {
+    var interference = new InterferenceAccumulator();
+    var recv = radio(1);
+    interference.add(recv, 11, power(-60));
+    interference.add(recv, 11, power(-64));
+    // One interferer alone leaves the SINR at about 4 dB.
+    assertEquals(SinrOutcome.SURVIVED, resolve(-60, interference.get(recv, 11), false, 0, true));
+    // Two together drop it to about 1 dB.
+    interference.add(recv, 11, power(-64));
+    assertEquals(SinrOutcome.INTERFERED, resolve(-60, interference.get(recv, 11), false, 0, true));
+    // Interferers on other channels are not heard.
+    interference.remove(recv, 11, power(-64));
+    interference.add(recv, 26, power(-64));
+    assertEquals(SinrOutcome.SURVIVED, resolve(-60, interference.get(recv, 11), false, 0, true));
+  }
+
+  @Test
+  void testSinrInterference() throws Exception {
+    createMedium();
+    // -60 dBm at the receiver from both senders.
+    var recv = radio(1, 0, 0);
+    var a = radio(2, 10, 0);
+    var b = radio(3, 0, 10);
+    var first = transmit(a);
+    assertTrue(first.isDestination(recv));
+    assertTrue(recv.isReceiving());
+
+    // The power of the first transmission drops the SINR of the second to 0 dB, after the preamble.
+    TestFixtures.run(sim, 100);
+    var second = transmit(b);
+    assertTrue(first.isInterfered(recv));
+    assertTrue(second.isInterfered(recv));
+    assertFalse(second.isDestination(recv));
+    assertTrue(recv.isInterfered());
+
+    // The power of ended transmissions is removed, so a new one is received.
+    TestFixtures.run(sim, 3000);
+    assertEquals(0, medium.getActiveConnections().length);
+    assertFalse(recv.isInterfered());
+    assertFalse(recv.isReceiving());
+    var third = transmit(b);
+    assertTrue(third.isDestination(recv));
+    assertFalse(third.isInterfered(recv));
+  }
+
+  @Test
+  void testSinrSurvival() throws Exception {
+    createMedium();
+    var recv = radio(1, 0, 0);
+    var a = radio(2, 10, 0);
+    var weak = radio(3, 0, 100);
+    var first = transmit(a);
+    TestFixtures.run(sim, 10);
+    // -80 dBm during a -60 dBm reception leaves the SINR at 20 dB.
+    var second = transmit(weak);
+    assertTrue(first.isDestination(recv));
+    assertFalse(first.isInterfered(recv));
+    assertFalse(second.isDestination(recv));
+    assertFalse(second.isInterfered(recv));
+    assertFalse(recv.isInterfered());
+  }
+
+  @Test
+  void testSinrCapture() throws Exception {
+    createMedium();
+    // -66 dBm from the first sender, -40 dBm from the second.
+    var recv = radio(1, 0, 0);
+    var far = radio(2, 20, 0);
+    var near = radio(3, 1, 0);
+    var first = transmit(far);
+    assertTrue(first.isDestination(recv));
+
+    // A stronger transmission during the preamble replaces the ongoing destination.
+    TestFixtures.run(sim, 10);
+    var second = transmit(near);
+    assertFalse(first.isDestination(recv));
+    assertTrue(second.isDestination(recv));
+    assertFalse(second.isInterfered(recv));
+    // The first sender hears the second one while transmitting.
+    assertTrue(second.isInterfered(far));
+
+    // Only the capturing transmission ends the reception.
+    TestFixtures.run(sim, 1005);
+    assertEquals(1, medium.getActiveConnections().length);
+    assertTrue(recv.isReceiving());
+    TestFixtures.run(sim, 3000);
+    assertFalse(recv.isReceiving());
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package se.sics.mspsim.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import se.sics.mspsim.chip.CC2420;
+import se.sics.mspsim.config.MSP430f1611Config;
+
+/**
+ * Runs DMA-driven SPI writes to the CC2420 TXFIFO with and without burst
+ * transfers and compares the state seen by the firmware.
+ */
+class TestDMA {
+  private static final int IFG1 = 0x02;
+  private static final int ME1 = 0x04;
+  private static final int WDTCTL = 0x120;
+  private static final int U0CTL = 0x70;
+  private static final int U0TCTL = 0x71;
+  private static final int U0BR0 = 0x74;
+  private static final int U0RXBUF = 0x76;
+  private static final int U0TXBUF = 0x77;
+  private static final int TX_BUFFER = 0x1100;
+  private static final int RX_BUFFER = 0x1200;
+  private static final int PROGRAM = 0x4000;
+
+  /** State of a run, sampled while the transfer is in progress and at the end. */
+  private record Run(List<String> samples, int sizeDuringTransfer, int[] rxBuffer, int[] txFifo, int events,
+                     String end) {}
+
+  private static void write(MSP430 cpu, int address, int value, Memory.AccessMode mode) {
+    cpu.currentSegment.write(address, value, mode);
+  }
+
+  private static int read(MSP430 cpu, int address) {
+    return cpu.currentSegment.read(address, Memory.AccessMode.WORD, Memory.AccessType.READ);
+  }
+
+  private static Run run(boolean burst, boolean rxChannel, boolean lowPower, int length) {
+    var config = new MSP430f1611Config();
+    var mem = new byte[config.maxMem];
+    // jmp $
+    mem[PROGRAM] = (byte) 0xff;
+    mem[PROGRAM + 1] = 0x3f;
+    mem[0xfffe] = (byte) (PROGRAM & 0xff);
+    mem[0xffff] = (byte) (PROGRAM >> 8);
+    var cpu = new MSP430(config, mem, null);
+    cpu.getIOUnit(DMA.class).setBurstTransfers(burst);
+    cpu.reset();
+    cpu.runCycles(cpu.cycles + 10);
+    write(cpu, WDTCTL, 0x5a80, Memory.AccessMode.WORD);
+
+    var radio = new CC2420(cpu);
+    var events = new int[1];
+    radio.addEventListener((source, event, data) -> {
+      if ("WRITE_TXFIFO".equals(event)) {
+        events[0]++;
+      }
+    });
+    var usart = cpu.getIOUnit(USART.class, "USART0");
+    usart.addUSARTListener(radio);
+    radio.setVRegOn(true);
+    cpu.runCycles(cpu.cycles + 10_000);
+
+    // SPI master, SMCLK / 2.
+    write(cpu, ME1, 0xc0, Memory.AccessMode.BYTE);
+    write(cpu, U0CTL, 0x16, Memory.AccessMode.BYTE);
+    write(cpu, U0TCTL, 0xa2, Memory.AccessMode.BYTE);
+    write(cpu, U0BR0, 2, Memory.AccessMode.BYTE);
+    radio.setChipSelect(true);
+
+    // TXFIFO command, length byte and payload.
+    write(cpu, TX_BUFFER, CC2420.REG_TXFIFO, Memory.AccessMode.BYTE);
+    for (int i = 1; i < length; i++) {
+      write(cpu, TX_BUFFER + i, (i * 37) & 0xff, Memory.AccessMode.BYTE);
+    }
+    write(cpu, DMA.DMACTL0, DMA.UTXIFG0 | (DMA.URXIFG0 << 4), Memory.AccessMode.WORD);
+    if (rxChannel) {
+      // Channel 1: URXBUF to RX_BUFFER, destination incremented, bytes.
+      write(cpu, DMA.DMAxSA + 8, U0RXBUF, Memory.AccessMode.WORD);
+      write(cpu, DMA.DMAxDA + 8, RX_BUFFER, Memory.AccessMode.WORD);
+      write(cpu, DMA.DMAxSZ + 8, length, Memory.AccessMode.WORD);
+      write(cpu, DMA.DMAxCTL + 8, 0x0cd0, Memory.AccessMode.WORD);
+    }
+    // Channel 0: TX_BUFFER to UTXBUF, source incremented, bytes.
+    write(cpu, DMA.DMAxSA, TX_BUFFER + 1, Memory.AccessMode.WORD);
+    write(cpu, DMA.DMAxDA, U0TXBUF, Memory.AccessMode.WORD);
+    write(cpu, DMA.DMAxSZ, length - 1, Memory.AccessMode.WORD);
+    write(cpu, DMA.DMAxCTL, 0x03d0, Memory.AccessMode.WORD);
+    // The firmware writes the first byte, the DMA the rest.
+    write(cpu, U0TXBUF, CC2420.REG_TXFIFO, Memory.AccessMode.BYTE);
+    if (lowPower) {
+      cpu.writeRegister(MSP430Constants.SR, MSP430Constants.CPUOFF);
+    }
+
+    // Sample the flags at every cycle of the transfer. URXBUF, which is
+    // cleared by reading, and DMAxSZ, which only counts down when moving
+    // byte by byte, are not sampled.
+    var samples = new ArrayList<String>();
+    long end = cpu.cycles + (length + 4L) * 20;
+    int sizeDuringTransfer = -1;
+    while (cpu.cycles < end) {
+      if (sizeDuringTransfer < 0 && samples.size() == 20) {
+        sizeDuringTransfer = read(cpu, DMA.DMAxSZ);
+      }
+      cpu.runCycles(cpu.cycles + 1);
+      samples.add(cpu.cycles + ": IFG1=" + (read(cpu, IFG1) & 0xc0)
+              + " U0TCTL=" + (read(cpu, U0TCTL) & 0xff)
+              + " DMA0CTL=" + read(cpu, DMA.DMAxCTL)
+              + " DMA1CTL=" + read(cpu, DMA.DMAxCTL + 8));
+    }
+    var state = "IFG1=" + (read(cpu, IFG1) & 0xc0)
+            + " DMA0SA=" + read(cpu, DMA.DMAxSA) + " DMA0SZ=" + read(cpu, DMA.DMAxSZ)
+            + " DMA1DA=" + read(cpu, DMA.DMAxDA + 8) + " DMA1SZ=" + read(cpu, DMA.DMAxSZ + 8)
+            + " URXBUF=" + (read(cpu, U0RXBUF) & 0xff) + " IFG1 after read=" + (read(cpu, IFG1) & 0xc0);
+
+    var rxBuffer = new int[length];
+    for (int i = 0; i < length; i++) {
+      rxBuffer[i] = cpu.currentSegment.read(RX_BUFFER + i, Memory.AccessMode.BYTE, Memory.AccessType.READ);
+    }
+
+    // Read the TXFIFO back from the CC2420 RAM.
+    var fifo = new ArrayList<Integer>();
+    var spi = new USARTSource() {
+      @Override
+      public void addUSARTListener(USARTListener listener) {
+      }
+
+      @Override
+      public void removeUSARTListener(USARTListener listener) {
+      }
+
+      @Override
+      public void addStateChangeListener(StateChangeListener listener) {
+      }
+
+      @Override
+      public void removeStateChangeListener(StateChangeListener listener) {
+      }
+
+      @Override
+      public boolean isReceiveFlagCleared() {
+        return true;
+      }
+
+      @Override
+      public void byteReceived(int b) {
+        fifo.add(b);
+      }
+    };
+    radio.setChipSelect(false);
+    radio.setChipSelect(true);
+    radio.dataReceived(spi, CC2420.FLAG_RAM | CC2420.RAM_TXFIFO);
+    radio.dataReceived(spi, CC2420.FLAG_RAM_READ);
+    fifo.clear();
+    for (int i = 1; i < length; i++) {
+      radio.dataReceived(spi, 0);
+    }
+    var txFifo = fifo.stream().mapToInt(Integer::intValue).toArray();
+    return new Run(samples, sizeDuringTransfer, rxBuffer, txFifo, events[0], state);
+  }
+
+  private static void assertSameRun(boolean rxChannel, boolean lowPower, int length) {
+    var bytes = run(false, rxChannel, lowPower, length);
+    var burst = run(true, rxChannel, lowPower, length);
+    // With the CPU running, the byte by byte transfer flags received bytes
+    // up to an instruction late, so only the end state is the same.
+    if (lowPower) {
+      for (int i = 0; i < bytes.samples().size(); i++) {
+        assertEquals(bytes.samples().get(i), burst.samples().get(i));
+      }
+    }
+    assertEquals(bytes.end(), burst.end());
+    assertArrayEquals(bytes.rxBuffer(), burst.rxBuffer());
+    assertArrayEquals(bytes.txFifo(), burst.txFifo());
+    assertEquals(bytes.events(), burst.events());
+
+    var payload = new int[length - 1];
+    for (int i = 1; i < length; i++) {
+      payload[i - 1] = (i * 37) & 0xff;
+    }
+    assertArrayEquals(payload, burst.txFifo());
+    assertEquals(length - 1, burst.events());
+    // The transfer completed and flagged it.
+    assertTrue(burst.samples().get(burst.samples().size() - 1).contains("DMA0CTL=" + (0x03d0 | DMA.IFG_MASK)));
+    if (length > 3) {
+      // The burst moved all bytes at once.
+      assertEquals(0, burst.sizeDuringTransfer());
+      assertTrue(bytes.sizeDuringTransfer() > 0);
+    }
+  }
+
+  @Test
+  void testBurstMatchesBytes() {
+    assertSameRun(false, true, 22);
+    assertSameRun(false, false, 22);
+  }
+
+  @Test
+  void testBurstMatchesBytesWithReceiveChannel() {
+    assertSameRun(true, true, 22);
+    assertSameRun(true, false, 22);
+  }
+
+  @Test
+  void testShortBurst() {
+    assertSameRun(false, true, 3);
+    assertSameRun(true, true, 3);
+  }
+}
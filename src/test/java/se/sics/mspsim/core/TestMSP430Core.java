@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package se.sics.mspsim.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import se.sics.mspsim.config.MSP430f1611Config;
+
+class TestMSP430Core {
+  /** RAM address on the MSP430F1611. */
+  private static final int ADDRESS = 0x1100;
+
+  /* Timer A registers on the MSP430F1611 */
+  private static final int TACTL = 0x160;
+  private static final int TACCTL0 = 0x162;
+  private static final int TACCTL1 = 0x164;
+  private static final int TACCR0 = 0x172;
+  private static final int TACCR1 = 0x174;
+  /* ACLK source, continuous mode */
+  private static final int TIMER_ACLK_CONTINUOUS = 0x0120;
+  private static final int WDTCTL = 0x120;
+  private static final int WDT_HOLD = 0x5a80;
+
+  private static MSP430Core createCore() {
+    var config = new MSP430f1611Config();
+    return new MSP430Core(config, new byte[config.maxMem]);
+  }
+
+  /** Returns a CPU in LPM3 with interrupts disabled and timer A running from ACLK. */
+  private static MSP430 createSleepingCPU() throws EmulationException {
+    var config = new MSP430f1611Config();
+    var cpu = new MSP430(config, new byte[config.maxMem], null);
+    cpu.currentSegment.write(WDTCTL, WDT_HOLD, Memory.AccessMode.WORD);
+    cpu.currentSegment.write(TACTL, TIMER_ACLK_CONTINUOUS, Memory.AccessMode.WORD);
+    cpu.writeRegister(MSP430Constants.SR, MSP430Constants.CPUOFF | MSP430Constants.SCG0 | MSP430Constants.SCG1);
+    return cpu;
+  }
+
+  private static int read(MSP430Core cpu, int address) {
+    return cpu.currentSegment.read(address, Memory.AccessMode.WORD, Memory.AccessType.READ);
+  }
+
+  @Test
+  void testWatchPointNotified() {
+    var cpu = createCore();
+    var reads = new int[1];
+    var writes = new int[1];
+    var mon = new MemoryMonitor.Adapter() {
+      @Override
+      public void notifyReadBefore(int addr, Memory.AccessMode mode, Memory.AccessType type) {
+        reads[0]++;
+      }
+
+      @Override
+      public void notifyWriteBefore(int dstAddress, int data, Memory.AccessMode mode) {
+        writes[0]++;
+      }
+    };
+    cpu.addWatchPoint(ADDRESS, mon);
+    assertTrue(cpu.hasWatchPoint(ADDRESS));
+    cpu.currentSegment.write(ADDRESS, 0x42, Memory.AccessMode.BYTE);
+    assertEquals(0x42, cpu.currentSegment.read(ADDRESS, Memory.AccessMode.BYTE, Memory.AccessType.READ));
+    assertEquals(1, reads[0]);
+    assertEquals(1, writes[0]);
+
+    cpu.removeWatchPoint(ADDRESS, mon);
+    assertFalse(cpu.hasWatchPoint(ADDRESS));
+    cpu.currentSegment.write(ADDRESS, 0x43, Memory.AccessMode.BYTE);
+    assertEquals(0x43, cpu.currentSegment.read(ADDRESS, Memory.AccessMode.BYTE, Memory.AccessType.READ));
+    assertEquals(1, reads[0]);
+    assertEquals(1, writes[0]);
+  }
+
+  @Test
+  void testConcurrentWatchPointUpdates() throws InterruptedException {
+    var cpu = createCore();
+    var mon = new MemoryMonitor.Adapter();
+    var failure = new AtomicReference<Throwable>();
+    var updater = new Thread(() -> {
+      try {
+        // Add and remove watch points on the same page, so the page
+        // tables are also allocated and released.
+        for (int i = 0; i < 200_000; i++) {
+          cpu.addWatchPoint(ADDRESS, mon);
+          cpu.addWatchPoint(ADDRESS + 1, mon);
+          cpu.removeWatchPoint(ADDRESS, mon);
+          cpu.removeWatchPoint(ADDRESS + 1, mon);
+        }
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+      }
+    });
+    updater.start();
+    try {
+      int value = 0;
+      while (updater.isAlive() && failure.get() == null) {
+        value = (value + 1) & 0xff;
+        cpu.currentSegment.write(ADDRESS, value, Memory.AccessMode.BYTE);
+        assertEquals(value, cpu.currentSegment.read(ADDRESS, Memory.AccessMode.BYTE, Memory.AccessType.READ));
+        cpu.currentSegment.read(ADDRESS, Memory.AccessMode.BYTE, Memory.AccessType.EXECUTE);
+      }
+    } catch (Throwable t) {
+      failure.compareAndSet(null, t);
+    } finally {
+      updater.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError("Watch point update raced with memory access", failure.get());
+    }
+    assertFalse(cpu.hasWatchPoint(ADDRESS));
+  }
+
+  @Test
+  void testSleepPastQuietCompare() throws EmulationException {
+    var cpu = createSleepingCPU();
+    // Compare 0 cannot flag an interrupt, compare 1 can.
+    cpu.currentSegment.write(TACCR0, 100, Memory.AccessMode.WORD);
+    cpu.currentSegment.write(TACCR1, 1000, Memory.AccessMode.WORD);
+    cpu.currentSegment.write(TACCTL1, Timer.CC_IE, Memory.AccessMode.WORD);
+    // The CPU asks to be woken up micros after the microsecond it executed.
+    long now = 0;
+    long micros = cpu.stepMicros(0, 1);
+    assertTrue(micros > 100 * 1000000L / 32768, "Woke up at quiet event: " + micros);
+    assertEquals(1000 * 1000000L / 32768, now + micros + 1, 1.0);
+    assertEquals(0, read(cpu, TACCTL0) & Timer.CC_IFG);
+
+    // The quiet event runs on the way. The wakeup reaches the cycle of the
+    // next event, which runs in the following microsecond.
+    now += micros + 1;
+    micros = cpu.stepMicros(micros + 1, 1);
+    assertEquals(Timer.CC_IFG, read(cpu, TACCTL0) & Timer.CC_IFG);
+    now += micros + 1;
+    micros = cpu.stepMicros(micros + 1, 1);
+    assertEquals(Timer.CC_IFG, read(cpu, TACCTL1) & Timer.CC_IFG);
+    // The next wakeup is compare 1 after the timer wraps, past the quiet
+    // overflow (TAIE clear) and compare 0.
+    assertEquals((0x10000 + 1000) * 1000000L / 32768, now + micros + 1, 2.0);
+  }
+
+  @Test
+  void testSleepToEnabledOverflow() throws EmulationException {
+    var cpu = createSleepingCPU();
+    // Both compares are quiet, the overflow interrupt is enabled (TAIE).
+    cpu.currentSegment.write(TACTL, TIMER_ACLK_CONTINUOUS | 0x02, Memory.AccessMode.WORD);
+    cpu.currentSegment.write(TACCR0, 100, Memory.AccessMode.WORD);
+    cpu.currentSegment.write(TACCR1, 1000, Memory.AccessMode.WORD);
+    long micros = cpu.stepMicros(0, 1);
+    assertEquals(0x10000 * 1000000L / 32768, micros + 1, 1.0);
+    cpu.stepMicros(micros + 1, 1);
+    assertEquals(Timer.CC_IFG, read(cpu, TACCTL0) & Timer.CC_IFG);
+    assertEquals(Timer.CC_IFG, read(cpu, TACCTL1) & Timer.CC_IFG);
+  }
+}
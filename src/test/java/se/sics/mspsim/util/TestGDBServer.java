@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2024, Research Institutes of Sweden. All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. Neither the name of the
+ * Institute nor the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package se.sics.mspsim.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.sics.mspsim.config.MSP430f1611Config;
+import se.sics.mspsim.core.MSP430Core;
+
+class TestGDBServer {
+  /** RAM address on the MSP430F1611. */
+  private static final int ADDRESS = 0x1100;
+
+  private MSP430Core cpu;
+  private GDBServer server;
+  private Socket socket;
+  private InputStream in;
+  private OutputStream out;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    var config = new MSP430f1611Config();
+    cpu = new MSP430Core(config, new byte[config.maxMem]);
+    // Tasks run on the calling thread, one at a time.
+    server = new GDBServer(0, new GDBServer.Host() {
+      @Override
+      public synchronized void invoke(Runnable task) {
+        task.run();
+      }
+
+      @Override
+      public void resume() {
+      }
+
+      @Override
+      public boolean isRunning() {
+        return false;
+      }
+    });
+    server.addTarget(1, new GDBServer.Target() {
+      @Override
+      public MSP430Core getCPU() {
+        return cpu;
+      }
+
+      @Override
+      public String getName() {
+        return "cpu";
+      }
+
+      @Override
+      public void stopNextInstruction() {
+      }
+    });
+    socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    socket.setSoTimeout(10000);
+    in = socket.getInputStream();
+    out = socket.getOutputStream();
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    socket.close();
+    server.close();
+  }
+
+  private static String checksum(byte[] payload) {
+    int sum = 0;
+    for (byte b : payload) {
+      sum += b & 0xff;
+    }
+    return String.format("%02x", sum & 0xff);
+  }
+
+  /** Sends a packet with an already escaped payload and returns the acknowledgement. */
+  private int send(byte[] payload, String checksum) throws IOException {
+    var packet = new ByteArrayOutputStream();
+    packet.write('$');
+    packet.write(payload);
+    packet.write('#');
+    packet.write(checksum.getBytes(StandardCharsets.US_ASCII));
+    out.write(packet.toByteArray());
+    out.flush();
+    return in.read();
+  }
+
+  /** Reads a reply packet and checks its checksum. */
+  private String reply() throws IOException {
+    int b;
+    while ((b = in.read()) != '$') {
+      assertTrue(b >= 0, "Connection closed");
+    }
+    var payload = new ByteArrayOutputStream();
+    while ((b = in.read()) != '#') {
+      assertTrue(b >= 0, "Connection closed");
+      payload.write(b);
+    }
+    var sum = new String(new byte[] {(byte) in.read(), (byte) in.read()}, StandardCharsets.US_ASCII);
+    assertEquals(checksum(payload.toByteArray()), sum);
+    return payload.toString(StandardCharsets.ISO_8859_1);
+  }
+
+  private String request(byte[] payload) throws IOException {
+    assertEquals('+', send(payload, checksum(payload)));
+    return reply();
+  }
+
+  private String request(String payload) throws IOException {
+    return request(payload.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private int readByte(int address) {
+    return cpu.memory[address] & 0xff;
+  }
+
+  @Test
+  void testBadChecksum() throws IOException {
+    var payload = "m1100,2".getBytes(StandardCharsets.US_ASCII);
+    var good = checksum(payload);
+    var bad = String.format("%02x", (Integer.parseInt(good, 16) + 1) & 0xff);
+    assertEquals('-', send(payload, bad));
+    assertEquals('-', send(payload, "zz"));
+    // The client resends the packet, which is handled once.
+    assertEquals('+', send(payload, good));
+    assertEquals("0000", reply());
+  }
+
+  @Test
+  void testEscapes() throws IOException {
+    // Binary write of '#', '$', '}' and '*', escaped as '}' followed by the byte xor 0x20.
+    var payload = new ByteArrayOutputStream();
+    payload.write("X1100,5:".getBytes(StandardCharsets.US_ASCII));
+    payload.write(new byte[] {'}', '#' ^ 0x20, '}', '$' ^ 0x20, '}', '}' ^ 0x20, '}', '*' ^ 0x20, 'a'});
+    assertEquals("OK", request(payload.toByteArray()));
+    assertEquals('#', readByte(ADDRESS));
+    assertEquals('$', readByte(ADDRESS + 1));
+    assertEquals('}', readByte(ADDRESS + 2));
+    assertEquals('*', readByte(ADDRESS + 3));
+    assertEquals('a', readByte(ADDRESS + 4));
+    assertEquals("23247d2a61", request("m1100,5"));
+  }
+
+  @Test
+  void testMemory() throws IOException {
+    assertEquals("OK", request("M1100,3:a1b2c3"));
+    assertEquals(0xa1, readByte(ADDRESS));
+    assertEquals(0xb2, readByte(ADDRESS + 1));
+    assertEquals(0xc3, readByte(ADDRESS + 2));
+    assertEquals("a1b2c3", request("m1100,3"));
+    assertEquals("b2", request("m1101,1"));
+    // Too short data and addresses outside memory are errors.
+    assertEquals("E01", request("M1100,3:a1b2"));
+    assertEquals("E01", request("m" + Integer.toHexString(cpu.MAX_MEM) + ",1"));
+    assertEquals("a1b2c3", request("m1100,3"));
+  }
+
+  @Test
+  void testBreakpoints() throws IOException {
+    assertEquals("OK", request("Z0,4000,2"));
+    assertTrue(cpu.hasWatchPoint(0x4000));
+    assertEquals("OK", request("Z2,1100,2"));
+    assertTrue(cpu.hasWatchPoint(ADDRESS));
+    assertTrue(cpu.hasWatchPoint(ADDRESS + 1));
+    assertEquals("OK", request("z0,4000,2"));
+    assertFalse(cpu.hasWatchPoint(0x4000));
+    assertTrue(cpu.hasWatchPoint(ADDRESS));
+    assertEquals("OK", request("z2,1100,2"));
+    assertFalse(cpu.hasWatchPoint(ADDRESS));
+    assertFalse(cpu.hasWatchPoint(ADDRESS + 1));
+    assertEquals("E01", request("Z5,4000,2"));
+  }
+
+  @Test
+  void testRegisters() throws IOException {
+    cpu.writeRegister(4, 0x1234);
+    cpu.writeRegister(15, 0xbeef);
+    assertEquals("3412", request("p4"));
+    assertEquals("efbe", request("pf"));
+    assertEquals("E01", request("p10"));
+    var regs = request("g");
+    assertEquals(64, regs.length());
+    assertEquals("3412", regs.substring(16, 20));
+    assertEquals("efbe", regs.substring(60, 64));
+    assertEquals("OK", request("P5=7856"));
+    assertEquals(0x5678, cpu.reg[5]);
+  }
+}